@@ -0,0 +1,106 @@
+package chen.eric.connect4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the original <code>StringBuffer</code> rendering of a half-filled board with the
+ * {@link BoardRenderer} paths.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardRendererBenchmark {
+	/**
+	 * Board size as <code>columns x rows</code>.
+	 */
+	@Param({"7x6", "100x100"})
+	public String size;
+
+	private GravityBoard board;
+	private BoardRenderer renderer;
+	private StringBuilder stringBuilder;
+	private ByteBuffer buffer;
+
+	@Setup
+	public void setUp() {
+		final String[] dimensions = size.split("x");
+		final int numberOfColumns = Integer.parseInt(dimensions[0]);
+		final int numberOfRows = Integer.parseInt(dimensions[1]);
+		this.board = new GravityBoard(numberOfColumns, numberOfRows, Integer.MAX_VALUE);
+		final SplittableRandom random = new SplittableRandom(1);
+		Token player = Token.Black;
+		for (int count = 0; count < numberOfColumns * numberOfRows / 2; count++) {
+			board.move(player, board.getOpenColumnIndex(random.nextInt(board.getOpenColumnCount())));
+			player = player.getOpponent();
+		}
+		this.renderer = new BoardRenderer(true);
+		this.stringBuilder = new StringBuilder(BoardRenderer.getRenderedLength(numberOfColumns, numberOfRows));
+		this.buffer = ByteBuffer.allocateDirect(BoardRenderer.getRenderedLength(numberOfColumns, numberOfRows));
+	}
+
+	/**
+	 * The original <code>GravityBoard.toString</code> algorithm.
+	 */
+	@Benchmark
+	public String legacyToString() {
+		final int numberOfColumns = board.getNumberOfColumns();
+		final StringBuffer stringBuffer = new StringBuffer();
+		for (int rowCount = board.getNumberOfRows() - 1; rowCount >= 0; rowCount--) {
+			if (numberOfColumns > 0) {
+				for (int columnCount = 0; columnCount < numberOfColumns; columnCount++) {
+					final Token token = board.getToken(columnCount, rowCount);
+					stringBuffer.append("| ")
+						.append(token == null ? ' ' : token.getCharValue())
+						.append(" ");
+				}
+				stringBuffer.append("|\n");
+			}
+		}
+		for (int count = 0; count < numberOfColumns * 4 + 1; count++) {
+			stringBuffer.append('-');
+		}
+		stringBuffer.append("\n");
+		return stringBuffer.toString();
+	}
+
+	@Benchmark
+	public String boardToString() {
+		return board.toString();
+	}
+
+	@Benchmark
+	public String renderString() {
+		return renderer.render(board);
+	}
+
+	@Benchmark
+	public int renderStringBuilder() throws IOException {
+		stringBuilder.setLength(0);
+		renderer.render(board, stringBuilder);
+		return stringBuilder.length();
+	}
+
+	@Benchmark
+	public int renderByteBuffer() {
+		buffer.clear();
+		return renderer.render(board, buffer);
+	}
+}
@@ -0,0 +1,185 @@
+package chen.eric.connect4;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the {@link GravityBoard} hot paths on a half-filled board.
+ * <p>
+ * Moves and win checks cycle through precomputed random samples, so that every invocation does
+ * the same work without branch predictors learning a single position.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GravityBoardBenchmark {
+	private static final int SAMPLE_COUNT = 1024;
+	private static final long SEED = 1;
+
+	/**
+	 * Board size as <code>columns x rows x win count</code>.
+	 */
+	@Param({"7x6x4", "100x100x5"})
+	public String size;
+
+	private int numberOfColumns;
+	private int numberOfRows;
+	private int winCount;
+	private GravityBoard board;
+	private GravityBoard.WinChecker verticalWinChecker;
+	private GravityBoard.WinChecker horizontalWinChecker;
+	private GravityBoard.WinChecker upRightWinChecker;
+	private GravityBoard.WinChecker upLeftWinChecker;
+	private final int[] moveColumnIndexes = new int[SAMPLE_COUNT];
+	private final Token[] moveTokens = new Token[SAMPLE_COUNT];
+	private final int[] cellColumnIndexes = new int[SAMPLE_COUNT];
+	private final int[] cellRowIndexes = new int[SAMPLE_COUNT];
+	private final Token[] cellTokens = new Token[SAMPLE_COUNT];
+	private int sampleIndex;
+	private long gameSeed = SEED;
+
+	@Setup
+	public void setUp() {
+		final String[] dimensions = size.split("x");
+		this.numberOfColumns = Integer.parseInt(dimensions[0]);
+		this.numberOfRows = Integer.parseInt(dimensions[1]);
+		this.winCount = Integer.parseInt(dimensions[2]);
+		this.board = createHalfFilledBoard(new SplittableRandom(SEED));
+		this.verticalWinChecker = board.new VerticalWinChecker();
+		this.horizontalWinChecker = board.new HorizontalWinChecker();
+		this.upRightWinChecker = board.new UpRightWinChecker();
+		this.upLeftWinChecker = board.new UpLeftWinChecker();
+
+		final SplittableRandom random = new SplittableRandom(SEED + 1);
+		for (int count = 0; count < SAMPLE_COUNT; count++) {
+			int columnIndex = random.nextInt(numberOfColumns);
+			while (board.getColumnSize(columnIndex) >= numberOfRows) {
+				columnIndex = random.nextInt(numberOfColumns);
+			}
+			moveColumnIndexes[count] = columnIndex;
+			moveTokens[count] = random.nextBoolean() ? Token.Black : Token.Red;
+
+			while (board.getColumnSize(columnIndex) == 0) {
+				columnIndex = random.nextInt(numberOfColumns);
+			}
+			final int rowIndex = random.nextInt(board.getColumnSize(columnIndex));
+			cellColumnIndexes[count] = columnIndex;
+			cellRowIndexes[count] = rowIndex;
+			cellTokens[count] = board.getToken(columnIndex, rowIndex);
+		}
+	}
+
+	/**
+	 * Fills about half the board with random moves that do not end the game.
+	 */
+	protected GravityBoard createHalfFilledBoard(SplittableRandom random) {
+		final GravityBoard board = new GravityBoard(numberOfColumns, numberOfRows, winCount);
+		final int targetTokenCount = numberOfColumns * numberOfRows / 2;
+		Token player = Token.Black;
+		int tokenCount = 0;
+		for (int attemptCount = 0; tokenCount < targetTokenCount && attemptCount < 4 * targetTokenCount; attemptCount++) {
+			final int columnIndex = random.nextInt(numberOfColumns);
+			if (board.getColumnSize(columnIndex) < numberOfRows) {
+				if (board.moveStatus(player, columnIndex) == BoardState.ONGOING_STATUS) {
+					++tokenCount;
+					player = player.getOpponent();
+				}
+				else {
+					board.undo(columnIndex);
+				}
+			}
+		}
+		return board;
+	}
+
+	protected int nextSampleIndex() {
+		return sampleIndex = (sampleIndex + 1) & (SAMPLE_COUNT - 1);
+	}
+
+	/**
+	 * Makes and then undoes a move, so that the board stays half-filled.
+	 */
+	@Benchmark
+	public BoardState move() {
+		final int index = nextSampleIndex();
+		final int columnIndex = moveColumnIndexes[index];
+		final BoardState boardState = board.move(moveTokens[index], columnIndex);
+		board.undo(columnIndex);
+		return boardState;
+	}
+
+	@Benchmark
+	public boolean verticalWinChecker() {
+		final int index = nextSampleIndex();
+		return verticalWinChecker.isWinner(cellTokens[index], cellColumnIndexes[index], cellRowIndexes[index]);
+	}
+
+	@Benchmark
+	public boolean horizontalWinChecker() {
+		final int index = nextSampleIndex();
+		return horizontalWinChecker.isWinner(cellTokens[index], cellColumnIndexes[index], cellRowIndexes[index]);
+	}
+
+	@Benchmark
+	public boolean upRightWinChecker() {
+		final int index = nextSampleIndex();
+		return upRightWinChecker.isWinner(cellTokens[index], cellColumnIndexes[index], cellRowIndexes[index]);
+	}
+
+	@Benchmark
+	public boolean upLeftWinChecker() {
+		final int index = nextSampleIndex();
+		return upLeftWinChecker.isWinner(cellTokens[index], cellColumnIndexes[index], cellRowIndexes[index]);
+	}
+
+	@Benchmark
+	public boolean isFull() {
+		return board.isFull();
+	}
+
+	@Benchmark
+	public String render() {
+		return board.toString();
+	}
+
+	/**
+	 * Plays a random game to the end on a new board.
+	 *
+	 * @return the number of moves played.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public int randomGame() {
+		final SplittableRandom random = new SplittableRandom(gameSeed++);
+		final GravityBoard board = new GravityBoard(numberOfColumns, numberOfRows, winCount);
+		Token player = Token.Black;
+		int status = BoardState.ONGOING_STATUS;
+		int moveCount = 0;
+		while (status == BoardState.ONGOING_STATUS) {
+			int columnIndex = random.nextInt(numberOfColumns);
+			while (board.getColumnSize(columnIndex) >= numberOfRows) {
+				columnIndex = random.nextInt(numberOfColumns);
+			}
+			status = board.moveStatus(player, columnIndex);
+			player = player.getOpponent();
+			++moveCount;
+		}
+		return moveCount;
+	}
+}
@@ -0,0 +1,70 @@
+package chen.eric.connect4;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the per-move cost of {@link GravityBoard} as the number of columns grows.
+ * <p>
+ * Every column but the last is filled, with a win count too long to reach, so that each move
+ * in the last column has to check for a draw.  The cost should not depend on the number of
+ * columns.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GravityBoardScalingBenchmark {
+	private static final int NUMBER_OF_ROWS = 6;
+
+	@Param({"7", "100", "1000", "10000"})
+	public int numberOfColumns;
+
+	private GravityBoard board;
+	private int lastColumnIndex;
+	private int openColumnCount;
+
+	@Setup
+	public void setUp() {
+		this.board = new GravityBoard(numberOfColumns, NUMBER_OF_ROWS, Math.max(numberOfColumns, NUMBER_OF_ROWS) + 1);
+		this.lastColumnIndex = numberOfColumns - 1;
+		for (int columnCount = 0; columnCount < lastColumnIndex; columnCount++) {
+			for (int rowCount = 0; rowCount < NUMBER_OF_ROWS; rowCount++) {
+				// alternate tokens in pairs of columns, so that no line grows long
+				board.move(((columnCount >> 1) + rowCount) % 2 == 0 ? Token.Black : Token.Red, columnCount);
+			}
+		}
+	}
+
+	/**
+	 * Makes and then undoes a move in the only open column.
+	 */
+	@Benchmark
+	public int moveAndUndo() {
+		final int status = board.moveStatus(Token.Black, lastColumnIndex);
+		board.undo(lastColumnIndex);
+		return status;
+	}
+
+	/**
+	 * Looks up a legal move.
+	 */
+	@Benchmark
+	public int openColumnIndex() {
+		openColumnCount = board.getOpenColumnCount();
+		return board.getOpenColumnIndex(openColumnCount - 1);
+	}
+}
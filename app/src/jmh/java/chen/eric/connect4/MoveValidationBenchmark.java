@@ -0,0 +1,108 @@
+package chen.eric.connect4;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of rejecting an illegal move: a move into a full column and a move off the
+ * board.  The <code>legacy</code> benchmarks reproduce the previous behaviour, which caught
+ * <code>ArrayIndexOutOfBoundsException</code> and wrapped it with a stack trace; the
+ * <code>NoStackTrace</code> benchmarks run with {@link InvalidMoveException#STACK_TRACE_PROPERTY}
+ * set to <code>false</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveValidationBenchmark {
+	private static final int FULL_COLUMN_INDEX = 0;
+	private static final int INVALID_COLUMN_INDEX = GravityBoard.DEFAULT_NUM_COLUMNS;
+
+	private GravityBoard board;
+	private Object[] columns;
+
+	@Setup
+	public void setUp() {
+		this.board = new GravityBoard();
+		Token player = Token.Black;
+		for (int count = 0; count < GravityBoard.DEFAULT_NUM_ROWS; count++) {
+			board.move(player, FULL_COLUMN_INDEX);
+			player = player.getOpponent();
+		}
+		this.columns = new Object[GravityBoard.DEFAULT_NUM_COLUMNS];
+	}
+
+	@Benchmark
+	public int legacyInvalidColumnIndex() {
+		try {
+			return columns[INVALID_COLUMN_INDEX].hashCode();
+		}
+		catch (ArrayIndexOutOfBoundsException exception) {
+			try {
+				throw new InvalidColumnIndexException(exception);
+			}
+			catch (InvalidColumnIndexException invalidColumnIndexException) {
+				return -1;
+			}
+		}
+	}
+
+	@Benchmark
+	public int moveInvalidColumnIndex() {
+		try {
+			return board.moveStatus(Token.Red, INVALID_COLUMN_INDEX);
+		}
+		catch (InvalidColumnIndexException exception) {
+			return -1;
+		}
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = "-D" + InvalidMoveException.STACK_TRACE_PROPERTY + "=false")
+	public int moveInvalidColumnIndexNoStackTrace() {
+		return moveInvalidColumnIndex();
+	}
+
+	@Benchmark
+	public int tryMoveInvalidColumnIndex() {
+		return board.tryMove(Token.Red, INVALID_COLUMN_INDEX);
+	}
+
+	@Benchmark
+	public int moveColumnFull() {
+		try {
+			return board.moveStatus(Token.Red, FULL_COLUMN_INDEX);
+		}
+		catch (ColumnFullException exception) {
+			return -1;
+		}
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = "-D" + InvalidMoveException.STACK_TRACE_PROPERTY + "=false")
+	public int moveColumnFullNoStackTrace() {
+		return moveColumnFull();
+	}
+
+	@Benchmark
+	public int tryMoveColumnFull() {
+		return board.tryMove(Token.Red, FULL_COLUMN_INDEX);
+	}
+
+	@Benchmark
+	public boolean isLegalColumnFull() {
+		return board.isLegal(FULL_COLUMN_INDEX);
+	}
+}
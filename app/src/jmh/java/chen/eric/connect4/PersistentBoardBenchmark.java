@@ -0,0 +1,64 @@
+package chen.eric.connect4;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares deriving a child position by copying a {@link GravityBoard} and moving with
+ * {@link PersistentBoard#play(Token, int)}, on a half-filled board.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersistentBoardBenchmark {
+	/**
+	 * Board size as <code>columns x rows</code>.
+	 */
+	@Param({"7x6", "100x100"})
+	public String size;
+
+	private GravityBoard gravityBoard;
+	private PersistentBoard persistentBoard;
+	private int columnIndex;
+
+	@Setup
+	public void setUp() {
+		final String[] dimensions = size.split("x");
+		final int numberOfColumns = Integer.parseInt(dimensions[0]);
+		final int numberOfRows = Integer.parseInt(dimensions[1]);
+		this.gravityBoard = new GravityBoard(numberOfColumns, numberOfRows, Integer.MAX_VALUE);
+		for (int columnCount = 0; columnCount < numberOfColumns; columnCount++) {
+			for (int rowCount = 0; rowCount < numberOfRows / 2; rowCount++) {
+				gravityBoard.move((columnCount + rowCount) % 2 == 0 ? Token.Black : Token.Red, columnCount);
+			}
+		}
+		this.persistentBoard = PersistentBoard.of(gravityBoard);
+		this.columnIndex = numberOfColumns / 2;
+	}
+
+	@Benchmark
+	public GravityBoard copyAndMove() {
+		final GravityBoard child = new GravityBoard(gravityBoard);
+		child.move(Token.Black, columnIndex);
+		return child;
+	}
+
+	@Benchmark
+	public PersistentBoard play() {
+		return persistentBoard.play(Token.Black, columnIndex);
+	}
+}
@@ -0,0 +1,77 @@
+package chen.eric.connect4.evaluation;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chen.eric.connect4.GravityBoard;
+import chen.eric.connect4.PositionCodec;
+import chen.eric.connect4.Token;
+
+/**
+ * Measures the cost per position of scoring random 7x6 positions one at a time, in blocks on one
+ * thread and in blocks on every thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchEvaluatorBenchmark {
+	private static final int POSITION_COUNT = 1 << 16;
+
+	private BatchEvaluator evaluator;
+	private long[] keys;
+	private int[] scores;
+
+	@Setup
+	public void setUp() {
+		this.evaluator = new BatchEvaluator(GravityBoard.DEFAULT_NUM_COLUMNS, GravityBoard.DEFAULT_NUM_ROWS, GravityBoard.DEFAULT_WIN_COUNT);
+		this.keys = new long[POSITION_COUNT];
+		this.scores = new int[POSITION_COUNT];
+		final SplittableRandom random = new SplittableRandom(1);
+		for (int count = 0; count < POSITION_COUNT; count++) {
+			final GravityBoard board = new GravityBoard();
+			final int moveCount = random.nextInt(30);
+			for (int moveIndex = 0; moveIndex < moveCount; moveIndex++) {
+				board.moveStatus(moveIndex % 2 == 0 ? Token.Black : Token.Red,
+					board.getOpenColumnIndex(random.nextInt(board.getOpenColumnCount())));
+			}
+			keys[count] = PositionCodec.encode(board);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(POSITION_COUNT)
+	public int[] perPosition() {
+		for (int count = 0; count < POSITION_COUNT; count++) {
+			evaluator.evaluate(keys, count, 1, scores, count);
+		}
+		return scores;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(POSITION_COUNT)
+	public int[] batch() {
+		evaluator.evaluate(keys, 0, POSITION_COUNT, scores, 0);
+		return scores;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(POSITION_COUNT)
+	public int[] parallel() {
+		return evaluator.evaluateParallel(keys);
+	}
+}
@@ -0,0 +1,51 @@
+package chen.eric.connect4.perft;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chen.eric.connect4.BitBoard;
+import chen.eric.connect4.Board;
+import chen.eric.connect4.GravityBoard;
+
+/**
+ * Measures the time for a single-threaded perft to depth 6 on the standard board, counting
+ * every move sequence (137,256 positions) or distinct positions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PerftBenchmark {
+	@Param({"gravity", "bit"})
+	public String board;
+
+	@Param({"false", "true"})
+	public boolean deduplicate;
+
+	private Perft perft;
+
+	@Setup
+	public void setUp() {
+		final Supplier<? extends Board> boardFactory = "bit".equals(board) ? BitBoard::new : GravityBoard::new;
+		this.perft = new Perft(boardFactory, 1, 0, deduplicate ? 1 << 16 : 0);
+	}
+
+	@Benchmark
+	public long perft() {
+		return perft.run(6).getTotalNodeCount();
+	}
+}
@@ -0,0 +1,396 @@
+package chen.eric.connect4;
+
+import java.util.SplittableRandom;
+
+import chen.eric.connect4.metrics.Metrics;
+
+/**
+ * {@link Board} that packs each player's tokens into a primitive <code>long</code> bitmask.
+ * <p>
+ * Every column occupies <code>numberOfRows + 1</code> consecutive bits, with the bottom row in
+ * the lowest bit.  The extra sentinel bit on top of each column is never set, so shifting a mask
+ * by one of the direction offsets can never connect tokens across neighbouring columns.  Boards
+ * must therefore satisfy <code>numberOfColumns * (numberOfRows + 1) &lt;= 64</code>.
+ */
+public class BitBoard implements Board {
+
+	private static final Token[] TOKENS = Token.values();
+	private static final long ZOBRIST_SEED = 0x436F6E6E65637434L;
+	private static final long[][] ZOBRIST_KEYS = createZobristKeys(ZOBRIST_SEED, Long.SIZE);
+	private static final long[][] ZOBRIST_PLAYER_KEYS = createZobristKeys(~ZOBRIST_SEED, 1);
+
+	private final int numberOfColumns;
+	private final int numberOfRows;
+	private final int winCount;
+	private final int columnBitCount;
+	private final int[] directions;
+	private final long bottomMask;
+	private final long topMask;
+	private final long configurationHash;
+	private final long[] tokenMasks;
+	private final int[] heights;
+	private int tokenCount;
+	private long hash;
+
+	public BitBoard() {
+		this(GravityBoard.DEFAULT_NUM_COLUMNS, GravityBoard.DEFAULT_NUM_ROWS, GravityBoard.DEFAULT_WIN_COUNT);
+	}
+
+	public BitBoard(int numberOfColumns, int numberOfRows, int winCount) {
+		if (!fits(numberOfColumns, numberOfRows)) {
+			throw new IllegalArgumentException(
+				"Board does not fit in " + Long.SIZE + " bits (" + numberOfColumns + " columns x " + numberOfRows + " rows)");
+		}
+		this.numberOfColumns = numberOfColumns;
+		this.numberOfRows = numberOfRows;
+		this.winCount = winCount;
+		this.columnBitCount = numberOfRows + 1;
+		this.directions = new int[] {
+			1,                      // vertical
+			numberOfRows + 1,       // horizontal
+			numberOfRows + 2,       // up right
+			numberOfRows};          // up left
+		long bottomMask = 0;
+		for (int count = 0; count < numberOfColumns; count++) {
+			bottomMask |= 1L << (count * columnBitCount);
+		}
+		this.bottomMask = bottomMask;
+		this.topMask = numberOfRows > 0 ? bottomMask << (numberOfRows - 1) : 0;
+		this.tokenMasks = new long[Token.values().length];
+		this.heights = new int[numberOfColumns];
+		this.configurationHash = Hashing.mix(Hashing.mix(Hashing.mix(ZOBRIST_SEED ^ numberOfColumns) ^ numberOfRows) ^ winCount);
+	}
+
+	/**
+	 * Creates a {@link BitBoard} holding the same tokens as <code>board</code>.
+	 *
+	 * @param board the board to copy.
+	 * @throws IllegalArgumentException if <code>board</code> does not fit in a <code>long</code> bitmask.
+	 */
+	public BitBoard(BoardView board) {
+		this(board.getNumberOfColumns(), board.getNumberOfRows(), board.getWinCount());
+		final long[] tokenMasks = this.tokenMasks;
+		final int[] heights = this.heights;
+		for (int columnCount = 0; columnCount < numberOfColumns; columnCount++) {
+			final int columnSize = board.getColumnSize(columnCount);
+			for (int rowCount = 0; rowCount < columnSize; rowCount++) {
+				final Token token = board.getToken(columnCount, rowCount);
+				tokenMasks[token.ordinal()] |= bit(columnCount, rowCount);
+				hash ^= ZOBRIST_KEYS[token.ordinal()][bitIndex(columnCount, rowCount)];
+			}
+			heights[columnCount] = columnSize;
+			tokenCount += columnSize;
+		}
+	}
+
+	private static long[][] createZobristKeys(long seed, int keyCount) {
+		final SplittableRandom random = new SplittableRandom(seed);
+		final long[][] zobristKeys = new long[Token.values().length][keyCount];
+		for (final long[] tokenKeys : zobristKeys) {
+			for (int count = 0; count < tokenKeys.length; count++) {
+				tokenKeys[count] = random.nextLong();
+			}
+		}
+		return zobristKeys;
+	}
+
+	/**
+	 * Indicates whether a board of the given size can be represented by a {@link BitBoard}.
+	 *
+	 * @param numberOfColumns the number of columns.
+	 * @param numberOfRows the number of rows.
+	 * @return <code>true</code> if the board fits in a <code>long</code> bitmask.
+	 */
+	public static boolean fits(int numberOfColumns, int numberOfRows) {
+		return numberOfColumns >= 0
+			&& numberOfRows >= 0
+			&& (long) numberOfColumns * (numberOfRows + 1) <= Long.SIZE;
+	}
+
+	@Override
+	public BoardState move(Token token, int columnIndex) throws InvalidTokenException, InvalidColumnIndexException, ColumnFullException {
+		return BoardState.valueOf(moveStatus(token, columnIndex));
+	}
+
+	@Override
+	public int moveStatus(Token token, int columnIndex) throws InvalidTokenException, InvalidColumnIndexException, ColumnFullException {
+		final int status = tryMove(token, columnIndex);
+		if (BoardState.isRejected(status)) {
+			throw InvalidMoveException.valueOf(status, columnIndex);
+		}
+		return status;
+	}
+
+	@Override
+	public int tryMove(Token token, int columnIndex) {
+		if (token == null) {
+			return Metrics.reject(BoardState.INVALID_TOKEN_STATUS);
+		}
+		if (columnIndex < 0 || columnIndex >= numberOfColumns) {
+			return Metrics.reject(BoardState.INVALID_COLUMN_INDEX_STATUS);
+		}
+		final int rowIndex = heights[columnIndex];
+		if (rowIndex >= numberOfRows) {
+			return Metrics.reject(BoardState.COLUMN_FULL_STATUS);
+		}
+		final int bitIndex = bitIndex(columnIndex, rowIndex);
+		final long moveBit = 1L << bitIndex;
+		final long tokenMask = tokenMasks[token.ordinal()] | moveBit;
+		tokenMasks[token.ordinal()] = tokenMask;
+		heights[columnIndex] = rowIndex + 1;
+		++tokenCount;
+		hash ^= ZOBRIST_KEYS[token.ordinal()][bitIndex];
+		if (Metrics.ENABLED) {
+			Metrics.MOVES.increment();
+		}
+		return calculateStatus(token, tokenMask, moveBit);
+	}
+
+	@Override
+	public boolean isLegal(int columnIndex) {
+		return columnIndex >= 0
+			&& columnIndex < numberOfColumns
+			&& heights[columnIndex] < numberOfRows;
+	}
+
+	@Override
+	public Token undo(int columnIndex) throws InvalidColumnIndexException, ColumnEmptyException {
+		if (columnIndex < 0 || columnIndex >= numberOfColumns) {
+			throw new InvalidColumnIndexException("Invalid column index (" + columnIndex + ")");
+		}
+		final int rowIndex = heights[columnIndex] - 1;
+		if (rowIndex < 0) {
+			throw new ColumnEmptyException("Column empty");
+		}
+		final int bitIndex = bitIndex(columnIndex, rowIndex);
+		final long moveBit = 1L << bitIndex;
+		final long[] tokenMasks = this.tokenMasks;
+		final Token token = (tokenMasks[Token.Black.ordinal()] & moveBit) != 0 ? Token.Black : Token.Red;
+		tokenMasks[token.ordinal()] &= ~moveBit;
+		heights[columnIndex] = rowIndex;
+		--tokenCount;
+		hash ^= ZOBRIST_KEYS[token.ordinal()][bitIndex];
+		return token;
+	}
+
+	protected int calculateStatus(Token token, long tokenMask, long moveBit) {
+		int status;
+		if (isWinner(tokenMask, moveBit)) {
+			status = BoardState.winnerStatus(token);
+		}
+		else if (isFull()) {
+			status = BoardState.DRAW_STATUS;
+		}
+		else {
+			status = BoardState.ONGOING_STATUS;
+		}
+		return status;
+	}
+
+	/**
+	 * Indicates whether <code>tokenMask</code> contains a line of <code>winCount</code> tokens
+	 * passing through <code>moveBit</code>.
+	 * <p>
+	 * For each direction, AND-ing the mask with copies of itself shifted by multiples of the
+	 * direction offset leaves the start bit of every complete line set.  Only lines that start
+	 * within <code>winCount - 1</code> steps of the move can contain it, so those starts are
+	 * checked against the surviving bits.
+	 *
+	 * @param tokenMask the mask of the token that was last played, including the move.
+	 * @param moveBit the bit of the last move, or a mask of every cell a line may pass through.
+	 * @return <code>true</code> if a winning line passes through <code>moveBit</code>.
+	 */
+	protected boolean isWinner(long tokenMask, long moveBit) {
+		final int winCount = this.winCount;
+		if (winCount <= 1) {
+			return true;
+		}
+		final int[] directions = this.directions;
+		for (int directionCount = 0; directionCount < directions.length; directionCount++) {
+			final int direction = directions[directionCount];
+			if (Metrics.ENABLED) {
+				// directions are in Metrics.WIN_CHECK_DIRECTIONS order
+				Metrics.WIN_CHECKS[directionCount].increment();
+			}
+			if (direction * (winCount - 1) >= Long.SIZE) {
+				continue;
+			}
+			long lineStarts = tokenMask;
+			long moveStarts = moveBit;
+			for (int count = 1; count < winCount; count++) {
+				final int shift = direction * count;
+				lineStarts &= tokenMask >>> shift;
+				moveStarts |= moveBit >>> shift;
+			}
+			if ((lineStarts & moveStarts) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Indicates whether playing <code>token</code> at <code>columnIndex</code> would win,
+	 * without making the move.
+	 *
+	 * @param token the token to play.
+	 * @param columnIndex the column index to play at.
+	 * @return <code>true</code> if the column is open and the move would complete a winning line.
+	 */
+	public boolean isWinningMove(Token token, int columnIndex) {
+		final int rowIndex = heights[columnIndex];
+		if (rowIndex >= numberOfRows) {
+			return false;
+		}
+		final long moveBit = bit(columnIndex, rowIndex);
+		return isWinner(tokenMasks[token.ordinal()] | moveBit, moveBit);
+	}
+
+	/**
+	 * Indicates whether <code>token</code> has a winning line anywhere on the board.
+	 *
+	 * @param token the token to check.
+	 * @return <code>true</code> if <code>token</code> has a winning line.
+	 */
+	public boolean hasWinner(Token token) {
+		final long tokenMask = tokenMasks[token.ordinal()];
+		return tokenMask != 0 && isWinner(tokenMask, -1L);
+	}
+
+	protected boolean isFull() {
+		return tokenCount >= numberOfColumns * numberOfRows;
+	}
+
+	protected long bit(int columnIndex, int rowIndex) {
+		return 1L << bitIndex(columnIndex, rowIndex);
+	}
+
+	protected int bitIndex(int columnIndex, int rowIndex) {
+		return columnIndex * columnBitCount + rowIndex;
+	}
+
+	@Override
+	public int getNumberOfColumns() {
+		return numberOfColumns;
+	}
+
+	@Override
+	public int getNumberOfRows() {
+		return numberOfRows;
+	}
+
+	@Override
+	public int getWinCount() {
+		return winCount;
+	}
+
+	@Override
+	public int getColumnSize(int columnIndex) throws InvalidColumnIndexException {
+		if (columnIndex < 0 || columnIndex >= numberOfColumns) {
+			throw new InvalidColumnIndexException("Invalid column index (" + columnIndex + ")");
+		}
+		return heights[columnIndex];
+	}
+
+	@Override
+	public int getTokenCount() {
+		return tokenCount;
+	}
+
+	@Override
+	public int getOpenColumnCount() {
+		return Long.bitCount(topMask & ~getOccupiedMask());
+	}
+
+	@Override
+	public int getOpenColumnIndex(int index) throws InvalidColumnIndexException {
+		if (index < 0 || index >= getOpenColumnCount()) {
+			throw new InvalidColumnIndexException("Invalid open column index (" + index + ")");
+		}
+		long openMask = topMask & ~getOccupiedMask();
+		for (int count = 0; count < index; count++) {
+			openMask &= openMask - 1;
+		}
+		return Long.numberOfTrailingZeros(openMask) / columnBitCount;
+	}
+
+	@Override
+	public Token getToken(int columnIndex, int rowIndex) throws InvalidColumnIndexException, InvalidRowIndexException {
+		if (columnIndex < 0 || columnIndex >= numberOfColumns) {
+			throw new InvalidColumnIndexException("Invalid column index (" + columnIndex + ")");
+		}
+		if (rowIndex < 0 || rowIndex >= numberOfRows) {
+			throw new InvalidRowIndexException("Invalid row index (" + rowIndex + ")");
+		}
+		final long bit = bit(columnIndex, rowIndex);
+		final long[] tokenMasks = this.tokenMasks;
+		for (final Token token : TOKENS) {
+			if ((tokenMasks[token.ordinal()] & bit) != 0) {
+				return token;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the bitmask of cells holding <code>token</code>.
+	 *
+	 * @param token the token.
+	 * @return the bitmask of cells holding <code>token</code>.
+	 */
+	public long getTokenMask(Token token) {
+		return tokenMasks[token.ordinal()];
+	}
+
+	/**
+	 * Returns the Zobrist hash of the tokens on the board, which is updated incrementally on
+	 * every move and undo.
+	 *
+	 * @return the Zobrist hash of the tokens on the board.
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	/**
+	 * Returns the Zobrist hash of the tokens on the board combined with the player to move and the
+	 * board size and win count, so that positions of different games sharing one transposition
+	 * table get different hashes.
+	 *
+	 * @param player the player to move.
+	 * @return the Zobrist hash of the position.
+	 */
+	public long getHash(Token player) {
+		return hash ^ ZOBRIST_PLAYER_KEYS[player.ordinal()][0] ^ configurationHash;
+	}
+
+	/**
+	 * Returns a key that uniquely identifies the position among positions on boards of the same
+	 * size: the Black tokens plus a marker bit on top of the tokens in each column.
+	 *
+	 * @return the position key.
+	 */
+	public long getKey() {
+		return tokenMasks[Token.Black.ordinal()] | (getOccupiedMask() + bottomMask);
+	}
+
+	/**
+	 * Returns the bitmask of occupied cells.
+	 *
+	 * @return the bitmask of occupied cells.
+	 */
+	public long getOccupiedMask() {
+		long occupiedMask = 0;
+		for (final long tokenMask : tokenMasks) {
+			occupiedMask |= tokenMask;
+		}
+		return occupiedMask;
+	}
+
+	@Override
+	public String toString() {
+		final char[] chars = new char[BoardRenderer.getRenderedLength(numberOfColumns, numberOfRows)];
+		BoardRenderer.render(this, chars, 0);
+		return new String(chars);
+	}
+}
@@ -1,6 +1,9 @@
 package chen.eric.connect4;
 
-public interface Board {
+/**
+ * A board that can be played on and undone.  The read methods are those of {@link BoardView}.
+ */
+public interface Board extends BoardView {
 	/**
 	 * Make a move with <code>token</code> at <code>columnIndex</code>.
 	 *
@@ -12,4 +15,52 @@ public interface Board {
 	 * @throws ColumnFullException if <code>columnIndex</code> is full.
 	 */
 	BoardState move(Token token, int columnIndex) throws InvalidTokenException, InvalidColumnIndexException, ColumnFullException;
+
+	/**
+	 * Make a move with <code>token</code> at <code>columnIndex</code> without allocating a
+	 * {@link BoardState}.
+	 *
+	 * @param token the token to make the move with.
+	 * @param columnIndex the column index to make the move at.
+	 * @return the board status code after the move, which {@link BoardState#valueOf(int)}
+	 * maps to the shared board state.
+	 * @throws InvalidTokenException if <code>token</code> is <code>null</code>.
+	 * @throws InvalidColumnIndexException if <code>columnIndex</code> is invalid.
+	 * @throws ColumnFullException if <code>columnIndex</code> is full.
+	 */
+	int moveStatus(Token token, int columnIndex) throws InvalidTokenException, InvalidColumnIndexException, ColumnFullException;
+
+	/**
+	 * Make a move with <code>token</code> at <code>columnIndex</code> if it is legal, without
+	 * throwing.
+	 *
+	 * @param token the token to make the move with.
+	 * @param columnIndex the column index to make the move at.
+	 * @return the board status code after the move, or {@link BoardState#INVALID_TOKEN_STATUS},
+	 * {@link BoardState#INVALID_COLUMN_INDEX_STATUS} or {@link BoardState#COLUMN_FULL_STATUS} if
+	 * the move was rejected and the board is unchanged.
+	 */
+	default int tryMove(Token token, int columnIndex) {
+		if (token == null) {
+			return BoardState.INVALID_TOKEN_STATUS;
+		}
+		if (columnIndex < 0 || columnIndex >= getNumberOfColumns()) {
+			return BoardState.INVALID_COLUMN_INDEX_STATUS;
+		}
+		if (getColumnSize(columnIndex) >= getNumberOfRows()) {
+			return BoardState.COLUMN_FULL_STATUS;
+		}
+		return moveStatus(token, columnIndex);
+	}
+
+	/**
+	 * Undo the last move made at <code>columnIndex</code>, restoring the board to the state
+	 * before that move.
+	 *
+	 * @param columnIndex the column index to remove the top token from.
+	 * @return the token that was removed.
+	 * @throws InvalidColumnIndexException if <code>columnIndex</code> is invalid.
+	 * @throws ColumnEmptyException if <code>columnIndex</code> is empty.
+	 */
+	Token undo(int columnIndex) throws InvalidColumnIndexException, ColumnEmptyException;
 }
@@ -0,0 +1,183 @@
+package chen.eric.connect4;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Renders boards as text, in the format of {@link GravityBoard#toString()}.
+ * <p>
+ * The output length is computed up front and the text is written into one array: every row is
+ * copied from a template of empty cells, and then only the occupied cells are filled in, column
+ * by column.  A renderer reuses its buffer between calls, so rendering to an {@link Appendable}
+ * or {@link ByteBuffer} allocates nothing once the buffer has grown; a renderer is therefore not
+ * thread-safe.  A disabled renderer renders nothing, so that callers logging every move can turn
+ * rendering off without changing their code.
+ */
+public class BoardRenderer {
+	/**
+	 * System property that sets whether renderers created with {@link #BoardRenderer()} are
+	 * enabled (default <code>true</code>).
+	 */
+	public static final String ENABLED_PROPERTY = "chen.eric.connect4.render";
+
+	private static final char BOUNDARY_ROW_CHAR = '-';
+	private static final char COLUMN_SEPARATOR_CHAR = '|';
+	private static final char NULL_TOKEN_CHAR = ' ';
+	private static final int COLUMN_CHAR_COUNT = 4; // "| " + token + " "
+	private static final int TOKEN_OFFSET = 2;
+	private static final int ROW_END_CHAR_COUNT = 2; // "|\n"
+
+	private boolean enabled;
+	private char[] chars = new char[0];
+
+	public BoardRenderer() {
+		this(Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true")));
+	}
+
+	public BoardRenderer(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Returns the number of characters in the rendering of a board.
+	 *
+	 * @param numberOfColumns the number of columns.
+	 * @param numberOfRows the number of rows.
+	 * @return the number of characters.
+	 * @throws IllegalArgumentException if the rendering would not fit in an array.
+	 */
+	public static int getRenderedLength(int numberOfColumns, int numberOfRows) {
+		final long rowLength = (long) numberOfColumns * COLUMN_CHAR_COUNT + ROW_END_CHAR_COUNT;
+		final long length = (numberOfColumns > 0 ? numberOfRows * rowLength : 0) + rowLength;
+		if (length > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Board too large to render (" + numberOfColumns + " columns x " + numberOfRows + " rows)");
+		}
+		return (int) length;
+	}
+
+	/**
+	 * Renders a board into <code>chars</code>.
+	 *
+	 * @param board the board.
+	 * @param chars the array to render into.
+	 * @param offset the index to start rendering at.
+	 * @return the number of characters rendered.
+	 * @throws IllegalArgumentException if the array is too short.
+	 */
+	public static int render(BoardView board, char[] chars, int offset) {
+		final int numberOfColumns = board.getNumberOfColumns();
+		final int numberOfRows = board.getNumberOfRows();
+		final int length = getRenderedLength(numberOfColumns, numberOfRows);
+		if (offset < 0 || chars.length - offset < length) {
+			throw new IllegalArgumentException("Array too short to render board (" + length + " characters needed)");
+		}
+		final int rowLength = numberOfColumns * COLUMN_CHAR_COUNT + ROW_END_CHAR_COUNT;
+		if (numberOfColumns > 0 && numberOfRows > 0) {
+			for (int count = offset; count < offset + rowLength - ROW_END_CHAR_COUNT; count += COLUMN_CHAR_COUNT) {
+				chars[count] = COLUMN_SEPARATOR_CHAR;
+				chars[count + 1] = NULL_TOKEN_CHAR;
+				chars[count + 2] = NULL_TOKEN_CHAR;
+				chars[count + 3] = NULL_TOKEN_CHAR;
+			}
+			chars[offset + rowLength - 2] = COLUMN_SEPARATOR_CHAR;
+			chars[offset + rowLength - 1] = '\n';
+			for (int rowCount = 1; rowCount < numberOfRows; rowCount++) {
+				System.arraycopy(chars, offset, chars, offset + rowCount * rowLength, rowLength);
+			}
+			// the top row is rendered first
+			final int bottomRowOffset = offset + (numberOfRows - 1) * rowLength + TOKEN_OFFSET;
+			for (int columnCount = 0; columnCount < numberOfColumns; columnCount++) {
+				final int columnSize = board.getColumnSize(columnCount);
+				final int columnOffset = bottomRowOffset + columnCount * COLUMN_CHAR_COUNT;
+				for (int rowCount = 0; rowCount < columnSize; rowCount++) {
+					chars[columnOffset - rowCount * rowLength] = board.getToken(columnCount, rowCount).getCharValue();
+				}
+			}
+		}
+		final int boundaryRowOffset = offset + length - rowLength;
+		Arrays.fill(chars, boundaryRowOffset, offset + length - 1, BOUNDARY_ROW_CHAR);
+		chars[offset + length - 1] = '\n';
+		return length;
+	}
+
+	/**
+	 * Renders a board as a new string.
+	 *
+	 * @param board the board.
+	 * @return the rendering, or an empty string if the renderer is disabled.
+	 */
+	public String render(BoardView board) {
+		if (!enabled) {
+			return "";
+		}
+		final int length = renderToBuffer(board);
+		return new String(chars, 0, length);
+	}
+
+	/**
+	 * Renders a board to <code>appendable</code>.  Writers and string builders are written to
+	 * directly from the renderer's buffer.
+	 *
+	 * @param board the board.
+	 * @param appendable the destination.
+	 * @throws IOException if the destination cannot be written to.
+	 */
+	public void render(BoardView board, Appendable appendable) throws IOException {
+		if (!enabled) {
+			return;
+		}
+		final int length = renderToBuffer(board);
+		if (appendable instanceof Writer) {
+			((Writer) appendable).write(chars, 0, length);
+		}
+		else if (appendable instanceof StringBuilder) {
+			((StringBuilder) appendable).append(chars, 0, length);
+		}
+		else {
+			appendable.append(CharBuffer.wrap(chars, 0, length));
+		}
+	}
+
+	/**
+	 * Renders a board to <code>buffer</code> as ASCII bytes.
+	 *
+	 * @param board the board.
+	 * @param buffer the destination.
+	 * @return the number of bytes written.
+	 * @throws BufferOverflowException if the buffer has too little space left.
+	 */
+	public int render(BoardView board, ByteBuffer buffer) {
+		if (!enabled) {
+			return 0;
+		}
+		final int length = renderToBuffer(board);
+		if (buffer.remaining() < length) {
+			throw new BufferOverflowException();
+		}
+		final char[] chars = this.chars;
+		for (int count = 0; count < length; count++) {
+			buffer.put((byte) chars[count]);
+		}
+		return length;
+	}
+
+	protected int renderToBuffer(BoardView board) {
+		final int length = getRenderedLength(board.getNumberOfColumns(), board.getNumberOfRows());
+		if (chars.length < length) {
+			chars = new char[length];
+		}
+		return render(board, chars, 0);
+	}
+}
@@ -7,6 +7,44 @@ public class BoardState {
 		winner
 	}
 
+	/**
+	 * Status code returned by {@link Board#moveStatus(Token, int)} while the game is ongoing.
+	 */
+	public static final int ONGOING_STATUS = 0;
+
+	/**
+	 * Status code returned by {@link Board#moveStatus(Token, int)} when the board is full.
+	 */
+	public static final int DRAW_STATUS = 1;
+
+	/**
+	 * Status code returned by {@link Board#moveStatus(Token, int)} for a win is
+	 * <code>WINNER_STATUS + winner.ordinal()</code>; see {@link #winnerStatus(Token)}.
+	 */
+	public static final int WINNER_STATUS = 2;
+
+	/**
+	 * Status code returned by {@link Board#tryMove(Token, int)} when the token is <code>null</code>.
+	 */
+	public static final int INVALID_TOKEN_STATUS = -1;
+
+	/**
+	 * Status code returned by {@link Board#tryMove(Token, int)} when the column index is off the board.
+	 */
+	public static final int INVALID_COLUMN_INDEX_STATUS = -2;
+
+	/**
+	 * Status code returned by {@link Board#tryMove(Token, int)} when the column is full.
+	 */
+	public static final int COLUMN_FULL_STATUS = -3;
+
+	public static final BoardState ONGOING = new BoardState(State.ongoing);
+	public static final BoardState DRAW = new BoardState(State.draw);
+	public static final BoardState BLACK_WINNER = new BoardState(Token.Black);
+	public static final BoardState RED_WINNER = new BoardState(Token.Red);
+
+	private static final BoardState[] BOARD_STATES = createBoardStates();
+
 	private final State state;
 	private final Token winner;
 
@@ -29,6 +67,65 @@ public class BoardState {
 		this.winner = winner;
 	}
 
+	private static BoardState[] createBoardStates() {
+		final Token[] tokens = Token.values();
+		final BoardState[] boardStates = new BoardState[WINNER_STATUS + tokens.length];
+		boardStates[ONGOING_STATUS] = ONGOING;
+		boardStates[DRAW_STATUS] = DRAW;
+		for (final Token token : tokens) {
+			boardStates[winnerStatus(token)] = token == Token.Black ? BLACK_WINNER : RED_WINNER;
+		}
+		return boardStates;
+	}
+
+	/**
+	 * Returns the status code of a win by <code>winner</code>.
+	 *
+	 * @param winner the winning token.
+	 * @return the status code of a win by <code>winner</code>.
+	 */
+	public static int winnerStatus(Token winner) {
+		return WINNER_STATUS + winner.ordinal();
+	}
+
+	/**
+	 * Indicates whether a status code returned by {@link Board#tryMove(Token, int)} rejects the move.
+	 *
+	 * @param status the status code.
+	 * @return <code>true</code> if the move was rejected and the board is unchanged; otherwise,
+	 * returns <code>false</code>.
+	 */
+	public static boolean isRejected(int status) {
+		return status < 0;
+	}
+
+	/**
+	 * Returns the shared, immutable board state for a status code.
+	 *
+	 * @param status a status code returned by {@link Board#moveStatus(Token, int)}.
+	 * @return the shared board state for <code>status</code>.
+	 * @throws IllegalArgumentException if <code>status</code> is not a valid status code.
+	 */
+	public static BoardState valueOf(int status) {
+		if (status < 0 || status >= BOARD_STATES.length) {
+			throw new IllegalArgumentException("Invalid board status (" + status + ")");
+		}
+		return BOARD_STATES[status];
+	}
+
+	/**
+	 * Returns the shared, immutable winner state for <code>winner</code>.
+	 *
+	 * @param winner the winning token.
+	 * @return the shared winner state for <code>winner</code>.
+	 */
+	public static BoardState valueOf(Token winner) {
+		if (winner == null) {
+			throw new IllegalArgumentException("Winner cannot be null");
+		}
+		return BOARD_STATES[winnerStatus(winner)];
+	}
+
 	public State getState() {
 		return state;
 	}
@@ -36,4 +133,42 @@ public class BoardState {
 	public Token getWinner() {
 		return winner;
 	}
+
+	/**
+	 * Returns the status code matching this board state.
+	 *
+	 * @return the status code matching this board state.
+	 */
+	public int getStatus() {
+		switch (state) {
+			case ongoing:
+				return ONGOING_STATUS;
+			case draw:
+				return DRAW_STATUS;
+			default:
+				return winnerStatus(winner);
+		}
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		if (this == object) {
+			return true;
+		}
+		if (!(object instanceof BoardState)) {
+			return false;
+		}
+		final BoardState boardState = (BoardState) object;
+		return state == boardState.state && winner == boardState.winner;
+	}
+
+	@Override
+	public int hashCode() {
+		return getStatus();
+	}
+
+	@Override
+	public String toString() {
+		return state == State.winner ? state + "(" + winner + ")" : state.toString();
+	}
 }
@@ -0,0 +1,117 @@
+package chen.eric.connect4;
+
+/**
+ * Read access to a board position: its size, its tokens and its legal moves.
+ * <p>
+ * Every {@link Board} is a board view.  Immutable positions such as {@link PersistentBoard}
+ * implement only this interface, so code that just reads a position (encoding, rendering, copying
+ * or searching a copy of it) accepts a board view.
+ */
+public interface BoardView {
+	/**
+	 * Indicates whether a token can be played at <code>columnIndex</code>, i.e. the column is on
+	 * the board and not full.
+	 *
+	 * @param columnIndex the column index.
+	 * @return <code>true</code> if a token can be played at <code>columnIndex</code>; otherwise,
+	 * returns <code>false</code>.
+	 */
+	default boolean isLegal(int columnIndex) {
+		return columnIndex >= 0
+			&& columnIndex < getNumberOfColumns()
+			&& getColumnSize(columnIndex) < getNumberOfRows();
+	}
+
+	/**
+	 * Returns the number of columns on the board.
+	 *
+	 * @return the number of columns on the board.
+	 */
+	int getNumberOfColumns();
+
+	/**
+	 * Returns the number of rows on the board.
+	 *
+	 * @return the number of rows on the board.
+	 */
+	int getNumberOfRows();
+
+	/**
+	 * Returns the number of tokens in a row required to win.
+	 *
+	 * @return the number of tokens in a row required to win.
+	 */
+	int getWinCount();
+
+	/**
+	 * Returns the current number of tokens in the column at <code>columnIndex</code>.
+	 *
+	 * @param columnIndex the column index.
+	 * @return the current number of tokens in the column.
+	 * @throws InvalidColumnIndexException if <code>columnIndex</code> is invalid.
+	 */
+	int getColumnSize(int columnIndex) throws InvalidColumnIndexException;
+
+	/**
+	 * Returns the token at <code>columnIndex</code> and <code>rowIndex</code>.
+	 *
+	 * @param columnIndex the column index.
+	 * @param rowIndex the row index.
+	 * @return the token at the given cell, or <code>null</code> if the cell is empty.
+	 * @throws InvalidColumnIndexException if <code>columnIndex</code> is invalid.
+	 * @throws InvalidRowIndexException if <code>rowIndex</code> is invalid.
+	 */
+	Token getToken(int columnIndex, int rowIndex) throws InvalidColumnIndexException, InvalidRowIndexException;
+
+	/**
+	 * Returns the total number of tokens on the board.
+	 *
+	 * @return the total number of tokens on the board.
+	 */
+	default int getTokenCount() {
+		final int numberOfColumns = getNumberOfColumns();
+		int tokenCount = 0;
+		for (int count = 0; count < numberOfColumns; count++) {
+			tokenCount += getColumnSize(count);
+		}
+		return tokenCount;
+	}
+
+	/**
+	 * Returns the number of columns that are not full, i.e. the number of legal moves.
+	 *
+	 * @return the number of columns that are not full.
+	 */
+	default int getOpenColumnCount() {
+		final int numberOfColumns = getNumberOfColumns();
+		final int numberOfRows = getNumberOfRows();
+		int openColumnCount = 0;
+		for (int count = 0; count < numberOfColumns; count++) {
+			if (getColumnSize(count) < numberOfRows) {
+				++openColumnCount;
+			}
+		}
+		return openColumnCount;
+	}
+
+	/**
+	 * Returns the column index of one of the columns that are not full.  The order of the open
+	 * columns is unspecified and may change after a move or undo.
+	 *
+	 * @param index the index of the open column, from <code>0</code> (inclusive) to
+	 * {@link #getOpenColumnCount()} (exclusive).
+	 * @return the column index of the open column.
+	 * @throws InvalidColumnIndexException if <code>index</code> is invalid.
+	 */
+	default int getOpenColumnIndex(int index) throws InvalidColumnIndexException {
+		final int numberOfColumns = getNumberOfColumns();
+		final int numberOfRows = getNumberOfRows();
+		int openColumnCount = 0;
+		for (int count = 0; count < numberOfColumns; count++) {
+			if (getColumnSize(count) < numberOfRows && openColumnCount++ == index) {
+				return count;
+			}
+		}
+		throw new InvalidColumnIndexException("Invalid open column index (" + index + ")");
+	}
+}
@@ -0,0 +1,20 @@
+package chen.eric.connect4;
+
+/**
+ * Error removing token from an empty column.
+ */
+public class ColumnEmptyException extends InvalidMoveException {
+	public ColumnEmptyException() {}
+
+	public ColumnEmptyException(String message) {
+		super(message);
+	}
+
+	public ColumnEmptyException(Throwable cause) {
+		super(cause);
+	}
+
+	public ColumnEmptyException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
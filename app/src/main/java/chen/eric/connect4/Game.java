@@ -4,37 +4,78 @@ import java.util.InputMismatchException;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
 
+import chen.eric.connect4.solver.AsyncMoveService;
+
+/**
+ * Console game between two people, or between a person and the computer.
+ * <p>
+ * The computer's moves are searched by an {@link AsyncMoveService} within a time limit per move.
+ */
 public class Game implements Runnable {
+	public static final long DEFAULT_MOVE_TIME_MILLIS = 1000;
 
 	private final Board board;
 	private final int maxColumnIndex;
+	private final Token computerToken;
+	private final long moveTimeMillis;
 
+	/**
+	 * Creates a game between two people.
+	 */
 	public Game() {
+		this(null, 0);
+	}
+
+	/**
+	 * Creates a game between a person and the computer.
+	 *
+	 * @param computerToken the computer's token, or <code>null</code> for a game between two people.
+	 * @param moveTimeMillis the time the computer may take per move.
+	 */
+	public Game(Token computerToken, long moveTimeMillis) {
+		if (computerToken != null && moveTimeMillis <= 0) {
+			throw new IllegalArgumentException("Move time must be positive (" + moveTimeMillis + ")");
+		}
 		this.board = new GravityBoard();
 		this.maxColumnIndex = GravityBoard.DEFAULT_NUM_COLUMNS - 1;
+		this.computerToken = computerToken;
+		this.moveTimeMillis = moveTimeMillis;
 	}
 
 	@Override
 	public void run() {
 		Scanner scanner = null;
+		AsyncMoveService moveService = null;
 		try {
 			scanner = new Scanner(System.in);
+			if (computerToken != null) {
+				moveService = new AsyncMoveService(1, 1, null);
+			}
 			Token player = Token.Black;
 			BoardState boardState = null;
 			System.out.println(board);
 			do {
 				System.out.println(player + "'s turn.");
-				boolean isColumnIndexValid = false;
-				do {
-					final int columnIndex = readColumnIndex(scanner);
-					try {
-						boardState = board.move(player, columnIndex);
-						isColumnIndexValid = true;
-					} catch (ColumnFullException exception) {
-						System.out.println("Column " + columnIndex + " is full - please choose another column.\n");
+				if (player == computerToken) {
+					final int columnIndex = moveService.suggestMove(board, player, moveTimeMillis).join();
+					System.out.println(player + " plays column " + columnIndex + ".");
+					boardState = BoardState.valueOf(board.tryMove(player, columnIndex));
+				}
+				else {
+					boolean isColumnIndexValid = false;
+					do {
+						final int columnIndex = readColumnIndex(scanner);
+						final int status = board.tryMove(player, columnIndex);
+						if (status == BoardState.COLUMN_FULL_STATUS) {
+							System.out.println("Column " + columnIndex + " is full - please choose another column.\n");
+						}
+						else {
+							boardState = BoardState.valueOf(status);
+							isColumnIndexValid = true;
+						}
 					}
+					while (!isColumnIndexValid);
 				}
-				while (!isColumnIndexValid);
 				System.out.println("\n" + board);
 				player = nextPlayer(player);
 			}
@@ -55,6 +96,9 @@ public class Game implements Runnable {
 			if (scanner != null) {
 				scanner.close();
 			}
+			if (moveService != null) {
+				moveService.close();
+			}
 		}
 	}
 
@@ -77,8 +121,27 @@ public class Game implements Runnable {
 		return (currentPlayer == Token.Black ? Token.Red : Token.Black);
 	}
 
+	/**
+	 * Plays a game on the console.
+	 *
+	 * @param args optionally the computer's token (<code>Black</code> or <code>Red</code>) and
+	 * its time per move in milliseconds; without arguments, two people play.
+	 */
 	public static void main(String... args) {
-		final Game game = new Game();
+		Token computerToken = null;
+		if (args.length > 0) {
+			for (final Token token : Token.values()) {
+				if (token.name().equalsIgnoreCase(args[0])) {
+					computerToken = token;
+				}
+			}
+			if (computerToken == null) {
+				System.err.println("Usage: Game [Black|Red [move time millis]]");
+				System.exit(1);
+			}
+		}
+		final long moveTimeMillis = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_MOVE_TIME_MILLIS;
+		final Game game = new Game(computerToken, moveTimeMillis);
 		game.run();
 	}
 }
@@ -1,20 +1,21 @@
 package chen.eric.connect4;
 
+import chen.eric.connect4.metrics.Metrics;
+
 public class GravityBoard implements Board {
 	public static final int DEFAULT_NUM_COLUMNS = 7;
 	public static final int DEFAULT_NUM_ROWS = 6;
 	public static final int DEFAULT_WIN_COUNT = 4;
 
-	private static final char BOUNDARY_ROW_CHAR = '-';
-	private static final String OPEN_COLUMN = "| ";
-	private static final String CLOSE_COLUMN = " ";
-	private static final String CLOSE_ROW = "|\n";
-	private static final char NULL_TOKEN_CHAR = ' ';
-
 	private final Column[] columns;
 	private final int numberOfRows;
 	private final int winCount;
 	private final WinChecker[] winCheckers;
+	private final int cellCount;
+	private final int[] openColumnIndexes;
+	private final int[] openColumnPositions;
+	private int openColumnCount;
+	private int tokenCount;
 
 	public GravityBoard() {
 		this(DEFAULT_NUM_COLUMNS, DEFAULT_NUM_ROWS, DEFAULT_WIN_COUNT);
@@ -29,6 +30,30 @@ public class GravityBoard implements Board {
 			new HorizontalWinChecker(),
 			new UpRightWinChecker(),
 			new UpLeftWinChecker()};
+		this.cellCount = numberOfColumns * numberOfRows;
+		this.openColumnIndexes = new int[numberOfColumns];
+		this.openColumnPositions = new int[numberOfColumns];
+		for (int count = 0; count < numberOfColumns; count++) {
+			openColumnIndexes[count] = count;
+			openColumnPositions[count] = count;
+		}
+		this.openColumnCount = numberOfRows > 0 ? numberOfColumns : 0;
+	}
+
+	/**
+	 * Creates a {@link GravityBoard} holding the same tokens as <code>board</code>.
+	 *
+	 * @param board the board to copy.
+	 */
+	public GravityBoard(BoardView board) {
+		this(board.getNumberOfColumns(), board.getNumberOfRows(), board.getWinCount());
+		final int numberOfColumns = columns.length;
+		for (int columnCount = 0; columnCount < numberOfColumns; columnCount++) {
+			final int columnSize = board.getColumnSize(columnCount);
+			for (int rowCount = 0; rowCount < columnSize; rowCount++) {
+				moveStatus(board.getToken(columnCount, rowCount), columnCount);
+			}
+		}
 	}
 
 	protected Column[] createBoard(int numberOfColumns, int numberOfRows) {
@@ -41,35 +66,169 @@ public class GravityBoard implements Board {
 
 	@Override
 	public BoardState move(Token token, int columnIndex) throws InvalidTokenException, InvalidColumnIndexException, ColumnFullException {
-		try {
-			final int rowIndex =
-				columns[columnIndex]
-					.add(token);
-			return calculateBoardState(token, columnIndex, rowIndex);
+		return BoardState.valueOf(moveStatus(token, columnIndex));
+	}
+
+	@Override
+	public int moveStatus(Token token, int columnIndex) throws InvalidTokenException, InvalidColumnIndexException, ColumnFullException {
+		final int status = tryMove(token, columnIndex);
+		if (BoardState.isRejected(status)) {
+			throw InvalidMoveException.valueOf(status, columnIndex);
+		}
+		return status;
+	}
+
+	@Override
+	public int tryMove(Token token, int columnIndex) {
+		if (token == null) {
+			return Metrics.reject(BoardState.INVALID_TOKEN_STATUS);
 		}
-		catch (ArrayIndexOutOfBoundsException exception) {
-			throw new InvalidColumnIndexException(exception);
+		final Column[] columns = this.columns;
+		if (columnIndex < 0 || columnIndex >= columns.length) {
+			return Metrics.reject(BoardState.INVALID_COLUMN_INDEX_STATUS);
+		}
+		final Column column = columns[columnIndex];
+		if (column.isFull()) {
+			return Metrics.reject(BoardState.COLUMN_FULL_STATUS);
+		}
+		final int rowIndex = column.add(token);
+		++tokenCount;
+		if (Metrics.ENABLED) {
+			Metrics.MOVES.increment();
 		}
+		if (column.isFull()) {
+			closeColumn(columnIndex);
+		}
+		return calculateStatus(token, columnIndex, rowIndex);
+	}
+
+	@Override
+	public boolean isLegal(int columnIndex) {
+		return columnIndex >= 0
+			&& columnIndex < columns.length
+			&& !columns[columnIndex].isFull();
+	}
+
+	@Override
+	public Token undo(int columnIndex) throws InvalidColumnIndexException, ColumnEmptyException {
+		final Column column = getColumn(columnIndex);
+		final boolean wasFull = column.isFull();
+		final Token token = column.remove();
+		--tokenCount;
+		if (wasFull) {
+			openColumn(columnIndex);
+		}
+		return token;
+	}
+
+	protected Column getColumn(int columnIndex) throws InvalidColumnIndexException {
+		if (columnIndex < 0 || columnIndex >= columns.length) {
+			throw new InvalidColumnIndexException("Invalid column index (" + columnIndex + ")");
+		}
+		return columns[columnIndex];
+	}
+
+	/**
+	 * Removes a column that has just become full from the open columns, by moving the last open
+	 * column into its place.
+	 */
+	protected void closeColumn(int columnIndex) {
+		final int[] openColumnIndexes = this.openColumnIndexes;
+		final int[] openColumnPositions = this.openColumnPositions;
+		final int position = openColumnPositions[columnIndex];
+		final int lastColumnIndex = openColumnIndexes[--openColumnCount];
+		openColumnIndexes[position] = lastColumnIndex;
+		openColumnPositions[lastColumnIndex] = position;
+		openColumnIndexes[openColumnCount] = columnIndex;
+		openColumnPositions[columnIndex] = openColumnCount;
+	}
+
+	/**
+	 * Adds a column that is no longer full to the open columns.
+	 */
+	protected void openColumn(int columnIndex) {
+		final int[] openColumnIndexes = this.openColumnIndexes;
+		final int[] openColumnPositions = this.openColumnPositions;
+		final int position = openColumnPositions[columnIndex];
+		final int firstClosedColumnIndex = openColumnIndexes[openColumnCount];
+		openColumnIndexes[position] = firstClosedColumnIndex;
+		openColumnPositions[firstClosedColumnIndex] = position;
+		openColumnIndexes[openColumnCount] = columnIndex;
+		openColumnPositions[columnIndex] = openColumnCount++;
+	}
+
+	@Override
+	public int getNumberOfColumns() {
+		return columns.length;
+	}
+
+	@Override
+	public int getNumberOfRows() {
+		return numberOfRows;
+	}
+
+	@Override
+	public int getWinCount() {
+		return winCount;
+	}
+
+	@Override
+	public int getColumnSize(int columnIndex) throws InvalidColumnIndexException {
+		return getColumn(columnIndex)
+			.getSize();
+	}
+
+	@Override
+	public int getTokenCount() {
+		return tokenCount;
+	}
+
+	@Override
+	public int getOpenColumnCount() {
+		return openColumnCount;
+	}
+
+	@Override
+	public int getOpenColumnIndex(int index) throws InvalidColumnIndexException {
+		if (index < 0 || index >= openColumnCount) {
+			throw new InvalidColumnIndexException("Invalid open column index (" + index + ")");
+		}
+		return openColumnIndexes[index];
+	}
+
+	@Override
+	public Token getToken(int columnIndex, int rowIndex) throws InvalidColumnIndexException, InvalidRowIndexException {
+		return getColumn(columnIndex)
+			.get(rowIndex);
 	}
 
 	protected BoardState calculateBoardState(Token token, int columnIndex, int rowIndex) throws ArrayIndexOutOfBoundsException {
-		BoardState boardState;
+		return BoardState.valueOf(calculateStatus(token, columnIndex, rowIndex));
+	}
+
+	protected int calculateStatus(Token token, int columnIndex, int rowIndex) throws ArrayIndexOutOfBoundsException {
+		int status;
 		if (isWinner(token, columnIndex, rowIndex)) {
-			boardState = new BoardState(token);
+			status = BoardState.winnerStatus(token);
 		}
 		else if (isFull()) {
-			boardState = new BoardState(BoardState.State.draw);
+			status = BoardState.DRAW_STATUS;
 		}
 		else {
-			boardState = new BoardState(BoardState.State.ongoing);
+			status = BoardState.ONGOING_STATUS;
 		}
-		return boardState;
+		return status;
 	}
 
 	protected boolean isWinner(Token token, int columnIndex, int rowIndex) {
+		final WinChecker[] winCheckers = this.winCheckers;
 		boolean isWinner = false;
-		for (final WinChecker winChecker : winCheckers) {
-			if (winChecker.isWinner(token, columnIndex, rowIndex)) {
+		for (int count = 0; count < winCheckers.length; count++) {
+			if (Metrics.ENABLED) {
+				// checkers are in Metrics.WIN_CHECK_DIRECTIONS order
+				Metrics.WIN_CHECKS[count].increment();
+			}
+			if (winCheckers[count].isWinner(token, columnIndex, rowIndex)) {
 				isWinner = true;
 				break;
 			}
@@ -78,54 +237,14 @@ public class GravityBoard implements Board {
 	}
 
 	protected boolean isFull() {
-		final Column[] columns = this.columns;
-		final int numberOfColumns = columns.length;
-		for (int count = 0; count < numberOfColumns; count++) {
-			if (!columns[count].isFull()) {
-				return false;
-			}
-		}
-		return true;
+		return tokenCount >= cellCount;
 	}
 
 	@Override
 	public String toString() {
-		try {
-			final Column[] columns = this.columns;
-			final int numberOfColumns = columns.length;
-			final int numberOfRows = this.numberOfRows;
-
-			final StringBuffer stringBuffer = new StringBuffer();
-			for (int rowCount = numberOfRows - 1; rowCount >= 0; rowCount--) {
-				if (numberOfColumns > 0) {
-					for (int columnCount = 0; columnCount < numberOfColumns; columnCount++) {
-						final Token token =
-							columns[columnCount]
-								.get(rowCount);
-						stringBuffer.append(OPEN_COLUMN)
-							.append(token == null ?
-								NULL_TOKEN_CHAR :
-								token.getCharValue())
-							.append(CLOSE_COLUMN);
-					}
-					stringBuffer.append(CLOSE_ROW);
-				}
-			}
-			appendBoundaryRow(stringBuffer);
-			return stringBuffer.toString();
-		}
-		catch (ArrayIndexOutOfBoundsException exception) {
-			throw new InvalidColumnIndexException(exception);
-		}
-	}
-
-	protected void appendBoundaryRow(StringBuffer stringBuffer) {
-		final int columnCharCount = OPEN_COLUMN.length() + CLOSE_COLUMN.length() + 1;
-		final int boundaryRowLength = columns.length * columnCharCount + 1;
-		for (int count = 0; count < boundaryRowLength; count++) {
-			stringBuffer.append(BOUNDARY_ROW_CHAR);
-		}
-		stringBuffer.append("\n");
+		final char[] chars = new char[BoardRenderer.getRenderedLength(columns.length, numberOfRows)];
+		BoardRenderer.render(this, chars, 0);
+		return new String(chars);
 	}
 
 	protected static class Column {
@@ -137,12 +256,10 @@ public class GravityBoard implements Board {
 		}
 
 		public Token get(int rowIndex) throws InvalidRowIndexException {
-			try {
-				return tokens[rowIndex];
-			}
-			catch (ArrayIndexOutOfBoundsException exception) {
-				throw new InvalidRowIndexException(exception);
+			if (rowIndex < 0 || rowIndex >= tokens.length) {
+				throw new InvalidRowIndexException("Invalid row index (" + rowIndex + ")");
 			}
+			return tokens[rowIndex];
 		}
 
 		/**
@@ -170,6 +287,21 @@ public class GravityBoard implements Board {
 			return size;
 		}
 
+		/**
+		 * Removes the top token from the column.
+		 *
+		 * @return the token that was removed.
+		 * @throws ColumnEmptyException if the column is empty.
+		 */
+		public Token remove() throws ColumnEmptyException {
+			if (size <= 0) {
+				throw new ColumnEmptyException("Column empty");
+			}
+			final Token token = tokens[--size];
+			tokens[size] = null;
+			return token;
+		}
+
 		public boolean isFull() {
 			return size >= tokens.length;
 		}
@@ -0,0 +1,33 @@
+package chen.eric.connect4;
+
+/**
+ * Hash functions shared by the open-addressed tables.
+ */
+public final class Hashing {
+	private Hashing() {
+	}
+
+	/**
+	 * Mixes the bits of a value (the finalizer of SplitMix64), a bijection under which every bit
+	 * of the result depends on every bit of <code>value</code>.
+	 *
+	 * @param value the value.
+	 * @return the mixed value.
+	 */
+	public static long mix(long value) {
+		long hash = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+		hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+		return hash ^ (hash >>> 31);
+	}
+
+	/**
+	 * Spreads the bits of a value, so that keys that differ only in their high bits, such as
+	 * position keys, land in different slots.
+	 *
+	 * @param value the value.
+	 * @return the hash, whose low bits depend on every bit of <code>value</code>.
+	 */
+	public static int spread(long value) {
+		return (int) mix(value);
+	}
+}
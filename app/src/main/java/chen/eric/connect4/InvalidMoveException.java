@@ -2,8 +2,21 @@ package chen.eric.connect4;
 
 /**
  * Invalid game move.
+ * <p>
+ * Callers that probe moves should prefer {@link Board#isLegal(int)} or
+ * {@link Board#tryMove(Token, int)}, which never throw.  Where exceptions are still thrown often,
+ * setting the system property {@value #STACK_TRACE_PROPERTY} to <code>false</code> stops this
+ * exception and its subclasses from capturing a stack trace, which is most of their cost.
  */
 public class InvalidMoveException extends RuntimeException {
+	/**
+	 * System property that, when <code>false</code>, disables stack trace capture.
+	 */
+	public static final String STACK_TRACE_PROPERTY = "chen.eric.connect4.exception.stackTrace";
+
+	private static final boolean STACK_TRACE_ENABLED =
+		!"false".equalsIgnoreCase(System.getProperty(STACK_TRACE_PROPERTY));
+
 	public InvalidMoveException() {}
 
 	public InvalidMoveException(String message) { super(message); }
@@ -11,4 +24,38 @@ public class InvalidMoveException extends RuntimeException {
 	public InvalidMoveException(Throwable cause) { super(cause); }
 
 	public InvalidMoveException(String message, Throwable cause) { super(message, cause); }
+
+	/**
+	 * Creates the exception matching a rejected move.
+	 *
+	 * @param status a negative status code returned by {@link Board#tryMove(Token, int)}.
+	 * @param columnIndex the column index of the rejected move.
+	 * @return the exception matching <code>status</code>.
+	 */
+	static InvalidMoveException valueOf(int status, int columnIndex) {
+		switch (status) {
+			case BoardState.INVALID_TOKEN_STATUS:
+				return new InvalidTokenException("Token cannot be null");
+			case BoardState.INVALID_COLUMN_INDEX_STATUS:
+				return new InvalidColumnIndexException("Invalid column index (" + columnIndex + ")");
+			case BoardState.COLUMN_FULL_STATUS:
+				return new ColumnFullException("Column full (" + columnIndex + ")");
+			default:
+				throw new IllegalArgumentException("Not a rejected move status (" + status + ")");
+		}
+	}
+
+	/**
+	 * Indicates whether invalid move exceptions capture a stack trace.
+	 *
+	 * @return <code>true</code> unless {@value #STACK_TRACE_PROPERTY} is <code>false</code>.
+	 */
+	public static boolean isStackTraceEnabled() {
+		return STACK_TRACE_ENABLED;
+	}
+
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		return STACK_TRACE_ENABLED ? super.fillInStackTrace() : this;
+	}
 }
@@ -0,0 +1,154 @@
+package chen.eric.connect4;
+
+import java.util.Arrays;
+
+/**
+ * Map from non-negative <code>long</code> keys to <code>int</code> values, stored in two
+ * primitive arrays with open addressing and linear probing.
+ * <p>
+ * The table doubles whenever it becomes half full, and removal shifts later entries of the probe
+ * sequence back into the freed slot instead of leaving tombstones, so memory grows with the
+ * number of entries and lookups stay short after many removals.
+ */
+class LongIntHashMap {
+	private static final long EMPTY_KEY = -1;
+	private static final int MIN_CAPACITY = 16;
+
+	private long[] keys;
+	private int[] values;
+	private int mask;
+	private int size;
+
+	LongIntHashMap() {
+		allocate(MIN_CAPACITY);
+	}
+
+	/**
+	 * Returns the value mapped to a key.
+	 *
+	 * @param key the key.
+	 * @param defaultValue the value to return if the key is not mapped.
+	 * @return the value, or <code>defaultValue</code>.
+	 */
+	int get(long key, int defaultValue) {
+		final long[] keys = this.keys;
+		int index = Hashing.spread(key) & mask;
+		while (true) {
+			final long slotKey = keys[index];
+			if (slotKey == key) {
+				return values[index];
+			}
+			if (slotKey == EMPTY_KEY) {
+				return defaultValue;
+			}
+			index = (index + 1) & mask;
+		}
+	}
+
+	/**
+	 * Maps a key to a value, replacing any previous value.
+	 *
+	 * @param key the key, which must not be negative.
+	 * @param value the value.
+	 */
+	void put(long key, int value) {
+		final long[] keys = this.keys;
+		int index = Hashing.spread(key) & mask;
+		while (true) {
+			final long slotKey = keys[index];
+			if (slotKey == key) {
+				values[index] = value;
+				return;
+			}
+			if (slotKey == EMPTY_KEY) {
+				keys[index] = key;
+				values[index] = value;
+				if (++size * 2 > keys.length) {
+					resize(keys.length * 2);
+				}
+				return;
+			}
+			index = (index + 1) & mask;
+		}
+	}
+
+	/**
+	 * Removes the mapping for a key.
+	 *
+	 * @param key the key.
+	 * @return <code>true</code> if the key was mapped.
+	 */
+	boolean remove(long key) {
+		final long[] keys = this.keys;
+		final int[] values = this.values;
+		final int mask = this.mask;
+		int index = Hashing.spread(key) & mask;
+		while (keys[index] != key) {
+			if (keys[index] == EMPTY_KEY) {
+				return false;
+			}
+			index = (index + 1) & mask;
+		}
+		// shift back every later entry whose home slot does not lie between the gap and itself
+		int nextIndex = index;
+		while (true) {
+			nextIndex = (nextIndex + 1) & mask;
+			final long nextKey = keys[nextIndex];
+			if (nextKey == EMPTY_KEY) {
+				break;
+			}
+			final int homeIndex = Hashing.spread(nextKey) & mask;
+			final boolean isHomeBetween = index <= nextIndex ?
+				index < homeIndex && homeIndex <= nextIndex :
+				index < homeIndex || homeIndex <= nextIndex;
+			if (!isHomeBetween) {
+				keys[index] = nextKey;
+				values[index] = values[nextIndex];
+				index = nextIndex;
+			}
+		}
+		keys[index] = EMPTY_KEY;
+		--size;
+		if (keys.length > MIN_CAPACITY && size * 8 < keys.length) {
+			resize(keys.length / 2);
+		}
+		return true;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of slots, which shrinks as entries are removed.
+	 *
+	 * @return the table length.
+	 */
+	int getCapacity() {
+		return keys.length;
+	}
+
+	private void resize(int capacity) {
+		final long[] oldKeys = this.keys;
+		final int[] oldValues = this.values;
+		allocate(capacity);
+		for (int index = 0; index < oldKeys.length; index++) {
+			final long key = oldKeys[index];
+			if (key != EMPTY_KEY) {
+				int newIndex = Hashing.spread(key) & mask;
+				while (keys[newIndex] != EMPTY_KEY) {
+					newIndex = (newIndex + 1) & mask;
+				}
+				keys[newIndex] = key;
+				values[newIndex] = oldValues[index];
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		this.keys = new long[capacity];
+		Arrays.fill(keys, EMPTY_KEY);
+		this.values = new int[capacity];
+		this.mask = capacity - 1;
+	}
+}
@@ -0,0 +1,328 @@
+package chen.eric.connect4;
+
+import java.util.Arrays;
+
+import chen.eric.connect4.metrics.Metrics;
+
+/**
+ * Immutable {@link BoardView board} snapshot: {@link #play(Token, int)} returns a new snapshot and leaves
+ * this one unchanged, so snapshots can be shared between threads without locks or copying.
+ * <p>
+ * Each column packs its Black tokens into a <code>long[]</code> bitmask with one bit per row; a
+ * set bit below the column size is Black and a clear bit is Red.  Columns are grouped into chunks
+ * of <code>CHUNK_SIZE</code>.  A move copies only the changed column, its chunk and the array of
+ * chunks, and shares every other column and chunk with the previous snapshot, so a move on a
+ * board with <code>n</code> columns copies about <code>n / CHUNK_SIZE + CHUNK_SIZE</code>
+ * references whatever the number of moves played.
+ * <p>
+ * Snapshots are board views rather than {@link Board boards}, since they cannot be changed in
+ * place: they can be searched, encoded, rendered or copied into a {@link GravityBoard} like any
+ * board, and a move is undone by keeping the previous snapshot.
+ */
+public final class PersistentBoard implements BoardView {
+	private static final int CHUNK_BITS = 5;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	private final Column[][] chunks;
+	private final int numberOfColumns;
+	private final int numberOfRows;
+	private final int winCount;
+	private final int tokenCount;
+	private final int status;
+
+	private PersistentBoard(Column[][] chunks, int numberOfColumns, int numberOfRows, int winCount, int tokenCount, int status) {
+		this.chunks = chunks;
+		this.numberOfColumns = numberOfColumns;
+		this.numberOfRows = numberOfRows;
+		this.winCount = winCount;
+		this.tokenCount = tokenCount;
+		this.status = status;
+	}
+
+	/**
+	 * Returns an empty board of the default size.
+	 *
+	 * @return an empty board of the default size.
+	 */
+	public static PersistentBoard empty() {
+		return empty(GravityBoard.DEFAULT_NUM_COLUMNS, GravityBoard.DEFAULT_NUM_ROWS, GravityBoard.DEFAULT_WIN_COUNT);
+	}
+
+	/**
+	 * Returns an empty board.
+	 *
+	 * @param numberOfColumns the number of columns.
+	 * @param numberOfRows the number of rows.
+	 * @param winCount the number of tokens in a row required to win.
+	 * @return an empty board.
+	 * @throws IllegalArgumentException if the number of columns or rows is negative.
+	 */
+	public static PersistentBoard empty(int numberOfColumns, int numberOfRows, int winCount) {
+		if (numberOfColumns < 0 || numberOfRows < 0) {
+			throw new IllegalArgumentException("Invalid board size (" + numberOfColumns + " columns x " + numberOfRows + " rows)");
+		}
+		// every column of an empty board is the same immutable empty column
+		final Column emptyColumn = new Column(0, new long[(numberOfRows + Long.SIZE - 1) / Long.SIZE]);
+		final Column[][] chunks = new Column[(numberOfColumns + CHUNK_SIZE - 1) >>> CHUNK_BITS][];
+		for (int chunkIndex = 0; chunkIndex < chunks.length; chunkIndex++) {
+			chunks[chunkIndex] = new Column[Math.min(CHUNK_SIZE, numberOfColumns - (chunkIndex << CHUNK_BITS))];
+			Arrays.fill(chunks[chunkIndex], emptyColumn);
+		}
+		return new PersistentBoard(chunks, numberOfColumns, numberOfRows, winCount, 0, BoardState.ONGOING_STATUS);
+	}
+
+	/**
+	 * Returns a snapshot holding the same tokens as <code>board</code>.  The tokens are replayed
+	 * column by column; the status of the snapshot is that of the first winning line found, or
+	 * otherwise that of the last token replayed.
+	 *
+	 * @param board the board to copy.
+	 * @return a snapshot of <code>board</code>.
+	 */
+	public static PersistentBoard of(BoardView board) {
+		if (board instanceof PersistentBoard) {
+			return (PersistentBoard) board;
+		}
+		PersistentBoard snapshot = empty(board.getNumberOfColumns(), board.getNumberOfRows(), board.getWinCount());
+		int winnerStatus = BoardState.ONGOING_STATUS;
+		final int numberOfColumns = board.getNumberOfColumns();
+		for (int columnCount = 0; columnCount < numberOfColumns; columnCount++) {
+			final int columnSize = board.getColumnSize(columnCount);
+			for (int rowCount = 0; rowCount < columnSize; rowCount++) {
+				snapshot = snapshot.play(board.getToken(columnCount, rowCount), columnCount);
+				if (winnerStatus == BoardState.ONGOING_STATUS && snapshot.status >= BoardState.WINNER_STATUS) {
+					winnerStatus = snapshot.status;
+				}
+			}
+		}
+		return winnerStatus == BoardState.ONGOING_STATUS ?
+			snapshot :
+			new PersistentBoard(snapshot.chunks, numberOfColumns, snapshot.numberOfRows, snapshot.winCount, snapshot.tokenCount, winnerStatus);
+	}
+
+	/**
+	 * Returns the snapshot after playing <code>token</code> at <code>columnIndex</code>.
+	 *
+	 * @param token the token to play.
+	 * @param columnIndex the column index to play at.
+	 * @return the new snapshot.
+	 * @throws InvalidTokenException if <code>token</code> is <code>null</code>.
+	 * @throws InvalidColumnIndexException if <code>columnIndex</code> is invalid.
+	 * @throws ColumnFullException if <code>columnIndex</code> is full.
+	 */
+	public PersistentBoard play(Token token, int columnIndex) throws InvalidTokenException, InvalidColumnIndexException, ColumnFullException {
+		if (token == null) {
+			throw InvalidMoveException.valueOf(Metrics.reject(BoardState.INVALID_TOKEN_STATUS), columnIndex);
+		}
+		if (columnIndex < 0 || columnIndex >= numberOfColumns) {
+			throw InvalidMoveException.valueOf(Metrics.reject(BoardState.INVALID_COLUMN_INDEX_STATUS), columnIndex);
+		}
+		final Column[] chunk = chunks[columnIndex >>> CHUNK_BITS];
+		final Column column = chunk[columnIndex & CHUNK_MASK];
+		final int rowIndex = column.size;
+		if (rowIndex >= numberOfRows) {
+			throw InvalidMoveException.valueOf(Metrics.reject(BoardState.COLUMN_FULL_STATUS), columnIndex);
+		}
+		if (Metrics.ENABLED) {
+			Metrics.MOVES.increment();
+		}
+
+		final long[] blackWords = column.blackWords.clone();
+		if (token == Token.Black) {
+			blackWords[rowIndex / Long.SIZE] |= 1L << rowIndex;
+		}
+		final Column[] newChunk = chunk.clone();
+		newChunk[columnIndex & CHUNK_MASK] = new Column(rowIndex + 1, blackWords);
+		final Column[][] newChunks = chunks.clone();
+		newChunks[columnIndex >>> CHUNK_BITS] = newChunk;
+
+		final int newTokenCount = tokenCount + 1;
+		final PersistentBoard board = new PersistentBoard(newChunks, numberOfColumns, numberOfRows, winCount, newTokenCount, BoardState.ONGOING_STATUS);
+		final int status;
+		if (board.isWinner(token, columnIndex, rowIndex)) {
+			status = BoardState.winnerStatus(token);
+		}
+		else if (newTokenCount >= numberOfColumns * numberOfRows) {
+			status = BoardState.DRAW_STATUS;
+		}
+		else {
+			return board;
+		}
+		return new PersistentBoard(newChunks, numberOfColumns, numberOfRows, winCount, newTokenCount, status);
+	}
+
+	private boolean isWinner(Token token, int columnIndex, int rowIndex) {
+		if (winCount <= 1) {
+			return true;
+		}
+		return 1 + count(token, columnIndex, rowIndex, 0, -1) >= winCount
+			|| 1 + count(token, columnIndex, rowIndex, -1, 0) + count(token, columnIndex, rowIndex, 1, 0) >= winCount
+			|| 1 + count(token, columnIndex, rowIndex, -1, -1) + count(token, columnIndex, rowIndex, 1, 1) >= winCount
+			|| 1 + count(token, columnIndex, rowIndex, 1, -1) + count(token, columnIndex, rowIndex, -1, 1) >= winCount;
+	}
+
+	/**
+	 * Counts the tokens matching <code>token</code> in a line from the cell next to the start
+	 * cell, stopping at the first cell that does not match.
+	 */
+	private int count(Token token, int startColumnIndex, int startRowIndex, int columnStep, int rowStep) {
+		int matchingCount = 0;
+		int columnIndex = startColumnIndex + columnStep;
+		int rowIndex = startRowIndex + rowStep;
+		while (columnIndex >= 0 && columnIndex < numberOfColumns && rowIndex >= 0
+			&& getColumn(columnIndex).get(rowIndex) == token)
+		{
+			++matchingCount;
+			columnIndex += columnStep;
+			rowIndex += rowStep;
+		}
+		return matchingCount;
+	}
+
+	private Column getColumn(int columnIndex) {
+		return chunks[columnIndex >>> CHUNK_BITS][columnIndex & CHUNK_MASK];
+	}
+
+	/**
+	 * Returns the status code after the last move, or {@link BoardState#ONGOING_STATUS} for an
+	 * empty board.
+	 *
+	 * @return the status code after the last move.
+	 */
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * Returns the shared board state after the last move.
+	 *
+	 * @return the board state after the last move.
+	 */
+	public BoardState getBoardState() {
+		return BoardState.valueOf(status);
+	}
+
+	@Override
+	public boolean isLegal(int columnIndex) {
+		return columnIndex >= 0
+			&& columnIndex < numberOfColumns
+			&& getColumn(columnIndex).size < numberOfRows;
+	}
+
+	@Override
+	public int getNumberOfColumns() {
+		return numberOfColumns;
+	}
+
+	@Override
+	public int getNumberOfRows() {
+		return numberOfRows;
+	}
+
+	@Override
+	public int getWinCount() {
+		return winCount;
+	}
+
+	@Override
+	public int getColumnSize(int columnIndex) throws InvalidColumnIndexException {
+		if (columnIndex < 0 || columnIndex >= numberOfColumns) {
+			throw new InvalidColumnIndexException("Invalid column index (" + columnIndex + ")");
+		}
+		return getColumn(columnIndex).size;
+	}
+
+	@Override
+	public Token getToken(int columnIndex, int rowIndex) throws InvalidColumnIndexException, InvalidRowIndexException {
+		if (columnIndex < 0 || columnIndex >= numberOfColumns) {
+			throw new InvalidColumnIndexException("Invalid column index (" + columnIndex + ")");
+		}
+		if (rowIndex < 0 || rowIndex >= numberOfRows) {
+			throw new InvalidRowIndexException("Invalid row index (" + rowIndex + ")");
+		}
+		return getColumn(columnIndex).get(rowIndex);
+	}
+
+	@Override
+	public int getTokenCount() {
+		return tokenCount;
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		if (this == object) {
+			return true;
+		}
+		if (!(object instanceof PersistentBoard)) {
+			return false;
+		}
+		final PersistentBoard board = (PersistentBoard) object;
+		if (numberOfColumns != board.numberOfColumns
+			|| numberOfRows != board.numberOfRows
+			|| winCount != board.winCount
+			|| tokenCount != board.tokenCount)
+		{
+			return false;
+		}
+		for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+			if (!getColumn(columnIndex).equals(board.getColumn(columnIndex))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int hashCode = (numberOfColumns * 31 + numberOfRows) * 31 + winCount;
+		for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+			hashCode = hashCode * 31 + getColumn(columnIndex).hashCode();
+		}
+		return hashCode;
+	}
+
+	@Override
+	public String toString() {
+		final char[] chars = new char[BoardRenderer.getRenderedLength(numberOfColumns, numberOfRows)];
+		BoardRenderer.render(this, chars, 0);
+		return new String(chars);
+	}
+
+	/**
+	 * Immutable column: its size and a bitmask of its Black tokens.
+	 */
+	private static final class Column {
+		private final int size;
+		private final long[] blackWords;
+
+		Column(int size, long[] blackWords) {
+			this.size = size;
+			this.blackWords = blackWords;
+		}
+
+		Token get(int rowIndex) {
+			if (rowIndex >= size) {
+				return null;
+			}
+			return (blackWords[rowIndex / Long.SIZE] & 1L << rowIndex) != 0 ? Token.Black : Token.Red;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (this == object) {
+				return true;
+			}
+			if (!(object instanceof Column)) {
+				return false;
+			}
+			final Column column = (Column) object;
+			return size == column.size && Arrays.equals(blackWords, column.blackWords);
+		}
+
+		@Override
+		public int hashCode() {
+			return size * 31 + Arrays.hashCode(blackWords);
+		}
+	}
+}
@@ -0,0 +1,275 @@
+package chen.eric.connect4;
+
+/**
+ * Encodes board positions as unique keys and decodes them back onto boards.
+ * <p>
+ * Each column takes <code>rows + 1</code> bits, column 0 in the lowest bits: one bit per occupied
+ * cell, set for Black and clear for Red, then a marker bit just above the top token.  The marker
+ * makes the column heights part of the key, so every position has exactly one key.  Boards that
+ * {@link BitBoard#fits(int, int) fit} in 64 bits are encoded as a <code>long</code>, equal to
+ * {@link BitBoard#getKey()}; any board can be encoded as a byte array holding the same bits,
+ * lowest bits first.
+ * <p>
+ * The canonical form of a position is the position or its left-right mirror image, whichever
+ * orders first, so that mirrored positions share one key: for <code>long</code> keys the smaller
+ * key, and for byte arrays the image whose columns, compared from the outside in, order first.
+ * Encoding and decoding <code>long</code> keys allocates nothing.
+ */
+public class PositionCodec {
+	private PositionCodec() {
+	}
+
+	/**
+	 * Encodes a position as a <code>long</code>.
+	 *
+	 * @param board the board.
+	 * @return the key.
+	 * @throws IllegalArgumentException if the board does not fit in a <code>long</code>.
+	 */
+	public static long encode(BoardView board) {
+		if (board instanceof BitBoard) {
+			return ((BitBoard) board).getKey();
+		}
+		final int numberOfColumns = board.getNumberOfColumns();
+		final int numberOfRows = board.getNumberOfRows();
+		checkFits(numberOfColumns, numberOfRows);
+		final int columnBitCount = numberOfRows + 1;
+		long key = 0;
+		for (int columnCount = 0; columnCount < numberOfColumns; columnCount++) {
+			key |= encodeColumn(board, columnCount) << (columnCount * columnBitCount);
+		}
+		return key;
+	}
+
+	/**
+	 * Encodes a position as the smaller of its key and the key of its mirror image.
+	 *
+	 * @param board the board.
+	 * @return the canonical key.
+	 * @throws IllegalArgumentException if the board does not fit in a <code>long</code>.
+	 */
+	public static long encodeCanonical(BoardView board) {
+		return canonical(encode(board), board.getNumberOfColumns(), board.getNumberOfRows());
+	}
+
+	/**
+	 * Returns the canonical form of a key: the smaller of the key and its mirror image.
+	 *
+	 * @param key the key.
+	 * @param numberOfColumns the number of columns.
+	 * @param numberOfRows the number of rows.
+	 * @return the canonical key.
+	 */
+	public static long canonical(long key, int numberOfColumns, int numberOfRows) {
+		return Math.min(key, mirror(key, numberOfColumns, numberOfRows));
+	}
+
+	/**
+	 * Returns the key of the left-right mirror image of a position.
+	 *
+	 * @param key the key.
+	 * @param numberOfColumns the number of columns.
+	 * @param numberOfRows the number of rows.
+	 * @return the mirrored key.
+	 */
+	public static long mirror(long key, int numberOfColumns, int numberOfRows) {
+		final int columnBitCount = numberOfRows + 1;
+		final long columnMask = columnMask(columnBitCount);
+		long mirroredKey = 0;
+		for (int columnCount = 0; columnCount < numberOfColumns; columnCount++) {
+			final long column = (key >>> (columnCount * columnBitCount)) & columnMask;
+			mirroredKey |= column << ((numberOfColumns - 1 - columnCount) * columnBitCount);
+		}
+		return mirroredKey;
+	}
+
+	/**
+	 * Plays the tokens of a key onto an empty board, column by column.  The board's win checks
+	 * still run, but their results are ignored.
+	 *
+	 * @param key the key.
+	 * @param board the empty board to decode onto, of the size the key was encoded from.
+	 * @throws IllegalArgumentException if the board does not fit in a <code>long</code>, or the
+	 * key is not a valid key for the board size.
+	 */
+	public static void decode(long key, Board board) {
+		final int numberOfColumns = board.getNumberOfColumns();
+		final int numberOfRows = board.getNumberOfRows();
+		checkFits(numberOfColumns, numberOfRows);
+		final int columnBitCount = numberOfRows + 1;
+		final long columnMask = columnMask(columnBitCount);
+		for (int columnCount = 0; columnCount < numberOfColumns; columnCount++) {
+			final long column = (key >>> (columnCount * columnBitCount)) & columnMask;
+			if (column == 0) {
+				throw new IllegalArgumentException("Invalid key (column " + columnCount + " has no marker)");
+			}
+			final int columnSize = Long.SIZE - 1 - Long.numberOfLeadingZeros(column);
+			for (int rowCount = 0; rowCount < columnSize; rowCount++) {
+				board.moveStatus(((column >>> rowCount) & 1) != 0 ? Token.Black : Token.Red, columnCount);
+			}
+		}
+	}
+
+	/**
+	 * Decodes a key onto a new {@link GravityBoard}.
+	 *
+	 * @param key the key.
+	 * @param numberOfColumns the number of columns.
+	 * @param numberOfRows the number of rows.
+	 * @param winCount the number of tokens in a row required to win.
+	 * @return the board.
+	 */
+	public static GravityBoard decode(long key, int numberOfColumns, int numberOfRows, int winCount) {
+		final GravityBoard board = new GravityBoard(numberOfColumns, numberOfRows, winCount);
+		decode(key, board);
+		return board;
+	}
+
+	/**
+	 * Returns the number of bytes in the byte array encoding of a board.
+	 *
+	 * @param numberOfColumns the number of columns.
+	 * @param numberOfRows the number of rows.
+	 * @return the number of bytes.
+	 */
+	public static int getEncodedLength(int numberOfColumns, int numberOfRows) {
+		return (int) (((long) numberOfColumns * (numberOfRows + 1) + Byte.SIZE - 1) / Byte.SIZE);
+	}
+
+	/**
+	 * Encodes a position of any size as a new byte array.
+	 *
+	 * @param board the board.
+	 * @return the encoded position.
+	 */
+	public static byte[] encodeBytes(BoardView board) {
+		final byte[] bytes = new byte[getEncodedLength(board.getNumberOfColumns(), board.getNumberOfRows())];
+		encode(board, bytes, false);
+		return bytes;
+	}
+
+	/**
+	 * Encodes a position of any size into <code>bytes</code>.
+	 *
+	 * @param board the board.
+	 * @param bytes the array to encode into, at least {@link #getEncodedLength(int, int)} long.
+	 * @param canonical whether to encode the canonical form, i.e. the mirror image if its columns
+	 * order first.
+	 * @return the number of bytes written.
+	 */
+	public static int encode(BoardView board, byte[] bytes, boolean canonical) {
+		final int numberOfColumns = board.getNumberOfColumns();
+		final int numberOfRows = board.getNumberOfRows();
+		final int length = getEncodedLength(numberOfColumns, numberOfRows);
+		final boolean isMirrored = canonical && isMirrorFirst(board);
+		for (int count = 0; count < length; count++) {
+			bytes[count] = 0;
+		}
+		long bitIndex = 0;
+		for (int columnCount = 0; columnCount < numberOfColumns; columnCount++) {
+			final int columnIndex = isMirrored ? numberOfColumns - 1 - columnCount : columnCount;
+			final int columnSize = board.getColumnSize(columnIndex);
+			for (int rowCount = 0; rowCount < columnSize; rowCount++) {
+				if (board.getToken(columnIndex, rowCount) == Token.Black) {
+					setBit(bytes, bitIndex + rowCount);
+				}
+			}
+			setBit(bytes, bitIndex + columnSize);
+			bitIndex += numberOfRows + 1;
+		}
+		return length;
+	}
+
+	/**
+	 * Plays the tokens of a byte array encoding onto an empty board, column by column.
+	 *
+	 * @param bytes the encoded position.
+	 * @param board the empty board to decode onto, of the size the position was encoded from.
+	 * @throws IllegalArgumentException if the array is too short or not a valid encoding.
+	 */
+	public static void decode(byte[] bytes, Board board) {
+		final int numberOfColumns = board.getNumberOfColumns();
+		final int numberOfRows = board.getNumberOfRows();
+		if (bytes.length < getEncodedLength(numberOfColumns, numberOfRows)) {
+			throw new IllegalArgumentException("Encoded position too short (" + bytes.length + " bytes)");
+		}
+		long bitIndex = 0;
+		for (int columnCount = 0; columnCount < numberOfColumns; columnCount++) {
+			int columnSize = numberOfRows;
+			while (columnSize >= 0 && !isBitSet(bytes, bitIndex + columnSize)) {
+				--columnSize;
+			}
+			if (columnSize < 0) {
+				throw new IllegalArgumentException("Invalid encoding (column " + columnCount + " has no marker)");
+			}
+			for (int rowCount = 0; rowCount < columnSize; rowCount++) {
+				board.moveStatus(isBitSet(bytes, bitIndex + rowCount) ? Token.Black : Token.Red, columnCount);
+			}
+			bitIndex += numberOfRows + 1;
+		}
+	}
+
+	/**
+	 * Indicates whether the mirror image of the position orders first, comparing columns from
+	 * the outside in by height and then token by token.
+	 */
+	protected static boolean isMirrorFirst(BoardView board) {
+		final int numberOfColumns = board.getNumberOfColumns();
+		for (int leftIndex = 0, rightIndex = numberOfColumns - 1; leftIndex < rightIndex; leftIndex++, rightIndex--) {
+			final int comparison = compareColumns(board, rightIndex, leftIndex);
+			if (comparison != 0) {
+				return comparison < 0;
+			}
+		}
+		return false;
+	}
+
+	protected static int compareColumns(BoardView board, int columnIndex, int otherColumnIndex) {
+		final int columnSize = board.getColumnSize(columnIndex);
+		final int otherColumnSize = board.getColumnSize(otherColumnIndex);
+		if (columnSize != otherColumnSize) {
+			return Integer.compare(columnSize, otherColumnSize);
+		}
+		for (int rowCount = 0; rowCount < columnSize; rowCount++) {
+			final Token token = board.getToken(columnIndex, rowCount);
+			final Token otherToken = board.getToken(otherColumnIndex, rowCount);
+			if (token != otherToken) {
+				return token.compareTo(otherToken);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Encodes one column: a bit per token, set for Black, and a marker bit above the top token.
+	 */
+	protected static long encodeColumn(BoardView board, int columnIndex) {
+		final int columnSize = board.getColumnSize(columnIndex);
+		long column = 1L << columnSize;
+		for (int rowCount = 0; rowCount < columnSize; rowCount++) {
+			if (board.getToken(columnIndex, rowCount) == Token.Black) {
+				column |= 1L << rowCount;
+			}
+		}
+		return column;
+	}
+
+	protected static void checkFits(int numberOfColumns, int numberOfRows) {
+		if (!BitBoard.fits(numberOfColumns, numberOfRows)) {
+			throw new IllegalArgumentException(
+				"Board does not fit in " + Long.SIZE + " bits (" + numberOfColumns + " columns x " + numberOfRows + " rows)");
+		}
+	}
+
+	private static long columnMask(int columnBitCount) {
+		return columnBitCount >= Long.SIZE ? -1L : (1L << columnBitCount) - 1;
+	}
+
+	private static void setBit(byte[] bytes, long bitIndex) {
+		bytes[(int) (bitIndex >>> 3)] |= 1 << (bitIndex & 7);
+	}
+
+	private static boolean isBitSet(byte[] bytes, long bitIndex) {
+		return (bytes[(int) (bitIndex >>> 3)] & (1 << (bitIndex & 7))) != 0;
+	}
+}
@@ -0,0 +1,304 @@
+package chen.eric.connect4;
+
+import java.util.Arrays;
+
+import chen.eric.connect4.metrics.Metrics;
+
+/**
+ * {@link Board} that stores only occupied cells, for huge, mostly empty boards.
+ * <p>
+ * Tokens are kept in a primitive hash map keyed by cell index
+ * (<code>columnIndex * numberOfRows + rowIndex</code>), and column heights in another keyed by
+ * column index, holding only non-empty columns.  Full columns are kept in a sorted array so that
+ * open columns can be counted and indexed without scanning every column.  Memory therefore grows
+ * with the number of tokens played, not with the board area.  Win checks look at most
+ * <code>winCount - 1</code> cells each way in each direction, so every move takes
+ * <code>O(winCount)</code> map lookups whatever the board size.
+ */
+public class SparseBoard implements Board {
+	private static final Token[] TOKENS = Token.values();
+	private static final int NO_TOKEN = -1;
+	// column and row steps of the win check directions, in Metrics.WIN_CHECK_DIRECTIONS order
+	private static final int[] COLUMN_STEPS = {0, 1, 1, -1};
+	private static final int[] ROW_STEPS = {1, 0, 1, 1};
+
+	private final int numberOfColumns;
+	private final int numberOfRows;
+	private final int winCount;
+	private final long cellCount;
+	private final LongIntHashMap tokens = new LongIntHashMap();
+	private final LongIntHashMap heights = new LongIntHashMap();
+	private int[] fullColumnIndexes = new int[0];
+	private int fullColumnCount;
+	private int tokenCount;
+
+	public SparseBoard() {
+		this(GravityBoard.DEFAULT_NUM_COLUMNS, GravityBoard.DEFAULT_NUM_ROWS, GravityBoard.DEFAULT_WIN_COUNT);
+	}
+
+	/**
+	 * Creates an empty board.
+	 *
+	 * @param numberOfColumns the number of columns.
+	 * @param numberOfRows the number of rows.
+	 * @param winCount the number of tokens in a row required to win.
+	 * @throws IllegalArgumentException if the number of columns or rows is negative.
+	 */
+	public SparseBoard(int numberOfColumns, int numberOfRows, int winCount) {
+		if (numberOfColumns < 0 || numberOfRows < 0) {
+			throw new IllegalArgumentException("Invalid board size (" + numberOfColumns + " columns x " + numberOfRows + " rows)");
+		}
+		this.numberOfColumns = numberOfColumns;
+		this.numberOfRows = numberOfRows;
+		this.winCount = winCount;
+		this.cellCount = (long) numberOfColumns * numberOfRows;
+	}
+
+	/**
+	 * Creates a {@link SparseBoard} holding the same tokens as <code>board</code>.
+	 *
+	 * @param board the board to copy.
+	 */
+	public SparseBoard(BoardView board) {
+		this(board.getNumberOfColumns(), board.getNumberOfRows(), board.getWinCount());
+		for (int columnCount = 0; columnCount < numberOfColumns; columnCount++) {
+			final int columnSize = board.getColumnSize(columnCount);
+			for (int rowCount = 0; rowCount < columnSize; rowCount++) {
+				moveStatus(board.getToken(columnCount, rowCount), columnCount);
+			}
+		}
+	}
+
+	@Override
+	public BoardState move(Token token, int columnIndex) throws InvalidTokenException, InvalidColumnIndexException, ColumnFullException {
+		return BoardState.valueOf(moveStatus(token, columnIndex));
+	}
+
+	@Override
+	public int moveStatus(Token token, int columnIndex) throws InvalidTokenException, InvalidColumnIndexException, ColumnFullException {
+		final int status = tryMove(token, columnIndex);
+		if (BoardState.isRejected(status)) {
+			throw InvalidMoveException.valueOf(status, columnIndex);
+		}
+		return status;
+	}
+
+	@Override
+	public int tryMove(Token token, int columnIndex) {
+		if (token == null) {
+			return Metrics.reject(BoardState.INVALID_TOKEN_STATUS);
+		}
+		if (columnIndex < 0 || columnIndex >= numberOfColumns) {
+			return Metrics.reject(BoardState.INVALID_COLUMN_INDEX_STATUS);
+		}
+		final int rowIndex = heights.get(columnIndex, 0);
+		if (rowIndex >= numberOfRows) {
+			return Metrics.reject(BoardState.COLUMN_FULL_STATUS);
+		}
+		tokens.put(cellIndex(columnIndex, rowIndex), token.ordinal());
+		heights.put(columnIndex, rowIndex + 1);
+		++tokenCount;
+		if (Metrics.ENABLED) {
+			Metrics.MOVES.increment();
+		}
+		if (rowIndex + 1 >= numberOfRows) {
+			closeColumn(columnIndex);
+		}
+		return calculateStatus(token, columnIndex, rowIndex);
+	}
+
+	@Override
+	public boolean isLegal(int columnIndex) {
+		return columnIndex >= 0
+			&& columnIndex < numberOfColumns
+			&& heights.get(columnIndex, 0) < numberOfRows;
+	}
+
+	@Override
+	public Token undo(int columnIndex) throws InvalidColumnIndexException, ColumnEmptyException {
+		checkColumnIndex(columnIndex);
+		final int columnSize = heights.get(columnIndex, 0);
+		if (columnSize <= 0) {
+			throw new ColumnEmptyException("Column empty");
+		}
+		final long cellIndex = cellIndex(columnIndex, columnSize - 1);
+		final Token token = TOKENS[tokens.get(cellIndex, NO_TOKEN)];
+		tokens.remove(cellIndex);
+		if (columnSize > 1) {
+			heights.put(columnIndex, columnSize - 1);
+		}
+		else {
+			heights.remove(columnIndex);
+		}
+		--tokenCount;
+		if (columnSize >= numberOfRows) {
+			openColumn(columnIndex);
+		}
+		return token;
+	}
+
+	/**
+	 * Inserts a column that has just become full into the sorted full columns.
+	 */
+	protected void closeColumn(int columnIndex) {
+		if (fullColumnCount == fullColumnIndexes.length) {
+			fullColumnIndexes = Arrays.copyOf(fullColumnIndexes, Math.max(8, fullColumnCount * 2));
+		}
+		final int position = -Arrays.binarySearch(fullColumnIndexes, 0, fullColumnCount, columnIndex) - 1;
+		System.arraycopy(fullColumnIndexes, position, fullColumnIndexes, position + 1, fullColumnCount - position);
+		fullColumnIndexes[position] = columnIndex;
+		++fullColumnCount;
+	}
+
+	/**
+	 * Removes a column that is no longer full from the sorted full columns.
+	 */
+	protected void openColumn(int columnIndex) {
+		final int position = Arrays.binarySearch(fullColumnIndexes, 0, fullColumnCount, columnIndex);
+		System.arraycopy(fullColumnIndexes, position + 1, fullColumnIndexes, position, fullColumnCount - position - 1);
+		--fullColumnCount;
+	}
+
+	@Override
+	public int getNumberOfColumns() {
+		return numberOfColumns;
+	}
+
+	@Override
+	public int getNumberOfRows() {
+		return numberOfRows;
+	}
+
+	@Override
+	public int getWinCount() {
+		return winCount;
+	}
+
+	@Override
+	public int getColumnSize(int columnIndex) throws InvalidColumnIndexException {
+		checkColumnIndex(columnIndex);
+		return heights.get(columnIndex, 0);
+	}
+
+	@Override
+	public Token getToken(int columnIndex, int rowIndex) throws InvalidColumnIndexException, InvalidRowIndexException {
+		checkColumnIndex(columnIndex);
+		if (rowIndex < 0 || rowIndex >= numberOfRows) {
+			throw new InvalidRowIndexException("Invalid row index (" + rowIndex + ")");
+		}
+		final int ordinal = tokens.get(cellIndex(columnIndex, rowIndex), NO_TOKEN);
+		return ordinal != NO_TOKEN ? TOKENS[ordinal] : null;
+	}
+
+	@Override
+	public int getTokenCount() {
+		return tokenCount;
+	}
+
+	/**
+	 * Returns the number of hash table slots holding tokens and column heights.
+	 */
+	int getCapacity() {
+		return tokens.getCapacity() + heights.getCapacity();
+	}
+
+	@Override
+	public int getOpenColumnCount() {
+		return numberOfRows > 0 ? numberOfColumns - fullColumnCount : 0;
+	}
+
+	/**
+	 * Returns the column index of the <code>index</code>th open column, in column order, by
+	 * skipping over the full columns before it.
+	 */
+	@Override
+	public int getOpenColumnIndex(int index) throws InvalidColumnIndexException {
+		if (index < 0 || index >= getOpenColumnCount()) {
+			throw new InvalidColumnIndexException("Invalid open column index (" + index + ")");
+		}
+		int columnIndex = index;
+		for (int count = 0; count < fullColumnCount && fullColumnIndexes[count] <= columnIndex; count++) {
+			++columnIndex;
+		}
+		return columnIndex;
+	}
+
+	protected int calculateStatus(Token token, int columnIndex, int rowIndex) {
+		int status;
+		if (isWinner(token, columnIndex, rowIndex)) {
+			status = BoardState.winnerStatus(token);
+		}
+		else if (tokenCount >= cellCount) {
+			status = BoardState.DRAW_STATUS;
+		}
+		else {
+			status = BoardState.ONGOING_STATUS;
+		}
+		return status;
+	}
+
+	/**
+	 * Indicates whether the token just played at a cell completes a line, counting at most
+	 * <code>winCount - 1</code> matching tokens along each direction.
+	 */
+	protected boolean isWinner(Token token, int columnIndex, int rowIndex) {
+		final int ordinal = token.ordinal();
+		final int lineCount = winCount - 1;
+		for (int directionCount = 0; directionCount < COLUMN_STEPS.length; directionCount++) {
+			if (Metrics.ENABLED) {
+				Metrics.WIN_CHECKS[directionCount].increment();
+			}
+			final int columnStep = COLUMN_STEPS[directionCount];
+			final int rowStep = ROW_STEPS[directionCount];
+			final int matchingCount = countMatching(ordinal, columnIndex, rowIndex, columnStep, rowStep, lineCount);
+			if (matchingCount >= lineCount
+				|| matchingCount + countMatching(ordinal, columnIndex, rowIndex, -columnStep, -rowStep, lineCount - matchingCount) >= lineCount)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Counts up to <code>maxCount</code> consecutive tokens matching <code>ordinal</code> from a
+	 * cell, not including the cell itself.
+	 */
+	protected int countMatching(int ordinal, int columnIndex, int rowIndex, int columnStep, int rowStep, int maxCount) {
+		int matchingCount = 0;
+		long nextColumnIndex = (long) columnIndex + columnStep;
+		long nextRowIndex = (long) rowIndex + rowStep;
+		while (matchingCount < maxCount
+			&& nextColumnIndex >= 0 && nextColumnIndex < numberOfColumns
+			&& nextRowIndex >= 0 && nextRowIndex < numberOfRows
+			&& tokens.get(cellIndex((int) nextColumnIndex, (int) nextRowIndex), NO_TOKEN) == ordinal)
+		{
+			++matchingCount;
+			nextColumnIndex += columnStep;
+			nextRowIndex += rowStep;
+		}
+		return matchingCount;
+	}
+
+	private long cellIndex(int columnIndex, int rowIndex) {
+		return (long) columnIndex * numberOfRows + rowIndex;
+	}
+
+	private void checkColumnIndex(int columnIndex) throws InvalidColumnIndexException {
+		if (columnIndex < 0 || columnIndex >= numberOfColumns) {
+			throw new InvalidColumnIndexException("Invalid column index (" + columnIndex + ")");
+		}
+	}
+
+	/**
+	 * Renders the whole board, so only suits boards small enough to print.
+	 *
+	 * @throws IllegalArgumentException if the board is too large to render.
+	 */
+	@Override
+	public String toString() {
+		final char[] chars = new char[BoardRenderer.getRenderedLength(numberOfColumns, numberOfRows)];
+		BoardRenderer.render(this, chars, 0);
+		return new String(chars);
+	}
+}
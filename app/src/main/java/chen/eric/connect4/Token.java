@@ -13,4 +13,13 @@ public enum Token {
 	public char getCharValue() {
 		return charValue;
 	}
+
+	/**
+	 * Returns the token of the other player.
+	 *
+	 * @return the token of the other player.
+	 */
+	public Token getOpponent() {
+		return this == Black ? Red : Black;
+	}
 }
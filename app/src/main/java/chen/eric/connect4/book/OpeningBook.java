@@ -0,0 +1,144 @@
+package chen.eric.connect4.book;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import chen.eric.connect4.BitBoard;
+import chen.eric.connect4.BoardView;
+import chen.eric.connect4.PositionCodec;
+
+/**
+ * Read-only opening book backed by a memory-mapped file.
+ * <p>
+ * The file holds a fixed-size header, the sorted {@link BitBoard#getKey() position keys} of every
+ * book position and then one score byte per position, in the same order.  Positions are those
+ * reached from the empty board with Black moving first and the players alternating, and scores
+ * are {@link chen.eric.connect4.solver.SearchResult scores} for the player to move.  A lookup is a
+ * binary search over the mapped keys, so opening a book reads nothing up front and lookups do not
+ * allocate.
+ */
+public class OpeningBook {
+	/**
+	 * Returned by {@link #getScore(long)} for positions that are not in the book.
+	 */
+	public static final int NOT_FOUND = Integer.MIN_VALUE;
+
+	static final int MAGIC = 0x4334424B; // "C4BK"
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 8 * Integer.BYTES;
+	static final ByteOrder BYTE_ORDER = ByteOrder.BIG_ENDIAN;
+
+	private final MappedByteBuffer buffer;
+	private final int numberOfColumns;
+	private final int numberOfRows;
+	private final int winCount;
+	private final int maxPly;
+	private final int entryCount;
+	private final int scoresOffset;
+
+	protected OpeningBook(MappedByteBuffer buffer) throws IOException {
+		buffer.order(BYTE_ORDER);
+		if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not an opening book");
+		}
+		if (buffer.getInt(Integer.BYTES) != VERSION) {
+			throw new IOException("Unsupported opening book version (" + buffer.getInt(Integer.BYTES) + ")");
+		}
+		this.buffer = buffer;
+		this.numberOfColumns = buffer.getInt(2 * Integer.BYTES);
+		this.numberOfRows = buffer.getInt(3 * Integer.BYTES);
+		this.winCount = buffer.getInt(4 * Integer.BYTES);
+		this.maxPly = buffer.getInt(5 * Integer.BYTES);
+		this.entryCount = buffer.getInt(6 * Integer.BYTES);
+		if (entryCount < 0 || buffer.capacity() < HEADER_BYTES + (long) entryCount * (Long.BYTES + 1)) {
+			throw new IOException("Truncated opening book (" + buffer.capacity() + " bytes)");
+		}
+		this.scoresOffset = HEADER_BYTES + entryCount * Long.BYTES;
+	}
+
+	/**
+	 * Maps an opening book file.
+	 *
+	 * @param path the opening book file.
+	 * @return the opening book.
+	 * @throws IOException if the file cannot be read or is not an opening book.
+	 */
+	public static OpeningBook open(Path path) throws IOException {
+		try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Looks up a position.
+	 *
+	 * @param key the {@link BitBoard#getKey() position key}.
+	 * @return the score for the player to move, or {@link #NOT_FOUND} if the position is not in the book.
+	 */
+	public int getScore(long key) {
+		final MappedByteBuffer buffer = this.buffer;
+		int low = 0;
+		int high = entryCount - 1;
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			final long middleKey = buffer.getLong(HEADER_BYTES + middle * Long.BYTES);
+			if (middleKey < key) {
+				low = middle + 1;
+			}
+			else if (middleKey > key) {
+				high = middle - 1;
+			}
+			else {
+				return buffer.get(scoresOffset + middle);
+			}
+		}
+		return NOT_FOUND;
+	}
+
+	/**
+	 * Looks up a position.
+	 *
+	 * @param board the position.
+	 * @return the score for the player to move, or {@link #NOT_FOUND} if the position is not in
+	 * the book or the board size does not match.
+	 */
+	public int getScore(BoardView board) {
+		if (board.getNumberOfColumns() != numberOfColumns
+			|| board.getNumberOfRows() != numberOfRows
+			|| board.getWinCount() != winCount
+			|| board.getTokenCount() > maxPly)
+		{
+			return NOT_FOUND;
+		}
+		return getScore(PositionCodec.encode(board));
+	}
+
+	public int getNumberOfColumns() {
+		return numberOfColumns;
+	}
+
+	public int getNumberOfRows() {
+		return numberOfRows;
+	}
+
+	public int getWinCount() {
+		return winCount;
+	}
+
+	/**
+	 * Returns the number of moves played in the deepest book positions.
+	 *
+	 * @return the number of moves played in the deepest book positions.
+	 */
+	public int getMaxPly() {
+		return maxPly;
+	}
+
+	public int getEntryCount() {
+		return entryCount;
+	}
+}
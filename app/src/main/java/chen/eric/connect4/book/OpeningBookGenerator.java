@@ -0,0 +1,175 @@
+package chen.eric.connect4.book;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import chen.eric.connect4.BitBoard;
+import chen.eric.connect4.GravityBoard;
+import chen.eric.connect4.Token;
+import chen.eric.connect4.solver.Solver;
+import chen.eric.connect4.solver.TranspositionTable;
+
+/**
+ * Generates an {@link OpeningBook} by solving every position reachable from the empty board in
+ * at most <code>maxPly</code> moves.
+ * <p>
+ * Positions where the game is already over are not stored.  Positions are solved in parallel,
+ * each thread with its own {@link Solver}, sharing one {@link TranspositionTable}.
+ */
+public class OpeningBookGenerator {
+	private final int numberOfColumns;
+	private final int numberOfRows;
+	private final int winCount;
+	private final int maxPly;
+	private final int parallelism;
+	private final int tableSizeMegabytes;
+
+	public OpeningBookGenerator(int maxPly) {
+		this(GravityBoard.DEFAULT_NUM_COLUMNS, GravityBoard.DEFAULT_NUM_ROWS, GravityBoard.DEFAULT_WIN_COUNT,
+			maxPly, Runtime.getRuntime().availableProcessors(), 256);
+	}
+
+	/**
+	 * Creates an opening book generator.
+	 *
+	 * @param numberOfColumns the number of columns.
+	 * @param numberOfRows the number of rows.
+	 * @param winCount the number of tokens in a row required to win.
+	 * @param maxPly the number of moves played in the deepest book positions.
+	 * @param parallelism the number of solver threads.
+	 * @param tableSizeMegabytes the size of the shared transposition table in megabytes.
+	 * @throws IllegalArgumentException if the board does not fit in a {@link BitBoard}.
+	 */
+	public OpeningBookGenerator(int numberOfColumns, int numberOfRows, int winCount, int maxPly, int parallelism, int tableSizeMegabytes) {
+		if (!BitBoard.fits(numberOfColumns, numberOfRows)) {
+			throw new IllegalArgumentException(
+				"Board does not fit in " + Long.SIZE + " bits (" + numberOfColumns + " columns x " + numberOfRows + " rows)");
+		}
+		this.numberOfColumns = numberOfColumns;
+		this.numberOfRows = numberOfRows;
+		this.winCount = winCount;
+		this.maxPly = maxPly;
+		this.parallelism = parallelism;
+		this.tableSizeMegabytes = tableSizeMegabytes;
+	}
+
+	/**
+	 * Solves every book position and writes the book to <code>path</code>.
+	 *
+	 * @param path the opening book file to write.
+	 * @return the number of positions in the book.
+	 * @throws IOException if the book cannot be written.
+	 */
+	public int generate(Path path) throws IOException {
+		final Map<Long, BitBoard> positions = new HashMap<>();
+		enumerate(new BitBoard(numberOfColumns, numberOfRows, winCount), Token.Black, positions);
+
+		final long[] keys = new long[positions.size()];
+		int keyCount = 0;
+		for (final long key : positions.keySet()) {
+			keys[keyCount++] = key;
+		}
+		Arrays.sort(keys);
+
+		final byte[] scores = new byte[keys.length];
+		final TranspositionTable transpositionTable =
+			new TranspositionTable(tableSizeMegabytes, TranspositionTable.ReplacementPolicy.depthPreferred);
+		final ThreadLocal<Solver> solvers = ThreadLocal.withInitial(() -> new Solver(transpositionTable));
+		final ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism);
+		try {
+			forkJoinPool.submit(() ->
+				IntStream.range(0, keys.length)
+					.parallel()
+					.forEach(count -> {
+						final BitBoard board = positions.get(keys[count]);
+						scores[count] = (byte) solvers.get()
+							.solve(board, Solver.nextPlayer(board))
+							.getScore();
+					}))
+				.get();
+		}
+		catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			throw new IOException(exception);
+		}
+		catch (ExecutionException exception) {
+			throw new IOException(exception.getCause());
+		}
+		finally {
+			forkJoinPool.shutdown();
+		}
+
+		write(path, keys, scores);
+		return keys.length;
+	}
+
+	/**
+	 * Collects every position reachable from <code>board</code> in which the game is not over.
+	 */
+	protected void enumerate(BitBoard board, Token player, Map<Long, BitBoard> positions) {
+		if (positions.putIfAbsent(board.getKey(), new BitBoard(board)) != null
+			|| board.getTokenCount() >= maxPly)
+		{
+			return;
+		}
+		for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+			if (board.getColumnSize(columnIndex) < numberOfRows && !board.isWinningMove(player, columnIndex)) {
+				board.move(player, columnIndex);
+				enumerate(board, player.getOpponent(), positions);
+				board.undo(columnIndex);
+			}
+		}
+	}
+
+	protected void write(Path path, long[] keys, byte[] scores) throws IOException {
+		try (final DataOutputStream outputStream =
+			new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path))))
+		{
+			outputStream.writeInt(OpeningBook.MAGIC);
+			outputStream.writeInt(OpeningBook.VERSION);
+			outputStream.writeInt(numberOfColumns);
+			outputStream.writeInt(numberOfRows);
+			outputStream.writeInt(winCount);
+			outputStream.writeInt(maxPly);
+			outputStream.writeInt(keys.length);
+			outputStream.writeInt(0); // reserved, keeps the keys 8-byte aligned
+			for (final long key : keys) {
+				outputStream.writeLong(key);
+			}
+			outputStream.write(scores);
+		}
+	}
+
+	/**
+	 * Generates an opening book for the default board size.
+	 *
+	 * @param args the output file, the maximum ply and optionally the number of threads.
+	 * @throws IOException if the book cannot be written.
+	 */
+	public static void main(String... args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: OpeningBookGenerator <output file> <max ply> [threads]");
+			System.exit(1);
+		}
+		final int parallelism = args.length > 2 ?
+			Integer.parseInt(args[2]) :
+			Runtime.getRuntime().availableProcessors();
+		final OpeningBookGenerator generator = new OpeningBookGenerator(
+			GravityBoard.DEFAULT_NUM_COLUMNS, GravityBoard.DEFAULT_NUM_ROWS, GravityBoard.DEFAULT_WIN_COUNT,
+			Integer.parseInt(args[1]), parallelism, 256);
+		final long startNanos = System.nanoTime();
+		final int entryCount = generator.generate(Paths.get(args[0]));
+		System.out.println(entryCount + " positions in " + TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos) + "s");
+	}
+}
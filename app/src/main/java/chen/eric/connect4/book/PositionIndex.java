@@ -0,0 +1,164 @@
+package chen.eric.connect4.book;
+
+import chen.eric.connect4.BitBoard;
+
+/**
+ * Perfect index of the positions on a board of one size in which Black has moved first and the
+ * players have alternated, i.e. Black holds half the tokens, rounded up.
+ * <p>
+ * Positions are ordered by their column heights, read as a number in base
+ * <code>numberOfRows + 1</code>, and then by the rank of their colouring among the colourings
+ * with that many Black tokens.  The colouring is the sequence of tokens read column by column,
+ * bottom to top, ranked with the combinatorial number system.  Every such position, reachable or
+ * not, gets a distinct index below {@link #getIndexCount()}, and every index below it belongs to
+ * one position.
+ */
+public class PositionIndex {
+	/**
+	 * The most positions whose outcomes fit in one array of two-bit entries packed into
+	 * <code>long</code> words.
+	 */
+	public static final long MAX_INDEX_COUNT = (long) (Integer.MAX_VALUE - 8) * (Long.SIZE / 2);
+
+	private final int numberOfColumns;
+	private final int numberOfRows;
+	private final int columnBitCount;
+	private final long[][] binomials;
+	private final long[] heightOffsets;
+	private final long indexCount;
+
+	/**
+	 * Creates the index for boards of the given size.
+	 *
+	 * @param numberOfColumns the number of columns.
+	 * @param numberOfRows the number of rows.
+	 * @throws IllegalArgumentException if the board does not fit in a {@link BitBoard}, has too
+	 * many height combinations to tabulate, or more than {@link #MAX_INDEX_COUNT} positions.
+	 */
+	public PositionIndex(int numberOfColumns, int numberOfRows) {
+		if (!BitBoard.fits(numberOfColumns, numberOfRows)) {
+			throw new IllegalArgumentException(
+				"Board does not fit in " + Long.SIZE + " bits (" + numberOfColumns + " columns x " + numberOfRows + " rows)");
+		}
+		final double heightCount = Math.pow(numberOfRows + 1, numberOfColumns);
+		if (heightCount > 1 << 26) {
+			throw new IllegalArgumentException("Too many column heights to index (" + numberOfColumns + " columns x " + numberOfRows + " rows)");
+		}
+		this.numberOfColumns = numberOfColumns;
+		this.numberOfRows = numberOfRows;
+		this.columnBitCount = numberOfRows + 1;
+
+		final int cellCount = numberOfColumns * numberOfRows;
+		this.binomials = new long[cellCount + 1][cellCount + 1];
+		for (int n = 0; n <= cellCount; n++) {
+			binomials[n][0] = 1;
+			for (int k = 1; k <= n; k++) {
+				binomials[n][k] = binomials[n - 1][k - 1] + binomials[n - 1][k];
+			}
+		}
+
+		// count the positions before tabulating the heights, so that boards too large to index are
+		// rejected without allocating the table
+		long[] heightCounts = {1};
+		for (int columnCount = 0; columnCount < numberOfColumns; columnCount++) {
+			final long[] nextHeightCounts = new long[heightCounts.length + numberOfRows];
+			for (int tokenCount = 0; tokenCount < heightCounts.length; tokenCount++) {
+				for (int columnSize = 0; columnSize <= numberOfRows; columnSize++) {
+					nextHeightCounts[tokenCount + columnSize] += heightCounts[tokenCount];
+				}
+			}
+			heightCounts = nextHeightCounts;
+		}
+		long indexCount = 0;
+		for (int tokenCount = 0; tokenCount <= cellCount; tokenCount++) {
+			final long colouringCount = binomials[tokenCount][getBlackCount(tokenCount)];
+			if (heightCounts[tokenCount] > (MAX_INDEX_COUNT - indexCount) / colouringCount) {
+				throw new IllegalArgumentException("Too many positions to index (" + numberOfColumns + " columns x " + numberOfRows + " rows)");
+			}
+			indexCount += heightCounts[tokenCount] * colouringCount;
+		}
+		this.indexCount = indexCount;
+
+		// the offset of each combination of heights is the number of positions before it
+		this.heightOffsets = new long[(int) heightCount];
+		long offset = 0;
+		for (int heightIndex = 0; heightIndex < heightOffsets.length; heightIndex++) {
+			heightOffsets[heightIndex] = offset;
+			int tokenCount = 0;
+			for (int remaining = heightIndex; remaining > 0; remaining /= columnBitCount) {
+				tokenCount += remaining % columnBitCount;
+			}
+			offset += binomials[tokenCount][getBlackCount(tokenCount)];
+		}
+	}
+
+	/**
+	 * Returns the index of a position.
+	 *
+	 * @param key the {@link BitBoard#getKey() position key}.
+	 * @return the index.
+	 * @throws IllegalArgumentException if Black does not hold half the tokens, rounded up.
+	 */
+	public long getIndex(long key) {
+		final int columnBitCount = this.columnBitCount;
+		final long columnMask = (1L << columnBitCount) - 1;
+		final long[][] binomials = this.binomials;
+		int heightIndex = 0;
+		int heightWeight = 1;
+		int tokenCount = 0;
+		int blackCount = 0;
+		long colouringRank = 0;
+		for (int columnCount = 0; columnCount < numberOfColumns; columnCount++) {
+			final long column = (key >>> (columnCount * columnBitCount)) & columnMask;
+			final int columnSize = Long.SIZE - 1 - Long.numberOfLeadingZeros(column);
+			for (int rowCount = 0; rowCount < columnSize; rowCount++) {
+				if (((column >>> rowCount) & 1) != 0) {
+					colouringRank += binomials[tokenCount][++blackCount];
+				}
+				++tokenCount;
+			}
+			heightIndex += columnSize * heightWeight;
+			heightWeight *= columnBitCount;
+		}
+		if (blackCount != getBlackCount(tokenCount)) {
+			throw new IllegalArgumentException("Black holds " + blackCount + " of " + tokenCount + " tokens");
+		}
+		return heightOffsets[heightIndex] + colouringRank;
+	}
+
+	/**
+	 * Returns the index of a position.
+	 *
+	 * @param board the position.
+	 * @return the index.
+	 * @throws IllegalArgumentException if the board size does not match, or Black does not hold
+	 * half the tokens, rounded up.
+	 */
+	public long getIndex(BitBoard board) {
+		if (board.getNumberOfColumns() != numberOfColumns || board.getNumberOfRows() != numberOfRows) {
+			throw new IllegalArgumentException("Board size mismatch (" + board.getNumberOfColumns() + " columns x " + board.getNumberOfRows() + " rows)");
+		}
+		return getIndex(board.getKey());
+	}
+
+	/**
+	 * Returns the number of indexes, one per position.
+	 *
+	 * @return the number of indexes.
+	 */
+	public long getIndexCount() {
+		return indexCount;
+	}
+
+	public int getNumberOfColumns() {
+		return numberOfColumns;
+	}
+
+	public int getNumberOfRows() {
+		return numberOfRows;
+	}
+
+	private static int getBlackCount(int tokenCount) {
+		return (tokenCount + 1) / 2;
+	}
+}
@@ -0,0 +1,157 @@
+package chen.eric.connect4.book;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import chen.eric.connect4.BoardView;
+import chen.eric.connect4.PositionCodec;
+
+/**
+ * Read-only tablebase of the outcome of every position on a small board, backed by a
+ * memory-mapped file.
+ * <p>
+ * The file holds a fixed-size header and then two bits per {@link PositionIndex position index},
+ * four positions per byte with the lowest index in the lowest bits: the outcome with perfect play
+ * for the player to move, or {@link #NOT_FOUND} for positions that cannot be reached or in which
+ * the game is already over.  Files larger than a single mapping are mapped in segments, so opening
+ * a tablebase reads nothing up front and lookups do not allocate.
+ */
+public class Tablebase {
+	public static final int NOT_FOUND = 0;
+	public static final int LOSS = 1;
+	public static final int DRAW = 2;
+	public static final int WIN = 3;
+
+	static final int MAGIC = 0x43345442; // "C4TB"
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 8 * Integer.BYTES;
+	static final ByteOrder BYTE_ORDER = ByteOrder.BIG_ENDIAN;
+	private static final int SEGMENT_SHIFT = 30;
+	private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+	private final ByteBuffer[] segments;
+	private final int numberOfColumns;
+	private final int numberOfRows;
+	private final int winCount;
+	private final PositionIndex positionIndex;
+
+	protected Tablebase(FileChannel channel) throws IOException {
+		final long size = channel.size();
+		if (size < HEADER_BYTES) {
+			throw new IOException("Not a tablebase");
+		}
+		final MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+		header.order(BYTE_ORDER);
+		if (header.getInt(0) != MAGIC) {
+			throw new IOException("Not a tablebase");
+		}
+		if (header.getInt(Integer.BYTES) != VERSION) {
+			throw new IOException("Unsupported tablebase version (" + header.getInt(Integer.BYTES) + ")");
+		}
+		this.numberOfColumns = header.getInt(2 * Integer.BYTES);
+		this.numberOfRows = header.getInt(3 * Integer.BYTES);
+		this.winCount = header.getInt(4 * Integer.BYTES);
+		final long indexCount = header.getLong(6 * Integer.BYTES);
+		if (indexCount < 0 || indexCount > PositionIndex.MAX_INDEX_COUNT) {
+			throw new IOException("Invalid tablebase index count (" + indexCount + ")");
+		}
+		// check the file holds the table before building the index for a possibly corrupt size
+		final long dataBytes = getDataBytes(indexCount);
+		if (size < HEADER_BYTES + dataBytes) {
+			throw new IOException("Truncated tablebase (" + size + " bytes)");
+		}
+		try {
+			this.positionIndex = new PositionIndex(numberOfColumns, numberOfRows);
+		}
+		catch (IllegalArgumentException exception) {
+			throw new IOException("Invalid tablebase board size", exception);
+		}
+		if (indexCount != positionIndex.getIndexCount()) {
+			throw new IOException("Tablebase index count mismatch (" + indexCount + ")");
+		}
+		this.segments = new ByteBuffer[(int) ((dataBytes + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+		for (int count = 0; count < segments.length; count++) {
+			final long offset = (long) count << SEGMENT_SHIFT;
+			segments[count] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + offset, Math.min(SEGMENT_MASK + 1, dataBytes - offset));
+		}
+	}
+
+	/**
+	 * Maps a tablebase file.
+	 *
+	 * @param path the tablebase file.
+	 * @return the tablebase.
+	 * @throws IOException if the file cannot be read or is not a tablebase.
+	 */
+	public static Tablebase open(Path path) throws IOException {
+		try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return new Tablebase(channel);
+		}
+	}
+
+	/**
+	 * Looks up a position by index.
+	 *
+	 * @param index the {@link PositionIndex position index}.
+	 * @return {@link #WIN}, {@link #DRAW} or {@link #LOSS} for the player to move, or
+	 * {@link #NOT_FOUND}.
+	 */
+	public int getOutcome(long index) {
+		final long byteIndex = index >>> 2;
+		final int bits = segments[(int) (byteIndex >>> SEGMENT_SHIFT)].get((int) (byteIndex & SEGMENT_MASK));
+		return (bits >>> ((int) (index & 3) << 1)) & 3;
+	}
+
+	/**
+	 * Looks up a position.
+	 *
+	 * @param board the position, with Black having moved first.
+	 * @return {@link #WIN}, {@link #DRAW} or {@link #LOSS} for the player to move, or
+	 * {@link #NOT_FOUND} if the position is not in the tablebase or the board size does not
+	 * match.
+	 */
+	public int getOutcome(BoardView board) {
+		if (board.getNumberOfColumns() != numberOfColumns
+			|| board.getNumberOfRows() != numberOfRows
+			|| board.getWinCount() != winCount)
+		{
+			return NOT_FOUND;
+		}
+		final long key = PositionCodec.encode(board);
+		final int tokenCount = board.getTokenCount();
+		if (Long.bitCount(key) - numberOfColumns != (tokenCount + 1) / 2) {
+			// the players did not alternate; the key holds a marker bit per column and the Black tokens
+			return NOT_FOUND;
+		}
+		final long index = positionIndex.getIndex(key);
+		return getOutcome(index);
+	}
+
+	public int getNumberOfColumns() {
+		return numberOfColumns;
+	}
+
+	public int getNumberOfRows() {
+		return numberOfRows;
+	}
+
+	public int getWinCount() {
+		return winCount;
+	}
+
+	public PositionIndex getPositionIndex() {
+		return positionIndex;
+	}
+
+	/**
+	 * Returns the number of bytes holding the outcomes of <code>indexCount</code> positions.
+	 */
+	static long getDataBytes(long indexCount) {
+		return (indexCount + 3) >>> 2;
+	}
+}
@@ -0,0 +1,246 @@
+package chen.eric.connect4.book;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+import chen.eric.connect4.BitBoard;
+import chen.eric.connect4.BoardState;
+import chen.eric.connect4.PositionCodec;
+import chen.eric.connect4.Token;
+
+/**
+ * Generates a {@link Tablebase} by solving every position reachable from the empty board.
+ * <p>
+ * Outcomes are found by an exhaustive depth-first search that memoizes every position it
+ * solves, two bits per {@link PositionIndex position index}, in one packed table shared by all
+ * threads.  Every move of every position is searched, without cutoffs, so that positions reached
+ * only by mistakes are solved too.  The distinct positions at the split depth are solved in
+ * parallel first; the search from the empty board then finds them in the table.  Threads that
+ * reach the same position at the same time both solve it and store the same outcome.
+ */
+public class TablebaseGenerator {
+	private static final int ENTRIES_PER_WORD = Long.SIZE / 2;
+	private static final int WRITE_BUFFER_BYTES = 1 << 16;
+
+	private final int numberOfColumns;
+	private final int numberOfRows;
+	private final int winCount;
+	private final int parallelism;
+	private final int splitDepth;
+	private final PositionIndex positionIndex;
+
+	/**
+	 * Creates a tablebase generator.
+	 *
+	 * @param numberOfColumns the number of columns.
+	 * @param numberOfRows the number of rows.
+	 * @param winCount the number of tokens in a row required to win.
+	 * @param parallelism the number of solver threads.
+	 * @param splitDepth the number of moves played in the positions solved in parallel.
+	 * @throws IllegalArgumentException if the board does not fit in a {@link BitBoard}, or has too
+	 * many positions for one table.
+	 */
+	public TablebaseGenerator(int numberOfColumns, int numberOfRows, int winCount, int parallelism, int splitDepth) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("Parallelism must be positive (" + parallelism + ")");
+		}
+		this.positionIndex = new PositionIndex(numberOfColumns, numberOfRows);
+		this.numberOfColumns = numberOfColumns;
+		this.numberOfRows = numberOfRows;
+		this.winCount = winCount;
+		this.parallelism = parallelism;
+		this.splitDepth = splitDepth;
+	}
+
+	/**
+	 * Solves every position and writes the tablebase to <code>path</code>.
+	 *
+	 * @param path the tablebase file to write.
+	 * @return the number of positions solved.
+	 * @throws IOException if the tablebase cannot be written.
+	 */
+	public long generate(Path path) throws IOException {
+		final long indexCount = positionIndex.getIndexCount();
+		final AtomicLongArray outcomes = new AtomicLongArray((int) ((indexCount + ENTRIES_PER_WORD - 1) / ENTRIES_PER_WORD));
+
+		final Set<Long> splitKeys = new HashSet<>();
+		collect(new BitBoard(numberOfColumns, numberOfRows, winCount), Token.Black, splitKeys);
+		final long[] keys = splitKeys.stream()
+			.mapToLong(Long::longValue)
+			.toArray();
+		final ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism);
+		try {
+			forkJoinPool.submit(() ->
+				IntStream.range(0, keys.length)
+					.parallel()
+					.forEach(count -> {
+						final BitBoard board = new BitBoard(numberOfColumns, numberOfRows, winCount);
+						PositionCodec.decode(keys[count], board);
+						solve(board, board.getTokenCount() % 2 == 0 ? Token.Black : Token.Red, outcomes);
+					}))
+				.get();
+		}
+		catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			throw new IOException(exception);
+		}
+		catch (ExecutionException exception) {
+			throw new IOException(exception.getCause());
+		}
+		finally {
+			forkJoinPool.shutdown();
+		}
+		solve(new BitBoard(numberOfColumns, numberOfRows, winCount), Token.Black, outcomes);
+
+		write(path, outcomes);
+		long positionCount = 0;
+		for (int count = 0; count < outcomes.length(); count++) {
+			final long word = outcomes.get(count);
+			positionCount += Long.bitCount((word | (word >>> 1)) & 0x5555555555555555L);
+		}
+		return positionCount;
+	}
+
+	/**
+	 * Collects the positions at the split depth reachable from <code>board</code> in which the
+	 * game is not over.
+	 */
+	protected void collect(BitBoard board, Token player, Set<Long> keys) {
+		if (board.getTokenCount() >= splitDepth) {
+			keys.add(board.getKey());
+			return;
+		}
+		for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+			if (board.isLegal(columnIndex)) {
+				if (board.moveStatus(player, columnIndex) == BoardState.ONGOING_STATUS) {
+					collect(board, player.getOpponent(), keys);
+				}
+				board.undo(columnIndex);
+			}
+		}
+	}
+
+	/**
+	 * Finds the outcome of a position in which the game is not over for <code>player</code>,
+	 * solving and storing every position below it that is not yet in the table.
+	 */
+	protected int solve(BitBoard board, Token player, AtomicLongArray outcomes) {
+		final long index = positionIndex.getIndex(board.getKey());
+		final int storedOutcome = getOutcome(outcomes, index);
+		if (storedOutcome != Tablebase.NOT_FOUND) {
+			return storedOutcome;
+		}
+		final Token opponent = player.getOpponent();
+		int outcome = Tablebase.LOSS;
+		for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+			if (!board.isLegal(columnIndex)) {
+				continue;
+			}
+			final int status = board.moveStatus(player, columnIndex);
+			final int moveOutcome;
+			if (status == BoardState.ONGOING_STATUS) {
+				// the opponent's win is our loss and vice versa
+				moveOutcome = Tablebase.WIN + Tablebase.LOSS - solve(board, opponent, outcomes);
+			}
+			else if (status == BoardState.DRAW_STATUS) {
+				moveOutcome = Tablebase.DRAW;
+			}
+			else {
+				moveOutcome = Tablebase.WIN;
+			}
+			board.undo(columnIndex);
+			outcome = Math.max(outcome, moveOutcome);
+		}
+		setOutcome(outcomes, index, outcome);
+		return outcome;
+	}
+
+	private static int getOutcome(AtomicLongArray outcomes, long index) {
+		return (int) (outcomes.get((int) (index / ENTRIES_PER_WORD)) >>> ((index % ENTRIES_PER_WORD) * 2)) & 3;
+	}
+
+	private static void setOutcome(AtomicLongArray outcomes, long index, int outcome) {
+		final int wordIndex = (int) (index / ENTRIES_PER_WORD);
+		final long bits = (long) outcome << ((index % ENTRIES_PER_WORD) * 2);
+		long word;
+		do {
+			word = outcomes.get(wordIndex);
+		}
+		while (!outcomes.compareAndSet(wordIndex, word, word | bits));
+	}
+
+	protected void write(Path path, AtomicLongArray outcomes) throws IOException {
+		try (final FileChannel channel = FileChannel.open(path,
+			StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+		{
+			final ByteBuffer header = ByteBuffer.allocate(Tablebase.HEADER_BYTES).order(Tablebase.BYTE_ORDER);
+			header.putInt(Tablebase.MAGIC);
+			header.putInt(Tablebase.VERSION);
+			header.putInt(numberOfColumns);
+			header.putInt(numberOfRows);
+			header.putInt(winCount);
+			header.putInt(0); // reserved, keeps the index count 8-byte aligned
+			header.putLong(positionIndex.getIndexCount());
+			header.flip();
+			writeFully(channel, header);
+
+			// little-endian words put the lowest index in the lowest bits of the first byte
+			final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			final long dataBytes = Tablebase.getDataBytes(positionIndex.getIndexCount());
+			long writtenBytes = 0;
+			for (int count = 0; count < outcomes.length(); count++) {
+				buffer.putLong(outcomes.get(count));
+				if (!buffer.hasRemaining()) {
+					buffer.flip();
+					writtenBytes += writeFully(channel, buffer);
+					buffer.clear();
+				}
+			}
+			buffer.flip();
+			buffer.limit((int) (dataBytes - writtenBytes));
+			writeFully(channel, buffer);
+		}
+	}
+
+	private static int writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		final int byteCount = buffer.remaining();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		return byteCount;
+	}
+
+	/**
+	 * Generates a tablebase.
+	 *
+	 * @param args the output file, the number of columns, rows and tokens in a row to win, and
+	 * optionally the number of threads.
+	 * @throws IOException if the tablebase cannot be written.
+	 */
+	public static void main(String... args) throws IOException {
+		if (args.length < 4) {
+			System.err.println("Usage: TablebaseGenerator <output file> <columns> <rows> <win count> [threads]");
+			System.exit(1);
+		}
+		final int parallelism = args.length > 4 ?
+			Integer.parseInt(args[4]) :
+			Runtime.getRuntime().availableProcessors();
+		final TablebaseGenerator generator = new TablebaseGenerator(
+			Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]), parallelism, 6);
+		final long startNanos = System.nanoTime();
+		final long positionCount = generator.generate(Paths.get(args[0]));
+		System.out.println(positionCount + " positions in " + TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos) + "s");
+	}
+}
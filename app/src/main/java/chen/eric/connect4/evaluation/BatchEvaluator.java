@@ -0,0 +1,354 @@
+package chen.eric.connect4.evaluation;
+
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import chen.eric.connect4.BitBoard;
+import chen.eric.connect4.PositionCodec;
+
+/**
+ * Scores many {@link PositionCodec#encode(chen.eric.connect4.BoardView) encoded positions} at once
+ * with threat and line-counting heuristics.
+ * <p>
+ * Positions are processed in blocks of <code>BLOCK_SIZE</code>.  Each block is decoded into
+ * flat <code>long[]</code> arrays of Black and Red bitmasks, and every feature is computed by a
+ * sequence of passes that apply one shift, AND or OR to every position in the block.  Those
+ * passes are simple loops over primitive arrays, which the JIT compiler unrolls and vectorizes.
+ * For each player the features are:
+ * <ul>
+ * <li><b>threats</b>: empty cells that would complete a line of <code>winCount</code> tokens,
+ * e.g. open threes for the standard game;</li>
+ * <li><b>playable threats</b>: threats that can be played right now;</li>
+ * <li><b>open lines</b>: lines of <code>winCount</code> cells holding at least one of the
+ * player's tokens and none of the opponent's;</li>
+ * <li><b>center</b>: tokens in the center column, or the two center columns of an even-width
+ * board.</li>
+ * </ul>
+ * The score of a position is the weighted sum of Black's features minus Red's.  An evaluator
+ * may be shared between threads.
+ */
+public class BatchEvaluator {
+	public static final int BLACK_THREATS = 0;
+	public static final int RED_THREATS = 1;
+	public static final int BLACK_PLAYABLE_THREATS = 2;
+	public static final int RED_PLAYABLE_THREATS = 3;
+	public static final int BLACK_OPEN_LINES = 4;
+	public static final int RED_OPEN_LINES = 5;
+	public static final int BLACK_CENTER = 6;
+	public static final int RED_CENTER = 7;
+
+	/**
+	 * The number of features per position, stored consecutively in feature arrays.
+	 */
+	public static final int FEATURE_COUNT = 8;
+
+	/**
+	 * Default weights of threats, playable threats, open lines and center tokens.
+	 */
+	public static final int[] DEFAULT_WEIGHTS = {16, 64, 1, 3};
+
+	/**
+	 * The number of positions processed together.  The parallel mode scores one block per task.
+	 */
+	public static final int BLOCK_SIZE = 256;
+
+	private final int numberOfColumns;
+	private final int numberOfRows;
+	private final int winCount;
+	private final int[] weights;
+	private final long boardMask;
+	private final long bottomMask;
+	private final long notTopMask;
+	private final long centerMask;
+	private final int[] directions;
+	private final ThreadLocal<Scratch> scratches = ThreadLocal.withInitial(Scratch::new);
+
+	public BatchEvaluator(int numberOfColumns, int numberOfRows, int winCount) {
+		this(numberOfColumns, numberOfRows, winCount, DEFAULT_WEIGHTS);
+	}
+
+	/**
+	 * Creates a batch evaluator.
+	 *
+	 * @param numberOfColumns the number of columns.
+	 * @param numberOfRows the number of rows.
+	 * @param winCount the number of tokens in a row required to win, at least <code>2</code>.
+	 * @param weights the weights of threats, playable threats, open lines and center tokens.
+	 * @throws IllegalArgumentException if the board does not fit in a <code>long</code>, the win
+	 * count is less than <code>2</code> or there are not four weights.
+	 */
+	public BatchEvaluator(int numberOfColumns, int numberOfRows, int winCount, int[] weights) {
+		if (!BitBoard.fits(numberOfColumns, numberOfRows)) {
+			throw new IllegalArgumentException(
+				"Board does not fit in " + Long.SIZE + " bits (" + numberOfColumns + " columns x " + numberOfRows + " rows)");
+		}
+		if (winCount < 2) {
+			throw new IllegalArgumentException("Win count must be at least 2 (" + winCount + ")");
+		}
+		if (weights.length != 4) {
+			throw new IllegalArgumentException("Expected 4 weights (" + weights.length + ")");
+		}
+		this.numberOfColumns = numberOfColumns;
+		this.numberOfRows = numberOfRows;
+		this.winCount = winCount;
+		this.weights = weights.clone();
+		final int columnBitCount = numberOfRows + 1;
+		final long columnCellMask = (1L << numberOfRows) - 1;
+		long boardMask = 0;
+		long bottomMask = 0;
+		long topMask = 0;
+		for (int count = 0; count < numberOfColumns; count++) {
+			boardMask |= columnCellMask << (count * columnBitCount);
+			bottomMask |= 1L << (count * columnBitCount);
+			topMask |= 1L << (count * columnBitCount + numberOfRows);
+		}
+		this.boardMask = boardMask;
+		this.bottomMask = bottomMask;
+		this.notTopMask = ~topMask;
+		this.centerMask = numberOfColumns == 0 ? 0 :
+			columnCellMask << (numberOfColumns / 2 * columnBitCount)
+				| columnCellMask << ((numberOfColumns - 1) / 2 * columnBitCount);
+		this.directions = new int[] {
+			1,                      // vertical
+			columnBitCount,         // horizontal
+			columnBitCount + 1,     // up right
+			columnBitCount - 1};    // up left
+	}
+
+	/**
+	 * Scores positions on the calling thread.
+	 *
+	 * @param keys the position keys.
+	 * @return the score of every position, from Black's point of view.
+	 */
+	public int[] evaluate(long[] keys) {
+		final int[] scores = new int[keys.length];
+		evaluate(keys, 0, keys.length, scores, 0);
+		return scores;
+	}
+
+	/**
+	 * Scores positions on the calling thread.
+	 *
+	 * @param keys the position keys.
+	 * @param offset the index of the first key.
+	 * @param length the number of keys.
+	 * @param scores the array to store the scores in, from Black's point of view.
+	 * @param scoresOffset the index of the first score.
+	 */
+	public void evaluate(long[] keys, int offset, int length, int[] scores, int scoresOffset) {
+		final Scratch scratch = scratches.get();
+		for (int start = 0; start < length; start += BLOCK_SIZE) {
+			final int blockLength = Math.min(BLOCK_SIZE, length - start);
+			evaluateBlock(keys, offset + start, blockLength, scratch);
+			score(scratch.features, blockLength, scores, scoresOffset + start);
+		}
+	}
+
+	/**
+	 * Scores positions on the common fork-join pool, one block per task.
+	 *
+	 * @param keys the position keys.
+	 * @return the score of every position, from Black's point of view.
+	 */
+	public int[] evaluateParallel(long[] keys) {
+		final int[] scores = new int[keys.length];
+		IntStream.range(0, (keys.length + BLOCK_SIZE - 1) / BLOCK_SIZE)
+			.parallel()
+			.forEach(block -> {
+				final int start = block * BLOCK_SIZE;
+				evaluate(keys, start, Math.min(BLOCK_SIZE, keys.length - start), scores, start);
+			});
+		return scores;
+	}
+
+	/**
+	 * Scores a stream of positions, in parallel if the stream is parallel.
+	 *
+	 * @param keys the position keys.
+	 * @return the score of every position in stream order, from Black's point of view.
+	 */
+	public int[] evaluate(LongStream keys) {
+		final boolean isParallel = keys.isParallel();
+		final long[] keyArray = keys.toArray();
+		return isParallel && keyArray.length >= BLOCK_SIZE ?
+			evaluateParallel(keyArray) :
+			evaluate(keyArray);
+	}
+
+	/**
+	 * Extracts the features of positions on the calling thread.
+	 *
+	 * @param keys the position keys.
+	 * @param offset the index of the first key.
+	 * @param length the number of keys.
+	 * @param features the array to store <code>FEATURE_COUNT</code> features per position in,
+	 * indexed by {@link #BLACK_THREATS} and the other feature constants.
+	 * @param featuresOffset the index of the first feature.
+	 */
+	public void extractFeatures(long[] keys, int offset, int length, int[] features, int featuresOffset) {
+		final Scratch scratch = scratches.get();
+		for (int start = 0; start < length; start += BLOCK_SIZE) {
+			final int blockLength = Math.min(BLOCK_SIZE, length - start);
+			evaluateBlock(keys, offset + start, blockLength, scratch);
+			System.arraycopy(scratch.features, 0, features, featuresOffset + start * FEATURE_COUNT, blockLength * FEATURE_COUNT);
+		}
+	}
+
+	protected void score(int[] features, int length, int[] scores, int scoresOffset) {
+		final int threatWeight = weights[0];
+		final int playableThreatWeight = weights[1];
+		final int openLineWeight = weights[2];
+		final int centerWeight = weights[3];
+		for (int index = 0; index < length; index++) {
+			final int base = index * FEATURE_COUNT;
+			scores[scoresOffset + index] =
+				threatWeight * (features[base + BLACK_THREATS] - features[base + RED_THREATS])
+				+ playableThreatWeight * (features[base + BLACK_PLAYABLE_THREATS] - features[base + RED_PLAYABLE_THREATS])
+				+ openLineWeight * (features[base + BLACK_OPEN_LINES] - features[base + RED_OPEN_LINES])
+				+ centerWeight * (features[base + BLACK_CENTER] - features[base + RED_CENTER]);
+		}
+	}
+
+	/**
+	 * Computes the features of one block of positions into <code>scratch.features</code>.
+	 */
+	protected void evaluateBlock(long[] keys, int offset, int length, Scratch scratch) {
+		final long[] occupied = scratch.occupied;
+		final long[] black = scratch.black;
+		final long[] red = scratch.red;
+		final long notTopMask = this.notTopMask;
+
+		// smear each column's marker bit down through the column, then drop the marker: what is
+		// left is the occupied cells
+		System.arraycopy(keys, offset, occupied, 0, length);
+		for (int step = 0; step < numberOfRows; step++) {
+			for (int index = 0; index < length; index++) {
+				occupied[index] |= (occupied[index] >>> 1) & notTopMask;
+			}
+		}
+		for (int index = 0; index < length; index++) {
+			final long key = keys[offset + index];
+			final long cells = (occupied[index] >>> 1) & notTopMask;
+			occupied[index] = cells;
+			black[index] = key & cells;
+			red[index] = cells & ~key;
+		}
+
+		extractPlayerFeatures(black, red, length, scratch, BLACK_THREATS, BLACK_PLAYABLE_THREATS, BLACK_OPEN_LINES, BLACK_CENTER);
+		extractPlayerFeatures(red, black, length, scratch, RED_THREATS, RED_PLAYABLE_THREATS, RED_OPEN_LINES, RED_CENTER);
+	}
+
+	protected void extractPlayerFeatures(long[] own, long[] opponent, int length, Scratch scratch,
+		int threatsFeature, int playableThreatsFeature, int openLinesFeature, int centerFeature)
+	{
+		final long[] occupied = scratch.occupied;
+		final long[] threats = scratch.threats;
+		final long[] window = scratch.window;
+		final long[] starts = scratch.starts;
+		final long[] hasOwn = scratch.hasOwn;
+		final int[] features = scratch.features;
+		final long boardMask = this.boardMask;
+		final long bottomMask = this.bottomMask;
+		final long centerMask = this.centerMask;
+		final int winCount = this.winCount;
+
+		for (int index = 0; index < length; index++) {
+			threats[index] = 0;
+			features[index * FEATURE_COUNT + openLinesFeature] = 0;
+		}
+		for (final int direction : directions) {
+			// threats: for each position of the empty cell within a line, AND together the
+			// player's tokens shifted onto it from every other cell of the line
+			for (int emptyCount = 0; emptyCount < winCount; emptyCount++) {
+				if (!fitsShift(direction, emptyCount) || !fitsShift(direction, winCount - 1 - emptyCount)) {
+					continue;
+				}
+				for (int index = 0; index < length; index++) {
+					window[index] = -1L;
+				}
+				for (int cellCount = 0; cellCount < winCount; cellCount++) {
+					final int shift = (cellCount - emptyCount) * direction;
+					if (shift > 0) {
+						for (int index = 0; index < length; index++) {
+							window[index] &= own[index] >>> shift;
+						}
+					}
+					else if (shift < 0) {
+						for (int index = 0; index < length; index++) {
+							window[index] &= own[index] << -shift;
+						}
+					}
+				}
+				for (int index = 0; index < length; index++) {
+					threats[index] |= window[index];
+				}
+			}
+
+			// open lines: line starts whose cells are all free of the opponent, and hold at
+			// least one of the player's tokens
+			if (!fitsShift(direction, winCount - 1)) {
+				continue;
+			}
+			for (int index = 0; index < length; index++) {
+				final long free = boardMask & ~opponent[index];
+				starts[index] = free;
+				hasOwn[index] = own[index];
+			}
+			for (int cellCount = 1; cellCount < winCount; cellCount++) {
+				final int shift = cellCount * direction;
+				for (int index = 0; index < length; index++) {
+					starts[index] &= (boardMask & ~opponent[index]) >>> shift;
+					hasOwn[index] |= own[index] >>> shift;
+				}
+			}
+			for (int index = 0; index < length; index++) {
+				features[index * FEATURE_COUNT + openLinesFeature] += Long.bitCount(starts[index] & hasOwn[index]);
+			}
+		}
+
+		for (int index = 0; index < length; index++) {
+			final int base = index * FEATURE_COUNT;
+			final long empty = boardMask & ~occupied[index];
+			final long playable = (occupied[index] + bottomMask) & boardMask;
+			final long threatCells = threats[index] & empty;
+			features[base + threatsFeature] = Long.bitCount(threatCells);
+			features[base + playableThreatsFeature] = Long.bitCount(threatCells & playable);
+			features[base + centerFeature] = Long.bitCount(own[index] & centerMask);
+		}
+	}
+
+	/**
+	 * Indicates whether a line can extend <code>count</code> cells in <code>direction</code>
+	 * within a <code>long</code>.
+	 */
+	private static boolean fitsShift(int direction, int count) {
+		return (long) direction * count < Long.SIZE;
+	}
+
+	public int getNumberOfColumns() {
+		return numberOfColumns;
+	}
+
+	public int getNumberOfRows() {
+		return numberOfRows;
+	}
+
+	public int getWinCount() {
+		return winCount;
+	}
+
+	/**
+	 * Per-thread working arrays for one block.
+	 */
+	protected static class Scratch {
+		final long[] occupied = new long[BLOCK_SIZE];
+		final long[] black = new long[BLOCK_SIZE];
+		final long[] red = new long[BLOCK_SIZE];
+		final long[] threats = new long[BLOCK_SIZE];
+		final long[] window = new long[BLOCK_SIZE];
+		final long[] starts = new long[BLOCK_SIZE];
+		final long[] hasOwn = new long[BLOCK_SIZE];
+		final int[] features = new int[BLOCK_SIZE * FEATURE_COUNT];
+	}
+}
@@ -0,0 +1,69 @@
+package chen.eric.connect4.mcts;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result of a {@link MonteCarloTreeSearch}.
+ */
+public class MctsResult {
+	private final int bestColumnIndex;
+	private final double value;
+	private final long playoutCount;
+	private final int nodeCount;
+	private final long elapsedNanos;
+
+	public MctsResult(int bestColumnIndex, double value, long playoutCount, int nodeCount, long elapsedNanos) {
+		this.bestColumnIndex = bestColumnIndex;
+		this.value = value;
+		this.playoutCount = playoutCount;
+		this.nodeCount = nodeCount;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * Returns the column index of the most visited move.
+	 *
+	 * @return the column index of the most visited move.
+	 */
+	public int getBestColumnIndex() {
+		return bestColumnIndex;
+	}
+
+	/**
+	 * Returns the mean playout result of the best move for the player to move, from
+	 * <code>0</code> (always lost) to <code>1</code> (always won), counting draws as half a win.
+	 *
+	 * @return the mean playout result of the best move.
+	 */
+	public double getValue() {
+		return value;
+	}
+
+	public long getPlayoutCount() {
+		return playoutCount;
+	}
+
+	/**
+	 * Returns the number of tree nodes used.
+	 *
+	 * @return the number of tree nodes used.
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	public double getPlayoutsPerSecond() {
+		return elapsedNanos > 0 ? playoutCount * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos : 0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("column=%d value=%.3f playouts=%d nodes=%d time=%dms playouts/s=%.0f",
+			bestColumnIndex, value, playoutCount, nodeCount,
+			TimeUnit.NANOSECONDS.toMillis(elapsedNanos), getPlayoutsPerSecond());
+	}
+}
@@ -0,0 +1,285 @@
+package chen.eric.connect4.mcts;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import chen.eric.connect4.BitBoard;
+import chen.eric.connect4.Board;
+import chen.eric.connect4.BoardState;
+import chen.eric.connect4.GravityBoard;
+import chen.eric.connect4.Token;
+import chen.eric.connect4.metrics.Metrics;
+
+/**
+ * Monte Carlo tree search (UCT) for boards of any size.
+ * <p>
+ * Every thread of the search walks one shared tree held in a {@link NodePool}, adding a virtual
+ * loss to each node it passes through so that concurrent threads spread out over the tree.  Each
+ * thread plays on its own copy of the board, a {@link BitBoard} when the board fits and a
+ * {@link GravityBoard} otherwise: the tree moves and the random rollout are made on the copy and
+ * then undone, so playouts allocate nothing.
+ */
+public class MonteCarloTreeSearch implements AutoCloseable {
+	public static final int DEFAULT_NODE_CAPACITY = 1 << 20;
+	public static final double DEFAULT_EXPLORATION = Math.sqrt(2);
+
+	private static final int VIRTUAL_LOSS = 1;
+	private static final long SEED_INCREMENT = 0x9E3779B97F4A7C15L;
+
+	private final ExecutorService executorService;
+	private final int parallelism;
+	private final NodePool nodePool;
+	private final double exploration;
+	private long nextSeed;
+	private volatile boolean stopRequested;
+
+	public MonteCarloTreeSearch() {
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_NODE_CAPACITY, DEFAULT_EXPLORATION, System.nanoTime());
+	}
+
+	/**
+	 * Creates a Monte Carlo tree search.
+	 *
+	 * @param parallelism the number of search threads.
+	 * @param nodeCapacity the maximum number of tree nodes.  When the pool is full the tree stops
+	 * growing, but playouts continue from its leaves.
+	 * @param exploration the UCT exploration constant.
+	 * @param seed the seed for searches that are not given one.
+	 */
+	public MonteCarloTreeSearch(int parallelism, int nodeCapacity, double exploration, long seed) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("Parallelism must be positive (" + parallelism + ")");
+		}
+		// a single-threaded search runs on the calling thread
+		this.executorService = parallelism > 1 ? Executors.newFixedThreadPool(parallelism) : null;
+		this.parallelism = parallelism;
+		this.nodePool = new NodePool(nodeCapacity);
+		this.exploration = exploration;
+		this.nextSeed = seed;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Searches the position for <code>player</code>.
+	 *
+	 * @param board the position to search, on which the game is not over.
+	 * @param player the player to move.
+	 * @param maxPlayouts the maximum number of playouts, or <code>0</code> for no limit.
+	 * @param timeLimitMillis the time limit, or <code>0</code> for no limit.
+	 * @return the search result.
+	 * @throws IllegalArgumentException if there is no limit, or every column is full.
+	 */
+	public MctsResult search(Board board, Token player, long maxPlayouts, long timeLimitMillis) {
+		final long seed = nextSeed;
+		nextSeed += SEED_INCREMENT;
+		return search(board, player, maxPlayouts, timeLimitMillis, seed);
+	}
+
+	/**
+	 * Searches the position for <code>player</code>.  With one thread and a playout limit, the
+	 * result depends only on the position and the seed.
+	 *
+	 * @param board the position to search, on which the game is not over.
+	 * @param player the player to move.
+	 * @param maxPlayouts the maximum number of playouts, or <code>0</code> for no limit.
+	 * @param timeLimitMillis the time limit, or <code>0</code> for no limit.
+	 * @param seed the seed for the random rollouts.
+	 * @return the search result.
+	 * @throws IllegalArgumentException if there is no limit, or every column is full.
+	 */
+	public MctsResult search(Board board, Token player, long maxPlayouts, long timeLimitMillis, long seed) {
+		if (maxPlayouts <= 0 && timeLimitMillis <= 0) {
+			throw new IllegalArgumentException("Either a playout limit or a time limit is required");
+		}
+		if (board.getOpenColumnCount() == 0) {
+			throw new IllegalArgumentException("Every column is full");
+		}
+		final long startNanos = System.nanoTime();
+		final long deadlineNanos = timeLimitMillis > 0 ? startNanos + timeLimitMillis * 1_000_000L : Long.MAX_VALUE;
+		final long playoutLimit = maxPlayouts > 0 ? maxPlayouts : Long.MAX_VALUE;
+		this.stopRequested = false;
+		nodePool.reset();
+
+		final AtomicLong playoutCount = new AtomicLong();
+		final List<Callable<Void>> tasks = new ArrayList<>();
+		for (int count = 0; count < parallelism; count++) {
+			final SplittableRandom random = new SplittableRandom(seed + count * SEED_INCREMENT);
+			final Board rolloutBoard = createRolloutBoard(board);
+			tasks.add(() -> {
+				final int cellCount = rolloutBoard.getNumberOfColumns() * rolloutBoard.getNumberOfRows();
+				final int[] path = new int[cellCount + 1];
+				final int[] columnIndexes = new int[cellCount];
+				while (!stopRequested
+					&& playoutCount.getAndIncrement() < playoutLimit
+					&& System.nanoTime() < deadlineNanos)
+				{
+					playout(rolloutBoard, player, random, path, columnIndexes);
+				}
+				return null;
+			});
+		}
+		try {
+			if (executorService == null) {
+				tasks.get(0).call();
+			}
+			else {
+				for (final Future<Void> future : executorService.invokeAll(tasks)) {
+					future.get();
+				}
+			}
+		}
+		catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(exception);
+		}
+		catch (ExecutionException exception) {
+			throw new IllegalStateException(exception.getCause());
+		}
+		catch (Exception exception) {
+			throw new IllegalStateException(exception);
+		}
+
+		final NodePool nodePool = this.nodePool;
+		int bestChild = -1;
+		if (nodePool.isExpanded(NodePool.ROOT)) {
+			final int firstChild = nodePool.getFirstChild(NodePool.ROOT);
+			final int lastChild = firstChild + nodePool.getChildCount(NodePool.ROOT);
+			for (int child = firstChild; child < lastChild; child++) {
+				if (bestChild < 0 || nodePool.getVisitCount(child) > nodePool.getVisitCount(bestChild)) {
+					bestChild = child;
+				}
+			}
+		}
+		final int bestColumnIndex = bestChild >= 0 ? nodePool.getColumnIndex(bestChild) : board.getOpenColumnIndex(0);
+		final double value = bestChild >= 0 && nodePool.getVisitCount(bestChild) > 0 ?
+			nodePool.getScore(bestChild) / (2.0 * nodePool.getVisitCount(bestChild)) :
+			0.5;
+		final long elapsedNanos = System.nanoTime() - startNanos;
+		if (Metrics.ENABLED) {
+			Metrics.recordSearch(-1, nodePool.getVisitCount(NodePool.ROOT), elapsedNanos);
+		}
+		return new MctsResult(bestColumnIndex, value, nodePool.getVisitCount(NodePool.ROOT), nodePool.getNodeCount(), elapsedNanos);
+	}
+
+	/**
+	 * Plays one playout: selects a path down the tree, expands the leaf, plays random moves to
+	 * the end of the game, backs up the result and restores the board.
+	 */
+	protected void playout(Board board, Token rootPlayer, SplittableRandom random, int[] path, int[] columnIndexes) {
+		final NodePool nodePool = this.nodePool;
+		int node = NodePool.ROOT;
+		int depth = 0;
+		int moveCount = 0;
+		Token player = rootPlayer;
+		int status = BoardState.ONGOING_STATUS;
+		nodePool.addVirtualLoss(node, VIRTUAL_LOSS);
+		path[0] = node;
+
+		while (status == BoardState.ONGOING_STATUS) {
+			if (!nodePool.isExpanded(node)
+				&& (nodePool.getVisitCount(node) <= VIRTUAL_LOSS || !nodePool.expand(node, board)))
+			{
+				break;
+			}
+			node = select(node);
+			nodePool.addVirtualLoss(node, VIRTUAL_LOSS);
+			path[++depth] = node;
+			final int columnIndex = nodePool.getColumnIndex(node);
+			status = board.moveStatus(player, columnIndex);
+			columnIndexes[moveCount++] = columnIndex;
+			player = player.getOpponent();
+		}
+
+		while (status == BoardState.ONGOING_STATUS) {
+			final int columnIndex = board.getOpenColumnIndex(random.nextInt(board.getOpenColumnCount()));
+			status = board.moveStatus(player, columnIndex);
+			columnIndexes[moveCount++] = columnIndex;
+			player = player.getOpponent();
+		}
+
+		// the move into a node at an odd depth is made by the root player
+		final int rootPlayerScore = status == BoardState.DRAW_STATUS ? 1 : status == BoardState.winnerStatus(rootPlayer) ? 2 : 0;
+		for (int count = depth; count >= 0; count--) {
+			nodePool.backUp(path[count], VIRTUAL_LOSS, count % 2 == 1 ? rootPlayerScore : 2 - rootPlayerScore);
+		}
+		while (moveCount > 0) {
+			board.undo(columnIndexes[--moveCount]);
+		}
+	}
+
+	/**
+	 * Selects the child of an expanded node with the highest upper confidence bound, or the
+	 * first unvisited child.
+	 */
+	protected int select(int node) {
+		final NodePool nodePool = this.nodePool;
+		final int firstChild = nodePool.getFirstChild(node);
+		final int lastChild = firstChild + nodePool.getChildCount(node);
+		final double explorationTerm = exploration * Math.sqrt(Math.log(Math.max(nodePool.getVisitCount(node), 1)));
+		int bestChild = firstChild;
+		double bestBound = Double.NEGATIVE_INFINITY;
+		for (int child = firstChild; child < lastChild; child++) {
+			final int visitCount = nodePool.getVisitCount(child);
+			if (visitCount == 0) {
+				return child;
+			}
+			final double bound = nodePool.getScore(child) / (2.0 * visitCount) + explorationTerm / Math.sqrt(visitCount);
+			if (bound > bestBound) {
+				bestBound = bound;
+				bestChild = child;
+			}
+		}
+		return bestChild;
+	}
+
+	protected static Board createRolloutBoard(Board board) {
+		return BitBoard.fits(board.getNumberOfColumns(), board.getNumberOfRows()) ?
+			new BitBoard(board) :
+			new GravityBoard(board);
+	}
+
+	/**
+	 * Stops the current search, which returns the best move found so far.
+	 */
+	public void stop() {
+		stopRequested = true;
+	}
+
+	@Override
+	public void close() {
+		if (executorService != null) {
+			executorService.shutdown();
+		}
+	}
+
+	/**
+	 * Searches an empty board and reports the chosen column and playout rate.
+	 *
+	 * @param args optionally the number of columns, rows and tokens in a row required to win,
+	 * the time limit in milliseconds and the number of threads.
+	 */
+	public static void main(String... args) {
+		final int numberOfColumns = args.length > 2 ? Integer.parseInt(args[0]) : GravityBoard.DEFAULT_NUM_COLUMNS;
+		final int numberOfRows = args.length > 2 ? Integer.parseInt(args[1]) : GravityBoard.DEFAULT_NUM_ROWS;
+		final int winCount = args.length > 2 ? Integer.parseInt(args[2]) : GravityBoard.DEFAULT_WIN_COUNT;
+		final long timeLimitMillis = args.length > 3 ? Long.parseLong(args[3]) : 1000;
+		final int parallelism = args.length > 4 ?
+			Integer.parseInt(args[4]) :
+			Runtime.getRuntime().availableProcessors();
+		final Board board = new GravityBoard(numberOfColumns, numberOfRows, winCount);
+		try (final MonteCarloTreeSearch search = new MonteCarloTreeSearch(parallelism, DEFAULT_NODE_CAPACITY, DEFAULT_EXPLORATION, 1)) {
+			System.out.println(numberOfColumns + "x" + numberOfRows + " win " + winCount + ", " + parallelism + " threads");
+			System.out.println(search.search(board, Token.Black, 0, timeLimitMillis));
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package chen.eric.connect4.mcts;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import chen.eric.connect4.Board;
+
+/**
+ * Preallocated pool of search tree nodes, stored as parallel primitive arrays indexed by node
+ * number, so that searching allocates no objects.
+ * <p>
+ * Node <code>0</code> is the root.  The children of a node are allocated as one contiguous block
+ * when the node is expanded.  Visit counts and scores are updated atomically so that the pool can
+ * be shared by concurrent searches.  Scores are counted in half points for the player who made
+ * the move leading to the node: <code>2</code> for a win and <code>1</code> for a draw.
+ */
+public class NodePool {
+	/**
+	 * The root node.
+	 */
+	public static final int ROOT = 0;
+
+	private static final int UNEXPANDED = -1;
+	private static final int EXPANDING = -2;
+
+	private final int[] columnIndexes;
+	private final int[] childCounts;
+	private final AtomicIntegerArray firstChildIndexes;
+	private final AtomicIntegerArray visitCounts;
+	private final AtomicIntegerArray scores;
+	private final AtomicInteger nodeCount = new AtomicInteger();
+
+	/**
+	 * Creates a node pool.
+	 *
+	 * @param capacity the maximum number of nodes.
+	 */
+	public NodePool(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive (" + capacity + ")");
+		}
+		this.columnIndexes = new int[capacity];
+		this.childCounts = new int[capacity];
+		this.firstChildIndexes = new AtomicIntegerArray(capacity);
+		this.visitCounts = new AtomicIntegerArray(capacity);
+		this.scores = new AtomicIntegerArray(capacity);
+		reset();
+	}
+
+	/**
+	 * Removes every node but a fresh root.
+	 */
+	public void reset() {
+		nodeCount.set(1);
+		initialize(ROOT, -1);
+	}
+
+	protected void initialize(int node, int columnIndex) {
+		columnIndexes[node] = columnIndex;
+		childCounts[node] = 0;
+		visitCounts.set(node, 0);
+		scores.set(node, 0);
+		firstChildIndexes.set(node, UNEXPANDED);
+	}
+
+	/**
+	 * Creates a child of <code>node</code> for every column of <code>board</code> that is not
+	 * full, unless another thread is already expanding the node or the pool is full.
+	 *
+	 * @param node the node, whose position is on <code>board</code>.
+	 * @param board the board.
+	 * @return <code>true</code> if this call expanded the node.
+	 */
+	public boolean expand(int node, Board board) {
+		final int childCount = board.getOpenColumnCount();
+		if (childCount == 0
+			|| nodeCount.get() + childCount > columnIndexes.length
+			|| !firstChildIndexes.compareAndSet(node, UNEXPANDED, EXPANDING))
+		{
+			return false;
+		}
+		final int firstChildIndex = nodeCount.getAndAdd(childCount);
+		if (firstChildIndex + childCount > columnIndexes.length) {
+			// lost a race for the last nodes: leave the node marked as expanding, i.e. a leaf
+			return false;
+		}
+		for (int count = 0; count < childCount; count++) {
+			initialize(firstChildIndex + count, board.getOpenColumnIndex(count));
+		}
+		childCounts[node] = childCount;
+		firstChildIndexes.set(node, firstChildIndex);
+		return true;
+	}
+
+	public boolean isExpanded(int node) {
+		return firstChildIndexes.get(node) >= 0;
+	}
+
+	/**
+	 * Returns the first child of an {@link #isExpanded(int) expanded} node.
+	 *
+	 * @param node the node.
+	 * @return the first child.
+	 */
+	public int getFirstChild(int node) {
+		return firstChildIndexes.get(node);
+	}
+
+	public int getChildCount(int node) {
+		return childCounts[node];
+	}
+
+	/**
+	 * Returns the column index of the move leading to <code>node</code>.
+	 *
+	 * @param node the node.
+	 * @return the column index, or <code>-1</code> for the root.
+	 */
+	public int getColumnIndex(int node) {
+		return columnIndexes[node];
+	}
+
+	public int getVisitCount(int node) {
+		return visitCounts.get(node);
+	}
+
+	/**
+	 * Returns the score of <code>node</code> in half points.
+	 *
+	 * @param node the node.
+	 * @return the score in half points.
+	 */
+	public int getScore(int node) {
+		return scores.get(node);
+	}
+
+	/**
+	 * Adds visits without score to a node that a search is passing through, so that concurrent
+	 * searches prefer other nodes until the playout is backed up.
+	 *
+	 * @param node the node.
+	 * @param virtualLoss the number of visits to add.
+	 */
+	public void addVirtualLoss(int node, int virtualLoss) {
+		visitCounts.addAndGet(node, virtualLoss);
+	}
+
+	/**
+	 * Replaces the virtual loss added to a node with the result of a playout.
+	 *
+	 * @param node the node.
+	 * @param virtualLoss the number of visits added by {@link #addVirtualLoss(int, int)}.
+	 * @param score the playout score in half points.
+	 */
+	public void backUp(int node, int virtualLoss, int score) {
+		if (score != 0) {
+			scores.addAndGet(node, score);
+		}
+		visitCounts.addAndGet(node, 1 - virtualLoss);
+	}
+
+	public int getNodeCount() {
+		return Math.min(nodeCount.get(), columnIndexes.length);
+	}
+
+	public int getCapacity() {
+		return columnIndexes.length;
+	}
+}
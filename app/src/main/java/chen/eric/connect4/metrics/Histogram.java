@@ -0,0 +1,111 @@
+package chen.eric.connect4.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of non-negative <code>long</code> values, such as latencies in
+ * nanoseconds, with a fixed relative precision in the style of HdrHistogram.
+ * <p>
+ * Values below <code>2 * SUB_BUCKET_COUNT</code> are counted exactly.  Above that, each power of
+ * two is split into <code>SUB_BUCKET_COUNT</code> equal buckets, so a reported value is within
+ * about 3% of the recorded one.  Buckets are a fixed array of counters, so recording a value is
+ * one atomic increment and never allocates.
+ */
+public class Histogram {
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int EXACT_COUNT = SUB_BUCKET_COUNT << 1;
+	private static final int BUCKET_COUNT = EXACT_COUNT + (Long.SIZE - 2 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Records a value.  Negative values are recorded as <code>0</code>.
+	 *
+	 * @param value the value.
+	 */
+	public void record(long value) {
+		final long clampedValue = Math.max(value, 0);
+		counts.incrementAndGet(getIndex(clampedValue));
+		count.increment();
+		sum.add(clampedValue);
+		max.accumulate(clampedValue);
+	}
+
+	protected static int getIndex(long value) {
+		if (value < EXACT_COUNT) {
+			return (int) value;
+		}
+		final int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - 1 - SUB_BUCKET_BITS;
+		return EXACT_COUNT + (shift - 1) * SUB_BUCKET_COUNT + (int) (value >>> shift) - SUB_BUCKET_COUNT;
+	}
+
+	/**
+	 * Returns the largest value that falls in the bucket at <code>index</code>.
+	 */
+	protected static long getHighestValue(int index) {
+		if (index < EXACT_COUNT) {
+			return index;
+		}
+		final int shift = (index - EXACT_COUNT) / SUB_BUCKET_COUNT + 1;
+		final long lowestValue = (long) ((index - EXACT_COUNT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT) << shift;
+		return lowestValue + (1L << shift) - 1;
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	public double getMean() {
+		final long count = this.count.sum();
+		return count > 0 ? (double) sum.sum() / count : 0;
+	}
+
+	/**
+	 * Returns the value at <code>percentile</code>: the highest value in the bucket holding the
+	 * recorded value of that rank, capped at the largest recorded value.
+	 *
+	 * @param percentile the percentile, from <code>0</code> to <code>100</code>.
+	 * @return the value at <code>percentile</code>, or <code>0</code> if no values were recorded.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long total = 0;
+		for (int index = 0; index < BUCKET_COUNT; index++) {
+			total += counts.get(index);
+		}
+		if (total == 0) {
+			return 0;
+		}
+		final long rank = Math.max((long) Math.ceil(Math.min(percentile, 100) / 100 * total), 1);
+		long cumulativeCount = 0;
+		for (int index = 0; index < BUCKET_COUNT; index++) {
+			cumulativeCount += counts.get(index);
+			if (cumulativeCount >= rank) {
+				return Math.min(getHighestValue(index), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * Clears every recorded value.  Values recorded concurrently with a reset may be lost or
+	 * partially counted.
+	 */
+	public void reset() {
+		for (int index = 0; index < BUCKET_COUNT; index++) {
+			counts.set(index, 0);
+		}
+		count.reset();
+		sum.reset();
+		max.reset();
+	}
+}
@@ -0,0 +1,178 @@
+package chen.eric.connect4.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide counters and histograms for boards and search engines.
+ * <p>
+ * Metrics are off unless the system property {@value #ENABLED_PROPERTY} is <code>true</code>.
+ * {@link #ENABLED} is a <code>static final</code> constant, so instrumented code guards every
+ * update with <code>if (Metrics.ENABLED)</code> and, when metrics are off, the JIT compiler
+ * removes the update entirely.  Counters are {@link LongAdder LongAdders}, which stay cheap under
+ * contention.  The metrics can be read through the {@link MetricsMXBean} registered by
+ * {@link #registerMBean()} or dumped as text by {@link #dump()} and {@link MetricsReporter}.
+ */
+public final class Metrics {
+	/**
+	 * System property that enables metrics when <code>true</code>.
+	 */
+	public static final String ENABLED_PROPERTY = "chen.eric.connect4.metrics";
+
+	public static final boolean ENABLED = Boolean.getBoolean(ENABLED_PROPERTY);
+
+	public static final String OBJECT_NAME = "chen.eric.connect4:type=Metrics";
+
+	/**
+	 * Win check directions, in the order of {@link #WIN_CHECKS}.
+	 */
+	public static final String[] WIN_CHECK_DIRECTIONS = {"vertical", "horizontal", "upRight", "upLeft"};
+
+	/**
+	 * Moves made on any board.
+	 */
+	public static final LongAdder MOVES = new LongAdder();
+
+	/**
+	 * Moves rejected as illegal, whether by an exception or a status code.
+	 */
+	public static final LongAdder REJECTED_MOVES = new LongAdder();
+
+	/**
+	 * Win checks performed, per direction.
+	 */
+	public static final LongAdder[] WIN_CHECKS = createCounters(WIN_CHECK_DIRECTIONS.length);
+
+	/**
+	 * Completed solver and Monte Carlo tree searches.
+	 */
+	public static final LongAdder SEARCHES = new LongAdder();
+
+	/**
+	 * Nodes (or playouts) visited by all searches.
+	 */
+	public static final LongAdder SEARCH_NODES = new LongAdder();
+
+	/**
+	 * Depth, in plies, reached by each solver search.
+	 */
+	public static final Histogram SEARCH_DEPTH = new Histogram();
+
+	/**
+	 * Duration, in nanoseconds, of each search.
+	 */
+	public static final Histogram SEARCH_NANOS = new Histogram();
+
+	/**
+	 * Duration, in nanoseconds, of each move handled by a game server, from submission to its
+	 * session's shard until the result is ready.
+	 */
+	public static final Histogram SESSION_MOVE_NANOS = new Histogram();
+
+	private Metrics() {}
+
+	private static LongAdder[] createCounters(int count) {
+		final LongAdder[] counters = new LongAdder[count];
+		for (int index = 0; index < count; index++) {
+			counters[index] = new LongAdder();
+		}
+		return counters;
+	}
+
+	/**
+	 * Counts a rejected move, if metrics are enabled.
+	 *
+	 * @param status the negative status code of the rejection.
+	 * @return <code>status</code>.
+	 */
+	public static int reject(int status) {
+		if (ENABLED) {
+			REJECTED_MOVES.increment();
+		}
+		return status;
+	}
+
+	/**
+	 * Records a completed search.  Callers should check {@link #ENABLED} first.
+	 *
+	 * @param depth the depth reached, or a negative value if the search has no depth.
+	 * @param nodeCount the number of nodes or playouts.
+	 * @param elapsedNanos the duration of the search.
+	 */
+	public static void recordSearch(int depth, long nodeCount, long elapsedNanos) {
+		SEARCHES.increment();
+		SEARCH_NODES.add(nodeCount);
+		if (depth >= 0) {
+			SEARCH_DEPTH.record(depth);
+		}
+		SEARCH_NANOS.record(elapsedNanos);
+	}
+
+	/**
+	 * Clears every metric.
+	 */
+	public static void reset() {
+		MOVES.reset();
+		REJECTED_MOVES.reset();
+		for (final LongAdder winChecks : WIN_CHECKS) {
+			winChecks.reset();
+		}
+		SEARCHES.reset();
+		SEARCH_NODES.reset();
+		SEARCH_DEPTH.reset();
+		SEARCH_NANOS.reset();
+		SESSION_MOVE_NANOS.reset();
+	}
+
+	/**
+	 * Registers the {@link MetricsMXBean} with the platform MBean server under
+	 * {@value #OBJECT_NAME}, unless it is already registered.
+	 *
+	 * @throws IllegalStateException if the MBean cannot be registered.
+	 */
+	public static synchronized void registerMBean() {
+		try {
+			final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+			final ObjectName objectName = new ObjectName(OBJECT_NAME);
+			if (!mBeanServer.isRegistered(objectName)) {
+				mBeanServer.registerMBean(new MetricsMXBeanImpl(), objectName);
+			}
+		}
+		catch (JMException exception) {
+			throw new IllegalStateException(exception);
+		}
+	}
+
+	/**
+	 * Returns every metric as text, one per line.
+	 *
+	 * @return every metric as text.
+	 */
+	public static String dump() {
+		final StringBuilder stringBuilder = new StringBuilder();
+		stringBuilder.append("moves ").append(MOVES.sum())
+			.append("\nrejectedMoves ").append(REJECTED_MOVES.sum());
+		for (int index = 0; index < WIN_CHECKS.length; index++) {
+			stringBuilder.append("\nwinChecks.").append(WIN_CHECK_DIRECTIONS[index]).append(' ').append(WIN_CHECKS[index].sum());
+		}
+		stringBuilder.append("\nsearches ").append(SEARCHES.sum())
+			.append("\nsearchNodes ").append(SEARCH_NODES.sum());
+		appendHistogram(stringBuilder, "searchDepth", SEARCH_DEPTH, 1);
+		appendHistogram(stringBuilder, "searchMicros", SEARCH_NANOS, 1_000);
+		appendHistogram(stringBuilder, "sessionMoveMicros", SESSION_MOVE_NANOS, 1_000);
+		return stringBuilder.append('\n').toString();
+	}
+
+	private static void appendHistogram(StringBuilder stringBuilder, String name, Histogram histogram, long divisor) {
+		stringBuilder.append('\n').append(name)
+			.append(" count ").append(histogram.getCount())
+			.append(" mean ").append(String.format("%.1f", histogram.getMean() / divisor))
+			.append(" p50 ").append(histogram.getValueAtPercentile(50) / divisor)
+			.append(" p99 ").append(histogram.getValueAtPercentile(99) / divisor)
+			.append(" max ").append(histogram.getMax() / divisor);
+	}
+}
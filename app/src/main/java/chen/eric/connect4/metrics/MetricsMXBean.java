@@ -0,0 +1,52 @@
+package chen.eric.connect4.metrics;
+
+/**
+ * JMX view of {@link Metrics}.  Latencies are in microseconds.
+ */
+public interface MetricsMXBean {
+	boolean isEnabled();
+
+	long getMoveCount();
+
+	long getRejectedMoveCount();
+
+	long getVerticalWinCheckCount();
+
+	long getHorizontalWinCheckCount();
+
+	long getUpRightWinCheckCount();
+
+	long getUpLeftWinCheckCount();
+
+	long getSearchCount();
+
+	long getSearchNodeCount();
+
+	double getSearchDepthMean();
+
+	long getSearchDepthMax();
+
+	long getSearchMicrosP50();
+
+	long getSearchMicrosP99();
+
+	long getSearchMicrosMax();
+
+	long getSessionMoveMicrosP50();
+
+	long getSessionMoveMicrosP99();
+
+	long getSessionMoveMicrosMax();
+
+	/**
+	 * Clears every metric.
+	 */
+	void reset();
+
+	/**
+	 * Returns every metric as text.
+	 *
+	 * @return every metric as text.
+	 */
+	String dump();
+}
@@ -0,0 +1,100 @@
+package chen.eric.connect4.metrics;
+
+class MetricsMXBeanImpl implements MetricsMXBean {
+	private static final long NANOS_PER_MICRO = 1_000;
+
+	@Override
+	public boolean isEnabled() {
+		return Metrics.ENABLED;
+	}
+
+	@Override
+	public long getMoveCount() {
+		return Metrics.MOVES.sum();
+	}
+
+	@Override
+	public long getRejectedMoveCount() {
+		return Metrics.REJECTED_MOVES.sum();
+	}
+
+	@Override
+	public long getVerticalWinCheckCount() {
+		return Metrics.WIN_CHECKS[0].sum();
+	}
+
+	@Override
+	public long getHorizontalWinCheckCount() {
+		return Metrics.WIN_CHECKS[1].sum();
+	}
+
+	@Override
+	public long getUpRightWinCheckCount() {
+		return Metrics.WIN_CHECKS[2].sum();
+	}
+
+	@Override
+	public long getUpLeftWinCheckCount() {
+		return Metrics.WIN_CHECKS[3].sum();
+	}
+
+	@Override
+	public long getSearchCount() {
+		return Metrics.SEARCHES.sum();
+	}
+
+	@Override
+	public long getSearchNodeCount() {
+		return Metrics.SEARCH_NODES.sum();
+	}
+
+	@Override
+	public double getSearchDepthMean() {
+		return Metrics.SEARCH_DEPTH.getMean();
+	}
+
+	@Override
+	public long getSearchDepthMax() {
+		return Metrics.SEARCH_DEPTH.getMax();
+	}
+
+	@Override
+	public long getSearchMicrosP50() {
+		return Metrics.SEARCH_NANOS.getValueAtPercentile(50) / NANOS_PER_MICRO;
+	}
+
+	@Override
+	public long getSearchMicrosP99() {
+		return Metrics.SEARCH_NANOS.getValueAtPercentile(99) / NANOS_PER_MICRO;
+	}
+
+	@Override
+	public long getSearchMicrosMax() {
+		return Metrics.SEARCH_NANOS.getMax() / NANOS_PER_MICRO;
+	}
+
+	@Override
+	public long getSessionMoveMicrosP50() {
+		return Metrics.SESSION_MOVE_NANOS.getValueAtPercentile(50) / NANOS_PER_MICRO;
+	}
+
+	@Override
+	public long getSessionMoveMicrosP99() {
+		return Metrics.SESSION_MOVE_NANOS.getValueAtPercentile(99) / NANOS_PER_MICRO;
+	}
+
+	@Override
+	public long getSessionMoveMicrosMax() {
+		return Metrics.SESSION_MOVE_NANOS.getMax() / NANOS_PER_MICRO;
+	}
+
+	@Override
+	public void reset() {
+		Metrics.reset();
+	}
+
+	@Override
+	public String dump() {
+		return Metrics.dump();
+	}
+}
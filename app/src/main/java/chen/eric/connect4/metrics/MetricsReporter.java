@@ -0,0 +1,59 @@
+package chen.eric.connect4.metrics;
+
+import java.io.PrintStream;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically prints a {@link Metrics#dump() dump} of the metrics.
+ */
+public class MetricsReporter implements AutoCloseable {
+	/**
+	 * System property holding the period, in milliseconds, of the dumps started by
+	 * {@link #startFromSystemProperties()}.
+	 */
+	public static final String PERIOD_PROPERTY = "chen.eric.connect4.metrics.period";
+
+	private final ScheduledExecutorService executorService;
+
+	/**
+	 * Starts printing the metrics to <code>printStream</code> every <code>periodMillis</code>.
+	 *
+	 * @param printStream the stream to print to.
+	 * @param periodMillis the time between dumps.
+	 */
+	public MetricsReporter(PrintStream printStream, long periodMillis) {
+		if (periodMillis <= 0) {
+			throw new IllegalArgumentException("Period must be positive (" + periodMillis + ")");
+		}
+		this.executorService = new ScheduledThreadPoolExecutor(1, runnable -> {
+			final Thread thread = new Thread(runnable, "metrics-reporter");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executorService.scheduleAtFixedRate(() -> printStream.print(Metrics.dump()),
+			periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Starts a reporter if the system property {@value #PERIOD_PROPERTY} is set to a period in
+	 * milliseconds and metrics are {@link Metrics#ENABLED enabled}.  Also registers the
+	 * {@link MetricsMXBean} when metrics are enabled.
+	 *
+	 * @return the reporter, or <code>null</code> if none was started.
+	 */
+	public static MetricsReporter startFromSystemProperties() {
+		if (!Metrics.ENABLED) {
+			return null;
+		}
+		Metrics.registerMBean();
+		final long periodMillis = Long.getLong(PERIOD_PROPERTY, 0);
+		return periodMillis > 0 ? new MetricsReporter(System.err, periodMillis) : null;
+	}
+
+	@Override
+	public void close() {
+		executorService.shutdownNow();
+	}
+}
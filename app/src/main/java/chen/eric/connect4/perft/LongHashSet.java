@@ -0,0 +1,129 @@
+package chen.eric.connect4.perft;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import chen.eric.connect4.Hashing;
+
+/**
+ * Fixed-capacity, lock-free set of <code>long</code> values.
+ * <p>
+ * Values are stored in one open-addressed {@link AtomicLongArray} with linear probing and
+ * inserted with a compare-and-set on an empty slot, so concurrent adds never block and the set
+ * allocates nothing after construction.  Each new value first reserves one unit of the capacity,
+ * so the table never gets more than half full and probes stay short.  Values cannot be removed.
+ * <code>0</code> marks empty slots and is tracked separately.
+ */
+public class LongHashSet {
+	private static final long EMPTY = 0;
+
+	private final AtomicLongArray slots;
+	private final int mask;
+	private final int capacity;
+	private final AtomicBoolean containsEmpty = new AtomicBoolean();
+	private final AtomicInteger size = new AtomicInteger();
+
+	/**
+	 * Creates a set that holds up to <code>capacity</code> values.  The table is kept at most
+	 * half full, so it takes about <code>16 * capacity</code> bytes.
+	 *
+	 * @param capacity the number of values the set must hold.
+	 * @throws IllegalArgumentException if the capacity is not positive or too large.
+	 */
+	public LongHashSet(int capacity) {
+		if (capacity <= 0 || capacity > 1 << 29) {
+			throw new IllegalArgumentException("Invalid capacity (" + capacity + ")");
+		}
+		final int slotCount = Integer.highestOneBit(capacity * 2 - 1) << 1;
+		this.slots = new AtomicLongArray(slotCount);
+		this.mask = slotCount - 1;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Adds a value.
+	 *
+	 * @param value the value.
+	 * @return <code>true</code> if the value was added, or <code>false</code> if it was already
+	 * in the set.
+	 * @throws IllegalStateException if the value is not in the set and the set already holds
+	 * <code>capacity</code> values.
+	 */
+	public boolean add(long value) {
+		if (value == EMPTY) {
+			if (containsEmpty.get()) {
+				return false;
+			}
+			reserve();
+			if (containsEmpty.compareAndSet(false, true)) {
+				return true;
+			}
+			size.decrementAndGet();
+			return false;
+		}
+		final AtomicLongArray slots = this.slots;
+		int index = Hashing.spread(value) & mask;
+		// the table is at most half full, so an empty slot is always found
+		while (true) {
+			long slot = slots.get(index);
+			if (slot == EMPTY) {
+				reserve();
+				if (slots.compareAndSet(index, EMPTY, value)) {
+					return true;
+				}
+				// another thread filled the slot first
+				size.decrementAndGet();
+				slot = slots.get(index);
+			}
+			if (slot == value) {
+				return false;
+			}
+			index = (index + 1) & mask;
+		}
+	}
+
+	/**
+	 * Reserves room for one more value.
+	 *
+	 * @throws IllegalStateException if the set already holds <code>capacity</code> values.
+	 */
+	private void reserve() {
+		if (size.incrementAndGet() > capacity) {
+			size.decrementAndGet();
+			throw new IllegalStateException("Set full (" + capacity + " values)");
+		}
+	}
+
+	/**
+	 * Indicates whether the set contains a value.
+	 *
+	 * @param value the value.
+	 * @return <code>true</code> if the set contains <code>value</code>.
+	 */
+	public boolean contains(long value) {
+		if (value == EMPTY) {
+			return containsEmpty.get();
+		}
+		int index = Hashing.spread(value) & mask;
+		for (int probeCount = 0; probeCount <= mask; probeCount++) {
+			final long slot = slots.get(index);
+			if (slot == value) {
+				return true;
+			}
+			if (slot == EMPTY) {
+				return false;
+			}
+			index = (index + 1) & mask;
+		}
+		return false;
+	}
+
+	public long size() {
+		return size.get();
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+}
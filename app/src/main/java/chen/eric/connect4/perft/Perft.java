@@ -0,0 +1,266 @@
+package chen.eric.connect4.perft;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+import chen.eric.connect4.BitBoard;
+import chen.eric.connect4.Board;
+import chen.eric.connect4.BoardState;
+import chen.eric.connect4.GravityBoard;
+import chen.eric.connect4.PositionCodec;
+import chen.eric.connect4.SparseBoard;
+import chen.eric.connect4.Token;
+
+/**
+ * Counts the positions reachable from the empty board, ply by ply, and how many of them end the
+ * game in a win for either player or a draw.
+ * <p>
+ * Every sequence of legal moves is played out to the requested depth with {@link Board#tryMove}
+ * and {@link Board#undo}, so the counts are an oracle for checking a new {@link Board}
+ * implementation against another, and the time taken is a throughput benchmark for it.  Positions
+ * that end the game are counted but not expanded.
+ * <p>
+ * The first plies are split into fork-join tasks, one per move, down to the split depth.  Each task
+ * creates its own board and replays the moves leading to it, so boards need not be copyable or
+ * thread safe.  Below the split depth a task searches sequentially on its one board.
+ * <p>
+ * Optionally, positions are deduplicated through a shared {@link LongHashSet} of
+ * {@link PositionCodec#encode(chen.eric.connect4.BoardView) keys}: a position reached by a
+ * different move order is then counted and expanded only the first time, so the counts are of
+ * distinct positions.  The number of tokens is part of the key, so one set covers every ply.
+ */
+public class Perft {
+	// counts are kept in one array per task, COUNT_KINDS entries per ply
+	private static final int NODES = 0;
+	private static final int BLACK_WINS = 1;
+	private static final int RED_WINS = 2;
+	private static final int DRAWS = 3;
+	private static final int COUNT_KINDS = 4;
+
+	private static final int BLACK_WIN_STATUS = BoardState.winnerStatus(Token.Black);
+
+	private final Supplier<? extends Board> boardFactory;
+	private final int parallelism;
+	private final int splitDepth;
+	private final int deduplicationCapacity;
+
+	/**
+	 * Creates a perft that counts every move sequence.
+	 *
+	 * @param boardFactory creates empty boards.
+	 * @param parallelism the number of threads.
+	 * @param splitDepth the number of plies to split into parallel tasks.
+	 */
+	public Perft(Supplier<? extends Board> boardFactory, int parallelism, int splitDepth) {
+		this(boardFactory, parallelism, splitDepth, 0);
+	}
+
+	/**
+	 * Creates a perft.
+	 *
+	 * @param boardFactory creates empty boards.
+	 * @param parallelism the number of threads.
+	 * @param splitDepth the number of plies to split into parallel tasks.
+	 * @param deduplicationCapacity the maximum number of distinct positions to deduplicate, or 0
+	 * to count every move sequence.
+	 */
+	public Perft(Supplier<? extends Board> boardFactory, int parallelism, int splitDepth, int deduplicationCapacity) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("Parallelism must be positive (" + parallelism + ")");
+		}
+		if (splitDepth < 0) {
+			throw new IllegalArgumentException("Split depth must not be negative (" + splitDepth + ")");
+		}
+		if (deduplicationCapacity < 0) {
+			throw new IllegalArgumentException("Deduplication capacity must not be negative (" + deduplicationCapacity + ")");
+		}
+		this.boardFactory = boardFactory;
+		this.parallelism = parallelism;
+		this.splitDepth = splitDepth;
+		this.deduplicationCapacity = deduplicationCapacity;
+	}
+
+	/**
+	 * Counts positions to <code>depth</code> plies.
+	 *
+	 * @param depth the number of plies.
+	 * @return the counts per ply.
+	 * @throws IllegalArgumentException if the depth is negative, or positions are deduplicated
+	 * and the board does not fit in a <code>long</code> key.
+	 * @throws IllegalStateException if more distinct positions are found than the deduplication
+	 * capacity.
+	 */
+	public PerftResult run(int depth) {
+		if (depth < 0) {
+			throw new IllegalArgumentException("Depth must not be negative (" + depth + ")");
+		}
+		final long startNanos = System.nanoTime();
+		LongHashSet positions = null;
+		if (deduplicationCapacity > 0) {
+			final Board board = boardFactory.get();
+			if (!BitBoard.fits(board.getNumberOfColumns(), board.getNumberOfRows())) {
+				throw new IllegalArgumentException("Board does not fit in " + Long.SIZE + " bits ("
+					+ board.getNumberOfColumns() + " columns x " + board.getNumberOfRows() + " rows)");
+			}
+			positions = new LongHashSet(deduplicationCapacity);
+		}
+
+		final long[] counts;
+		final ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			counts = pool.invoke(new PerftTask(depth, positions, new int[0]));
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		final long elapsedNanos = System.nanoTime() - startNanos;
+
+		final long[] nodeCounts = new long[depth + 1];
+		final long[] blackWinCounts = new long[depth + 1];
+		final long[] redWinCounts = new long[depth + 1];
+		final long[] drawCounts = new long[depth + 1];
+		nodeCounts[0] = 1;
+		for (int ply = 1; ply <= depth; ply++) {
+			nodeCounts[ply] = counts[ply * COUNT_KINDS + NODES];
+			blackWinCounts[ply] = counts[ply * COUNT_KINDS + BLACK_WINS];
+			redWinCounts[ply] = counts[ply * COUNT_KINDS + RED_WINS];
+			drawCounts[ply] = counts[ply * COUNT_KINDS + DRAWS];
+		}
+		return new PerftResult(nodeCounts, blackWinCounts, redWinCounts, drawCounts, elapsedNanos);
+	}
+
+	/**
+	 * Counts the positions below the position reached by a sequence of moves.
+	 */
+	private class PerftTask extends RecursiveTask<long[]> {
+		private static final long serialVersionUID = 1L;
+
+		private final int depth;
+		private final LongHashSet positions;
+		private final int[] columnIndexes;
+
+		PerftTask(int depth, LongHashSet positions, int[] columnIndexes) {
+			this.depth = depth;
+			this.positions = positions;
+			this.columnIndexes = columnIndexes;
+		}
+
+		@Override
+		protected long[] compute() {
+			final long[] counts = new long[(depth + 1) * COUNT_KINDS];
+			final Board board = boardFactory.get();
+			Token player = Token.Black;
+			for (final int columnIndex : columnIndexes) {
+				board.moveStatus(player, columnIndex);
+				player = player.getOpponent();
+			}
+			final int ply = columnIndexes.length + 1;
+			if (ply > depth) {
+				return counts;
+			}
+			if (ply > splitDepth) {
+				count(board, player, ply, counts);
+				return counts;
+			}
+
+			final List<PerftTask> tasks = new ArrayList<>();
+			final int numberOfColumns = board.getNumberOfColumns();
+			for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+				final int status = board.tryMove(player, columnIndex);
+				if (!BoardState.isRejected(status)) {
+					if (countNode(board, ply, status, counts) && status == BoardState.ONGOING_STATUS && ply < depth) {
+						final int[] childColumnIndexes = Arrays.copyOf(columnIndexes, ply);
+						childColumnIndexes[ply - 1] = columnIndex;
+						tasks.add(new PerftTask(depth, positions, childColumnIndexes));
+					}
+					board.undo(columnIndex);
+				}
+			}
+			for (final PerftTask task : invokeAll(tasks)) {
+				final long[] taskCounts = task.join();
+				for (int index = 0; index < counts.length; index++) {
+					counts[index] += taskCounts[index];
+				}
+			}
+			return counts;
+		}
+
+		/**
+		 * Counts the moves of <code>player</code> at <code>ply</code> and every position below
+		 * them, depth first.
+		 */
+		private void count(Board board, Token player, int ply, long[] counts) {
+			final int numberOfColumns = board.getNumberOfColumns();
+			for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+				final int status = board.tryMove(player, columnIndex);
+				if (!BoardState.isRejected(status)) {
+					if (countNode(board, ply, status, counts) && status == BoardState.ONGOING_STATUS && ply < depth) {
+						count(board, player.getOpponent(), ply + 1, counts);
+					}
+					board.undo(columnIndex);
+				}
+			}
+		}
+
+		/**
+		 * Counts the position just played, unless it has been counted before.
+		 *
+		 * @return <code>true</code> if the position was counted.
+		 */
+		private boolean countNode(Board board, int ply, int status, long[] counts) {
+			if (positions != null && !positions.add(PositionCodec.encode(board))) {
+				return false;
+			}
+			final int offset = ply * COUNT_KINDS;
+			++counts[offset + NODES];
+			if (status == BLACK_WIN_STATUS) {
+				++counts[offset + BLACK_WINS];
+			}
+			else if (status == BoardState.DRAW_STATUS) {
+				++counts[offset + DRAWS];
+			}
+			else if (status != BoardState.ONGOING_STATUS) {
+				++counts[offset + RED_WINS];
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Counts positions on default-sized boards and reports the counts and throughput.
+	 *
+	 * @param args the depth, then optionally the board (<code>gravity</code>, <code>bit</code> or
+	 * <code>sparse</code>), the number of threads, the split depth and the deduplication capacity.
+	 */
+	public static void main(String... args) {
+		final int depth = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		final String boardName = args.length > 1 ? args[1] : "gravity";
+		final int parallelism = args.length > 2 ?
+			Integer.parseInt(args[2]) :
+			Runtime.getRuntime().availableProcessors();
+		final int splitDepth = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+		final int deduplicationCapacity = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+
+		final Supplier<? extends Board> boardFactory;
+		switch (boardName) {
+			case "gravity":
+				boardFactory = GravityBoard::new;
+				break;
+			case "bit":
+				boardFactory = BitBoard::new;
+				break;
+			case "sparse":
+				boardFactory = SparseBoard::new;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown board (" + boardName + ")");
+		}
+		System.out.println(boardName + " board, depth " + depth + ", " + parallelism + " threads, split depth " + splitDepth
+			+ (deduplicationCapacity > 0 ? ", deduplicated" : ""));
+		System.out.println(new Perft(boardFactory, parallelism, splitDepth, deduplicationCapacity).run(depth));
+	}
+}
@@ -0,0 +1,77 @@
+package chen.eric.connect4.perft;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result of a {@link Perft} run: for every ply, the number of positions and how many of them are
+ * wins for Black or Red, or draws.  Ply 0 is the empty board.
+ */
+public class PerftResult {
+	private final long[] nodeCounts;
+	private final long[] blackWinCounts;
+	private final long[] redWinCounts;
+	private final long[] drawCounts;
+	private final long elapsedNanos;
+
+	public PerftResult(long[] nodeCounts, long[] blackWinCounts, long[] redWinCounts, long[] drawCounts, long elapsedNanos) {
+		this.nodeCounts = nodeCounts.clone();
+		this.blackWinCounts = blackWinCounts.clone();
+		this.redWinCounts = redWinCounts.clone();
+		this.drawCounts = drawCounts.clone();
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	public int getDepth() {
+		return nodeCounts.length - 1;
+	}
+
+	public long getNodeCount(int ply) {
+		return nodeCounts[ply];
+	}
+
+	public long getBlackWinCount(int ply) {
+		return blackWinCounts[ply];
+	}
+
+	public long getRedWinCount(int ply) {
+		return redWinCounts[ply];
+	}
+
+	public long getDrawCount(int ply) {
+		return drawCounts[ply];
+	}
+
+	/**
+	 * Returns the number of positions over all plies, excluding the empty board.
+	 *
+	 * @return the total number of positions.
+	 */
+	public long getTotalNodeCount() {
+		long totalNodeCount = 0;
+		for (int ply = 1; ply < nodeCounts.length; ply++) {
+			totalNodeCount += nodeCounts[ply];
+		}
+		return totalNodeCount;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	public double getNodesPerSecond() {
+		return elapsedNanos > 0 ? getTotalNodeCount() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos : 0;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder();
+		builder.append(String.format("%4s %14s %12s %12s %12s%n", "ply", "nodes", "black", "red", "draws"));
+		for (int ply = 1; ply < nodeCounts.length; ply++) {
+			builder.append(String.format("%4d %14d %12d %12d %12d%n",
+				ply, nodeCounts[ply], blackWinCounts[ply], redWinCounts[ply], drawCounts[ply]));
+		}
+		builder.append(String.format("nodes=%d time=%dms nodes/s=%.0f",
+			getTotalNodeCount(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos), getNodesPerSecond()));
+		return builder.toString();
+	}
+}
@@ -0,0 +1,172 @@
+package chen.eric.connect4.record;
+
+import java.util.Arrays;
+
+import chen.eric.connect4.Board;
+import chen.eric.connect4.BoardState;
+import chen.eric.connect4.GravityBoard;
+import chen.eric.connect4.Token;
+
+/**
+ * Record of one game: the board size, the first player, the column index of every move and the
+ * final board status.  The players alternate.
+ */
+public class GameRecord {
+	private final int numberOfColumns;
+	private final int numberOfRows;
+	private final int winCount;
+	private final Token firstPlayer;
+	private final int[] columnIndexes;
+	private final int status;
+
+	/**
+	 * Creates a game record.
+	 *
+	 * @param numberOfColumns the number of columns.
+	 * @param numberOfRows the number of rows.
+	 * @param winCount the number of tokens in a row required to win.
+	 * @param firstPlayer the player who made the first move.
+	 * @param columnIndexes the column index of every move, which is copied.
+	 * @param status the {@link BoardState#getStatus() board status code} after the last move.
+	 * @throws IllegalArgumentException if a column index is out of range, there are more moves
+	 * than cells or the status code is invalid.
+	 */
+	public GameRecord(int numberOfColumns, int numberOfRows, int winCount, Token firstPlayer, int[] columnIndexes, int status) {
+		if (numberOfColumns < 0 || numberOfRows < 0 || winCount < 0) {
+			throw new IllegalArgumentException("Invalid board size (" + numberOfColumns + " columns x " + numberOfRows + " rows, win count " + winCount + ")");
+		}
+		if (firstPlayer == null) {
+			throw new IllegalArgumentException("First player cannot be null");
+		}
+		if (columnIndexes.length > (long) numberOfColumns * numberOfRows) {
+			throw new IllegalArgumentException("More moves than cells (" + columnIndexes.length + ")");
+		}
+		for (final int columnIndex : columnIndexes) {
+			if (columnIndex < 0 || columnIndex >= numberOfColumns) {
+				throw new IllegalArgumentException("Invalid column index (" + columnIndex + ")");
+			}
+		}
+		BoardState.valueOf(status);
+		this.numberOfColumns = numberOfColumns;
+		this.numberOfRows = numberOfRows;
+		this.winCount = winCount;
+		this.firstPlayer = firstPlayer;
+		this.columnIndexes = columnIndexes.clone();
+		this.status = status;
+	}
+
+	public int getNumberOfColumns() {
+		return numberOfColumns;
+	}
+
+	public int getNumberOfRows() {
+		return numberOfRows;
+	}
+
+	public int getWinCount() {
+		return winCount;
+	}
+
+	public Token getFirstPlayer() {
+		return firstPlayer;
+	}
+
+	public int getMoveCount() {
+		return columnIndexes.length;
+	}
+
+	/**
+	 * Returns the column index of a move.
+	 *
+	 * @param moveIndex the 0-based move number.
+	 * @return the column index of the move.
+	 */
+	public int getColumnIndex(int moveIndex) {
+		return columnIndexes[moveIndex];
+	}
+
+	/**
+	 * Returns the column indexes without copying them, for the writer.
+	 */
+	int[] columnIndexes() {
+		return columnIndexes;
+	}
+
+	/**
+	 * Returns the board status code after the last move.
+	 *
+	 * @return the board status code after the last move.
+	 */
+	public int getStatus() {
+		return status;
+	}
+
+	public BoardState getBoardState() {
+		return BoardState.valueOf(status);
+	}
+
+	/**
+	 * Replays the game on a new {@link GravityBoard}.
+	 *
+	 * @return the board after the last move.
+	 */
+	public GravityBoard replay() {
+		final GravityBoard board = new GravityBoard(numberOfColumns, numberOfRows, winCount);
+		replay(board);
+		return board;
+	}
+
+	/**
+	 * Replays the game on <code>board</code>, which should be empty.
+	 *
+	 * @param board the board to play the moves on.
+	 * @return the board status code after the last move.
+	 * @throws IllegalArgumentException if the board size does not match.
+	 * @throws chen.eric.connect4.InvalidMoveException if a move is invalid on the board.
+	 */
+	public int replay(Board board) {
+		if (board.getNumberOfColumns() != numberOfColumns
+			|| board.getNumberOfRows() != numberOfRows
+			|| board.getWinCount() != winCount)
+		{
+			throw new IllegalArgumentException("Board size mismatch (" + board.getNumberOfColumns() + " columns x " + board.getNumberOfRows() + " rows, win count " + board.getWinCount() + ")");
+		}
+		Token player = firstPlayer;
+		int status = BoardState.ONGOING_STATUS;
+		for (final int columnIndex : columnIndexes) {
+			status = board.moveStatus(player, columnIndex);
+			player = player.getOpponent();
+		}
+		return status;
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		if (this == object) {
+			return true;
+		}
+		if (!(object instanceof GameRecord)) {
+			return false;
+		}
+		final GameRecord gameRecord = (GameRecord) object;
+		return numberOfColumns == gameRecord.numberOfColumns
+			&& numberOfRows == gameRecord.numberOfRows
+			&& winCount == gameRecord.winCount
+			&& firstPlayer == gameRecord.firstPlayer
+			&& status == gameRecord.status
+			&& Arrays.equals(columnIndexes, gameRecord.columnIndexes);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Arrays.hashCode(columnIndexes) + status;
+	}
+
+	@Override
+	public String toString() {
+		return numberOfColumns + "x" + numberOfRows + " win " + winCount
+			+ " first=" + firstPlayer
+			+ " moves=" + columnIndexes.length
+			+ " " + getBoardState();
+	}
+}
@@ -0,0 +1,162 @@
+package chen.eric.connect4.record;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import chen.eric.connect4.Token;
+
+/**
+ * Streams {@link GameRecord game records} from a channel written by a {@link GameRecordWriter}.
+ * <p>
+ * The channel is read through one fixed buffer, so memory use does not grow with the stream.
+ */
+public class GameRecordReader implements Closeable {
+	private final ReadableByteChannel channel;
+	private final ByteBuffer buffer;
+	private boolean endOfStream;
+	private long recordCount;
+
+	public GameRecordReader(ReadableByteChannel channel) throws IOException {
+		this(channel, GameRecordWriter.DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates a reader and checks the stream header.
+	 *
+	 * @param channel the channel to read from.
+	 * @param bufferSize the buffer size in bytes.
+	 * @throws IOException if the header cannot be read or the stream is not a game record stream.
+	 */
+	public GameRecordReader(ReadableByteChannel channel, int bufferSize) throws IOException {
+		if (bufferSize < Integer.BYTES + 1) {
+			throw new IllegalArgumentException("Buffer too small (" + bufferSize + " bytes)");
+		}
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+		buffer.flip();
+		if (!fill(Integer.BYTES + 1) || buffer.getInt() != GameRecordWriter.MAGIC) {
+			throw new IOException("Not a game record stream");
+		}
+		final byte version = buffer.get();
+		if (version != GameRecordWriter.VERSION) {
+			throw new IOException("Unsupported game record version (" + version + ")");
+		}
+	}
+
+	/**
+	 * Opens a game record file.
+	 *
+	 * @param path the file.
+	 * @return the reader.
+	 * @throws IOException if the file cannot be opened or is not a game record file.
+	 */
+	public static GameRecordReader open(Path path) throws IOException {
+		final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			return new GameRecordReader(channel);
+		}
+		catch (IOException exception) {
+			channel.close();
+			throw exception;
+		}
+	}
+
+	/**
+	 * Reads the next record.
+	 *
+	 * @return the record, or <code>null</code> at the end of the stream.
+	 * @throws EOFException if the stream ends within a record.
+	 * @throws IOException if the record cannot be read or is corrupt.
+	 */
+	public GameRecord read() throws IOException {
+		if (!fill(1)) {
+			return null;
+		}
+		final int numberOfColumns = getVarint();
+		final int numberOfRows = getVarint();
+		final int winCount = getVarint();
+		final int flags = getByte() & 0xFF;
+		final int moveCount = getVarint();
+		if (moveCount < 0 || moveCount > (long) numberOfColumns * numberOfRows) {
+			throw new IOException("Corrupt game record (" + moveCount + " moves on " + numberOfColumns + "x" + numberOfRows + ")");
+		}
+
+		final int bitsPerMove = GameRecordWriter.bitsPerMove(numberOfColumns);
+		final int moveMask = (1 << bitsPerMove) - 1;
+		final int[] columnIndexes = new int[moveCount];
+		long bits = 0;
+		int bitCount = 0;
+		for (int count = 0; count < moveCount; count++) {
+			while (bitCount < bitsPerMove) {
+				bits |= (long) (getByte() & 0xFF) << bitCount;
+				bitCount += Byte.SIZE;
+			}
+			columnIndexes[count] = (int) bits & moveMask;
+			bits >>>= bitsPerMove;
+			bitCount -= bitsPerMove;
+		}
+
+		try {
+			final GameRecord gameRecord = new GameRecord(numberOfColumns, numberOfRows, winCount,
+				Token.values()[flags & 1], columnIndexes, flags >>> 1);
+			++recordCount;
+			return gameRecord;
+		}
+		catch (IllegalArgumentException exception) {
+			throw new IOException("Corrupt game record", exception);
+		}
+	}
+
+	protected int getVarint() throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+			final byte nextByte = getByte();
+			value |= (nextByte & 0x7F) << shift;
+			if (nextByte >= 0) {
+				return value;
+			}
+		}
+		throw new IOException("Corrupt game record (variable-length integer too long)");
+	}
+
+	protected byte getByte() throws IOException {
+		if (!fill(1)) {
+			throw new EOFException("Game record stream ends within a record");
+		}
+		return buffer.get();
+	}
+
+	/**
+	 * Reads from the channel until at least <code>byteCount</code> bytes are buffered.
+	 *
+	 * @return <code>false</code> if the stream ended first.
+	 */
+	protected boolean fill(int byteCount) throws IOException {
+		if (buffer.remaining() >= byteCount) {
+			return true;
+		}
+		buffer.compact();
+		while (!endOfStream && buffer.position() < byteCount) {
+			if (channel.read(buffer) < 0) {
+				endOfStream = true;
+			}
+		}
+		buffer.flip();
+		return buffer.remaining() >= byteCount;
+	}
+
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,179 @@
+package chen.eric.connect4.record;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import chen.eric.connect4.Token;
+
+/**
+ * Streams {@link GameRecord game records} to a channel in a compact binary format.
+ * <p>
+ * The stream starts with a 4-byte magic number and a version byte.  Each record then holds the
+ * number of columns, number of rows and win count as unsigned variable-length integers (7 bits
+ * per byte, low bits first), a byte holding the final status code shifted left by one with the
+ * first player's ordinal in the low bit, the number of moves as a variable-length integer, and
+ * the column indexes packed low bits first into <code>ceil(log2(columns))</code> bits each (3 bits
+ * for the default 7 columns).
+ * <p>
+ * Records are encoded into one fixed buffer that is written out whenever it fills, so memory use
+ * does not grow with the stream or record size.
+ */
+public class GameRecordWriter implements Closeable {
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	static final int MAGIC = 0x43344752; // "C4GR"
+	static final byte VERSION = 1;
+
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer;
+	private long recordCount;
+
+	public GameRecordWriter(WritableByteChannel channel) throws IOException {
+		this(channel, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates a writer and writes the stream header.
+	 *
+	 * @param channel the channel to write to.
+	 * @param bufferSize the buffer size in bytes.
+	 * @throws IOException if the header cannot be written.
+	 */
+	public GameRecordWriter(WritableByteChannel channel, int bufferSize) throws IOException {
+		if (bufferSize < Integer.BYTES + 1) {
+			throw new IllegalArgumentException("Buffer too small (" + bufferSize + " bytes)");
+		}
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+		buffer.putInt(MAGIC)
+			.put(VERSION);
+	}
+
+	/**
+	 * Creates or truncates a game record file.
+	 *
+	 * @param path the file.
+	 * @return the writer.
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public static GameRecordWriter open(Path path) throws IOException {
+		return new GameRecordWriter(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+	}
+
+	/**
+	 * Appends a record.
+	 *
+	 * @param gameRecord the record.
+	 * @throws IOException if the buffer cannot be written out.
+	 */
+	public void write(GameRecord gameRecord) throws IOException {
+		write(gameRecord.getNumberOfColumns(), gameRecord.getNumberOfRows(), gameRecord.getWinCount(),
+			gameRecord.getFirstPlayer(), gameRecord.columnIndexes(), gameRecord.getMoveCount(), gameRecord.getStatus());
+	}
+
+	/**
+	 * Appends a record without creating a {@link GameRecord}.  The arguments are not validated.
+	 *
+	 * @param numberOfColumns the number of columns.
+	 * @param numberOfRows the number of rows.
+	 * @param winCount the number of tokens in a row required to win.
+	 * @param firstPlayer the player who made the first move.
+	 * @param columnIndexes the column index of every move.
+	 * @param moveCount the number of moves in <code>columnIndexes</code>.
+	 * @param status the board status code after the last move.
+	 * @throws IOException if the buffer cannot be written out.
+	 */
+	public void write(int numberOfColumns, int numberOfRows, int winCount, Token firstPlayer, int[] columnIndexes, int moveCount, int status) throws IOException {
+		writeHeader(numberOfColumns, numberOfRows, winCount, firstPlayer, moveCount, status);
+		final int bitsPerMove = bitsPerMove(numberOfColumns);
+		long bits = 0;
+		int bitCount = 0;
+		for (int count = 0; count < moveCount; count++) {
+			bits |= (long) columnIndexes[count] << bitCount;
+			bitCount += bitsPerMove;
+			while (bitCount >= Byte.SIZE) {
+				putByte((byte) bits);
+				bits >>>= Byte.SIZE;
+				bitCount -= Byte.SIZE;
+			}
+		}
+		if (bitCount > 0) {
+			putByte((byte) bits);
+		}
+		++recordCount;
+	}
+
+	protected void writeHeader(int numberOfColumns, int numberOfRows, int winCount, Token firstPlayer, int moveCount, int status) throws IOException {
+		putVarint(numberOfColumns);
+		putVarint(numberOfRows);
+		putVarint(winCount);
+		putByte((byte) (status << 1 | firstPlayer.ordinal()));
+		putVarint(moveCount);
+	}
+
+	/**
+	 * Returns the number of bits used for each column index.
+	 *
+	 * @param numberOfColumns the number of columns.
+	 * @return the number of bits used for each column index.
+	 */
+	public static int bitsPerMove(int numberOfColumns) {
+		return Math.max(Integer.SIZE - Integer.numberOfLeadingZeros(numberOfColumns - 1), 1);
+	}
+
+	protected void putVarint(int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			putByte((byte) (value & 0x7F | 0x80));
+			value >>>= 7;
+		}
+		putByte((byte) value);
+	}
+
+	protected void putByte(byte value) throws IOException {
+		if (!buffer.hasRemaining()) {
+			drain();
+		}
+		buffer.put(value);
+	}
+
+	protected void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Writes out any buffered records.
+	 *
+	 * @throws IOException if the buffer cannot be written out.
+	 */
+	public void flush() throws IOException {
+		drain();
+	}
+
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * Writes out any buffered records and closes the channel.
+	 *
+	 * @throws IOException if the buffer cannot be written out or the channel cannot be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			drain();
+		}
+		finally {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,273 @@
+package chen.eric.connect4.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import chen.eric.connect4.BoardState;
+import chen.eric.connect4.GravityBoard;
+import chen.eric.connect4.metrics.MetricsReporter;
+
+/**
+ * Plain-text HTTP front end for a {@link GameSessionService}, built on the JDK's
+ * <code>com.sun.net.httpserver</code>.
+ * <ul>
+ * <li><code>POST /games[?columns=7&amp;rows=6&amp;win=4]</code> creates a session and returns its id.</li>
+ * <li><code>POST /games/{id}/moves?column={columnIndex}</code> plays the next player's token and
+ * returns the board state after the move, e.g. <code>ongoing</code>, <code>draw</code> or
+ * <code>winner(Black)</code>.</li>
+ * <li><code>GET /games/{id}</code> returns the rendered board.</li>
+ * <li><code>DELETE /games/{id}</code> closes the session.</li>
+ * </ul>
+ * Requests for unknown or evicted sessions get 404, illegal moves 400 (off the board) or 409
+ * (column full or game over).  Shard threads only run the game logic: handler threads parse
+ * requests and, when the operation completes, write the response.
+ */
+public class GameServer implements AutoCloseable {
+	public static final int DEFAULT_PORT = 8080;
+
+	private static final String GAMES_PATH = "/games";
+	private static final String MOVES_PATH = "/moves";
+
+	private static final int BACKLOG = 1024;
+
+	private final HttpServer httpServer;
+	private final ExecutorService executorService;
+	private final GameSessionService gameSessionService;
+
+	/**
+	 * Creates a server.  The server does not accept requests until it is {@link #start() started}.
+	 *
+	 * @param address the address to listen on; port <code>0</code> picks a free port.
+	 * @param gameSessionService the service hosting the sessions.
+	 * @param handlerThreadCount the number of threads that parse requests.
+	 * @throws IOException if the server cannot listen on <code>address</code>.
+	 */
+	public GameServer(InetSocketAddress address, GameSessionService gameSessionService, int handlerThreadCount) throws IOException {
+		this.httpServer = HttpServer.create(address, BACKLOG);
+		this.executorService = Executors.newFixedThreadPool(handlerThreadCount);
+		this.gameSessionService = gameSessionService;
+		httpServer.setExecutor(executorService);
+		httpServer.createContext(GAMES_PATH, this::handle);
+	}
+
+	public void start() {
+		httpServer.start();
+	}
+
+	public int getPort() {
+		return httpServer.getAddress().getPort();
+	}
+
+	public GameSessionService getGameSessionService() {
+		return gameSessionService;
+	}
+
+	protected void handle(HttpExchange exchange) {
+		try {
+			final String path = exchange.getRequestURI().getPath();
+			final String method = exchange.getRequestMethod();
+			if (path.equals(GAMES_PATH) || path.equals(GAMES_PATH + "/")) {
+				if (method.equals("POST")) {
+					handleCreate(exchange);
+				}
+				else {
+					respond(exchange, 405, "Method not allowed");
+				}
+				return;
+			}
+			final int idStart = GAMES_PATH.length() + 1;
+			final int idEnd = path.indexOf('/', idStart);
+			final long sessionId = Long.parseLong(path.substring(idStart, idEnd < 0 ? path.length() : idEnd));
+			if (idEnd >= 0 && path.substring(idEnd).equals(MOVES_PATH) && method.equals("POST")) {
+				handleMove(exchange, sessionId);
+			}
+			else if (idEnd < 0 && method.equals("GET")) {
+				handleRender(exchange, sessionId);
+			}
+			else if (idEnd < 0 && method.equals("DELETE")) {
+				handleClose(exchange, sessionId);
+			}
+			else {
+				respond(exchange, 404, "Not found");
+			}
+		}
+		catch (IllegalArgumentException | IndexOutOfBoundsException exception) {
+			respond(exchange, 400, "Bad request");
+		}
+	}
+
+	protected void handleCreate(HttpExchange exchange) {
+		final String query = exchange.getRequestURI().getRawQuery();
+		final int numberOfColumns = getIntParameter(query, "columns", GravityBoard.DEFAULT_NUM_COLUMNS);
+		final int numberOfRows = getIntParameter(query, "rows", GravityBoard.DEFAULT_NUM_ROWS);
+		final int winCount = getIntParameter(query, "win", GravityBoard.DEFAULT_WIN_COUNT);
+		complete(exchange, gameSessionService.createSession(numberOfColumns, numberOfRows, winCount),
+			sessionId -> 200, String::valueOf);
+	}
+
+	protected void handleMove(HttpExchange exchange, long sessionId) {
+		final int columnIndex = getIntParameter(exchange.getRequestURI().getRawQuery(), "column", -1);
+		complete(exchange, gameSessionService.move(sessionId, columnIndex),
+			GameServer::getHttpStatus,
+			status -> BoardState.isRejected(status) ? getRejectionMessage(status) : BoardState.valueOf(status).toString());
+	}
+
+	protected void handleRender(HttpExchange exchange, long sessionId) {
+		complete(exchange, gameSessionService.render(sessionId),
+			board -> board == null ? 404 : 200,
+			board -> board == null ? "Unknown game" : board);
+	}
+
+	protected void handleClose(HttpExchange exchange, long sessionId) {
+		complete(exchange, gameSessionService.closeSession(sessionId),
+			closed -> closed ? 200 : 404,
+			closed -> closed ? "Closed" : "Unknown game");
+	}
+
+	/**
+	 * Tunes the JDK HTTP server for many concurrent keep-alive clients, unless the properties are
+	 * already set.  The properties are JVM-wide: they apply to every
+	 * <code>com.sun.net.httpserver</code> server created afterwards in this process, so this is
+	 * only called from the command-line entry points, before the first server is created.
+	 */
+	public static void setDefaultHttpServerProperties() {
+		// responses are written as headers then body; without TCP_NODELAY every small response
+		// waits for the client's delayed ACK
+		setDefaultProperty("sun.net.httpserver.nodelay", "true");
+		// keep-alive connections beyond this limit are closed, so keep one per concurrent client
+		setDefaultProperty("sun.net.httpserver.maxIdleConnections", "4096");
+	}
+
+	private static void setDefaultProperty(String key, String value) {
+		if (System.getProperty(key) == null) {
+			System.setProperty(key, value);
+		}
+	}
+
+	protected static int getHttpStatus(int status) {
+		switch (status) {
+			case GameSessionService.UNKNOWN_SESSION_STATUS:
+				return 404;
+			case BoardState.COLUMN_FULL_STATUS:
+			case GameSessionService.GAME_OVER_STATUS:
+				return 409;
+			case BoardState.INVALID_TOKEN_STATUS:
+			case BoardState.INVALID_COLUMN_INDEX_STATUS:
+				return 400;
+			default:
+				return 200;
+		}
+	}
+
+	protected static String getRejectionMessage(int status) {
+		switch (status) {
+			case GameSessionService.UNKNOWN_SESSION_STATUS:
+				return "Unknown game";
+			case BoardState.COLUMN_FULL_STATUS:
+				return "Column full";
+			case GameSessionService.GAME_OVER_STATUS:
+				return "Game over";
+			default:
+				return "Invalid column index";
+		}
+	}
+
+	/**
+	 * Returns the value of a decimal <code>name=value</code> query parameter.
+	 *
+	 * @throws NumberFormatException if the value is not a decimal integer.
+	 */
+	protected static int getIntParameter(String query, String name, int defaultValue) {
+		if (query == null) {
+			return defaultValue;
+		}
+		int start = 0;
+		while (start < query.length()) {
+			int end = query.indexOf('&', start);
+			if (end < 0) {
+				end = query.length();
+			}
+			if (query.startsWith(name, start)
+				&& start + name.length() < end
+				&& query.charAt(start + name.length()) == '=')
+			{
+				return Integer.parseInt(query.substring(start + name.length() + 1, end));
+			}
+			start = end + 1;
+		}
+		return defaultValue;
+	}
+
+	protected <T> void complete(HttpExchange exchange, CompletableFuture<T> future,
+		ToIntFunction<T> httpStatus, Function<T, String> body)
+	{
+		// respond on a handler thread, so that a slow client never stalls the shard's event loop
+		future.whenCompleteAsync((value, exception) -> {
+			if (exception != null) {
+				respond(exchange, 503, "Unavailable");
+			}
+			else {
+				respond(exchange, httpStatus.applyAsInt(value), body.apply(value));
+			}
+		}, executorService);
+	}
+
+	protected static void respond(HttpExchange exchange, int httpStatus, String body) {
+		final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		try (final OutputStream outputStream = exchange.getResponseBody()) {
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+			exchange.sendResponseHeaders(httpStatus, bytes.length);
+			outputStream.write(bytes);
+		}
+		catch (IOException exception) {
+			// the client has gone away
+		}
+		finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Stops accepting requests, waiting up to one second for exchanges in progress, and closes
+	 * the session service.
+	 */
+	@Override
+	public void close() {
+		httpServer.stop(1);
+		executorService.shutdown();
+		gameSessionService.close();
+	}
+
+	/**
+	 * Runs a server on localhost until the process is stopped.
+	 *
+	 * @param args optionally the port, the number of shards and the idle timeout in seconds.
+	 * @throws IOException if the server cannot listen on the port.
+	 */
+	public static void main(String... args) throws IOException {
+		final int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		final int shardCount = args.length > 1 ?
+			Integer.parseInt(args[1]) :
+			Runtime.getRuntime().availableProcessors();
+		final long idleTimeoutSeconds = args.length > 2 ? Long.parseLong(args[2]) : 600;
+		setDefaultHttpServerProperties();
+		final GameServer gameServer = new GameServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+			new GameSessionService(shardCount, TimeUnit.SECONDS.toMillis(idleTimeoutSeconds)),
+			Runtime.getRuntime().availableProcessors());
+		MetricsReporter.startFromSystemProperties();
+		gameServer.start();
+		System.out.println("Listening on http://localhost:" + gameServer.getPort() + GAMES_PATH + ", " + shardCount + " shards");
+	}
+}
@@ -0,0 +1,68 @@
+package chen.eric.connect4.server;
+
+import chen.eric.connect4.BoardState;
+import chen.eric.connect4.GravityBoard;
+import chen.eric.connect4.Token;
+
+/**
+ * One match hosted by a {@link GameSessionService}.  A session is only ever touched by the thread
+ * of the shard that owns it, so it needs no synchronization.
+ */
+class GameSession {
+	private final long id;
+	private final GravityBoard board;
+	private Token player;
+	private int status;
+	private long lastAccessNanos;
+
+	GameSession(long id, GravityBoard board, long nowNanos) {
+		this.id = id;
+		this.board = board;
+		this.player = Token.Black;
+		this.status = BoardState.ONGOING_STATUS;
+		this.lastAccessNanos = nowNanos;
+	}
+
+	/**
+	 * Plays the next player's token at <code>columnIndex</code>.
+	 *
+	 * @return the board status code after the move, or a negative status code if the move was
+	 * rejected.
+	 */
+	int move(int columnIndex, long nowNanos) {
+		lastAccessNanos = nowNanos;
+		if (status != BoardState.ONGOING_STATUS) {
+			return GameSessionService.GAME_OVER_STATUS;
+		}
+		final int status = board.tryMove(player, columnIndex);
+		if (!BoardState.isRejected(status)) {
+			this.status = status;
+			player = player.getOpponent();
+		}
+		return status;
+	}
+
+	long getId() {
+		return id;
+	}
+
+	GravityBoard getBoard() {
+		return board;
+	}
+
+	Token getPlayer() {
+		return player;
+	}
+
+	int getStatus() {
+		return status;
+	}
+
+	long getLastAccessNanos() {
+		return lastAccessNanos;
+	}
+
+	void touch(long nowNanos) {
+		lastAccessNanos = nowNanos;
+	}
+}
@@ -0,0 +1,279 @@
+package chen.eric.connect4.server;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import chen.eric.connect4.BoardState;
+import chen.eric.connect4.GravityBoard;
+import chen.eric.connect4.metrics.Metrics;
+
+/**
+ * Hosts many concurrent {@link GravityBoard} matches.
+ * <p>
+ * Sessions are shared out between a fixed number of shards by session id.  Each shard is a
+ * single-writer event loop: one thread owns the shard's sessions in a plain map and runs every
+ * operation on them in submission order, so boards are never locked and moves on one session are
+ * applied in the order they arrive.  Operations return {@link CompletableFuture futures} completed
+ * on the shard thread.  Sessions that have not been used for the idle timeout are evicted.
+ */
+public class GameSessionService implements AutoCloseable {
+	/**
+	 * Status code returned by {@link #move(long, int)} when there is no session with the given id,
+	 * e.g. because it was closed or evicted.
+	 */
+	public static final int UNKNOWN_SESSION_STATUS = -100;
+
+	/**
+	 * Status code returned by {@link #move(long, int)} when the game is already over.
+	 */
+	public static final int GAME_OVER_STATUS = -101;
+
+	/**
+	 * The largest board, in cells, that a session may be created with.
+	 */
+	public static final int MAX_CELL_COUNT = 1 << 16;
+
+	private final Shard[] shards;
+	private final ScheduledExecutorService evictionExecutorService;
+	private final long idleTimeoutNanos;
+	private final AtomicLong nextSessionId = new AtomicLong();
+	private final AtomicInteger sessionCount = new AtomicInteger();
+	private final LongAdder moveCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+
+	public GameSessionService() {
+		this(Runtime.getRuntime().availableProcessors(), TimeUnit.MINUTES.toMillis(10));
+	}
+
+	/**
+	 * Creates a game session service.
+	 *
+	 * @param shardCount the number of shards, i.e. of threads that run game sessions.
+	 * @param idleTimeoutMillis the time after which an unused session is evicted.
+	 */
+	public GameSessionService(int shardCount, long idleTimeoutMillis) {
+		if (shardCount <= 0) {
+			throw new IllegalArgumentException("Shard count must be positive (" + shardCount + ")");
+		}
+		if (idleTimeoutMillis <= 0) {
+			throw new IllegalArgumentException("Idle timeout must be positive (" + idleTimeoutMillis + ")");
+		}
+		this.shards = new Shard[shardCount];
+		for (int count = 0; count < shardCount; count++) {
+			shards[count] = new Shard(count);
+		}
+		this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+		this.evictionExecutorService = new ScheduledThreadPoolExecutor(1, runnable -> {
+			final Thread thread = new Thread(runnable, "game-session-eviction");
+			thread.setDaemon(true);
+			return thread;
+		});
+		final long evictionPeriodMillis = Math.max(idleTimeoutMillis / 2, 1);
+		evictionExecutorService.scheduleWithFixedDelay(this::evictIdleSessions,
+			evictionPeriodMillis, evictionPeriodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Creates a session with an empty board.  Black moves first.
+	 *
+	 * @param numberOfColumns the number of columns.
+	 * @param numberOfRows the number of rows.
+	 * @param winCount the number of tokens in a row required to win.
+	 * @return the session id.
+	 * @throws IllegalArgumentException if the board size is negative or larger than
+	 * {@link #MAX_CELL_COUNT} cells, or the win count is not positive.
+	 */
+	public CompletableFuture<Long> createSession(int numberOfColumns, int numberOfRows, int winCount) {
+		if (numberOfColumns < 0 || numberOfRows < 0
+			|| (long) numberOfColumns * numberOfRows > MAX_CELL_COUNT)
+		{
+			throw new IllegalArgumentException("Invalid board size (" + numberOfColumns + " columns x " + numberOfRows + " rows)");
+		}
+		if (winCount < 1) {
+			throw new IllegalArgumentException("Win count must be positive (" + winCount + ")");
+		}
+		final long sessionId = nextSessionId.getAndIncrement();
+		return getShard(sessionId).submit(sessions -> {
+			final GravityBoard board = new GravityBoard(numberOfColumns, numberOfRows, winCount);
+			sessions.put(sessionId, new GameSession(sessionId, board, System.nanoTime()));
+			sessionCount.incrementAndGet();
+			return sessionId;
+		});
+	}
+
+	/**
+	 * Plays the next player's token at <code>columnIndex</code>.
+	 *
+	 * @param sessionId the session id.
+	 * @param columnIndex the column index to play at.
+	 * @return the board status code after the move, a negative status code returned by
+	 * {@link chen.eric.connect4.Board#tryMove(chen.eric.connect4.Token, int)} if the move is
+	 * illegal, {@link #GAME_OVER_STATUS} or {@link #UNKNOWN_SESSION_STATUS}.
+	 */
+	public CompletableFuture<Integer> move(long sessionId, int columnIndex) {
+		final long submitNanos = System.nanoTime();
+		return getShard(sessionId).submit(sessions -> {
+			final GameSession session = sessions.get(sessionId);
+			if (session == null) {
+				return UNKNOWN_SESSION_STATUS;
+			}
+			final long nowNanos = System.nanoTime();
+			final int status = session.move(columnIndex, nowNanos);
+			if (!BoardState.isRejected(status)) {
+				moveCount.increment();
+			}
+			if (Metrics.ENABLED) {
+				Metrics.SESSION_MOVE_NANOS.record(System.nanoTime() - submitNanos);
+			}
+			return status;
+		});
+	}
+
+	/**
+	 * Renders a session's board, followed by its status and the player to move.
+	 *
+	 * @param sessionId the session id.
+	 * @return the rendered session, or <code>null</code> if there is no session with the given id.
+	 */
+	public CompletableFuture<String> render(long sessionId) {
+		return getShard(sessionId).submit(sessions -> {
+			final GameSession session = sessions.get(sessionId);
+			if (session == null) {
+				return null;
+			}
+			session.touch(System.nanoTime());
+			final BoardState boardState = BoardState.valueOf(session.getStatus());
+			return session.getBoard()
+				+ (boardState.getState() == BoardState.State.ongoing ?
+					session.getPlayer() + " to move\n" :
+					boardState + "\n");
+		});
+	}
+
+	/**
+	 * Closes a session.
+	 *
+	 * @param sessionId the session id.
+	 * @return <code>true</code> if the session was closed, or <code>false</code> if there was no
+	 * session with the given id.
+	 */
+	public CompletableFuture<Boolean> closeSession(long sessionId) {
+		return getShard(sessionId).submit(sessions -> {
+			if (sessions.remove(sessionId) == null) {
+				return false;
+			}
+			sessionCount.decrementAndGet();
+			return true;
+		});
+	}
+
+	/**
+	 * Evicts every session that has not been used for the idle timeout.  Runs periodically, and
+	 * can be called to evict immediately.
+	 */
+	public void evictIdleSessions() {
+		for (final Shard shard : shards) {
+			shard.submit(sessions -> {
+				final long nowNanos = System.nanoTime();
+				int evictedCount = 0;
+				for (final Iterator<GameSession> iterator = sessions.values().iterator(); iterator.hasNext();) {
+					if (nowNanos - iterator.next().getLastAccessNanos() >= idleTimeoutNanos) {
+						iterator.remove();
+						++evictedCount;
+					}
+				}
+				sessionCount.addAndGet(-evictedCount);
+				evictionCount.add(evictedCount);
+				return evictedCount;
+			});
+		}
+	}
+
+	public int getShardCount() {
+		return shards.length;
+	}
+
+	public int getSessionCount() {
+		return sessionCount.get();
+	}
+
+	/**
+	 * Returns the number of moves played in every session.
+	 *
+	 * @return the number of moves played in every session.
+	 */
+	public long getMoveCount() {
+		return moveCount.sum();
+	}
+
+	/**
+	 * Returns the number of sessions evicted for being idle.
+	 *
+	 * @return the number of sessions evicted for being idle.
+	 */
+	public long getEvictionCount() {
+		return evictionCount.sum();
+	}
+
+	protected Shard getShard(long sessionId) {
+		return shards[(int) Long.remainderUnsigned(sessionId, shards.length)];
+	}
+
+	@Override
+	public void close() {
+		evictionExecutorService.shutdownNow();
+		for (final Shard shard : shards) {
+			shard.executorService.shutdown();
+		}
+	}
+
+	protected interface ShardTask<T> {
+		T run(Map<Long, GameSession> sessions);
+	}
+
+	/**
+	 * One single-threaded event loop and the sessions it owns.
+	 */
+	protected static class Shard {
+		private final ExecutorService executorService;
+		private final Map<Long, GameSession> sessions = new HashMap<>();
+
+		Shard(int index) {
+			this.executorService = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+				final Thread thread = new Thread(runnable, "game-session-shard-" + index);
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+
+		<T> CompletableFuture<T> submit(ShardTask<T> task) {
+			final CompletableFuture<T> future = new CompletableFuture<>();
+			try {
+				executorService.execute(() -> {
+					try {
+						future.complete(task.run(sessions));
+					}
+					catch (RuntimeException exception) {
+						future.completeExceptionally(exception);
+					}
+				});
+			}
+			catch (RejectedExecutionException exception) {
+				future.completeExceptionally(exception);
+			}
+			return future;
+		}
+	}
+}
@@ -0,0 +1,268 @@
+package chen.eric.connect4.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import chen.eric.connect4.GravityBoard;
+import chen.eric.connect4.metrics.MetricsReporter;
+
+/**
+ * Load-test client for a {@link GameServer}, built on <code>java.net.http</code>.
+ * <p>
+ * Keeps <code>gameCount</code> games in progress for the duration of the test.  Each game is a
+ * chain of asynchronous requests that plays random legal moves, one at a time, until the game is
+ * over, then closes the session and starts a new game.  Reports the number of moves per second and
+ * the move latency percentiles.
+ */
+public class LoadTestClient {
+	private final HttpClient httpClient;
+	private final String gamesUri;
+	private final int gameCount;
+	private final long seed;
+	private volatile boolean stopRequested;
+
+	/**
+	 * Creates a load-test client.
+	 *
+	 * @param gamesUri the <code>/games</code> URI of the server.
+	 * @param gameCount the number of games to keep in progress.
+	 * @param seed the seed for the random moves.
+	 */
+	public LoadTestClient(URI gamesUri, int gameCount, long seed) {
+		if (gameCount <= 0) {
+			throw new IllegalArgumentException("Game count must be positive (" + gameCount + ")");
+		}
+		this.httpClient = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.build();
+		final String uri = gamesUri.toString();
+		this.gamesUri = uri.endsWith("/") ? uri.substring(0, uri.length() - 1) : uri;
+		this.gameCount = gameCount;
+		this.seed = seed;
+	}
+
+	/**
+	 * Runs the load test.
+	 *
+	 * @param durationMillis how long to keep starting moves for.
+	 * @return the test result.
+	 */
+	public Result run(long durationMillis) {
+		stopRequested = false;
+		final Lane[] lanes = new Lane[gameCount];
+		final CompletableFuture<?>[] futures = new CompletableFuture<?>[gameCount];
+		final long startNanos = System.nanoTime();
+		for (int count = 0; count < gameCount; count++) {
+			lanes[count] = new Lane(new SplittableRandom(seed + count * 0x9E3779B97F4A7C15L));
+			futures[count] = lanes[count].playGames();
+		}
+		try {
+			Thread.sleep(durationMillis);
+		}
+		catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		}
+		stopRequested = true;
+		CompletableFuture.allOf(futures).join();
+		final long elapsedNanos = System.nanoTime() - startNanos;
+
+		int latencyCount = 0;
+		long gamesFinished = 0;
+		long errorCount = 0;
+		for (final Lane lane : lanes) {
+			latencyCount += lane.latencyCount;
+			gamesFinished += lane.gamesFinished;
+			errorCount += lane.errorCount;
+		}
+		final long[] latencies = new long[latencyCount];
+		int offset = 0;
+		for (final Lane lane : lanes) {
+			System.arraycopy(lane.latencies, 0, latencies, offset, lane.latencyCount);
+			offset += lane.latencyCount;
+		}
+		Arrays.sort(latencies);
+		return new Result(latencies, gamesFinished, errorCount, elapsedNanos);
+	}
+
+	/**
+	 * One game at a time, played with a chain of asynchronous requests.  The chain runs one
+	 * callback at a time, so the lane's fields need no synchronization.
+	 */
+	protected class Lane {
+		private final SplittableRandom random;
+		private final int[] columnSizes = new int[GravityBoard.DEFAULT_NUM_COLUMNS];
+		private long[] latencies = new long[1024];
+		private int latencyCount;
+		private long gamesFinished;
+		private long errorCount;
+
+		Lane(SplittableRandom random) {
+			this.random = random;
+		}
+
+		CompletableFuture<Void> playGames() {
+			if (stopRequested) {
+				return CompletableFuture.completedFuture(null);
+			}
+			Arrays.fill(columnSizes, 0);
+			return send(HttpRequest.newBuilder(URI.create(gamesUri)).POST(HttpRequest.BodyPublishers.noBody()).build())
+				.thenCompose(response -> {
+					checkStatus(response);
+					return playMoves(Long.parseLong(response.body()));
+				})
+				.handle((ignored, exception) -> {
+					// a failed game is counted and abandoned; the lane carries on with a new one
+					if (exception != null) {
+						++errorCount;
+					}
+					return null;
+				})
+				.thenCompose(ignored -> playGames());
+		}
+
+		CompletableFuture<Void> playMoves(long sessionId) {
+			int columnIndex = random.nextInt(columnSizes.length);
+			while (columnSizes[columnIndex] >= GravityBoard.DEFAULT_NUM_ROWS) {
+				columnIndex = (columnIndex + 1) % columnSizes.length;
+			}
+			++columnSizes[columnIndex];
+			final long startNanos = System.nanoTime();
+			return send(HttpRequest.newBuilder(URI.create(gamesUri + "/" + sessionId + "/moves?column=" + columnIndex))
+					.POST(HttpRequest.BodyPublishers.noBody())
+					.build())
+				.thenCompose(response -> {
+					recordLatency(System.nanoTime() - startNanos);
+					checkStatus(response);
+					if (!response.body().equals("ongoing")) {
+						++gamesFinished;
+					}
+					else if (!stopRequested) {
+						return playMoves(sessionId);
+					}
+					return send(HttpRequest.newBuilder(URI.create(gamesUri + "/" + sessionId)).DELETE().build())
+						.thenAccept(LoadTestClient::checkStatus);
+				});
+		}
+
+		void recordLatency(long latencyNanos) {
+			if (latencyCount == latencies.length) {
+				latencies = Arrays.copyOf(latencies, latencies.length * 2);
+			}
+			latencies[latencyCount++] = latencyNanos;
+		}
+	}
+
+	protected CompletableFuture<HttpResponse<String>> send(HttpRequest request) {
+		return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+	}
+
+	protected static void checkStatus(HttpResponse<String> response) {
+		if (response.statusCode() != 200) {
+			throw new IllegalStateException("Unexpected response (" + response.statusCode() + " " + response.body() + ")");
+		}
+	}
+
+	/**
+	 * Load test result: the sorted move latencies and the throughput.
+	 */
+	public static class Result {
+		private final long[] latencies;
+		private final long gamesFinished;
+		private final long errorCount;
+		private final long elapsedNanos;
+
+		public Result(long[] latencies, long gamesFinished, long errorCount, long elapsedNanos) {
+			this.latencies = latencies;
+			this.gamesFinished = gamesFinished;
+			this.errorCount = errorCount;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		public long getMoveCount() {
+			return latencies.length;
+		}
+
+		public long getGamesFinished() {
+			return gamesFinished;
+		}
+
+		/**
+		 * Returns the number of games abandoned after a failed request.
+		 *
+		 * @return the number of games abandoned after a failed request.
+		 */
+		public long getErrorCount() {
+			return errorCount;
+		}
+
+		public double getMovesPerSecond() {
+			return latencies.length * 1e9 / Math.max(elapsedNanos, 1);
+		}
+
+		/**
+		 * Returns a move latency percentile.
+		 *
+		 * @param percentile the percentile, from <code>0</code> to <code>100</code>.
+		 * @return the latency in nanoseconds, or <code>0</code> if no moves were played.
+		 */
+		public long getLatencyNanos(double percentile) {
+			if (latencies.length == 0) {
+				return 0;
+			}
+			final int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+			return latencies[Math.min(Math.max(index, 0), latencies.length - 1)];
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d moves, %d games, %d errors in %.1fs: %.0f moves/s, latency p50 %.2fms, p99 %.2fms, max %.2fms",
+				latencies.length, gamesFinished, errorCount, elapsedNanos / 1e9, getMovesPerSecond(),
+				getLatencyNanos(50) / 1e6, getLatencyNanos(99) / 1e6, getLatencyNanos(100) / 1e6);
+		}
+	}
+
+	/**
+	 * Runs a load test against a server, or against a server started in this process.
+	 *
+	 * @param args the <code>/games</code> URI of the server, or <code>local</code> to start one;
+	 * then optionally the number of concurrent games and the duration in seconds.
+	 * @throws IOException if the local server cannot be started.
+	 */
+	public static void main(String... args) throws IOException {
+		final String target = args.length > 0 ? args[0] : "local";
+		final int gameCount = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		final long durationSeconds = args.length > 2 ? Long.parseLong(args[2]) : 10;
+
+		MetricsReporter.startFromSystemProperties();
+		GameServer.setDefaultHttpServerProperties();
+		GameServer gameServer = null;
+		final URI gamesUri;
+		if (target.equals("local")) {
+			gameServer = new GameServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+				new GameSessionService(), Runtime.getRuntime().availableProcessors());
+			gameServer.start();
+			gamesUri = URI.create("http://localhost:" + gameServer.getPort() + "/games");
+		}
+		else {
+			gamesUri = URI.create(target);
+		}
+		try {
+			System.out.println(gameCount + " concurrent games against " + gamesUri + " for " + durationSeconds + "s");
+			System.out.println(new LoadTestClient(gamesUri, gameCount, 1).run(TimeUnit.SECONDS.toMillis(durationSeconds)));
+		}
+		finally {
+			if (gameServer != null) {
+				gameServer.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package chen.eric.connect4.simulation;
+
+import java.util.SplittableRandom;
+
+import chen.eric.connect4.Board;
+import chen.eric.connect4.BoardState;
+import chen.eric.connect4.Token;
+
+/**
+ * Player that wins when it can, blocks the opponent's immediate wins and otherwise avoids moves
+ * that let the opponent win on top of them, preferring columns near the center.  Ties are broken
+ * at random.
+ */
+public class HeuristicPlayer implements Player {
+	private int[] candidateColumnIndexes = new int[0];
+
+	@Override
+	public int selectColumnIndex(Board board, Token token, SplittableRandom random) {
+		final int numberOfColumns = board.getNumberOfColumns();
+		final int numberOfRows = board.getNumberOfRows();
+		final Token opponent = token.getOpponent();
+		if (candidateColumnIndexes.length < numberOfColumns) {
+			candidateColumnIndexes = new int[numberOfColumns];
+		}
+
+		int blockingColumnIndex = -1;
+		for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+			if (board.getColumnSize(columnIndex) < numberOfRows) {
+				if (isWinningMove(board, token, columnIndex)) {
+					return columnIndex;
+				}
+				if (blockingColumnIndex < 0 && isWinningMove(board, opponent, columnIndex)) {
+					blockingColumnIndex = columnIndex;
+				}
+			}
+		}
+		if (blockingColumnIndex >= 0) {
+			return blockingColumnIndex;
+		}
+
+		int candidateCount = 0;
+		int bestRank = Integer.MIN_VALUE;
+		for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+			if (board.getColumnSize(columnIndex) < numberOfRows) {
+				final int rank = rank(board, token, columnIndex);
+				if (rank > bestRank) {
+					bestRank = rank;
+					candidateCount = 0;
+				}
+				if (rank == bestRank) {
+					candidateColumnIndexes[candidateCount++] = columnIndex;
+				}
+			}
+		}
+		return candidateColumnIndexes[random.nextInt(candidateCount)];
+	}
+
+	/**
+	 * Ranks a move by its distance from the center, ranking moves that let the opponent win
+	 * on top of them below every other move.
+	 */
+	protected int rank(Board board, Token token, int columnIndex) {
+		final int numberOfColumns = board.getNumberOfColumns();
+		int rank = -Math.abs(2 * columnIndex - (numberOfColumns - 1));
+		if (board.moveStatus(token, columnIndex) == BoardState.ONGOING_STATUS
+			&& board.getColumnSize(columnIndex) < board.getNumberOfRows()
+			&& isWinningMove(board, token.getOpponent(), columnIndex))
+		{
+			rank -= 2 * numberOfColumns;
+		}
+		board.undo(columnIndex);
+		return rank;
+	}
+
+	protected static boolean isWinningMove(Board board, Token token, int columnIndex) {
+		final int status = board.moveStatus(token, columnIndex);
+		board.undo(columnIndex);
+		return status == BoardState.winnerStatus(token);
+	}
+
+	@Override
+	public String toString() {
+		return "heuristic";
+	}
+}
@@ -0,0 +1,45 @@
+package chen.eric.connect4.simulation;
+
+import java.util.SplittableRandom;
+
+import chen.eric.connect4.Board;
+import chen.eric.connect4.Token;
+import chen.eric.connect4.mcts.MonteCarloTreeSearch;
+
+/**
+ * Player that moves in the column chosen by a single-threaded {@link MonteCarloTreeSearch} with
+ * a fixed number of playouts, seeded from the game's random number generator.
+ */
+public class MctsPlayer implements Player {
+	public static final int DEFAULT_PLAYOUT_COUNT = 2000;
+
+	private final MonteCarloTreeSearch search;
+	private final int playoutCount;
+
+	public MctsPlayer() {
+		this(DEFAULT_PLAYOUT_COUNT);
+	}
+
+	/**
+	 * Creates a Monte Carlo tree search player.
+	 *
+	 * @param playoutCount the number of playouts per move.
+	 */
+	public MctsPlayer(int playoutCount) {
+		if (playoutCount <= 0) {
+			throw new IllegalArgumentException("Playout count must be positive (" + playoutCount + ")");
+		}
+		this.search = new MonteCarloTreeSearch(1, Math.max(playoutCount, 1024) * 8, MonteCarloTreeSearch.DEFAULT_EXPLORATION, 0);
+		this.playoutCount = playoutCount;
+	}
+
+	@Override
+	public int selectColumnIndex(Board board, Token token, SplittableRandom random) {
+		return search.search(board, token, playoutCount, 0, random.nextLong()).getBestColumnIndex();
+	}
+
+	@Override
+	public String toString() {
+		return "mcts(" + playoutCount + ")";
+	}
+}
@@ -0,0 +1,26 @@
+package chen.eric.connect4.simulation;
+
+import java.util.SplittableRandom;
+
+import chen.eric.connect4.Board;
+import chen.eric.connect4.Token;
+
+/**
+ * Move selection strategy for {@link Simulator} games.
+ * <p>
+ * A player is used by one thread at a time.  All randomness comes from the <code>random</code>
+ * argument, which the simulator seeds per game, so that runs with the same seed are reproducible.
+ */
+public interface Player {
+	/**
+	 * Selects the next move for <code>token</code>.
+	 * <p>
+	 * The board may be changed while selecting a move, but must be restored before returning.
+	 *
+	 * @param board the board, on which the game is not over.
+	 * @param token the token to move.
+	 * @param random the source of randomness for the current game.
+	 * @return the column index of a column that is not full.
+	 */
+	int selectColumnIndex(Board board, Token token, SplittableRandom random);
+}
@@ -0,0 +1,21 @@
+package chen.eric.connect4.simulation;
+
+import java.util.SplittableRandom;
+
+import chen.eric.connect4.Board;
+import chen.eric.connect4.Token;
+
+/**
+ * Player that moves in a uniformly random column that is not full.
+ */
+public class RandomPlayer implements Player {
+	@Override
+	public int selectColumnIndex(Board board, Token token, SplittableRandom random) {
+		return board.getOpenColumnIndex(random.nextInt(board.getOpenColumnCount()));
+	}
+
+	@Override
+	public String toString() {
+		return "random";
+	}
+}
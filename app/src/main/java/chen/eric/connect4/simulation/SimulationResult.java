@@ -0,0 +1,79 @@
+package chen.eric.connect4.simulation;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result of a {@link Simulator} run.
+ * <p>
+ * Wins and losses are counted per player, not per token, since the players swap tokens every game.
+ */
+public class SimulationResult {
+	private final long gameCount;
+	private final long moveCount;
+	private final long firstWinCount;
+	private final long secondWinCount;
+	private final long drawCount;
+	private final long elapsedNanos;
+
+	public SimulationResult(long gameCount, long moveCount, long firstWinCount, long secondWinCount, long drawCount, long elapsedNanos) {
+		this.gameCount = gameCount;
+		this.moveCount = moveCount;
+		this.firstWinCount = firstWinCount;
+		this.secondWinCount = secondWinCount;
+		this.drawCount = drawCount;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	public long getGameCount() {
+		return gameCount;
+	}
+
+	public long getMoveCount() {
+		return moveCount;
+	}
+
+	/**
+	 * Returns the number of games won by the first player.
+	 *
+	 * @return the number of games won by the first player.
+	 */
+	public long getFirstWinCount() {
+		return firstWinCount;
+	}
+
+	/**
+	 * Returns the number of games won by the second player.
+	 *
+	 * @return the number of games won by the second player.
+	 */
+	public long getSecondWinCount() {
+		return secondWinCount;
+	}
+
+	public long getDrawCount() {
+		return drawCount;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	public double getGamesPerSecond() {
+		return perSecond(gameCount);
+	}
+
+	public double getMovesPerSecond() {
+		return perSecond(moveCount);
+	}
+
+	protected double perSecond(long count) {
+		return elapsedNanos > 0 ? count * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos : 0;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("games=%d moves=%d first=%d second=%d draws=%d time=%dms games/s=%.0f moves/s=%.0f",
+			gameCount, moveCount, firstWinCount, secondWinCount, drawCount,
+			TimeUnit.NANOSECONDS.toMillis(elapsedNanos), getGamesPerSecond(), getMovesPerSecond());
+	}
+}
@@ -0,0 +1,212 @@
+package chen.eric.connect4.simulation;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import chen.eric.connect4.Board;
+import chen.eric.connect4.BoardState;
+import chen.eric.connect4.GravityBoard;
+import chen.eric.connect4.Token;
+import chen.eric.connect4.metrics.MetricsReporter;
+import chen.eric.connect4.record.GameRecordWriter;
+
+/**
+ * Plays games between two {@link Player players} without any input or output.
+ * <p>
+ * Games are shared out between a fixed pool of threads.  Each thread creates its own players,
+ * and every game gets a fresh board and its own random number generator seeded from the run seed
+ * and the game number, so that a run with deterministic players gives the same results for the
+ * same seed, whatever the number of threads.  The first player plays Black in even-numbered games
+ * and Red in odd-numbered games.
+ */
+public class Simulator {
+	private final Supplier<? extends Board> boardFactory;
+	private final Supplier<? extends Player> firstPlayerFactory;
+	private final Supplier<? extends Player> secondPlayerFactory;
+	private final int parallelism;
+	private final long seed;
+
+	/**
+	 * Creates a simulator.
+	 *
+	 * @param boardFactory creates the board for each game.
+	 * @param firstPlayerFactory creates the first player for each thread.
+	 * @param secondPlayerFactory creates the second player for each thread.
+	 * @param parallelism the number of threads.
+	 * @param seed the seed for the per-game random number generators.
+	 */
+	public Simulator(Supplier<? extends Board> boardFactory, Supplier<? extends Player> firstPlayerFactory, Supplier<? extends Player> secondPlayerFactory, int parallelism, long seed) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("Parallelism must be positive (" + parallelism + ")");
+		}
+		this.boardFactory = boardFactory;
+		this.firstPlayerFactory = firstPlayerFactory;
+		this.secondPlayerFactory = secondPlayerFactory;
+		this.parallelism = parallelism;
+		this.seed = seed;
+	}
+
+	/**
+	 * Plays <code>gameCount</code> games.
+	 *
+	 * @param gameCount the number of games to play.
+	 * @return the simulation result.
+	 * @throws IllegalStateException if a game fails, e.g. when a player makes an invalid move.
+	 */
+	public SimulationResult run(int gameCount) {
+		return run(gameCount, null);
+	}
+
+	/**
+	 * Plays <code>gameCount</code> games, recording every game.  Records are written in the order
+	 * games finish, which depends on thread scheduling.
+	 *
+	 * @param gameCount the number of games to play.
+	 * @param gameRecordWriter the writer to record games to, or <code>null</code> for none.
+	 * @return the simulation result.
+	 * @throws IllegalStateException if a game fails, e.g. when a player makes an invalid move, or
+	 * a record cannot be written.
+	 */
+	public SimulationResult run(int gameCount, GameRecordWriter gameRecordWriter) {
+		final long startNanos = System.nanoTime();
+		final AtomicInteger nextGameIndex = new AtomicInteger();
+		final LongAdder moveCount = new LongAdder();
+		final LongAdder firstWinCount = new LongAdder();
+		final LongAdder secondWinCount = new LongAdder();
+		final LongAdder drawCount = new LongAdder();
+
+		final List<Callable<Void>> tasks = new ArrayList<>();
+		for (int count = 0; count < parallelism; count++) {
+			tasks.add(() -> {
+				final Player firstPlayer = firstPlayerFactory.get();
+				final Player secondPlayer = secondPlayerFactory.get();
+				int[] columnIndexes = new int[0];
+				for (int gameIndex = nextGameIndex.getAndIncrement(); gameIndex < gameCount; gameIndex = nextGameIndex.getAndIncrement()) {
+					final boolean isFirstBlack = gameIndex % 2 == 0;
+					final Board board = boardFactory.get();
+					final int cellCount = board.getNumberOfColumns() * board.getNumberOfRows();
+					if (columnIndexes.length < cellCount) {
+						columnIndexes = new int[cellCount];
+					}
+					final int status = play(board,
+						isFirstBlack ? firstPlayer : secondPlayer,
+						isFirstBlack ? secondPlayer : firstPlayer,
+						new SplittableRandom(seed + gameIndex * 0x9E3779B97F4A7C15L),
+						columnIndexes);
+					final int gameMoveCount = board.getTokenCount();
+					moveCount.add(gameMoveCount);
+					if (gameRecordWriter != null) {
+						synchronized (gameRecordWriter) {
+							gameRecordWriter.write(board.getNumberOfColumns(), board.getNumberOfRows(), board.getWinCount(),
+								Token.Black, columnIndexes, gameMoveCount, status);
+						}
+					}
+					if (status == BoardState.DRAW_STATUS) {
+						drawCount.increment();
+					}
+					else if ((status == BoardState.winnerStatus(Token.Black)) == isFirstBlack) {
+						firstWinCount.increment();
+					}
+					else {
+						secondWinCount.increment();
+					}
+				}
+				return null;
+			});
+		}
+
+		final ExecutorService executorService = Executors.newFixedThreadPool(parallelism);
+		try {
+			for (final Future<Void> future : executorService.invokeAll(tasks)) {
+				future.get();
+			}
+		}
+		catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(exception);
+		}
+		catch (ExecutionException exception) {
+			throw new IllegalStateException(exception.getCause());
+		}
+		finally {
+			executorService.shutdownNow();
+		}
+		return new SimulationResult(gameCount, moveCount.sum(), firstWinCount.sum(), secondWinCount.sum(), drawCount.sum(), System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Plays one game to the end on an empty board, storing the column index of every move in
+	 * <code>columnIndexes</code>.
+	 *
+	 * @return the final board status code.
+	 */
+	protected static int play(Board board, Player blackPlayer, Player redPlayer, SplittableRandom random, int[] columnIndexes) {
+		Token player = Token.Black;
+		int status = BoardState.ONGOING_STATUS;
+		int moveCount = 0;
+		while (status == BoardState.ONGOING_STATUS) {
+			final int columnIndex = (player == Token.Black ? blackPlayer : redPlayer).selectColumnIndex(board, player, random);
+			status = board.moveStatus(player, columnIndex);
+			columnIndexes[moveCount++] = columnIndex;
+			player = player.getOpponent();
+		}
+		return status;
+	}
+
+	protected static Supplier<Player> createPlayerFactory(String name) {
+		switch (name) {
+			case "random":
+				return RandomPlayer::new;
+			case "heuristic":
+				return HeuristicPlayer::new;
+			case "solver":
+				return SolverPlayer::new;
+			case "mcts":
+				return MctsPlayer::new;
+			default:
+				throw new IllegalArgumentException("Unknown player (" + name + ")");
+		}
+	}
+
+	/**
+	 * Plays games on default-sized boards and reports throughput and results.
+	 *
+	 * @param args the number of games, then optionally the first and second players
+	 * (<code>random</code>, <code>heuristic</code>, <code>solver</code> or <code>mcts</code>),
+	 * the number of threads, the seed and a file to record the games to.
+	 * @throws IOException if the game record file cannot be written.
+	 */
+	public static void main(String... args) throws IOException {
+		final int gameCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+		final String firstPlayerName = args.length > 1 ? args[1] : "heuristic";
+		final String secondPlayerName = args.length > 2 ? args[2] : "random";
+		final int parallelism = args.length > 3 ?
+			Integer.parseInt(args[3]) :
+			Runtime.getRuntime().availableProcessors();
+		final long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+
+		MetricsReporter.startFromSystemProperties();
+		final Simulator simulator = new Simulator(GravityBoard::new,
+			createPlayerFactory(firstPlayerName), createPlayerFactory(secondPlayerName), parallelism, seed);
+		System.out.println(firstPlayerName + " vs " + secondPlayerName + ", " + parallelism + " threads, seed " + seed);
+		if (args.length > 5) {
+			try (final GameRecordWriter gameRecordWriter = GameRecordWriter.open(Paths.get(args[5]))) {
+				System.out.println(simulator.run(gameCount, gameRecordWriter));
+			}
+		}
+		else {
+			System.out.println(simulator.run(gameCount));
+		}
+	}
+}
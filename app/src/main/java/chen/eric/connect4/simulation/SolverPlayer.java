@@ -0,0 +1,60 @@
+package chen.eric.connect4.simulation;
+
+import java.util.SplittableRandom;
+
+import chen.eric.connect4.BitBoard;
+import chen.eric.connect4.Board;
+import chen.eric.connect4.Token;
+import chen.eric.connect4.solver.Solver;
+import chen.eric.connect4.solver.TranspositionTable;
+
+/**
+ * Player that moves in the best column found by a depth-limited {@link Solver} search.
+ * <p>
+ * The search is deterministic, so the random argument is not used.  Boards must fit in a
+ * {@link BitBoard}.
+ */
+public class SolverPlayer implements Player {
+	public static final int DEFAULT_MAX_DEPTH = 8;
+
+	private final Solver solver;
+	private final int maxDepth;
+
+	public SolverPlayer() {
+		this(DEFAULT_MAX_DEPTH);
+	}
+
+	/**
+	 * Creates a solver player without a transposition table, so that its moves do not depend on
+	 * earlier games.
+	 *
+	 * @param maxDepth the maximum search depth in plies.
+	 */
+	public SolverPlayer(int maxDepth) {
+		this(new Solver(), maxDepth);
+	}
+
+	/**
+	 * Creates a solver player.
+	 *
+	 * @param solver the solver, which may share a {@link TranspositionTable} with other solvers.
+	 * @param maxDepth the maximum search depth in plies.
+	 */
+	public SolverPlayer(Solver solver, int maxDepth) {
+		if (maxDepth <= 0) {
+			throw new IllegalArgumentException("Max depth must be positive (" + maxDepth + ")");
+		}
+		this.solver = solver;
+		this.maxDepth = maxDepth;
+	}
+
+	@Override
+	public int selectColumnIndex(Board board, Token token, SplittableRandom random) {
+		return solver.search(board, token, maxDepth, 0).getBestColumnIndex();
+	}
+
+	@Override
+	public String toString() {
+		return "solver(" + maxDepth + ")";
+	}
+}
@@ -0,0 +1,310 @@
+package chen.eric.connect4.solver;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import chen.eric.connect4.BitBoard;
+import chen.eric.connect4.BoardView;
+import chen.eric.connect4.PositionCodec;
+
+/**
+ * Thread-safe, size-bounded cache of position analyses for one board size.
+ * <p>
+ * Results are keyed by {@link PositionCodec#canonical(long, int, int) canonical} position key, so
+ * a position and its mirror image share an entry; results are stored in the orientation of the
+ * canonical key and their best column is mirrored on the way in and out.  Keys do not say whose
+ * turn it is, so positions are assumed to have been reached with Black first and the players
+ * alternating.
+ * <p>
+ * Lookups ask for a minimum search depth.  An entry that is neither exact nor that deep counts as
+ * a miss, and an entry is only replaced by an analysis that is exact or at least as deep, so a
+ * deep analysis is never lost to a shallow one.
+ * <p>
+ * Entries are shared out between stripes by key.  Each stripe is an access-ordered map behind its
+ * own lock that evicts its least recently used entry when it holds more than its share of the
+ * maximum entry count, so threads only contend when they use the same stripe.  Concurrent misses
+ * on the same position are collapsed: the first thread runs the analyzer and the others wait for
+ * its result, running their own analysis only if that result is too shallow for them.
+ */
+public class AnalysisCache {
+	public static final int DEFAULT_MAX_ENTRY_COUNT = 1 << 16;
+	public static final int DEFAULT_STRIPE_COUNT = 16;
+
+	private final int numberOfColumns;
+	private final int numberOfRows;
+	private final int winCount;
+	private final Stripe[] stripes;
+	private final Map<Long, CompletableFuture<SearchResult>> pendingResults = new ConcurrentHashMap<>();
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder collapsedCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+
+	public AnalysisCache(int numberOfColumns, int numberOfRows, int winCount) {
+		this(numberOfColumns, numberOfRows, winCount, DEFAULT_MAX_ENTRY_COUNT, DEFAULT_STRIPE_COUNT);
+	}
+
+	/**
+	 * Creates an analysis cache.
+	 *
+	 * @param numberOfColumns the number of columns of the cached positions.
+	 * @param numberOfRows the number of rows of the cached positions.
+	 * @param winCount the number of tokens in a row required to win.
+	 * @param maxEntryCount the maximum number of entries, rounded up to a multiple of the stripe
+	 * count.
+	 * @param stripeCount the number of stripes, rounded up to a power of 2.
+	 * @throws IllegalArgumentException if the entry or stripe count is not positive, or the board
+	 * does not fit in a <code>long</code> key.
+	 */
+	public AnalysisCache(int numberOfColumns, int numberOfRows, int winCount, int maxEntryCount, int stripeCount) {
+		if (maxEntryCount <= 0) {
+			throw new IllegalArgumentException("Max entry count must be positive (" + maxEntryCount + ")");
+		}
+		if (stripeCount <= 0 || stripeCount > 1 << 16) {
+			throw new IllegalArgumentException("Invalid stripe count (" + stripeCount + ")");
+		}
+		if (!BitBoard.fits(numberOfColumns, numberOfRows)) {
+			throw new IllegalArgumentException(
+				"Board does not fit in " + Long.SIZE + " bits (" + numberOfColumns + " columns x " + numberOfRows + " rows)");
+		}
+		this.numberOfColumns = numberOfColumns;
+		this.numberOfRows = numberOfRows;
+		this.winCount = winCount;
+		this.stripes = new Stripe[stripeCount == 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1];
+		final int stripeCapacity = (maxEntryCount + stripes.length - 1) / stripes.length;
+		for (int count = 0; count < stripes.length; count++) {
+			stripes[count] = new Stripe(stripeCapacity);
+		}
+	}
+
+	/**
+	 * Returns the cached analysis of a position, of any depth, running <code>analyzer</code> on a
+	 * miss.
+	 *
+	 * @param board the position.
+	 * @param analyzer the analysis to run on a miss, e.g. a {@link Solver} search.
+	 * @return the analysis, with its best column index for <code>board</code>.
+	 * @throws IllegalArgumentException if the board size does not match the cache.
+	 * @see #get(BoardView, int, Function)
+	 */
+	public SearchResult get(BoardView board, Function<? super BoardView, SearchResult> analyzer) {
+		return get(board, 0, analyzer);
+	}
+
+	/**
+	 * Returns the cached analysis of a position if it is exact or searched at least
+	 * <code>minDepth</code> moves deep, running <code>analyzer</code> otherwise.  If another
+	 * thread is already analyzing the position, waits for its result instead, and runs the
+	 * analyzer only if that result is too shallow.
+	 *
+	 * @param board the position.
+	 * @param minDepth the search depth a cached analysis must reach to be returned.
+	 * @param analyzer the analysis to run on a miss, e.g. a {@link Solver} search.  Its result is
+	 * returned even if it does not reach <code>minDepth</code>.
+	 * @return the analysis, with its best column index for <code>board</code>.
+	 * @throws IllegalArgumentException if the board size does not match the cache.
+	 */
+	public SearchResult get(BoardView board, int minDepth, Function<? super BoardView, SearchResult> analyzer) {
+		if (board.getNumberOfColumns() != numberOfColumns
+			|| board.getNumberOfRows() != numberOfRows
+			|| board.getWinCount() != winCount)
+		{
+			throw new IllegalArgumentException("Board size mismatch (" + board.getNumberOfColumns() + " columns x " + board.getNumberOfRows() + " rows)");
+		}
+		final long key = PositionCodec.encode(board);
+		final long canonicalKey = PositionCodec.canonical(key, numberOfColumns, numberOfRows);
+		final boolean mirrored = canonicalKey != key;
+		final Stripe stripe = getStripe(canonicalKey);
+
+		SearchResult result = stripe.get(canonicalKey);
+		if (isDeepEnough(result, minDepth)) {
+			hitCount.increment();
+			return orient(result, mirrored);
+		}
+		missCount.increment();
+		final CompletableFuture<SearchResult> future = new CompletableFuture<>();
+		final CompletableFuture<SearchResult> pendingResult = pendingResults.putIfAbsent(canonicalKey, future);
+		if (pendingResult != null) {
+			collapsedCount.increment();
+			try {
+				result = pendingResult.join();
+			}
+			catch (CompletionException exception) {
+				throw exception.getCause() instanceof RuntimeException ?
+					(RuntimeException) exception.getCause() :
+					exception;
+			}
+			if (!isDeepEnough(result, minDepth)) {
+				// the other thread searched too shallow for this lookup
+				result = orient(analyzer.apply(board), mirrored);
+				stripe.put(canonicalKey, result);
+			}
+			return orient(result, mirrored);
+		}
+		try {
+			// the result may have been stored between the lookup and registering the analysis
+			result = stripe.get(canonicalKey);
+			if (!isDeepEnough(result, minDepth)) {
+				result = orient(analyzer.apply(board), mirrored);
+				stripe.put(canonicalKey, result);
+			}
+			future.complete(result);
+		}
+		catch (RuntimeException exception) {
+			future.completeExceptionally(exception);
+			throw exception;
+		}
+		finally {
+			pendingResults.remove(canonicalKey, future);
+		}
+		return orient(result, mirrored);
+	}
+
+	public int getNumberOfColumns() {
+		return numberOfColumns;
+	}
+
+	public int getNumberOfRows() {
+		return numberOfRows;
+	}
+
+	public int getWinCount() {
+		return winCount;
+	}
+
+	public int getStripeCount() {
+		return stripes.length;
+	}
+
+	/**
+	 * Returns the number of cached analyses.
+	 *
+	 * @return the number of entries.
+	 */
+	public int getEntryCount() {
+		int entryCount = 0;
+		for (final Stripe stripe : stripes) {
+			entryCount += stripe.size();
+		}
+		return entryCount;
+	}
+
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	/**
+	 * Returns the number of lookups that did not find an entry, including those that waited for
+	 * another thread's analysis.
+	 *
+	 * @return the number of misses.
+	 */
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	/**
+	 * Returns the number of misses that waited for another thread's analysis of the same position
+	 * instead of running their own.
+	 *
+	 * @return the number of collapsed misses.
+	 */
+	public long getCollapsedCount() {
+		return collapsedCount.sum();
+	}
+
+	/**
+	 * Returns the fraction of lookups that found an entry.
+	 *
+	 * @return the hit rate, or <code>0</code> before the first lookup.
+	 */
+	public double getHitRate() {
+		final long hitCount = getHitCount();
+		final long lookupCount = hitCount + getMissCount();
+		return lookupCount == 0 ? 0 : (double) hitCount / lookupCount;
+	}
+
+	/**
+	 * Returns the number of entries evicted to make room for others.
+	 *
+	 * @return the number of evictions.
+	 */
+	public long getEvictionCount() {
+		return evictionCount.sum();
+	}
+
+	protected Stripe getStripe(long key) {
+		return stripes[(int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & (stripes.length - 1)];
+	}
+
+	private static boolean isDeepEnough(SearchResult result, int minDepth) {
+		return result != null && (result.isExact() || result.getDepth() >= minDepth);
+	}
+
+	/**
+	 * Mirrors the best column index of <code>result</code> if <code>mirrored</code> is set.
+	 */
+	protected SearchResult orient(SearchResult result, boolean mirrored) {
+		if (!mirrored || result.getBestColumnIndex() < 0) {
+			return result;
+		}
+		return new SearchResult(result.getScore(), numberOfColumns - 1 - result.getBestColumnIndex(),
+			result.getDepth(), result.isExact(), result.getNodeCount(), result.getElapsedNanos());
+	}
+
+	@Override
+	public String toString() {
+		return "entries=" + getEntryCount()
+			+ " hits=" + getHitCount()
+			+ " misses=" + getMissCount()
+			+ " collapsed=" + getCollapsedCount()
+			+ " evictions=" + getEvictionCount();
+	}
+
+	/**
+	 * One lock's share of the entries, in least recently used order.
+	 */
+	protected class Stripe {
+		private final LinkedHashMap<Long, SearchResult> entries;
+
+		Stripe(int capacity) {
+			this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Long, SearchResult> eldest) {
+					if (size() > capacity) {
+						evictionCount.increment();
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		synchronized SearchResult get(long key) {
+			return entries.get(key);
+		}
+
+		/**
+		 * Stores <code>result</code> unless the stored entry is exact, or deeper than it.
+		 */
+		synchronized void put(long key, SearchResult result) {
+			final SearchResult storedResult = entries.get(key);
+			if (storedResult == null
+				|| !storedResult.isExact() && (result.isExact() || result.getDepth() >= storedResult.getDepth()))
+			{
+				entries.put(key, result);
+			}
+		}
+
+		synchronized int size() {
+			return entries.size();
+		}
+	}
+}
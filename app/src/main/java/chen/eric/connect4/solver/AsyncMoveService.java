@@ -0,0 +1,220 @@
+package chen.eric.connect4.solver;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import chen.eric.connect4.BitBoard;
+import chen.eric.connect4.BoardView;
+import chen.eric.connect4.Token;
+
+/**
+ * Suggests moves on a bounded pool of search threads, without blocking the caller.
+ * <p>
+ * Each request copies the position and searches it with its own {@link Solver}, deepening
+ * iteratively until the request's deadline, and completes its future with the best column of the
+ * deepest completed iteration.  The deadline counts from submission, so time spent queued is
+ * taken from the search; a request that starts after its deadline makes a one-ply search.
+ * Cancelling a future stops its search.  Solvers share one lock-free {@link TranspositionTable},
+ * whose keys cover the board size and win count, so one service may serve several games.
+ * <p>
+ * At most <code>queueCapacity</code> requests wait for a thread.  Requests beyond that are
+ * rejected at once: their futures complete exceptionally with a
+ * {@link RejectedExecutionException}, so callers under load can back off instead of piling up
+ * searches.
+ */
+public class AsyncMoveService implements AutoCloseable {
+	public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+	private final ThreadPoolExecutor executorService;
+	private final TranspositionTable transpositionTable;
+	private final Set<MoveRequest> activeRequests = ConcurrentHashMap.newKeySet();
+	private final LongAdder completedCount = new LongAdder();
+	private final LongAdder cancelledCount = new LongAdder();
+	private final LongAdder rejectedCount = new LongAdder();
+
+	public AsyncMoveService() {
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY, new TranspositionTable());
+	}
+
+	/**
+	 * Creates a move service.
+	 *
+	 * @param threadCount the number of search threads.
+	 * @param queueCapacity the number of requests that may wait for a search thread.
+	 * @param transpositionTable the transposition table shared by every search, or
+	 * <code>null</code> for none.
+	 */
+	public AsyncMoveService(int threadCount, int queueCapacity, TranspositionTable transpositionTable) {
+		if (threadCount <= 0) {
+			throw new IllegalArgumentException("Thread count must be positive (" + threadCount + ")");
+		}
+		if (queueCapacity <= 0) {
+			throw new IllegalArgumentException("Queue capacity must be positive (" + queueCapacity + ")");
+		}
+		final AtomicInteger threadIndex = new AtomicInteger();
+		this.executorService = new ThreadPoolExecutor(threadCount, threadCount, 0, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+				final Thread thread = new Thread(runnable, "async-move-" + threadIndex.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			});
+		this.transpositionTable = transpositionTable;
+	}
+
+	/**
+	 * Suggests a move for <code>player</code>.  The position is copied, so the board may be changed
+	 * as soon as this method returns.
+	 *
+	 * @param board the position, on which the game is not over.
+	 * @param player the player to move.
+	 * @param timeLimitMillis the time from now within which the future completes.
+	 * @return the column index of the suggested move.  The future completes exceptionally with a
+	 * {@link RejectedExecutionException} if too many requests are queued or the service is closed.
+	 * @throws IllegalArgumentException if the board does not fit in a {@link BitBoard}, the game is
+	 * over or the time limit is not positive.
+	 */
+	public CompletableFuture<Integer> suggestMove(BoardView board, Token player, long timeLimitMillis) {
+		if (timeLimitMillis <= 0) {
+			throw new IllegalArgumentException("Time limit must be positive (" + timeLimitMillis + ")");
+		}
+		final BitBoard bitBoard = new BitBoard(board);
+		if (bitBoard.hasWinner(Token.Black) || bitBoard.hasWinner(Token.Red)
+			|| bitBoard.getTokenCount() == bitBoard.getNumberOfColumns() * bitBoard.getNumberOfRows())
+		{
+			throw new IllegalArgumentException("Game is over");
+		}
+		final MoveRequest request = new MoveRequest(bitBoard, player, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeLimitMillis));
+		try {
+			executorService.execute(request);
+		}
+		catch (RejectedExecutionException exception) {
+			rejectedCount.increment();
+			request.completeExceptionally(exception);
+		}
+		return request;
+	}
+
+	/**
+	 * Returns the number of requests waiting for a search thread.
+	 *
+	 * @return the number of queued requests.
+	 */
+	public int getQueuedCount() {
+		return executorService.getQueue().size();
+	}
+
+	/**
+	 * Returns the number of requests completed with a move.
+	 *
+	 * @return the number of completed requests.
+	 */
+	public long getCompletedCount() {
+		return completedCount.sum();
+	}
+
+	/**
+	 * Returns the number of requests cancelled before they completed.
+	 *
+	 * @return the number of cancelled requests.
+	 */
+	public long getCancelledCount() {
+		return cancelledCount.sum();
+	}
+
+	/**
+	 * Returns the number of requests rejected because the queue was full or the service was
+	 * closed.
+	 *
+	 * @return the number of rejected requests.
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.sum();
+	}
+
+	public TranspositionTable getTranspositionTable() {
+		return transpositionTable;
+	}
+
+	/**
+	 * Cancels every queued and running request and stops the search threads.
+	 */
+	@Override
+	public void close() {
+		executorService.shutdown();
+		for (final Runnable runnable : executorService.getQueue().toArray(new Runnable[0])) {
+			((MoveRequest) runnable).cancel(false);
+		}
+		for (final MoveRequest request : activeRequests) {
+			request.cancel(false);
+		}
+	}
+
+	/**
+	 * A queued or running search, which is also its own future.
+	 */
+	protected class MoveRequest extends CompletableFuture<Integer> implements Runnable {
+		private final BitBoard board;
+		private final Token player;
+		private final long deadlineNanos;
+		private volatile Solver solver;
+
+		MoveRequest(BitBoard board, Token player, long deadlineNanos) {
+			this.board = board;
+			this.player = player;
+			this.deadlineNanos = deadlineNanos;
+		}
+
+		@Override
+		public void run() {
+			if (isDone()) {
+				return;
+			}
+			activeRequests.add(this);
+			try {
+				this.solver = new Solver(transpositionTable);
+				// a cancel either sees the solver and stops it, which holds even if the search has
+				// not started yet, or lands before it was set and is seen here
+				if (isDone()) {
+					return;
+				}
+				final long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+				final SearchResult result = remainingMillis > 0 ?
+					solver.search(board, player, Integer.MAX_VALUE, remainingMillis) :
+					solver.search(board, player, 1, 0);
+				// count first, so that callers that see the future complete see the count too
+				completedCount.increment();
+				if (!complete(result.getBestColumnIndex())) {
+					completedCount.decrement();
+				}
+			}
+			catch (RuntimeException exception) {
+				completeExceptionally(exception);
+			}
+			finally {
+				activeRequests.remove(this);
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			final boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled) {
+				cancelledCount.increment();
+				// free the queue slot now rather than when a thread reaches it
+				executorService.remove(this);
+				final Solver solver = this.solver;
+				if (solver != null) {
+					solver.stop();
+				}
+			}
+			return cancelled;
+		}
+	}
+}
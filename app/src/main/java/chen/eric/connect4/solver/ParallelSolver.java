@@ -0,0 +1,253 @@
+package chen.eric.connect4.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import chen.eric.connect4.BitBoard;
+import chen.eric.connect4.Board;
+import chen.eric.connect4.BoardView;
+import chen.eric.connect4.GravityBoard;
+import chen.eric.connect4.Token;
+import chen.eric.connect4.metrics.Metrics;
+
+/**
+ * Solver that splits the root position across the threads of a {@link ForkJoinPool}.
+ * <p>
+ * The score is narrowed with null-window searches of the root, as in {@link Solver}.  In each
+ * null-window search the first root move in center-first order is searched on its own, and the
+ * remaining root moves are then searched in parallel.  Every worker searches its own
+ * {@link BitBoard} copy with its own {@link Solver}, sharing one lock-free
+ * {@link TranspositionTable}.  The table is kept between calls; its keys cover the board size and
+ * win count, so one solver may solve positions of different games.
+ * <p>
+ * The best column is the first column in center-first order with the best score, so the result
+ * does not depend on the number of threads.
+ */
+public class ParallelSolver implements AutoCloseable {
+	private final ForkJoinPool forkJoinPool;
+	private final TranspositionTable transpositionTable;
+
+	public ParallelSolver() {
+		this(Runtime.getRuntime().availableProcessors(), new TranspositionTable());
+	}
+
+	/**
+	 * Creates a parallel solver.
+	 *
+	 * @param parallelism the number of worker threads.
+	 * @param transpositionTable the transposition table shared by every worker, or <code>null</code> for none.
+	 */
+	public ParallelSolver(int parallelism, TranspositionTable transpositionTable) {
+		this.forkJoinPool = new ForkJoinPool(parallelism);
+		this.transpositionTable = transpositionTable;
+	}
+
+	public int getParallelism() {
+		return forkJoinPool.getParallelism();
+	}
+
+	public TranspositionTable getTranspositionTable() {
+		return transpositionTable;
+	}
+
+	/**
+	 * Solves the position for the player to move, assuming Black moved first and the players
+	 * alternated.
+	 *
+	 * @param board the position to solve.
+	 * @return the exact search result.
+	 */
+	public SearchResult solve(BoardView board) {
+		return solve(board, Solver.nextPlayer(board));
+	}
+
+	/**
+	 * Solves the position for <code>player</code>.
+	 *
+	 * @param board the position to solve.
+	 * @param player the player to move.
+	 * @return the exact search result.
+	 * @throws IllegalArgumentException if the board does not fit in a {@link BitBoard}, or a
+	 * player has already won.
+	 */
+	public SearchResult solve(BoardView board, Token player) {
+		final long startNanos = System.nanoTime();
+		final BitBoard root = new BitBoard(board);
+		if (root.hasWinner(Token.Black) || root.hasWinner(Token.Red)) {
+			throw new IllegalArgumentException("Position already has a winner");
+		}
+		final int cellCount = root.getNumberOfColumns() * root.getNumberOfRows();
+		final int tokenCount = root.getTokenCount();
+		final int remainingCount = cellCount - tokenCount;
+
+		final List<Integer> columnIndexes = new ArrayList<>();
+		for (final int columnIndex : Solver.createColumnOrder(root.getNumberOfColumns())) {
+			if (root.isWinningMove(player, columnIndex)) {
+				return record(new SearchResult((cellCount + 1 - tokenCount) / 2, columnIndex, 1, true, 1, System.nanoTime() - startNanos));
+			}
+			if (root.getColumnSize(columnIndex) < root.getNumberOfRows()) {
+				columnIndexes.add(columnIndex);
+			}
+		}
+		if (columnIndexes.isEmpty()) {
+			return record(new SearchResult(0, -1, 0, true, 1, System.nanoTime() - startNanos));
+		}
+
+		final int moveCount = columnIndexes.size();
+		final BitBoard[] children = new BitBoard[moveCount];
+		for (int count = 0; count < moveCount; count++) {
+			children[count] = child(root, player, columnIndexes.get(count));
+		}
+		final LongAdder nodeCount = new LongAdder();
+		nodeCount.increment();
+
+		int min = -(cellCount - tokenCount) / 2;
+		int max = (cellCount + 1 - tokenCount) / 2;
+		int bestCount = 0;
+		while (min < max) {
+			int median = min + (max - min) / 2;
+			if (median <= 0 && min / 2 < median) {
+				median = min / 2;
+			}
+			else if (median >= 0 && max / 2 > median) {
+				median = max / 2;
+			}
+			final int failHighCount = searchRoot(children, player.getOpponent(), median, nodeCount);
+			if (failHighCount < 0) {
+				max = median;
+			}
+			else {
+				min = median + 1;
+				bestCount = failHighCount;
+			}
+		}
+		return record(new SearchResult(min, columnIndexes.get(bestCount), remainingCount, true, nodeCount.sum(), System.nanoTime() - startNanos));
+	}
+
+	/**
+	 * Tests whether any root move scores more than <code>median</code>.
+	 * <p>
+	 * The eldest move is searched first on the calling thread; the others are searched in
+	 * parallel.  When a move fails high, searches of the moves after it are stopped, since only
+	 * the first move that fails high is needed.
+	 *
+	 * @return the index of the first child that scores more than <code>median</code>, or
+	 * <code>-1</code> if none does.
+	 */
+	protected int searchRoot(BitBoard[] children, Token opponent, int median, LongAdder nodeCount) {
+		final Solver eldestSolver = new Solver(transpositionTable);
+		final int eldestScore = -eldestSolver.searchWindow(children[0], opponent, -median - 1, -median);
+		nodeCount.add(eldestSolver.getNodeCount());
+		if (eldestScore > median) {
+			return 0;
+		}
+
+		final int moveCount = children.length;
+		final Solver[] solvers = new Solver[moveCount];
+		for (int count = 1; count < moveCount; count++) {
+			solvers[count] = new Solver(transpositionTable);
+		}
+		final AtomicInteger failHighCount = new AtomicInteger(Integer.MAX_VALUE);
+		final List<Callable<Void>> tasks = new ArrayList<>();
+		for (int count = 1; count < moveCount; count++) {
+			final int siblingCount = count;
+			tasks.add(() -> {
+				if (failHighCount.get() < siblingCount) {
+					return null;
+				}
+				final Solver solver = solvers[siblingCount];
+				final int score = -solver.searchWindow(children[siblingCount], opponent, -median - 1, -median);
+				nodeCount.add(solver.getNodeCount());
+				if (!solver.isAborted() && score > median) {
+					failHighCount.accumulateAndGet(siblingCount, Math::min);
+					for (int laterCount = siblingCount + 1; laterCount < moveCount; laterCount++) {
+						solvers[laterCount].stop();
+					}
+				}
+				return null;
+			});
+		}
+		for (final Future<Void> future : forkJoinPool.invokeAll(tasks)) {
+			await(future);
+		}
+		return failHighCount.get() == Integer.MAX_VALUE ? -1 : failHighCount.get();
+	}
+
+	protected static BitBoard child(BitBoard root, Token player, int columnIndex) {
+		final BitBoard child = new BitBoard(root);
+		child.move(player, columnIndex);
+		return child;
+	}
+
+	protected static void await(Future<?> future) {
+		try {
+			future.get();
+		}
+		catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(exception);
+		}
+		catch (ExecutionException exception) {
+			throw new IllegalStateException(exception.getCause());
+		}
+	}
+
+	private static SearchResult record(SearchResult searchResult) {
+		if (Metrics.ENABLED) {
+			Metrics.recordSearch(searchResult.getDepth(), searchResult.getNodeCount(), searchResult.getElapsedNanos());
+		}
+		return searchResult;
+	}
+
+	@Override
+	public void close() {
+		forkJoinPool.shutdown();
+	}
+
+	/**
+	 * Solves the position reached by playing the given column indexes (e.g. <code>3342</code>)
+	 * on an empty default-sized board with one thread and then with every available processor,
+	 * and reports the speedup.
+	 *
+	 * @param args the moves played so far, as a string of 0-based column indexes, and
+	 * optionally the number of threads.
+	 */
+	public static void main(String... args) {
+		final Board board = new GravityBoard();
+		Token player = Token.Black;
+		if (args.length > 0) {
+			for (final char move : args[0].toCharArray()) {
+				board.move(player, Character.digit(move, 10));
+				player = player.getOpponent();
+			}
+		}
+		final int parallelism = args.length > 1 ?
+			Integer.parseInt(args[1]) :
+			Runtime.getRuntime().availableProcessors();
+		System.out.println(board);
+
+		final SearchResult singleResult;
+		try (final ParallelSolver solver = new ParallelSolver(1, new TranspositionTable())) {
+			singleResult = solver.solve(board, player);
+		}
+		System.out.println("1 thread: " + singleResult);
+
+		final SearchResult parallelResult;
+		try (final ParallelSolver solver = new ParallelSolver(parallelism, new TranspositionTable())) {
+			parallelResult = solver.solve(board, player);
+		}
+		System.out.println(parallelism + " threads: " + parallelResult);
+		System.out.printf("speedup: %.2fx%n", (double) singleResult.getElapsedNanos() / parallelResult.getElapsedNanos());
+		if (singleResult.getBestColumnIndex() != parallelResult.getBestColumnIndex()
+			|| singleResult.getScore() != parallelResult.getScore())
+		{
+			System.out.println("WARNING: results differ");
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package chen.eric.connect4.solver;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result of a {@link Solver} search.
+ * <p>
+ * Scores are from the point of view of the player to move: a positive score is a win, a
+ * negative score is a loss and <code>0</code> is a draw (or, for a search that is not
+ * {@link #isExact() exact}, a position that is undecided at the searched depth).  The magnitude
+ * of a win or loss is the number of moves the winner has left to play after the winning move,
+ * plus one, so faster wins score higher.
+ */
+public class SearchResult {
+	private final int score;
+	private final int bestColumnIndex;
+	private final int depth;
+	private final boolean exact;
+	private final long nodeCount;
+	private final long elapsedNanos;
+
+	public SearchResult(int score, int bestColumnIndex, int depth, boolean exact, long nodeCount, long elapsedNanos) {
+		this.score = score;
+		this.bestColumnIndex = bestColumnIndex;
+		this.depth = depth;
+		this.exact = exact;
+		this.nodeCount = nodeCount;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * Returns the column index of the best move.
+	 *
+	 * @return the column index of the best move, or <code>-1</code> if no move can be played.
+	 */
+	public int getBestColumnIndex() {
+		return bestColumnIndex;
+	}
+
+	/**
+	 * Returns the depth (in plies) of the deepest completed search iteration.
+	 *
+	 * @return the depth of the deepest completed search iteration.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Indicates whether the score is the perfect-play value of the position.
+	 *
+	 * @return <code>true</code> if the score is exact.
+	 */
+	public boolean isExact() {
+		return exact;
+	}
+
+	public long getNodeCount() {
+		return nodeCount;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Returns the number of nodes searched per second.
+	 *
+	 * @return the number of nodes searched per second.
+	 */
+	public long getNodesPerSecond() {
+		return elapsedNanos > 0 ?
+			(long) (nodeCount * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos) :
+			0;
+	}
+
+	@Override
+	public String toString() {
+		return "score=" + score
+			+ " bestColumnIndex=" + bestColumnIndex
+			+ " depth=" + depth
+			+ " exact=" + exact
+			+ " nodes=" + nodeCount
+			+ " time=" + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + "ms"
+			+ " nodesPerSecond=" + getNodesPerSecond();
+	}
+}
@@ -0,0 +1,450 @@
+package chen.eric.connect4.solver;
+
+import chen.eric.connect4.BitBoard;
+import chen.eric.connect4.Board;
+import chen.eric.connect4.BoardView;
+import chen.eric.connect4.GravityBoard;
+import chen.eric.connect4.Token;
+import chen.eric.connect4.metrics.Metrics;
+
+/**
+ * Negamax alpha-beta solver.
+ * <p>
+ * The position is copied into a {@link BitBoard} and searched with make/unmake moves.  A
+ * {@link ThreatAnalyzer} settles immediate wins and losses without searching: moves that let the
+ * opponent win at once are never searched, a position where every move does is scored as lost,
+ * and otherwise the score cannot be worse than losing after the opponent's next move.  The
+ * remaining moves are ordered by the number of threats they leave, then center-first (after the
+ * best move stored in the optional {@link TranspositionTable}), and the score is found by
+ * narrowing the window with null-window searches.
+ * {@link #search(BoardView, Token, int, long)} deepens iteratively until the position is decided, the
+ * depth limit is reached or the time runs out; {@link #solve(BoardView, Token)} searches to the end
+ * of the game.
+ * <p>
+ * A solver may be reused for many searches, until it is {@link #stop() stopped}, but is not
+ * thread-safe; see {@link ParallelSolver} for searching on several threads.
+ */
+public class Solver {
+	/**
+	 * The deadline is checked every <code>NODE_CHECK_INTERVAL_MASK + 1</code> nodes.
+	 */
+	private static final long NODE_CHECK_INTERVAL_MASK = 0xFFF;
+
+	private final TranspositionTable transpositionTable;
+	private BitBoard board;
+	private ThreatAnalyzer threatAnalyzer;
+	private int cellCount;
+	private int[] columnOrder;
+	private int[] bestColumnIndexes;
+	private int[][] orderedColumnIndexes;
+	private int[] threatCounts;
+	private long nodeCount;
+	private long deadlineNanos;
+	private boolean hasDeadline;
+	private boolean aborted;
+	private volatile boolean stopRequested;
+
+	/**
+	 * Creates a solver without a transposition table.
+	 */
+	public Solver() {
+		this(null);
+	}
+
+	/**
+	 * Creates a solver that caches results in <code>transpositionTable</code>, which is kept
+	 * between searches.  Its keys cover the board size and win count, so it may be shared by
+	 * searches of different games.
+	 *
+	 * @param transpositionTable the transposition table, or <code>null</code> for none.
+	 */
+	public Solver(TranspositionTable transpositionTable) {
+		this.transpositionTable = transpositionTable;
+	}
+
+	public TranspositionTable getTranspositionTable() {
+		return transpositionTable;
+	}
+
+	/**
+	 * Solves the position for the player to move, assuming Black moved first and the players
+	 * alternated.
+	 *
+	 * @param board the position to solve.
+	 * @return the exact search result.
+	 */
+	public SearchResult solve(BoardView board) {
+		return solve(board, nextPlayer(board));
+	}
+
+	/**
+	 * Solves the position for <code>player</code>.
+	 *
+	 * @param board the position to solve.
+	 * @param player the player to move.
+	 * @return the exact search result.
+	 */
+	public SearchResult solve(BoardView board, Token player) {
+		return search(board, player, Integer.MAX_VALUE, 0);
+	}
+
+	/**
+	 * Searches the position for <code>player</code>, deepening iteratively.
+	 *
+	 * @param board the position to search.
+	 * @param player the player to move.
+	 * @param maxDepth the maximum depth (in plies) to search.
+	 * @param timeLimitMillis the time limit, or <code>0</code> for no limit.  When the time runs out
+	 * the result of the deepest completed iteration is returned.
+	 * @return the search result.
+	 * @throws IllegalArgumentException if the board does not fit in a {@link BitBoard}, or a
+	 * player has already won.
+	 */
+	public SearchResult search(BoardView board, Token player, int maxDepth, long timeLimitMillis) {
+		final long startNanos = System.nanoTime();
+		prepare(board, player);
+		this.hasDeadline = timeLimitMillis > 0;
+		this.deadlineNanos = startNanos + timeLimitMillis * 1_000_000L;
+
+		final int remainingCount = cellCount - this.board.getTokenCount();
+		final int lastDepth = Math.min(Math.max(maxDepth, 1), Math.max(remainingCount, 1));
+		int score = 0;
+		int bestColumnIndex = firstOpenColumnIndex();
+		int completedDepth = 0;
+		boolean exact = remainingCount == 0;
+		final boolean isDeepening = timeLimitMillis > 0 || maxDepth < remainingCount;
+		for (int depth = isDeepening ? 1 : lastDepth; depth <= lastDepth && !exact; depth++) {
+			final int iterationScore = searchRoot(player, depth);
+			if (aborted) {
+				break;
+			}
+			score = iterationScore;
+			bestColumnIndex = bestColumnIndexes[this.board.getTokenCount()];
+			completedDepth = depth;
+			exact = score != 0 || depth >= remainingCount;
+		}
+		final long elapsedNanos = System.nanoTime() - startNanos;
+		if (Metrics.ENABLED) {
+			Metrics.recordSearch(completedDepth, nodeCount, elapsedNanos);
+		}
+		return new SearchResult(score, bestColumnIndex, completedDepth, exact, nodeCount, elapsedNanos);
+	}
+
+	/**
+	 * Searches the position for <code>player</code> to the end of the game within the window
+	 * <code>(alpha, beta)</code>.
+	 *
+	 * @param board the position to search.
+	 * @param player the player to move.
+	 * @param alpha the lower bound of the window.
+	 * @param beta the upper bound of the window.
+	 * @return the exact score if it lies within the window; otherwise, an upper bound
+	 * <code>&lt;= alpha</code> or a lower bound <code>&gt;= beta</code>.
+	 * @throws IllegalArgumentException if the board does not fit in a {@link BitBoard}, or a
+	 * player has already won.
+	 */
+	public int searchWindow(BoardView board, Token player, int alpha, int beta) {
+		prepare(board, player);
+		this.hasDeadline = false;
+		return negamax(player, alpha, beta, cellCount - this.board.getTokenCount());
+	}
+
+	/**
+	 * Returns the number of nodes visited by the last search.
+	 *
+	 * @return the number of nodes visited by the last search.
+	 */
+	public long getNodeCount() {
+		return nodeCount;
+	}
+
+	protected void prepare(BoardView board, Token player) {
+		final BitBoard bitBoard = new BitBoard(board);
+		if (bitBoard.hasWinner(Token.Black) || bitBoard.hasWinner(Token.Red)) {
+			throw new IllegalArgumentException("Position already has a winner");
+		}
+		// the analyzer depends only on the board size, so it is kept while the size is unchanged
+		if (this.board == null
+			|| bitBoard.getNumberOfColumns() != this.board.getNumberOfColumns()
+			|| bitBoard.getNumberOfRows() != this.board.getNumberOfRows()
+			|| bitBoard.getWinCount() != this.board.getWinCount())
+		{
+			this.threatAnalyzer = new ThreatAnalyzer(bitBoard);
+		}
+		this.board = bitBoard;
+		this.cellCount = board.getNumberOfColumns() * board.getNumberOfRows();
+		this.columnOrder = createColumnOrder(board.getNumberOfColumns());
+		this.bestColumnIndexes = new int[cellCount + 1];
+		this.orderedColumnIndexes = new int[cellCount + 1][board.getNumberOfColumns()];
+		this.threatCounts = new int[board.getNumberOfColumns()];
+		this.nodeCount = 0;
+		// a stop is never cleared, so one that lands before the search starts is not lost
+		this.aborted = stopRequested;
+	}
+
+	/**
+	 * Returns column indexes ordered from the center outwards, alternating left then right.
+	 *
+	 * @param numberOfColumns the number of columns.
+	 * @return the column indexes in search order.
+	 */
+	protected static int[] createColumnOrder(int numberOfColumns) {
+		final int[] columnOrder = new int[numberOfColumns];
+		for (int count = 0; count < numberOfColumns; count++) {
+			columnOrder[count] = numberOfColumns / 2 + (1 - 2 * (count % 2)) * (count + 1) / 2;
+		}
+		return columnOrder;
+	}
+
+	/**
+	 * Finds the score of the root position with null-window searches, recording the best column
+	 * index for the root ply.
+	 */
+	protected int searchRoot(Token player, int depth) {
+		final BitBoard board = this.board;
+		final int tokenCount = board.getTokenCount();
+		for (final int columnIndex : columnOrder) {
+			if (board.isWinningMove(player, columnIndex)) {
+				bestColumnIndexes[tokenCount] = columnIndex;
+				return (cellCount + 1 - tokenCount) / 2;
+			}
+		}
+
+		int min = -(cellCount - tokenCount) / 2;
+		int max = (cellCount + 1 - tokenCount) / 2;
+		int bestColumnIndex = firstOpenColumnIndex();
+		while (min < max) {
+			int median = min + (max - min) / 2;
+			if (median <= 0 && min / 2 < median) {
+				median = min / 2;
+			}
+			else if (median >= 0 && max / 2 > median) {
+				median = max / 2;
+			}
+			final int score = negamax(player, median, median + 1, depth);
+			if (aborted) {
+				return 0;
+			}
+			if (score <= median) {
+				max = score;
+			}
+			else {
+				min = score;
+				bestColumnIndex = bestColumnIndexes[tokenCount];
+			}
+		}
+		bestColumnIndexes[tokenCount] = bestColumnIndex;
+		return min;
+	}
+
+	protected int negamax(Token player, int alpha, int beta, int depth) {
+		if ((++nodeCount & NODE_CHECK_INTERVAL_MASK) == 0) {
+			checkDeadline();
+		}
+		if (aborted) {
+			return 0;
+		}
+		final BitBoard board = this.board;
+		final int tokenCount = board.getTokenCount();
+		if (tokenCount >= cellCount) {
+			return 0;
+		}
+		final ThreatAnalyzer threatAnalyzer = this.threatAnalyzer;
+		final Token opponent = player.getOpponent();
+		final long tokenMask = board.getTokenMask(player);
+		final long opponentTokenMask = board.getTokenMask(opponent);
+		if (threatAnalyzer.getWinningMoveMask(tokenMask, tokenMask | opponentTokenMask) != 0) {
+			return (cellCount + 1 - tokenCount) / 2;
+		}
+		final long moveMask = threatAnalyzer.getNonLosingMoveMask(tokenMask, opponentTokenMask);
+		if (moveMask == 0) {
+			// every move lets the opponent win at once
+			return -(cellCount - tokenCount) / 2;
+		}
+		final int[] columnOrder = this.columnOrder;
+		// the opponent cannot win on its next move, so not before the move after
+		final int min = -(cellCount - 2 - tokenCount) / 2;
+		if (alpha < min) {
+			alpha = min;
+			if (alpha >= beta) {
+				// any move that does not lose at once reaches the bound
+				bestColumnIndexes[tokenCount] = firstColumnIndex(moveMask);
+				return alpha;
+			}
+		}
+		final int max = (cellCount - 1 - tokenCount) / 2;
+		if (beta > max) {
+			beta = max;
+			if (alpha >= beta) {
+				return beta;
+			}
+		}
+		if (depth <= 0) {
+			return 0;
+		}
+
+		final TranspositionTable transpositionTable = this.transpositionTable;
+		final int remainingDepth = Math.min(depth, cellCount - tokenCount);
+		final int originalAlpha = alpha;
+		long key = 0;
+		int hashColumnIndex = -1;
+		if (transpositionTable != null) {
+			key = board.getHash(player);
+			final long entry = transpositionTable.probe(key);
+			if (entry != TranspositionTable.NO_ENTRY) {
+				hashColumnIndex = TranspositionTable.getBestColumnIndex(entry);
+				if (TranspositionTable.getDepth(entry) >= remainingDepth) {
+					final int entryScore = TranspositionTable.getScore(entry);
+					final int bound = TranspositionTable.getBound(entry);
+					if (bound == TranspositionTable.EXACT_BOUND
+						|| (bound == TranspositionTable.LOWER_BOUND && entryScore >= beta)
+						|| (bound == TranspositionTable.UPPER_BOUND && entryScore <= alpha))
+					{
+						bestColumnIndexes[tokenCount] = hashColumnIndex;
+						return entryScore;
+					}
+					if (bound == TranspositionTable.LOWER_BOUND && entryScore > alpha) {
+						alpha = entryScore;
+					}
+					else if (bound == TranspositionTable.UPPER_BOUND && entryScore < beta) {
+						beta = entryScore;
+					}
+				}
+			}
+		}
+
+		// moves that lose at once are skipped, and the rest are searched in order of the number
+		// of threats they leave, center first among equals, after the best column from the table
+		final int[] orderedColumnIndexes = this.orderedColumnIndexes[tokenCount];
+		final int[] threatCounts = this.threatCounts;
+		final long occupiedMask = tokenMask | opponentTokenMask;
+		int moveCount = 0;
+		for (final int columnIndex : columnOrder) {
+			final long moveBit = moveMask & threatAnalyzer.getColumnMask(columnIndex);
+			if (moveBit == 0 || columnIndex == hashColumnIndex) {
+				continue;
+			}
+			final int threatCount = Long.bitCount(threatAnalyzer.getThreatMask(tokenMask | moveBit, occupiedMask | moveBit));
+			int position = moveCount++;
+			while (position > 0 && threatCounts[position - 1] < threatCount) {
+				orderedColumnIndexes[position] = orderedColumnIndexes[position - 1];
+				threatCounts[position] = threatCounts[position - 1];
+				--position;
+			}
+			orderedColumnIndexes[position] = columnIndex;
+			threatCounts[position] = threatCount;
+		}
+		final boolean isHashMove = hashColumnIndex >= 0 && (moveMask & threatAnalyzer.getColumnMask(hashColumnIndex)) != 0;
+
+		int bestScore = -cellCount;
+		int bestColumnIndex = -1;
+		for (int count = isHashMove ? -1 : 0; count < moveCount; count++) {
+			final int columnIndex = count < 0 ? hashColumnIndex : orderedColumnIndexes[count];
+			board.moveStatus(player, columnIndex);
+			final int score = -negamax(opponent, -beta, -alpha, depth - 1);
+			board.undo(columnIndex);
+			if (score > bestScore) {
+				bestScore = score;
+				bestColumnIndex = columnIndex;
+				if (score >= beta) {
+					break;
+				}
+				if (score > alpha) {
+					alpha = score;
+				}
+			}
+		}
+		if (aborted) {
+			return 0;
+		}
+
+		bestColumnIndexes[tokenCount] = bestColumnIndex;
+		if (transpositionTable != null) {
+			final int bound = bestScore <= originalAlpha ?
+				TranspositionTable.UPPER_BOUND :
+				bestScore >= beta ?
+					TranspositionTable.LOWER_BOUND :
+					TranspositionTable.EXACT_BOUND;
+			transpositionTable.store(key, bestScore, bound, remainingDepth, bestColumnIndex);
+		}
+		return bestScore;
+	}
+
+	protected void checkDeadline() {
+		if (stopRequested || (hasDeadline && System.nanoTime() - deadlineNanos > 0)) {
+			aborted = true;
+		}
+	}
+
+	/**
+	 * Asks the search in progress, if any, to stop.  May be called from any thread.
+	 * <p>
+	 * The stop is permanent: a search that has not started yet, and every later search, is
+	 * aborted at once.  Use a new solver to search again.
+	 */
+	public void stop() {
+		stopRequested = true;
+	}
+
+	/**
+	 * Indicates whether the last search was cut short by its time limit or by {@link #stop()}.
+	 *
+	 * @return <code>true</code> if the last search was cut short.
+	 */
+	public boolean isAborted() {
+		return aborted;
+	}
+
+	/**
+	 * Returns the first column index, in search order, holding a cell of <code>moveMask</code>.
+	 */
+	protected int firstColumnIndex(long moveMask) {
+		for (final int columnIndex : columnOrder) {
+			if ((moveMask & threatAnalyzer.getColumnMask(columnIndex)) != 0) {
+				return columnIndex;
+			}
+		}
+		return -1;
+	}
+
+	protected int firstOpenColumnIndex() {
+		final int numberOfRows = board.getNumberOfRows();
+		for (final int columnIndex : columnOrder) {
+			if (board.getColumnSize(columnIndex) < numberOfRows) {
+				return columnIndex;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the player to move, assuming Black moved first and the players alternated.
+	 *
+	 * @param board the board.
+	 * @return the player to move.
+	 */
+	public static Token nextPlayer(BoardView board) {
+		return board.getTokenCount() % 2 == 0 ? Token.Black : Token.Red;
+	}
+
+	/**
+	 * Solves the position reached by playing the given column indexes (e.g. <code>3342</code>)
+	 * on an empty default-sized board.
+	 *
+	 * @param args the moves played so far, as a string of 0-based column indexes.
+	 */
+	public static void main(String... args) {
+		final Board board = new GravityBoard();
+		Token player = Token.Black;
+		if (args.length > 0) {
+			for (final char move : args[0].toCharArray()) {
+				board.move(player, Character.digit(move, 10));
+				player = player.getOpponent();
+			}
+		}
+		System.out.println(board);
+		final Solver solver = new Solver(new TranspositionTable(64, TranspositionTable.ReplacementPolicy.depthPreferred));
+		System.out.println(solver.solve(board, player));
+		System.out.println(solver.getTranspositionTable());
+	}
+}
@@ -0,0 +1,237 @@
+package chen.eric.connect4.solver;
+
+import chen.eric.connect4.BitBoard;
+import chen.eric.connect4.Token;
+
+/**
+ * Finds threats on {@link BitBoard} bitmasks: empty cells that would complete a line of
+ * <code>winCount</code> tokens for a player.
+ * <p>
+ * For each direction and each position of the empty cell within a line, AND-ing the token mask
+ * with copies of itself shifted by the other positions leaves the start bit of every line missing
+ * only that cell, which is then shifted onto the cell.  Every query is a fixed number of shifts
+ * and ANDs for a given board size, without looping over columns.
+ * <p>
+ * From the threats follow the moves that win at once, and the moves that do not lose at once:
+ * if the opponent has a threat that is playable now, it must be blocked, two such threats cannot
+ * both be blocked, and a move directly below an opponent threat lets the opponent play it.
+ * Threats are also split by row parity.  When every column has an even number of rows and the
+ * board fills up, the first player (Black) gets the cells on odd rows, counting from 1, and the
+ * second player those on even rows, so a threat on a row of the player's parity tends to win by
+ * zugzwang and one on the other parity can be refuted.
+ * <p>
+ * An analyzer holds only masks for its board size, so it is immutable and may be shared between
+ * threads.
+ */
+public class ThreatAnalyzer {
+	private final int numberOfColumns;
+	private final int winCount;
+	private final int columnBitCount;
+	private final int[] directions;
+	private final long columnCellMask;
+	private final long bottomMask;
+	private final long boardMask;
+	private final long oddRowMask;
+
+	/**
+	 * Creates an analyzer for boards of the given size.
+	 *
+	 * @param numberOfColumns the number of columns.
+	 * @param numberOfRows the number of rows.
+	 * @param winCount the number of tokens in a row required to win.
+	 * @throws IllegalArgumentException if the board does not fit in a {@link BitBoard}.
+	 */
+	public ThreatAnalyzer(int numberOfColumns, int numberOfRows, int winCount) {
+		if (!BitBoard.fits(numberOfColumns, numberOfRows)) {
+			throw new IllegalArgumentException(
+				"Board does not fit in " + Long.SIZE + " bits (" + numberOfColumns + " columns x " + numberOfRows + " rows)");
+		}
+		this.numberOfColumns = numberOfColumns;
+		this.winCount = winCount;
+		this.columnBitCount = numberOfRows + 1;
+		this.directions = new int[] {
+			1,                      // vertical
+			numberOfRows + 1,       // horizontal
+			numberOfRows + 2,       // up right
+			numberOfRows};          // up left
+		long bottomMask = 0;
+		long oddRowMask = 0;
+		for (int columnCount = 0; columnCount < numberOfColumns; columnCount++) {
+			bottomMask |= 1L << (columnCount * columnBitCount);
+			for (int rowCount = 0; rowCount < numberOfRows; rowCount += 2) {
+				oddRowMask |= 1L << (columnCount * columnBitCount + rowCount);
+			}
+		}
+		this.columnCellMask = (1L << numberOfRows) - 1;
+		this.bottomMask = bottomMask;
+		this.boardMask = bottomMask * columnCellMask;
+		this.oddRowMask = oddRowMask;
+	}
+
+	/**
+	 * Creates an analyzer for boards of the same size as <code>board</code>.
+	 *
+	 * @param board the board.
+	 */
+	public ThreatAnalyzer(BitBoard board) {
+		this(board.getNumberOfColumns(), board.getNumberOfRows(), board.getWinCount());
+	}
+
+	/**
+	 * Returns the empty cells, playable or not, that would complete a line for a player.
+	 *
+	 * @param tokenMask the player's tokens.
+	 * @param occupiedMask the cells holding any token.
+	 * @return the player's threats.
+	 */
+	public long getThreatMask(long tokenMask, long occupiedMask) {
+		final int winCount = this.winCount;
+		final long emptyMask = boardMask & ~occupiedMask;
+		if (winCount <= 1) {
+			return emptyMask;
+		}
+		long threatMask = 0;
+		for (final int direction : directions) {
+			if (direction * (winCount - 1) >= Long.SIZE) {
+				continue;
+			}
+			if (winCount == 4) {
+				// unrolled for the default win count: pairs of neighbours on either side of the gap
+				final long belowMask = (tokenMask << direction) & (tokenMask << (2 * direction));
+				threatMask |= belowMask & ((tokenMask << (3 * direction)) | (tokenMask >>> direction));
+				final long aboveMask = (tokenMask >>> direction) & (tokenMask >>> (2 * direction));
+				threatMask |= aboveMask & ((tokenMask >>> (3 * direction)) | (tokenMask << direction));
+				continue;
+			}
+			for (int gapCount = 0; gapCount < winCount; gapCount++) {
+				long lineStarts = -1L;
+				for (int count = 0; count < winCount; count++) {
+					if (count != gapCount) {
+						lineStarts &= tokenMask >>> (direction * count);
+					}
+				}
+				threatMask |= lineStarts << (direction * gapCount);
+			}
+		}
+		return threatMask & emptyMask;
+	}
+
+	/**
+	 * Returns the cells where the next token of each open column would land.
+	 *
+	 * @param occupiedMask the cells holding any token.
+	 * @return the playable cells, one per open column.
+	 */
+	public long getPlayableMask(long occupiedMask) {
+		return (occupiedMask + bottomMask) & boardMask;
+	}
+
+	/**
+	 * Returns the playable cells that win at once for a player.
+	 *
+	 * @param tokenMask the player's tokens.
+	 * @param occupiedMask the cells holding any token.
+	 * @return the winning moves.
+	 */
+	public long getWinningMoveMask(long tokenMask, long occupiedMask) {
+		return getThreatMask(tokenMask, occupiedMask) & getPlayableMask(occupiedMask);
+	}
+
+	/**
+	 * Returns the playable cells after which the opponent cannot win at once, assuming the
+	 * player to move has no winning move.  If the opponent has one playable threat, only the cell
+	 * blocking it is returned; if it has more, or every move lets it win, none are.
+	 *
+	 * @param tokenMask the tokens of the player to move.
+	 * @param opponentTokenMask the opponent's tokens.
+	 * @return the moves that do not lose at once.
+	 */
+	public long getNonLosingMoveMask(long tokenMask, long opponentTokenMask) {
+		final long occupiedMask = tokenMask | opponentTokenMask;
+		long moveMask = getPlayableMask(occupiedMask);
+		final long opponentThreatMask = getThreatMask(opponentTokenMask, occupiedMask);
+		final long forcedMoveMask = moveMask & opponentThreatMask;
+		if (forcedMoveMask != 0) {
+			if ((forcedMoveMask & (forcedMoveMask - 1)) != 0) {
+				// more than one threat to block
+				return 0;
+			}
+			moveMask = forcedMoveMask;
+		}
+		// a move directly below an opponent threat makes the threat playable
+		return moveMask & ~(opponentThreatMask >>> 1);
+	}
+
+	/**
+	 * Indicates whether the opponent of the player to move has a forced win on its next move,
+	 * i.e. every move loses at once.
+	 *
+	 * @param tokenMask the tokens of the player to move.
+	 * @param opponentTokenMask the opponent's tokens.
+	 * @return <code>true</code> if the player to move has no winning move and every move lets
+	 * the opponent win.
+	 */
+	public boolean isLost(long tokenMask, long opponentTokenMask) {
+		final long occupiedMask = tokenMask | opponentTokenMask;
+		return getPlayableMask(occupiedMask) != 0
+			&& getWinningMoveMask(tokenMask, occupiedMask) == 0
+			&& getNonLosingMoveMask(tokenMask, opponentTokenMask) == 0;
+	}
+
+	/**
+	 * Returns the threats of a player on rows of its own parity: odd rows (counting from 1) for
+	 * Black, who moves first, and even rows for Red.
+	 *
+	 * @param player the player.
+	 * @param threatMask the player's threats.
+	 * @return the threats that the player can expect to win by zugzwang.
+	 */
+	public long getParityThreatMask(Token player, long threatMask) {
+		return threatMask & (player == Token.Black ? oddRowMask : boardMask & ~oddRowMask);
+	}
+
+	/**
+	 * Compares the zugzwang prospects of the two players: the number of Black threats on odd rows
+	 * minus the number of Red threats on even rows, counting only the lowest such threat in each
+	 * column, since the cells above it are filled only once it is resolved.
+	 *
+	 * @param blackTokenMask Black's tokens.
+	 * @param redTokenMask Red's tokens.
+	 * @return a positive number if Black has more parity threats, negative if Red has.
+	 */
+	public int getParityBalance(long blackTokenMask, long redTokenMask) {
+		final long occupiedMask = blackTokenMask | redTokenMask;
+		final long blackThreatMask = getParityThreatMask(Token.Black, getThreatMask(blackTokenMask, occupiedMask));
+		final long redThreatMask = getParityThreatMask(Token.Red, getThreatMask(redTokenMask, occupiedMask));
+		return Long.bitCount(lowestPerColumn(blackThreatMask)) - Long.bitCount(lowestPerColumn(redThreatMask));
+	}
+
+	/**
+	 * Returns the cells of a column.
+	 *
+	 * @param columnIndex the column index.
+	 * @return the mask of the column's cells.
+	 */
+	public long getColumnMask(int columnIndex) {
+		return columnCellMask << (columnIndex * columnBitCount);
+	}
+
+	/**
+	 * Returns the column index of a cell bit.
+	 *
+	 * @param cellMask a mask with one cell set.
+	 * @return the column index of the cell.
+	 */
+	public int getColumnIndex(long cellMask) {
+		return Long.numberOfTrailingZeros(cellMask) / columnBitCount;
+	}
+
+	protected long lowestPerColumn(long mask) {
+		long lowestMask = 0;
+		for (int columnCount = 0; columnCount < numberOfColumns && mask != 0; columnCount++) {
+			final long columnMask = mask & getColumnMask(columnCount);
+			lowestMask |= columnMask & -columnMask;
+		}
+		return lowestMask;
+	}
+}
@@ -0,0 +1,215 @@
+package chen.eric.connect4.solver;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size transposition table of search results, keyed by position hash.
+ * <p>
+ * Entries live in two parallel primitive arrays: the full 64-bit key, and a packed
+ * <code>long</code> holding the score, bound type, searched depth and best column index.
+ * {@link #probe(long)} returns the packed entry, which is decoded with the static accessors.
+ * <p>
+ * A table may be shared by concurrent searches without locking.  The key slot holds the key
+ * XOR-ed with the packed entry, so a probe that races with a store to the same slot and reads the
+ * key of one store with the entry of another fails the key check and is treated as a miss.
+ */
+public class TranspositionTable {
+	public enum ReplacementPolicy {
+		/**
+		 * Every store overwrites the slot.
+		 */
+		alwaysReplace,
+		/**
+		 * A store only overwrites a slot holding a different position if it searched at least as deep.
+		 */
+		depthPreferred
+	}
+
+	public static final int DEFAULT_SIZE_MEGABYTES = 16;
+
+	/**
+	 * Returned by {@link #probe(long)} when the position is not in the table.
+	 */
+	public static final long NO_ENTRY = 0;
+
+	/**
+	 * The stored score is the exact value of the position.
+	 */
+	public static final int EXACT_BOUND = 1;
+
+	/**
+	 * The value of the position is at least the stored score.
+	 */
+	public static final int LOWER_BOUND = 2;
+
+	/**
+	 * The value of the position is at most the stored score.
+	 */
+	public static final int UPPER_BOUND = 3;
+
+	private static final int ENTRY_BYTES = 2 * Long.BYTES;
+	private static final int SCORE_SHIFT = 0;
+	private static final int BOUND_SHIFT = 8;
+	private static final int DEPTH_SHIFT = 10;
+	private static final int COLUMN_SHIFT = 18;
+	private static final long BYTE_MASK = 0xFF;
+	private static final long BOUND_MASK = 0x3;
+	private static final int MAX_DEPTH = (int) BYTE_MASK;
+
+	private final long[] keys;
+	private final long[] entries;
+	private final int indexMask;
+	private final ReplacementPolicy replacementPolicy;
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder collisionCount = new LongAdder();
+
+	public TranspositionTable() {
+		this(DEFAULT_SIZE_MEGABYTES, ReplacementPolicy.depthPreferred);
+	}
+
+	/**
+	 * Creates a table using at most <code>sizeMegabytes</code> megabytes.
+	 *
+	 * @param sizeMegabytes the table size in megabytes, rounded down to a power of two number of entries.
+	 * @param replacementPolicy the policy for overwriting occupied slots.
+	 */
+	public TranspositionTable(int sizeMegabytes, ReplacementPolicy replacementPolicy) {
+		if (sizeMegabytes <= 0) {
+			throw new IllegalArgumentException("Table size must be positive (" + sizeMegabytes + " MB)");
+		}
+		if (replacementPolicy == null) {
+			throw new IllegalArgumentException("Replacement policy cannot be null");
+		}
+		final long maxEntryCount = Math.min((long) sizeMegabytes * 1024 * 1024 / ENTRY_BYTES, 1 << 30);
+		final int entryCount = Integer.highestOneBit((int) maxEntryCount);
+		this.keys = new long[entryCount];
+		this.entries = new long[entryCount];
+		this.indexMask = entryCount - 1;
+		this.replacementPolicy = replacementPolicy;
+	}
+
+	/**
+	 * Looks up a position.
+	 *
+	 * @param key the position hash.
+	 * @return the packed entry, or {@link #NO_ENTRY} if the position is not in the table.
+	 */
+	public long probe(long key) {
+		final int index = index(key);
+		final long entry = entries[index];
+		if (entry != NO_ENTRY && (keys[index] ^ entry) == key) {
+			hitCount.increment();
+			return entry;
+		}
+		missCount.increment();
+		if (entry != NO_ENTRY) {
+			collisionCount.increment();
+		}
+		return NO_ENTRY;
+	}
+
+	/**
+	 * Stores a search result.
+	 *
+	 * @param key the position hash.
+	 * @param score the score.
+	 * @param bound {@link #EXACT_BOUND}, {@link #LOWER_BOUND} or {@link #UPPER_BOUND}.
+	 * @param depth the remaining depth searched, capped at 255.
+	 * @param bestColumnIndex the best column index, or <code>-1</code> if unknown.
+	 */
+	public void store(long key, int score, int bound, int depth, int bestColumnIndex) {
+		final int index = index(key);
+		final long entry = entries[index];
+		final int cappedDepth = Math.min(depth, MAX_DEPTH);
+		if (replacementPolicy == ReplacementPolicy.depthPreferred
+			&& entry != NO_ENTRY
+			&& (keys[index] ^ entry) != key
+			&& getDepth(entry) > cappedDepth)
+		{
+			return;
+		}
+		final long newEntry = ((score & BYTE_MASK) << SCORE_SHIFT)
+			| ((bound & BOUND_MASK) << BOUND_SHIFT)
+			| ((long) cappedDepth << DEPTH_SHIFT)
+			| (((bestColumnIndex + 1) & BYTE_MASK) << COLUMN_SHIFT);
+		keys[index] = key ^ newEntry;
+		entries[index] = newEntry;
+	}
+
+	protected int index(long key) {
+		return (int) (key ^ (key >>> 32)) & indexMask;
+	}
+
+	public static int getScore(long entry) {
+		return (byte) (entry >>> SCORE_SHIFT);
+	}
+
+	public static int getBound(long entry) {
+		return (int) ((entry >>> BOUND_SHIFT) & BOUND_MASK);
+	}
+
+	public static int getDepth(long entry) {
+		return (int) ((entry >>> DEPTH_SHIFT) & BYTE_MASK);
+	}
+
+	/**
+	 * Returns the best column index of a packed entry.
+	 *
+	 * @param entry the packed entry.
+	 * @return the best column index, or <code>-1</code> if unknown.
+	 */
+	public static int getBestColumnIndex(long entry) {
+		return (int) ((entry >>> COLUMN_SHIFT) & BYTE_MASK) - 1;
+	}
+
+	/**
+	 * Removes every entry and resets the statistics.
+	 */
+	public void clear() {
+		Arrays.fill(keys, 0);
+		Arrays.fill(entries, NO_ENTRY);
+		resetStatistics();
+	}
+
+	public void resetStatistics() {
+		hitCount.reset();
+		missCount.reset();
+		collisionCount.reset();
+	}
+
+	public int getEntryCount() {
+		return entries.length;
+	}
+
+	public ReplacementPolicy getReplacementPolicy() {
+		return replacementPolicy;
+	}
+
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	/**
+	 * Returns the number of misses where the slot held a different position.
+	 *
+	 * @return the number of misses where the slot held a different position.
+	 */
+	public long getCollisionCount() {
+		return collisionCount.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "entries=" + getEntryCount()
+			+ " policy=" + replacementPolicy
+			+ " hits=" + getHitCount()
+			+ " misses=" + getMissCount()
+			+ " collisions=" + getCollisionCount();
+	}
+}
@@ -0,0 +1,135 @@
+package chen.eric.connect4;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BitBoardTest {
+	/**
+	 * Tests that {@link BitBoard} rejects boards that do not fit in a <code>long</code>.
+	 */
+	@Test
+	protected void testConstructorTooLarge() {
+		assertThrows(
+			IllegalArgumentException.class,
+			() -> new BitBoard(8, 8, 4),
+			"Failed to reject 8 column, 8 row board");
+		assertDoesNotThrow(() -> new BitBoard(8, 7, 4));
+	}
+
+	/**
+	 * Tests that {@link BitBoard#move(Token, int)} throws the same exceptions as {@link GravityBoard}.
+	 */
+	@Test
+	protected void testMoveExceptions() {
+		final BitBoard board = new BitBoard(2, 1, 2);
+		assertThrows(InvalidColumnIndexException.class, () -> board.move(Token.Black, -1));
+		assertThrows(InvalidColumnIndexException.class, () -> board.move(Token.Black, 2));
+		assertThrows(InvalidTokenException.class, () -> board.move(null, 0));
+		board.move(Token.Black, 0);
+		assertThrows(ColumnFullException.class, () -> board.move(Token.Red, 0));
+		assertThrows(ColumnEmptyException.class, () -> board.undo(1));
+		assertThrows(InvalidColumnIndexException.class, () -> board.undo(2));
+	}
+
+	/**
+	 * Tests that random move sequences (including moves played after a win and undone moves) produce the same
+	 * {@link BoardState} and string representation on {@link BitBoard} and {@link GravityBoard}.
+	 */
+	@Test
+	protected void testMatchesGravityBoard() {
+		final int[][] sizes = {
+			{7, 6, 4},
+			{3, 2, 2},
+			{4, 4, 3},
+			{8, 7, 5},
+			{1, 5, 2},
+			{5, 1, 3},
+			{6, 3, 1},
+			{4, 3, 0},
+			{2, 2, 7}};
+		final Random random = new Random(42);
+		for (final int[] size : sizes) {
+			for (int game = 0; game < 200; game++) {
+				final GravityBoard gravityBoard = new GravityBoard(size[0], size[1], size[2]);
+				final BitBoard bitBoard = new BitBoard(size[0], size[1], size[2]);
+				final int moveCount = size[0] * size[1];
+				for (int count = 0; count < moveCount; count++) {
+					final Token token = random.nextBoolean() ? Token.Black : Token.Red;
+					int columnIndex;
+					do {
+						columnIndex = random.nextInt(size[0]);
+					}
+					while (bitBoard.getToken(columnIndex, size[1] - 1) != null);
+					if (count > 0 && random.nextInt(4) == 0) {
+						int undoColumnIndex;
+						do {
+							undoColumnIndex = random.nextInt(size[0]);
+						}
+						while (bitBoard.getToken(undoColumnIndex, 0) == null);
+						assertEquals(gravityBoard.undo(undoColumnIndex), bitBoard.undo(undoColumnIndex), "Undo token mismatch");
+						assertEquals(gravityBoard.toString(), bitBoard.toString(), "String representation mismatch after undo");
+					}
+					final BoardState expected = gravityBoard.move(token, columnIndex);
+					final BoardState actual = bitBoard.move(token, columnIndex);
+					assertEquals(expected.getState(), actual.getState(), "State mismatch on " + size[0] + "x" + size[1] + "\n" + gravityBoard);
+					assertEquals(expected.getWinner(), actual.getWinner(), "Winner mismatch on " + size[0] + "x" + size[1] + "\n" + gravityBoard);
+					assertEquals(gravityBoard.getTokenCount(), bitBoard.getTokenCount(), "Token count mismatch");
+					assertArrayEquals(openColumnIndexes(gravityBoard), openColumnIndexes(bitBoard), "Open columns mismatch on\n" + gravityBoard);
+				}
+				assertEquals(gravityBoard.toString(), bitBoard.toString(), "String representation mismatch");
+			}
+		}
+	}
+
+	/**
+	 * Tests that the Zobrist hash is restored by undo, independent of move order and different for
+	 * the same tokens in another game.
+	 */
+	@Test
+	protected void testHash() {
+		final BitBoard board = new BitBoard();
+		final long emptyHash = board.getHash();
+		board.move(Token.Black, 3);
+		board.move(Token.Red, 2);
+		board.move(Token.Black, 4);
+		final long hash = board.getHash();
+		assertNotEquals(emptyHash, hash, "Hash unchanged by moves");
+		assertNotEquals(board.getHash(Token.Black), board.getHash(Token.Red), "Player to move not hashed");
+
+		final BitBoard transposedBoard = new BitBoard();
+		transposedBoard.move(Token.Black, 4);
+		transposedBoard.move(Token.Red, 2);
+		transposedBoard.move(Token.Black, 3);
+		assertEquals(hash, transposedBoard.getHash(), "Transposed position hash mismatch");
+		assertEquals(hash, new BitBoard(transposedBoard).getHash(), "Copied position hash mismatch");
+
+		board.move(Token.Red, 0);
+		board.undo(0);
+		assertEquals(hash, board.getHash(), "Hash not restored by undo");
+		board.undo(4);
+		board.undo(2);
+		board.undo(3);
+		assertEquals(emptyHash, board.getHash(), "Empty hash not restored by undo");
+
+		final long positionHash = new BitBoard(4, 4, 3).getHash(Token.Black);
+		assertNotEquals(positionHash, new BitBoard(4, 4, 4).getHash(Token.Black), "Win count not hashed");
+		assertNotEquals(positionHash, new BitBoard(4, 5, 3).getHash(Token.Black), "Row count not hashed");
+		assertNotEquals(positionHash, new BitBoard(5, 4, 3).getHash(Token.Black), "Column count not hashed");
+	}
+
+	/**
+	 * Returns the sorted open column indexes of <code>board</code>.
+	 */
+	private static int[] openColumnIndexes(Board board) {
+		final int[] openColumnIndexes = new int[board.getOpenColumnCount()];
+		for (int count = 0; count < openColumnIndexes.length; count++) {
+			openColumnIndexes[count] = board.getOpenColumnIndex(count);
+		}
+		Arrays.sort(openColumnIndexes);
+		return openColumnIndexes;
+	}
+}
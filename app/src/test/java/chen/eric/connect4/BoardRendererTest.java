@@ -0,0 +1,140 @@
+package chen.eric.connect4;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoardRendererTest {
+	/**
+	 * Tests that every rendering path matches the original <code>toString</code> output.
+	 */
+	@Test
+	protected void testMatchesToString() throws IOException {
+		final int[][] sizes = {
+			{7, 6},
+			{0, 0},
+			{0, 3},
+			{3, 0},
+			{1, 1},
+			{13, 2},
+			{100, 100}};
+		final Random random = new Random(9);
+		final BoardRenderer renderer = new BoardRenderer(true);
+		for (final int[] size : sizes) {
+			for (int count = 0; count < 10; count++) {
+				final GravityBoard board = new GravityBoard(size[0], size[1], Integer.MAX_VALUE);
+				final int moveCount = random.nextInt(size[0] * size[1] + 1);
+				Token player = Token.Black;
+				for (int moveIndex = 0; moveIndex < moveCount; moveIndex++) {
+					board.move(player, board.getOpenColumnIndex(random.nextInt(board.getOpenColumnCount())));
+					player = player.getOpponent();
+				}
+				final String expected = legacyToString(board);
+				assertEquals(expected, board.toString(), "toString mismatch");
+				assertEquals(expected, renderer.render(board), "render mismatch");
+				assertEquals(expected.length(), BoardRenderer.getRenderedLength(size[0], size[1]), "Rendered length mismatch");
+
+				final StringBuilder stringBuilder = new StringBuilder("x");
+				renderer.render(board, stringBuilder);
+				assertEquals("x" + expected, stringBuilder.toString(), "StringBuilder rendering mismatch");
+				final StringWriter writer = new StringWriter();
+				renderer.render(board, writer);
+				assertEquals(expected, writer.toString(), "Writer rendering mismatch");
+				final ByteBuffer buffer = ByteBuffer.allocate(expected.length());
+				assertEquals(expected.length(), renderer.render(board, buffer), "Byte count mismatch");
+				assertEquals(expected, new String(buffer.array(), StandardCharsets.US_ASCII), "ByteBuffer rendering mismatch");
+
+				final char[] chars = new char[expected.length() + 3];
+				assertEquals(expected.length(), BoardRenderer.render(board, chars, 3), "Char count mismatch");
+				assertEquals(expected, new String(chars, 3, expected.length()), "Char array rendering mismatch");
+				if (BitBoard.fits(size[0], size[1])) {
+					assertEquals(expected, new BitBoard(board).toString(), "BitBoard toString mismatch");
+				}
+			}
+		}
+		assertThrows(BufferOverflowException.class, () -> renderer.render(new GravityBoard(), ByteBuffer.allocate(10)), "Failed to throw BufferOverflowException");
+		assertThrows(IllegalArgumentException.class, () -> BoardRenderer.render(new GravityBoard(), new char[10], 0), "Failed to reject a short array");
+	}
+
+	/**
+	 * Tests that a disabled renderer renders nothing.
+	 */
+	@Test
+	protected void testDisabled() throws IOException {
+		final BoardRenderer renderer = new BoardRenderer(false);
+		final GravityBoard board = new GravityBoard();
+		assertEquals("", renderer.render(board), "Disabled renderer rendered a string");
+		final StringBuilder stringBuilder = new StringBuilder();
+		renderer.render(board, stringBuilder);
+		assertEquals(0, stringBuilder.length(), "Disabled renderer appended");
+		assertEquals(0, renderer.render(board, ByteBuffer.allocate(1)), "Disabled renderer wrote bytes");
+		renderer.setEnabled(true);
+		assertEquals(board.toString(), renderer.render(board), "Enabled renderer mismatch");
+	}
+
+	/**
+	 * Tests that rendering to a byte buffer with a warmed-up renderer allocates nothing.  One-off
+	 * allocations by the JIT compiler or the metrics can land in any one round, so only the
+	 * quietest of several rounds must allocate nothing.
+	 */
+	@Test
+	protected void testNoAllocation() {
+		final BoardRenderer renderer = new BoardRenderer(true);
+		final GravityBoard board = new GravityBoard();
+		board.move(Token.Black, 3);
+		board.move(Token.Red, 2);
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(BoardRenderer.getRenderedLength(7, 6));
+		for (int count = 0; count < 20_000; count++) {
+			buffer.clear();
+			renderer.render(board, buffer);
+		}
+
+		final com.sun.management.ThreadMXBean threadMXBean =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		threadMXBean.getCurrentThreadAllocatedBytes();
+		long minAllocatedBytes = Long.MAX_VALUE;
+		for (int roundCount = 0; roundCount < 5; roundCount++) {
+			final long startBytes = threadMXBean.getCurrentThreadAllocatedBytes();
+			long byteCount = 0;
+			for (int count = 0; count < 1000; count++) {
+				buffer.clear();
+				byteCount += renderer.render(board, buffer);
+			}
+			minAllocatedBytes = Math.min(minAllocatedBytes, threadMXBean.getCurrentThreadAllocatedBytes() - startBytes);
+			assertEquals(1000L * BoardRenderer.getRenderedLength(7, 6), byteCount, "Byte count mismatch");
+		}
+		assertEquals(0L, minAllocatedBytes, "Rendering allocated bytes in every round");
+	}
+
+	/**
+	 * The original <code>GravityBoard.toString</code> algorithm.
+	 */
+	private static String legacyToString(Board board) {
+		final int numberOfColumns = board.getNumberOfColumns();
+		final StringBuffer stringBuffer = new StringBuffer();
+		for (int rowCount = board.getNumberOfRows() - 1; rowCount >= 0; rowCount--) {
+			if (numberOfColumns > 0) {
+				for (int columnCount = 0; columnCount < numberOfColumns; columnCount++) {
+					final Token token = board.getToken(columnCount, rowCount);
+					stringBuffer.append("| ")
+						.append(token == null ? ' ' : token.getCharValue())
+						.append(" ");
+				}
+				stringBuffer.append("|\n");
+			}
+		}
+		for (int count = 0; count < numberOfColumns * 4 + 1; count++) {
+			stringBuffer.append('-');
+		}
+		stringBuffer.append("\n");
+		return stringBuffer.toString();
+	}
+}
@@ -45,6 +45,105 @@ public class GravityBoardTest {
 			"Failed to throw ColumnFullException");
 	}
 
+	/**
+	 * Tests that {@link Board#tryMove(Token, int)} and {@link Board#isLegal(int)} reject invalid
+	 * moves with status codes, leaving the board unchanged, on both board implementations.
+	 */
+	@Test
+	protected void testTryMove() {
+		for (final Board board : new Board[] {new GravityBoard(2, 1, 2), new BitBoard(2, 1, 2)}) {
+			assertFalse(board.isLegal(-1), "Negative column index legal");
+			assertFalse(board.isLegal(2), "Over limit column index legal");
+			assertTrue(board.isLegal(0), "Empty column not legal");
+			assertEquals(BoardState.INVALID_TOKEN_STATUS, board.tryMove(null, 0), "Null token not rejected");
+			assertEquals(BoardState.INVALID_COLUMN_INDEX_STATUS, board.tryMove(Token.Black, -1), "Negative column index not rejected");
+			assertEquals(BoardState.INVALID_COLUMN_INDEX_STATUS, board.tryMove(Token.Black, 2), "Over limit column index not rejected");
+			assertEquals(BoardState.ONGOING_STATUS, board.tryMove(Token.Black, 0), "Legal move rejected");
+			assertFalse(board.isLegal(0), "Full column legal");
+			assertEquals(BoardState.COLUMN_FULL_STATUS, board.tryMove(Token.Red, 0), "Full column not rejected");
+			assertTrue(BoardState.isRejected(board.tryMove(Token.Red, 0)), "Full column status not a rejection");
+			assertEquals(1, board.getTokenCount(), "Rejected moves changed the board");
+			assertThrows(InvalidTokenException.class, () -> board.move(null, 1), "Failed to throw InvalidTokenException");
+			assertEquals(BoardState.DRAW_STATUS, board.tryMove(Token.Red, 1), "Final move not a draw");
+		}
+	}
+
+	/**
+	 * Tests that {@link GravityBoard#undo(int)} removes the top token and restores the board state.
+	 */
+	@Test
+	protected void testUndo() {
+		final GravityBoard board = new GravityBoard(2, 2, 3);
+		assertThrows(
+			ColumnEmptyException.class,
+			() -> board.undo(0),
+			"Failed to throw ColumnEmptyException");
+		assertThrows(
+			InvalidColumnIndexException.class,
+			() -> board.undo(2),
+			"Failed to throw InvalidColumnIndexException");
+
+		final GravityBoard winBoard = new GravityBoard(3, 3, 3);
+		winBoard.move(Token.Black, 0);
+		winBoard.move(Token.Red, 1);
+		winBoard.move(Token.Black, 0);
+		winBoard.move(Token.Red, 1);
+		assertEquals(BoardState.State.winner, winBoard.move(Token.Black, 0).getState());
+		assertEquals(Token.Black, winBoard.undo(0), "Undo returned wrong token");
+		assertEquals(BoardState.State.ongoing, winBoard.move(Token.Black, 2).getState(), "Win not undone");
+
+		final String emptyBoard = board.toString();
+		assertEquals(BoardState.State.ongoing, board.move(Token.Black, 0).getState());
+		assertEquals(BoardState.State.ongoing, board.move(Token.Red, 1).getState());
+		assertEquals(BoardState.State.ongoing, board.move(Token.Black, 1).getState());
+		assertEquals(BoardState.State.draw, board.move(Token.Red, 0).getState());
+		assertEquals(Token.Red, board.undo(0), "Undo returned wrong token");
+		assertEquals(Token.Black, board.undo(1), "Undo returned wrong token");
+		assertEquals(BoardState.State.ongoing, board.move(Token.Red, 0).getState(), "Draw not undone");
+		assertEquals(BoardState.State.draw, board.move(Token.Black, 1).getState(), "Draw not restored after undo");
+
+		board.undo(1);
+		board.undo(1);
+		board.undo(0);
+		board.undo(0);
+		assertEquals(emptyBoard, board.toString(), "Board not empty after undoing every move");
+	}
+
+	/**
+	 * Tests that the token count and open columns are tracked through moves and undos.
+	 */
+	@Test
+	protected void testOpenColumns() {
+		final GravityBoard board = new GravityBoard(3, 2, 3);
+		assertEquals(3, board.getOpenColumnCount(), "Empty board open column count mismatch");
+		board.move(Token.Black, 0);
+		board.move(Token.Red, 0);
+		assertEquals(2, board.getTokenCount(), "Token count mismatch");
+		assertEquals(2, board.getOpenColumnCount(), "Open column count mismatch after filling column 0");
+		for (int count = 0; count < board.getOpenColumnCount(); count++) {
+			assertNotEquals(0, board.getOpenColumnIndex(count), "Full column listed as open");
+		}
+		assertThrows(
+			InvalidColumnIndexException.class,
+			() -> board.getOpenColumnIndex(2),
+			"Failed to throw InvalidColumnIndexException for invalid open column index");
+
+		board.move(Token.Black, 2);
+		board.move(Token.Red, 2);
+		assertEquals(1, board.getOpenColumnCount(), "Open column count mismatch after filling column 2");
+		assertEquals(1, board.getOpenColumnIndex(0), "Open column mismatch");
+
+		board.undo(0);
+		assertEquals(3, board.getTokenCount(), "Token count mismatch after undo");
+		assertEquals(2, board.getOpenColumnCount(), "Open column count mismatch after undo");
+		assertEquals(1, board.getOpenColumnIndex(0) + board.getOpenColumnIndex(1), "Open columns 0 and 1 mismatch after undo");
+
+		board.move(Token.Red, 0);
+		board.move(Token.Red, 1);
+		assertEquals(BoardState.State.draw, board.move(Token.Black, 1).getState(), "Full board not a draw");
+		assertEquals(0, board.getOpenColumnCount(), "Full board has open columns");
+	}
+
 	@Test
 	protected void testToString() {
 		final GravityBoard board0_0 = new GravityBoard(0,0, 0);
@@ -0,0 +1,109 @@
+package chen.eric.connect4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistentBoardTest {
+	/**
+	 * Tests that random games produce the same states and tokens on {@link PersistentBoard} and
+	 * {@link GravityBoard}, and that earlier snapshots are unchanged by later moves.
+	 */
+	@Test
+	protected void testMatchesGravityBoard() {
+		final int[][] sizes = {
+			{7, 6, 4},
+			{3, 2, 2},
+			{40, 3, 3},
+			{2, 70, 5},
+			{5, 1, 1}};
+		final Random random = new Random(7);
+		for (final int[] size : sizes) {
+			for (int game = 0; game < 50; game++) {
+				final GravityBoard gravityBoard = new GravityBoard(size[0], size[1], size[2]);
+				final List<PersistentBoard> snapshots = new ArrayList<>();
+				final List<String> renderedSnapshots = new ArrayList<>();
+				PersistentBoard board = PersistentBoard.empty(size[0], size[1], size[2]);
+				while (board.getOpenColumnCount() > 0) {
+					snapshots.add(board);
+					renderedSnapshots.add(board.toString());
+					final int columnIndex = board.getOpenColumnIndex(random.nextInt(board.getOpenColumnCount()));
+					final Token token = random.nextBoolean() ? Token.Black : Token.Red;
+					final int status = gravityBoard.moveStatus(token, columnIndex);
+					board = board.play(token, columnIndex);
+					assertEquals(status, board.getStatus(), "Status mismatch");
+					assertEquals(gravityBoard.toString(), board.toString(), "Board mismatch");
+					assertEquals(gravityBoard.getTokenCount(), board.getTokenCount(), "Token count mismatch");
+				}
+				for (int count = 0; count < snapshots.size(); count++) {
+					assertEquals(renderedSnapshots.get(count), snapshots.get(count).toString(), "Snapshot changed by a later move");
+				}
+				assertEquals(board, PersistentBoard.of(gravityBoard), "Copied board not equal");
+				assertEquals(board.hashCode(), PersistentBoard.of(gravityBoard).hashCode(), "Copied board hash code mismatch");
+			}
+		}
+	}
+
+	/**
+	 * Tests that invalid moves throw the usual exceptions.
+	 */
+	@Test
+	protected void testInvalidMoves() {
+		final PersistentBoard board = PersistentBoard.empty(2, 1, 2).play(Token.Black, 0);
+		assertThrows(InvalidTokenException.class, () -> board.play(null, 1), "Failed to throw InvalidTokenException");
+		assertThrows(InvalidColumnIndexException.class, () -> board.play(Token.Red, 2), "Failed to throw InvalidColumnIndexException");
+		assertThrows(ColumnFullException.class, () -> board.play(Token.Red, 0), "Failed to throw ColumnFullException");
+		assertFalse(board.isLegal(0), "Full column legal");
+		assertTrue(board.isLegal(1), "Open column not legal");
+		assertEquals(BoardState.DRAW, board.play(Token.Red, 1).getBoardState(), "Full board not a draw");
+		assertEquals(BoardState.ONGOING, board.getBoardState(), "Snapshot state changed");
+	}
+
+	/**
+	 * Tests that snapshots can be read by code that takes a {@link BoardView}.
+	 */
+	@Test
+	protected void testBoardView() {
+		final PersistentBoard board = PersistentBoard.empty()
+			.play(Token.Black, 3)
+			.play(Token.Red, 2)
+			.play(Token.Black, 3);
+		final GravityBoard gravityBoard = new GravityBoard(board);
+		assertEquals(board.toString(), gravityBoard.toString(), "Copied board mismatch");
+		assertEquals(PositionCodec.encode(gravityBoard), PositionCodec.encode(board), "Key mismatch");
+		assertEquals(PositionCodec.encode(board), new BitBoard(board).getKey(), "Bit board key mismatch");
+		assertEquals(board, PersistentBoard.of(gravityBoard), "Round trip mismatch");
+	}
+
+	/**
+	 * Tests that threads can extend one shared snapshot independently.
+	 */
+	@Test
+	protected void testSharedBetweenThreads() throws Exception {
+		final PersistentBoard root = PersistentBoard.empty().play(Token.Black, 3);
+		final ExecutorService executorService = Executors.newFixedThreadPool(4);
+		try {
+			final List<Future<PersistentBoard>> futures = new ArrayList<>();
+			for (int count = 0; count < 7; count++) {
+				final int columnIndex = count;
+				futures.add(executorService.submit(() -> root.play(Token.Red, columnIndex)));
+			}
+			for (int count = 0; count < 7; count++) {
+				final PersistentBoard child = futures.get(count).get();
+				assertEquals(2, child.getTokenCount(), "Child token count mismatch");
+				assertEquals(Token.Red, child.getToken(count, count == 3 ? 1 : 0), "Child move missing");
+			}
+			assertEquals(1, root.getTokenCount(), "Root changed by children");
+		}
+		finally {
+			executorService.shutdown();
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package chen.eric.connect4;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PositionCodecTest {
+	/**
+	 * Tests that <code>long</code> keys match {@link BitBoard#getKey()}, decode to the same
+	 * position and fold mirrored positions together.
+	 */
+	@Test
+	protected void testLongKey() {
+		final Random random = new Random(5);
+		for (int count = 0; count < 200; count++) {
+			final GravityBoard board = randomBoard(random, 7, 6, 100, count % 43);
+			final GravityBoard mirroredBoard = mirror(board);
+			final long key = PositionCodec.encode(board);
+			assertEquals(new BitBoard(board).getKey(), key, "Key does not match BitBoard key");
+			assertEquals(board.toString(), PositionCodec.decode(key, 7, 6, 100).toString(), "Decoded position mismatch");
+
+			final long mirroredKey = PositionCodec.encode(mirroredBoard);
+			assertEquals(mirroredKey, PositionCodec.mirror(key, 7, 6), "Mirrored key mismatch");
+			assertEquals(PositionCodec.encodeCanonical(board), PositionCodec.encodeCanonical(mirroredBoard), "Canonical keys differ for mirrored positions");
+			assertEquals(Math.min(key, mirroredKey), PositionCodec.encodeCanonical(board), "Canonical key is not the smaller key");
+		}
+		assertThrows(IllegalArgumentException.class, () -> PositionCodec.encode(new GravityBoard(8, 8, 4)), "Failed to reject a board too large for a long key");
+		assertThrows(IllegalArgumentException.class, () -> PositionCodec.decode(0L, new GravityBoard()), "Failed to reject a key without column markers");
+	}
+
+	/**
+	 * Tests that byte array encodings match <code>long</code> keys where both exist, decode to the
+	 * same position and fold mirrored positions together on large boards.
+	 */
+	@Test
+	protected void testByteEncoding() {
+		final Random random = new Random(6);
+		final GravityBoard smallBoard = randomBoard(random, 7, 6, 100, 20);
+		final long key = PositionCodec.encode(smallBoard);
+		final byte[] smallBytes = PositionCodec.encodeBytes(smallBoard);
+		assertEquals(7, smallBytes.length, "Encoded length mismatch");
+		for (int count = 0; count < smallBytes.length; count++) {
+			assertEquals((byte) (key >>> (count * Byte.SIZE)), smallBytes[count], "Byte " + count + " does not match the long key");
+		}
+
+		final byte[] bytes = new byte[PositionCodec.getEncodedLength(100, 30)];
+		final byte[] mirroredBytes = new byte[bytes.length];
+		for (int count = 0; count < 20; count++) {
+			final GravityBoard board = randomBoard(random, 100, 30, 1000, count * 100);
+			final GravityBoard decodedBoard = new GravityBoard(100, 30, 1000);
+			PositionCodec.decode(PositionCodec.encodeBytes(board), decodedBoard);
+			assertEquals(board.toString(), decodedBoard.toString(), "Decoded position mismatch");
+
+			PositionCodec.encode(board, bytes, true);
+			PositionCodec.encode(mirror(board), mirroredBytes, true);
+			assertArrayEquals(bytes, mirroredBytes, "Canonical encodings differ for mirrored positions");
+		}
+	}
+
+	/**
+	 * Tests that encoding and decoding default-sized positions allocates nothing.
+	 */
+	@Test
+	protected void testNoAllocation() {
+		final Random random = new Random(7);
+		final int positionCount = 200;
+		final GravityBoard[] boards = new GravityBoard[positionCount];
+		final GravityBoard[] warmUpBoards = new GravityBoard[positionCount];
+		final GravityBoard[] decodedBoards = new GravityBoard[positionCount];
+		for (int count = 0; count < positionCount; count++) {
+			boards[count] = randomBoard(random, 7, 6, 100, count % 43);
+			warmUpBoards[count] = new GravityBoard(7, 6, 100);
+			decodedBoards[count] = new GravityBoard(7, 6, 100);
+		}
+		encodeAndDecode(boards, warmUpBoards);
+
+		final com.sun.management.ThreadMXBean threadMXBean =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		threadMXBean.getCurrentThreadAllocatedBytes();
+		final long startBytes = threadMXBean.getCurrentThreadAllocatedBytes();
+		final long keySum = encodeAndDecode(boards, decodedBoards);
+		final long allocatedBytes = threadMXBean.getCurrentThreadAllocatedBytes() - startBytes;
+		assertNotEquals(0L, keySum);
+		assertEquals(0L, allocatedBytes, "Encoding and decoding allocated bytes");
+	}
+
+	private static long encodeAndDecode(GravityBoard[] boards, GravityBoard[] decodedBoards) {
+		long keySum = 0;
+		for (int count = 0; count < boards.length; count++) {
+			final long key = PositionCodec.encode(boards[count]);
+			PositionCodec.decode(key, decodedBoards[count]);
+			keySum += PositionCodec.encodeCanonical(decodedBoards[count]);
+		}
+		return keySum;
+	}
+
+	/**
+	 * Plays random moves with a win count too long to reach.
+	 */
+	private static GravityBoard randomBoard(Random random, int numberOfColumns, int numberOfRows, int winCount, int moveCount) {
+		final GravityBoard board = new GravityBoard(numberOfColumns, numberOfRows, winCount);
+		Token player = Token.Black;
+		for (int count = 0; count < moveCount && board.getOpenColumnCount() > 0; count++) {
+			board.move(player, board.getOpenColumnIndex(random.nextInt(board.getOpenColumnCount())));
+			player = player.getOpponent();
+		}
+		return board;
+	}
+
+	private static GravityBoard mirror(GravityBoard board) {
+		final int numberOfColumns = board.getNumberOfColumns();
+		final GravityBoard mirroredBoard = new GravityBoard(numberOfColumns, board.getNumberOfRows(), board.getWinCount());
+		for (int columnCount = 0; columnCount < numberOfColumns; columnCount++) {
+			for (int rowCount = 0; rowCount < board.getColumnSize(columnCount); rowCount++) {
+				mirroredBoard.move(board.getToken(columnCount, rowCount), numberOfColumns - 1 - columnCount);
+			}
+		}
+		return mirroredBoard;
+	}
+}
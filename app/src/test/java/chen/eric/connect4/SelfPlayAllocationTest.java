@@ -0,0 +1,99 @@
+package chen.eric.connect4;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SelfPlayAllocationTest {
+	private static final int GAME_COUNT = 500;
+
+	/**
+	 * Tests that the cached {@link BoardState} instances are shared.
+	 */
+	@Test
+	protected void testBoardStateValueOf() {
+		assertSame(BoardState.ONGOING, BoardState.valueOf(BoardState.ONGOING_STATUS));
+		assertSame(BoardState.DRAW, BoardState.valueOf(BoardState.DRAW_STATUS));
+		assertSame(BoardState.BLACK_WINNER, BoardState.valueOf(BoardState.winnerStatus(Token.Black)));
+		assertSame(BoardState.RED_WINNER, BoardState.valueOf(Token.Red));
+		assertEquals(new BoardState(Token.Red), BoardState.RED_WINNER);
+		assertEquals(BoardState.DRAW_STATUS, new BoardState(BoardState.State.draw).getStatus());
+
+		final GravityBoard board = new GravityBoard(7, 6, 4);
+		assertSame(BoardState.ONGOING, board.move(Token.Black, 0));
+	}
+
+	/**
+	 * Tests that self-play through {@link Board#moveStatus(Token, int)} allocates nothing per move.
+	 */
+	@Test
+	protected void testGravityBoardSelfPlayAllocation() {
+		final GravityBoard[] warmUpBoards = new GravityBoard[GAME_COUNT];
+		final GravityBoard[] boards = new GravityBoard[GAME_COUNT];
+		for (int count = 0; count < GAME_COUNT; count++) {
+			warmUpBoards[count] = new GravityBoard();
+			boards[count] = new GravityBoard();
+		}
+		assertNoAllocation(warmUpBoards, boards);
+	}
+
+	/**
+	 * Tests that self-play through {@link Board#moveStatus(Token, int)} allocates nothing per move.
+	 */
+	@Test
+	protected void testBitBoardSelfPlayAllocation() {
+		final BitBoard[] warmUpBoards = new BitBoard[GAME_COUNT];
+		final BitBoard[] boards = new BitBoard[GAME_COUNT];
+		for (int count = 0; count < GAME_COUNT; count++) {
+			warmUpBoards[count] = new BitBoard();
+			boards[count] = new BitBoard();
+		}
+		assertNoAllocation(warmUpBoards, boards);
+	}
+
+	private static void assertNoAllocation(Board[] warmUpBoards, Board[] boards) {
+		final int[] heights = new int[GravityBoard.DEFAULT_NUM_COLUMNS];
+		selfPlay(warmUpBoards, heights);
+
+		final com.sun.management.ThreadMXBean threadMXBean =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		threadMXBean.getCurrentThreadAllocatedBytes();
+		final long startBytes = threadMXBean.getCurrentThreadAllocatedBytes();
+		final long moveCount = selfPlay(boards, heights);
+		final long allocatedBytes = threadMXBean.getCurrentThreadAllocatedBytes() - startBytes;
+
+		assertTrue(moveCount > GAME_COUNT, "Self-play made too few moves (" + moveCount + ")");
+		assertEquals(0L, allocatedBytes, "Self-play allocated bytes over " + moveCount + " moves");
+	}
+
+	/**
+	 * Plays one pseudo-random game on each board, using a linear congruential generator so the
+	 * loop itself does not allocate.
+	 */
+	private static long selfPlay(Board[] boards, int[] heights) {
+		final int numberOfColumns = heights.length;
+		long seed = 42;
+		long moveCount = 0;
+		for (final Board board : boards) {
+			for (int count = 0; count < numberOfColumns; count++) {
+				heights[count] = 0;
+			}
+			Token player = Token.Black;
+			int status = BoardState.ONGOING_STATUS;
+			while (status == BoardState.ONGOING_STATUS) {
+				seed = seed * 6364136223846793005L + 1442695040888963407L;
+				int columnIndex = (int) ((seed >>> 33) % numberOfColumns);
+				while (heights[columnIndex] >= GravityBoard.DEFAULT_NUM_ROWS) {
+					columnIndex = (columnIndex + 1) % numberOfColumns;
+				}
+				++heights[columnIndex];
+				status = board.moveStatus(player, columnIndex);
+				player = player == Token.Black ? Token.Red : Token.Black;
+				++moveCount;
+			}
+		}
+		return moveCount;
+	}
+}
@@ -0,0 +1,157 @@
+package chen.eric.connect4;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SparseBoardTest {
+	/**
+	 * Tests that {@link SparseBoard#move(Token, int)} throws the same exceptions as {@link GravityBoard}.
+	 */
+	@Test
+	protected void testMoveExceptions() {
+		final SparseBoard board = new SparseBoard(2, 1, 2);
+		assertThrows(InvalidColumnIndexException.class, () -> board.move(Token.Black, -1));
+		assertThrows(InvalidColumnIndexException.class, () -> board.move(Token.Black, 2));
+		assertThrows(InvalidTokenException.class, () -> board.move(null, 0));
+		board.move(Token.Black, 0);
+		assertThrows(ColumnFullException.class, () -> board.move(Token.Red, 0));
+		assertThrows(ColumnEmptyException.class, () -> board.undo(1));
+		assertThrows(InvalidColumnIndexException.class, () -> board.undo(2));
+		assertThrows(InvalidRowIndexException.class, () -> board.getToken(0, 1));
+		assertThrows(IllegalArgumentException.class, () -> new SparseBoard(-1, 6, 4));
+	}
+
+	/**
+	 * Tests that random move sequences (including moves played after a win and undone moves) produce the same
+	 * {@link BoardState}, open columns and string representation on {@link SparseBoard} and {@link GravityBoard}.
+	 */
+	@Test
+	protected void testMatchesGravityBoard() {
+		final int[][] sizes = {
+			{7, 6, 4},
+			{3, 2, 2},
+			{4, 4, 3},
+			{9, 8, 5},
+			{1, 5, 2},
+			{5, 1, 3},
+			{6, 3, 1},
+			{4, 3, 0},
+			{2, 2, 7}};
+		final Random random = new Random(42);
+		for (final int[] size : sizes) {
+			for (int game = 0; game < 200; game++) {
+				final GravityBoard gravityBoard = new GravityBoard(size[0], size[1], size[2]);
+				final SparseBoard sparseBoard = new SparseBoard(size[0], size[1], size[2]);
+				final int moveCount = size[0] * size[1];
+				for (int count = 0; count < moveCount; count++) {
+					final Token token = random.nextBoolean() ? Token.Black : Token.Red;
+					int columnIndex;
+					do {
+						columnIndex = random.nextInt(size[0]);
+					}
+					while (sparseBoard.getToken(columnIndex, size[1] - 1) != null);
+					if (count > 0 && random.nextInt(4) == 0) {
+						int undoColumnIndex;
+						do {
+							undoColumnIndex = random.nextInt(size[0]);
+						}
+						while (sparseBoard.getToken(undoColumnIndex, 0) == null);
+						assertEquals(gravityBoard.undo(undoColumnIndex), sparseBoard.undo(undoColumnIndex), "Undo token mismatch");
+						assertEquals(gravityBoard.toString(), sparseBoard.toString(), "String representation mismatch after undo");
+					}
+					final BoardState expected = gravityBoard.move(token, columnIndex);
+					final BoardState actual = sparseBoard.move(token, columnIndex);
+					assertEquals(expected.getState(), actual.getState(), "State mismatch on " + size[0] + "x" + size[1] + "\n" + gravityBoard);
+					assertEquals(expected.getWinner(), actual.getWinner(), "Winner mismatch on " + size[0] + "x" + size[1] + "\n" + gravityBoard);
+					assertEquals(gravityBoard.getTokenCount(), sparseBoard.getTokenCount(), "Token count mismatch");
+					assertArrayEquals(openColumnIndexes(gravityBoard), openColumnIndexes(sparseBoard), "Open columns mismatch on\n" + gravityBoard);
+				}
+				assertEquals(gravityBoard.toString(), sparseBoard.toString(), "String representation mismatch");
+			}
+		}
+	}
+
+	/**
+	 * Tests lines and open columns on a board far too large to allocate densely.
+	 */
+	@Test
+	protected void testHugeBoard() {
+		final int numberOfColumns = 1_000_000;
+		final SparseBoard board = new SparseBoard(numberOfColumns, 1_000_000, 4);
+		assertEquals(numberOfColumns, board.getOpenColumnCount(), "Open column count mismatch");
+		assertNull(board.getToken(numberOfColumns - 1, 999_999), "Unexpected token");
+
+		final int lastColumnIndex = numberOfColumns - 1;
+		assertEquals(BoardState.ONGOING_STATUS, board.moveStatus(Token.Black, lastColumnIndex - 3), "Status mismatch");
+		assertEquals(BoardState.ONGOING_STATUS, board.moveStatus(Token.Black, lastColumnIndex - 2), "Status mismatch");
+		assertEquals(BoardState.ONGOING_STATUS, board.moveStatus(Token.Red, 0), "Status mismatch");
+		assertEquals(BoardState.ONGOING_STATUS, board.moveStatus(Token.Black, lastColumnIndex), "Status mismatch");
+		assertEquals(BoardState.winnerStatus(Token.Black), board.moveStatus(Token.Black, lastColumnIndex - 1), "Horizontal win missed");
+		assertEquals(Token.Black, board.undo(lastColumnIndex - 1), "Undo token mismatch");
+
+		board.moveStatus(Token.Red, 0);
+		board.moveStatus(Token.Red, 0);
+		assertEquals(BoardState.ONGOING_STATUS, board.moveStatus(Token.Red, 1_000), "Status mismatch");
+		board.undo(1_000);
+		assertEquals(BoardState.winnerStatus(Token.Red), board.moveStatus(Token.Red, 0), "Vertical win missed");
+		assertEquals(7, board.getTokenCount(), "Token count mismatch");
+
+		final SparseBoard shortBoard = new SparseBoard(numberOfColumns, 2, 4);
+		shortBoard.moveStatus(Token.Black, 0);
+		shortBoard.moveStatus(Token.Red, 0);
+		shortBoard.moveStatus(Token.Black, 2);
+		shortBoard.moveStatus(Token.Red, 2);
+		assertFalse(shortBoard.isLegal(2), "Full column legal");
+		assertEquals(numberOfColumns - 2, shortBoard.getOpenColumnCount(), "Open column count mismatch");
+		assertEquals(1, shortBoard.getOpenColumnIndex(0), "Open column index mismatch");
+		assertEquals(3, shortBoard.getOpenColumnIndex(1), "Open column index mismatch");
+		assertEquals(lastColumnIndex, shortBoard.getOpenColumnIndex(numberOfColumns - 3), "Open column index mismatch");
+		shortBoard.undo(0);
+		assertEquals(0, shortBoard.getOpenColumnIndex(0), "Reopened column missing");
+	}
+
+	/**
+	 * Tests that the hash maps shrink and stay consistent as many tokens are played and undone.
+	 */
+	@Test
+	protected void testManyMoves() {
+		final SparseBoard board = new SparseBoard(100_000, 3, 4);
+		final Random random = new Random(7);
+		final int[] columnIndexes = new int[3_000];
+		for (int count = 0; count < columnIndexes.length; count++) {
+			int columnIndex;
+			do {
+				columnIndex = random.nextInt(1_000);
+			}
+			while (!board.isLegal(columnIndex));
+			board.tryMove(count % 2 == 0 ? Token.Black : Token.Red, columnIndex);
+			columnIndexes[count] = columnIndex;
+		}
+		assertEquals(columnIndexes.length, board.getTokenCount(), "Token count mismatch");
+		assertEquals(99_000, board.getOpenColumnCount(), "Open column count mismatch");
+		final int capacity = board.getCapacity();
+		assertTrue(capacity >= 2 * (columnIndexes.length + 1_000), "Maps did not grow (" + capacity + ")");
+		for (int count = columnIndexes.length - 1; count >= 0; count--) {
+			board.undo(columnIndexes[count]);
+		}
+		assertEquals(0, board.getTokenCount(), "Tokens left after undo");
+		assertEquals(100_000, board.getOpenColumnCount(), "Open column count mismatch after undo");
+		assertEquals(new SparseBoard(100_000, 3, 4).getCapacity(), board.getCapacity(), "Maps did not shrink");
+		for (int columnIndex = 0; columnIndex < 1_000; columnIndex++) {
+			assertEquals(0, board.getColumnSize(columnIndex), "Column not empty (" + columnIndex + ")");
+		}
+	}
+
+	private static int[] openColumnIndexes(Board board) {
+		final int[] openColumnIndexes = new int[board.getOpenColumnCount()];
+		for (int count = 0; count < openColumnIndexes.length; count++) {
+			openColumnIndexes[count] = board.getOpenColumnIndex(count);
+		}
+		Arrays.sort(openColumnIndexes);
+		return openColumnIndexes;
+	}
+}
@@ -0,0 +1,85 @@
+package chen.eric.connect4.book;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import chen.eric.connect4.BitBoard;
+import chen.eric.connect4.GravityBoard;
+import chen.eric.connect4.PersistentBoard;
+import chen.eric.connect4.Token;
+import chen.eric.connect4.solver.Solver;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpeningBookTest {
+	/**
+	 * Tests that every book position up to the maximum ply matches the solver, and that deeper or
+	 * differently sized positions are not found.
+	 */
+	@Test
+	protected void testGenerateAndLookup() throws IOException {
+		final Path path = Files.createTempFile("opening-book", ".bin");
+		try {
+			final int entryCount = new OpeningBookGenerator(4, 4, 3, 3, 2, 1).generate(path);
+			final OpeningBook book = OpeningBook.open(path);
+			assertEquals(entryCount, book.getEntryCount(), "Entry count mismatch");
+			assertEquals(3, book.getMaxPly(), "Max ply mismatch");
+
+			final Set<Long> keys = new HashSet<>();
+			check(book, new BitBoard(4, 4, 3), Token.Black, new Solver(), keys);
+			assertEquals(entryCount, keys.size(), "Book does not hold every position");
+
+			final BitBoard deepBoard = new BitBoard(4, 4, 3);
+			deepBoard.move(Token.Black, 0);
+			deepBoard.move(Token.Red, 1);
+			deepBoard.move(Token.Black, 2);
+			deepBoard.move(Token.Red, 3);
+			assertEquals(OpeningBook.NOT_FOUND, book.getScore(deepBoard), "Position beyond max ply found");
+			assertEquals(OpeningBook.NOT_FOUND, book.getScore(deepBoard.getKey()), "Unknown key found");
+			assertEquals(OpeningBook.NOT_FOUND, book.getScore(new BitBoard(5, 4, 3)), "Mismatched board size found");
+		}
+		finally {
+			Files.delete(path);
+		}
+	}
+
+	/**
+	 * Tests that a file without the opening book header is rejected.
+	 */
+	@Test
+	protected void testOpenInvalidFile() throws IOException {
+		final Path path = Files.createTempFile("opening-book", ".bin");
+		try {
+			Files.write(path, new byte[] {1, 2, 3, 4});
+			assertThrows(IOException.class, () -> OpeningBook.open(path), "Invalid file opened");
+		}
+		finally {
+			Files.delete(path);
+		}
+	}
+
+	/**
+	 * Checks every position reachable within the book depth, counting the distinct positions.
+	 */
+	private static void check(OpeningBook book, BitBoard board, Token player, Solver solver, Set<Long> keys) {
+		final int score = book.getScore(board);
+		assertEquals(solver.solve(board, player).getScore(), score, "Score mismatch on\n" + board);
+		assertEquals(score, book.getScore(new GravityBoard(board)), "GravityBoard score mismatch on\n" + board);
+		assertEquals(score, book.getScore(PersistentBoard.of(board)), "PersistentBoard score mismatch on\n" + board);
+		keys.add(board.getKey());
+		if (board.getTokenCount() >= book.getMaxPly()) {
+			return;
+		}
+		for (int columnIndex = 0; columnIndex < board.getNumberOfColumns(); columnIndex++) {
+			if (board.getColumnSize(columnIndex) < board.getNumberOfRows() && !board.isWinningMove(player, columnIndex)) {
+				board.move(player, columnIndex);
+				check(book, board, player.getOpponent(), solver, keys);
+				board.undo(columnIndex);
+			}
+		}
+	}
+}
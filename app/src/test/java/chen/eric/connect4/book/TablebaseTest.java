@@ -0,0 +1,164 @@
+package chen.eric.connect4.book;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import chen.eric.connect4.BitBoard;
+import chen.eric.connect4.BoardState;
+import chen.eric.connect4.Token;
+import chen.eric.connect4.solver.Solver;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TablebaseTest {
+	/**
+	 * Tests that every position reachable within a few plies matches the solver, and that
+	 * finished or differently sized positions are not found.
+	 */
+	@Test
+	protected void testGenerateAndLookup() throws IOException {
+		final Path path = Files.createTempFile("tablebase", ".bin");
+		try {
+			final long positionCount = new TablebaseGenerator(4, 4, 3, 2, 3).generate(path);
+			final Tablebase tablebase = Tablebase.open(path);
+			assertEquals(4, tablebase.getNumberOfColumns(), "Column count mismatch");
+			assertEquals(4, tablebase.getNumberOfRows(), "Row count mismatch");
+			assertEquals(3, tablebase.getWinCount(), "Win count mismatch");
+
+			final Set<Long> keys = new HashSet<>();
+			count(new BitBoard(4, 4, 3), Token.Black, keys);
+			assertEquals(keys.size(), positionCount, "Tablebase does not hold every position");
+			check(tablebase, new BitBoard(4, 4, 3), Token.Black, new Solver(), new HashSet<>(), 8);
+
+			final BitBoard wonBoard = new BitBoard(4, 4, 3);
+			wonBoard.move(Token.Black, 0);
+			wonBoard.move(Token.Red, 3);
+			wonBoard.move(Token.Black, 0);
+			wonBoard.move(Token.Red, 3);
+			wonBoard.move(Token.Black, 0);
+			assertEquals(Tablebase.NOT_FOUND, tablebase.getOutcome(wonBoard), "Finished position found");
+
+			final BitBoard unevenBoard = new BitBoard(4, 4, 3);
+			unevenBoard.move(Token.Red, 0);
+			assertEquals(Tablebase.NOT_FOUND, tablebase.getOutcome(unevenBoard), "Position out of turn found");
+			assertEquals(Tablebase.NOT_FOUND, tablebase.getOutcome(new BitBoard(5, 4, 3)), "Mismatched board size found");
+			assertEquals(Tablebase.NOT_FOUND, tablebase.getOutcome(new BitBoard(4, 4, 4)), "Mismatched win count found");
+		}
+		finally {
+			Files.delete(path);
+		}
+	}
+
+	/**
+	 * Tests that the position index maps every position with alternating players to a distinct
+	 * index, using every index.
+	 */
+	@Test
+	protected void testPositionIndex() {
+		final PositionIndex positionIndex = new PositionIndex(3, 3);
+		final boolean[] seen = new boolean[(int) positionIndex.getIndexCount()];
+		final int[] heights = new int[3];
+		int positionCount = 0;
+		// every combination of heights, then every colouring of the tokens
+		for (int heightIndex = 0; heightIndex < 4 * 4 * 4; heightIndex++) {
+			heights[0] = heightIndex % 4;
+			heights[1] = heightIndex / 4 % 4;
+			heights[2] = heightIndex / 16;
+			final int tokenCount = heights[0] + heights[1] + heights[2];
+			for (int colouring = 0; colouring < 1 << tokenCount; colouring++) {
+				if (Integer.bitCount(colouring) != (tokenCount + 1) / 2) {
+					continue;
+				}
+				long key = 0;
+				int tokenIndex = 0;
+				for (int columnIndex = 0; columnIndex < 3; columnIndex++) {
+					for (int rowIndex = 0; rowIndex < heights[columnIndex]; rowIndex++, tokenIndex++) {
+						key |= (long) ((colouring >>> tokenIndex) & 1) << (columnIndex * 4 + rowIndex);
+					}
+					key |= 1L << (columnIndex * 4 + heights[columnIndex]);
+				}
+				final long index = positionIndex.getIndex(key);
+				assertFalse(seen[(int) index], "Index " + index + " used twice");
+				seen[(int) index] = true;
+				++positionCount;
+			}
+		}
+		assertEquals(positionIndex.getIndexCount(), positionCount, "Index count mismatch");
+		assertThrows(IllegalArgumentException.class, () -> positionIndex.getIndex(0b0011_0001_0011L), "Uneven position indexed");
+		assertThrows(IllegalArgumentException.class, () -> new PositionIndex(8, 7), "Too many positions indexed");
+	}
+
+	/**
+	 * Tests that a file without the tablebase header, or whose header does not match its size, is
+	 * rejected.
+	 */
+	@Test
+	protected void testOpenInvalidFile() throws IOException {
+		final Path path = Files.createTempFile("tablebase", ".bin");
+		try {
+			Files.write(path, new byte[] {1, 2, 3, 4});
+			assertThrows(IOException.class, () -> Tablebase.open(path), "Invalid file opened");
+
+			final ByteBuffer header = ByteBuffer.allocate(Tablebase.HEADER_BYTES).order(Tablebase.BYTE_ORDER);
+			header.putInt(Tablebase.MAGIC).putInt(Tablebase.VERSION).putInt(8).putInt(7).putInt(4).putInt(0);
+			header.putLong(PositionIndex.MAX_INDEX_COUNT);
+			Files.write(path, header.array());
+			assertThrows(IOException.class, () -> Tablebase.open(path), "Truncated file opened");
+			header.putLong(6 * Integer.BYTES, 0);
+			Files.write(path, header.array());
+			assertThrows(IOException.class, () -> Tablebase.open(path), "Oversized board opened");
+		}
+		finally {
+			Files.delete(path);
+		}
+	}
+
+	/**
+	 * Counts the distinct positions reachable from <code>board</code> in which the game is not
+	 * over.
+	 */
+	private static void count(BitBoard board, Token player, Set<Long> keys) {
+		if (!keys.add(board.getKey())) {
+			return;
+		}
+		for (int columnIndex = 0; columnIndex < board.getNumberOfColumns(); columnIndex++) {
+			if (board.isLegal(columnIndex)) {
+				if (board.moveStatus(player, columnIndex) == BoardState.ONGOING_STATUS) {
+					count(board, player.getOpponent(), keys);
+				}
+				board.undo(columnIndex);
+			}
+		}
+	}
+
+	/**
+	 * Checks every distinct position reachable within <code>maxPly</code> moves against the sign
+	 * of the solver score.
+	 */
+	private static void check(Tablebase tablebase, BitBoard board, Token player, Solver solver, Set<Long> keys, int maxPly) {
+		if (!keys.add(board.getKey())) {
+			return;
+		}
+		final int score = solver.solve(board, player).getScore();
+		final int outcome = score > 0 ?
+			Tablebase.WIN :
+			score < 0 ? Tablebase.LOSS : Tablebase.DRAW;
+		assertEquals(outcome, tablebase.getOutcome(board), "Outcome mismatch on\n" + board);
+		if (board.getTokenCount() >= maxPly) {
+			return;
+		}
+		for (int columnIndex = 0; columnIndex < board.getNumberOfColumns(); columnIndex++) {
+			if (board.isLegal(columnIndex)) {
+				if (board.moveStatus(player, columnIndex) == BoardState.ONGOING_STATUS) {
+					check(tablebase, board, player.getOpponent(), solver, keys, maxPly);
+				}
+				board.undo(columnIndex);
+			}
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package chen.eric.connect4.evaluation;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+
+import chen.eric.connect4.GravityBoard;
+import chen.eric.connect4.PositionCodec;
+import chen.eric.connect4.Token;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchEvaluatorTest {
+	private static final int[][] DIRECTIONS = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+	private static final int EMPTY = -1;
+	private static final int OFF_BOARD = -2;
+
+	/**
+	 * Tests that batch features match a cell-by-cell count on random positions of several sizes.
+	 */
+	@Test
+	protected void testMatchesCellByCell() {
+		final int[][] sizes = {
+			{7, 6, 4},
+			{8, 7, 4},
+			{5, 4, 3},
+			{4, 4, 2},
+			{1, 6, 4},
+			{9, 5, 5},
+			{3, 3, 3},
+			{0, 4, 4}};
+		final Random random = new Random(19);
+		for (final int[] size : sizes) {
+			final BatchEvaluator evaluator = new BatchEvaluator(size[0], size[1], size[2]);
+			final int positionCount = BatchEvaluator.BLOCK_SIZE * 2 + 37;
+			final long[] keys = new long[positionCount];
+			final GravityBoard[] boards = new GravityBoard[positionCount];
+			for (int count = 0; count < positionCount; count++) {
+				final GravityBoard board = new GravityBoard(size[0], size[1], size[2]);
+				final int moveCount = random.nextInt(size[0] * size[1] + 1);
+				for (int moveIndex = 0; moveIndex < moveCount; moveIndex++) {
+					board.move(random.nextBoolean() ? Token.Black : Token.Red,
+						board.getOpenColumnIndex(random.nextInt(board.getOpenColumnCount())));
+				}
+				boards[count] = board;
+				keys[count] = PositionCodec.encode(board);
+			}
+
+			final int[] features = new int[positionCount * BatchEvaluator.FEATURE_COUNT];
+			evaluator.extractFeatures(keys, 0, positionCount, features, 0);
+			final int[] scores = evaluator.evaluate(keys);
+			for (int count = 0; count < positionCount; count++) {
+				final int[] expected = extractFeatures(boards[count]);
+				final int[] actual = Arrays.copyOfRange(features,
+					count * BatchEvaluator.FEATURE_COUNT, (count + 1) * BatchEvaluator.FEATURE_COUNT);
+				assertArrayEquals(expected, actual, "Feature mismatch for\n" + boards[count]);
+				assertEquals(score(expected), scores[count], "Score mismatch");
+			}
+			assertArrayEquals(scores, evaluator.evaluateParallel(keys), "Parallel scores mismatch");
+			assertArrayEquals(scores, evaluator.evaluate(LongStream.of(keys).parallel()), "Stream scores mismatch");
+		}
+	}
+
+	private static int score(int[] features) {
+		final int[] weights = BatchEvaluator.DEFAULT_WEIGHTS;
+		return weights[0] * (features[BatchEvaluator.BLACK_THREATS] - features[BatchEvaluator.RED_THREATS])
+			+ weights[1] * (features[BatchEvaluator.BLACK_PLAYABLE_THREATS] - features[BatchEvaluator.RED_PLAYABLE_THREATS])
+			+ weights[2] * (features[BatchEvaluator.BLACK_OPEN_LINES] - features[BatchEvaluator.RED_OPEN_LINES])
+			+ weights[3] * (features[BatchEvaluator.BLACK_CENTER] - features[BatchEvaluator.RED_CENTER]);
+	}
+
+	private static int[] extractFeatures(GravityBoard board) {
+		final int[] features = new int[BatchEvaluator.FEATURE_COUNT];
+		for (final Token player : Token.values()) {
+			final int offset = player == Token.Black ? 0 : 1;
+			final int numberOfColumns = board.getNumberOfColumns();
+			final int numberOfRows = board.getNumberOfRows();
+			final int winCount = board.getWinCount();
+			for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+				for (int rowIndex = board.getColumnSize(columnIndex); rowIndex < numberOfRows; rowIndex++) {
+					if (isThreat(board, player, columnIndex, rowIndex)) {
+						features[BatchEvaluator.BLACK_THREATS + offset]++;
+						if (rowIndex == board.getColumnSize(columnIndex)) {
+							features[BatchEvaluator.BLACK_PLAYABLE_THREATS + offset]++;
+						}
+					}
+				}
+				for (int rowIndex = 0; rowIndex < numberOfRows; rowIndex++) {
+					for (final int[] direction : DIRECTIONS) {
+						boolean hasOwn = false;
+						boolean isOpen = true;
+						for (int count = 0; count < winCount && isOpen; count++) {
+							final int cell = getCell(board, columnIndex + count * direction[0], rowIndex + count * direction[1]);
+							isOpen = cell != OFF_BOARD && cell != player.getOpponent().ordinal();
+							hasOwn |= cell == player.ordinal();
+						}
+						if (isOpen && hasOwn) {
+							features[BatchEvaluator.BLACK_OPEN_LINES + offset]++;
+						}
+					}
+				}
+				if (columnIndex == numberOfColumns / 2 || columnIndex == (numberOfColumns - 1) / 2) {
+					for (int rowIndex = 0; rowIndex < board.getColumnSize(columnIndex); rowIndex++) {
+						if (board.getToken(columnIndex, rowIndex) == player) {
+							features[BatchEvaluator.BLACK_CENTER + offset]++;
+						}
+					}
+				}
+			}
+		}
+		return features;
+	}
+
+	private static boolean isThreat(GravityBoard board, Token player, int columnIndex, int rowIndex) {
+		final int winCount = board.getWinCount();
+		for (final int[] direction : DIRECTIONS) {
+			for (int emptyCount = 0; emptyCount < winCount; emptyCount++) {
+				boolean isLine = true;
+				for (int count = 0; count < winCount && isLine; count++) {
+					if (count != emptyCount) {
+						isLine = getCell(board,
+							columnIndex + (count - emptyCount) * direction[0],
+							rowIndex + (count - emptyCount) * direction[1]) == player.ordinal();
+					}
+				}
+				if (isLine) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the token at a cell, {@link #EMPTY} for an empty cell or {@link #OFF_BOARD}.
+	 */
+	private static int getCell(GravityBoard board, int columnIndex, int rowIndex) {
+		if (columnIndex < 0 || columnIndex >= board.getNumberOfColumns()
+			|| rowIndex < 0 || rowIndex >= board.getNumberOfRows())
+		{
+			return OFF_BOARD;
+		}
+		final Token token = board.getToken(columnIndex, rowIndex);
+		return token == null ? EMPTY : token.ordinal();
+	}
+}
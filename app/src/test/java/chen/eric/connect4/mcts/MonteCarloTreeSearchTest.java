@@ -0,0 +1,69 @@
+package chen.eric.connect4.mcts;
+
+import chen.eric.connect4.GravityBoard;
+import chen.eric.connect4.Token;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MonteCarloTreeSearchTest {
+	/**
+	 * Tests that the search takes an immediate win and blocks an immediate loss.
+	 */
+	@Test
+	protected void testWinAndBlock() {
+		final GravityBoard board = new GravityBoard();
+		board.move(Token.Black, 3);
+		board.move(Token.Red, 0);
+		board.move(Token.Black, 3);
+		board.move(Token.Red, 0);
+		board.move(Token.Black, 3);
+		try (final MonteCarloTreeSearch search = new MonteCarloTreeSearch(1, 1 << 16, MonteCarloTreeSearch.DEFAULT_EXPLORATION, 1)) {
+			assertEquals(3, search.search(board, Token.Red, 5000, 0).getBestColumnIndex(), "Immediate loss not blocked");
+			board.move(Token.Red, 6);
+			final MctsResult result = search.search(board, Token.Black, 5000, 0);
+			assertEquals(3, result.getBestColumnIndex(), "Immediate win not taken");
+			assertTrue(result.getValue() > 0.9, "Winning move value too low (" + result.getValue() + ")");
+		}
+	}
+
+	/**
+	 * Tests that single-threaded searches with the same seed give the same result, and that
+	 * searches stop at the playout limit for any number of threads.
+	 */
+	@Test
+	protected void testPlayoutLimit() {
+		final GravityBoard board = new GravityBoard();
+		try (final MonteCarloTreeSearch search = new MonteCarloTreeSearch(1, 1 << 16, MonteCarloTreeSearch.DEFAULT_EXPLORATION, 1)) {
+			final MctsResult result = search.search(board, Token.Black, 3000, 0, 7);
+			final MctsResult repeatResult = search.search(board, Token.Black, 3000, 0, 7);
+			assertEquals(3000, result.getPlayoutCount(), "Playout count mismatch");
+			assertEquals(result.getBestColumnIndex(), repeatResult.getBestColumnIndex(), "Best column differs for the same seed");
+			assertEquals(result.getValue(), repeatResult.getValue(), "Value differs for the same seed");
+			assertEquals(result.getNodeCount(), repeatResult.getNodeCount(), "Node count differs for the same seed");
+		}
+		try (final MonteCarloTreeSearch search = new MonteCarloTreeSearch(3, 1 << 16, MonteCarloTreeSearch.DEFAULT_EXPLORATION, 1)) {
+			final MctsResult result = search.search(board, Token.Black, 3000, 0);
+			assertEquals(3000, result.getPlayoutCount(), "Parallel playout count mismatch");
+			assertTrue(result.getPlayoutsPerSecond() > 0, "No playout rate reported");
+		}
+	}
+
+	/**
+	 * Tests searching a board too large for a {@link chen.eric.connect4.BitBoard} with a node
+	 * pool that fills up, and that the searched board is left unchanged.
+	 */
+	@Test
+	protected void testLargeBoardSmallPool() {
+		final GravityBoard board = new GravityBoard(30, 20, 5);
+		board.move(Token.Black, 15);
+		final String expected = board.toString();
+		try (final MonteCarloTreeSearch search = new MonteCarloTreeSearch(2, 100, MonteCarloTreeSearch.DEFAULT_EXPLORATION, 1)) {
+			final MctsResult result = search.search(board, Token.Red, 500, 0);
+			assertEquals(500, result.getPlayoutCount(), "Playout count mismatch");
+			assertTrue(result.getNodeCount() <= 100, "Node pool overflowed (" + result.getNodeCount() + ")");
+			assertTrue(result.getBestColumnIndex() >= 0 && result.getBestColumnIndex() < 30, "Invalid best column (" + result.getBestColumnIndex() + ")");
+		}
+		assertEquals(expected, board.toString(), "Searched board changed");
+	}
+}
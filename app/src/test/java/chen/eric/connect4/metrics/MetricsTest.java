@@ -0,0 +1,113 @@
+package chen.eric.connect4.metrics;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import chen.eric.connect4.BoardState;
+import chen.eric.connect4.GravityBoard;
+import chen.eric.connect4.Token;
+import chen.eric.connect4.solver.SearchResult;
+import chen.eric.connect4.solver.Solver;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.*;
+
+public class MetricsTest {
+	/**
+	 * Tests that histogram percentiles are within the bucket precision of the recorded values.
+	 */
+	@Test
+	protected void testHistogram() {
+		final Histogram histogram = new Histogram();
+		assertEquals(0, histogram.getValueAtPercentile(99), "Empty histogram percentile not 0");
+		for (long value = 1; value <= 100_000; value++) {
+			histogram.record(value * 1_000);
+		}
+		assertEquals(100_000, histogram.getCount(), "Count mismatch");
+		assertEquals(100_000_000, histogram.getMax(), "Max mismatch");
+		assertEquals(50_000_500, histogram.getMean(), 1, "Mean mismatch");
+		assertEquals(50_000_000, histogram.getValueAtPercentile(50), 50_000_000 / 32.0, "p50 out of precision");
+		assertEquals(99_000_000, histogram.getValueAtPercentile(99), 99_000_000 / 32.0, "p99 out of precision");
+		assertEquals(100_000_000, histogram.getValueAtPercentile(100), "p100 not the max");
+
+		final Histogram small = new Histogram();
+		for (long value = 0; value < 64; value++) {
+			small.record(value);
+		}
+		assertEquals(31, small.getValueAtPercentile(50), "Small values not exact");
+		small.record(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, small.getValueAtPercentile(100), "Largest value mismatch");
+
+		histogram.reset();
+		assertEquals(0, histogram.getCount(), "Count not reset");
+		assertEquals(0, histogram.getValueAtPercentile(50), "Percentile not reset");
+	}
+
+	/**
+	 * Tests that every bucket's highest value maps back to the bucket.
+	 */
+	@Test
+	protected void testHistogramBuckets() {
+		int previousIndex = -1;
+		for (long value = 0; value < 1 << 20; value += 1 + value / 97) {
+			final int index = Histogram.getIndex(value);
+			assertTrue(index >= previousIndex, "Bucket index not monotonic at " + value);
+			assertTrue(Histogram.getHighestValue(index) >= value, "Bucket upper bound below " + value);
+			assertEquals(index, Histogram.getIndex(Histogram.getHighestValue(index)), "Bucket upper bound outside bucket at " + value);
+			previousIndex = index;
+		}
+	}
+
+	/**
+	 * Tests that searches are exposed through the MBean and the text dump.
+	 */
+	@Test
+	protected void testMBean() throws JMException {
+		Metrics.reset();
+		Metrics.recordSearch(12, 3456, 7_000_000);
+		Metrics.registerMBean();
+		Metrics.registerMBean();
+		final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		final ObjectName objectName = new ObjectName(Metrics.OBJECT_NAME);
+		assertEquals(1L, mBeanServer.getAttribute(objectName, "SearchCount"), "Search count mismatch");
+		assertEquals(3456L, mBeanServer.getAttribute(objectName, "SearchNodeCount"), "Search node count mismatch");
+		assertEquals(12L, mBeanServer.getAttribute(objectName, "SearchDepthMax"), "Search depth mismatch");
+		assertEquals(7_000L, mBeanServer.getAttribute(objectName, "SearchMicrosMax"), "Search time mismatch");
+		assertTrue(Metrics.dump().contains("searchNodes 3456\n"), "Dump missing search nodes");
+
+		mBeanServer.invoke(objectName, "reset", null, null);
+		assertEquals(0L, mBeanServer.getAttribute(objectName, "SearchCount"), "Metrics not reset");
+	}
+
+	/**
+	 * Tests that moves, rejected moves, win checks and searches are counted.  The Gradle
+	 * <code>test</code> task enables metrics; elsewhere the test is skipped unless
+	 * {@value Metrics#ENABLED_PROPERTY} is set.
+	 */
+	@Test
+	protected void testCounters() {
+		assumeTrue(Metrics.ENABLED, "Metrics are disabled");
+		Metrics.reset();
+		final GravityBoard board = new GravityBoard(4, 4, 3);
+		board.move(Token.Black, 0);
+		board.move(Token.Red, 1);
+		board.move(Token.Black, 0);
+		assertEquals(BoardState.INVALID_COLUMN_INDEX_STATUS, board.tryMove(Token.Red, 4), "Invalid move not rejected");
+		assertEquals(3, Metrics.MOVES.sum(), "Move count mismatch");
+		assertEquals(1, Metrics.REJECTED_MOVES.sum(), "Rejected move count mismatch");
+		for (int count = 0; count < Metrics.WIN_CHECKS.length; count++) {
+			assertEquals(3, Metrics.WIN_CHECKS[count].sum(), Metrics.WIN_CHECK_DIRECTIONS[count] + " win check count mismatch");
+		}
+
+		final SearchResult result = new Solver().solve(board, Token.Red);
+		assertEquals(1, Metrics.SEARCHES.sum(), "Search count mismatch");
+		assertEquals(result.getNodeCount(), Metrics.SEARCH_NODES.sum(), "Search node count mismatch");
+		assertEquals(1, Metrics.SEARCH_DEPTH.getCount(), "Search depth count mismatch");
+		assertEquals(result.getDepth(), Metrics.SEARCH_DEPTH.getMax(), "Search depth mismatch");
+		assertEquals(1, Metrics.SEARCH_NANOS.getCount(), "Search time count mismatch");
+	}
+}
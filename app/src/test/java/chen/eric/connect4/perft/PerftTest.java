@@ -0,0 +1,84 @@
+package chen.eric.connect4.perft;
+
+import chen.eric.connect4.BitBoard;
+import chen.eric.connect4.GravityBoard;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PerftTest {
+	/**
+	 * Tests move sequence and distinct position counts on the standard board against known values.
+	 */
+	@Test
+	protected void testStandardCounts() {
+		final long[] nodeCounts = {1, 7, 49, 343, 2401, 16807, 117649, 823536};
+		final PerftResult result = new Perft(GravityBoard::new, 2, 2).run(7);
+		assertEquals(7, result.getDepth(), "Depth mismatch");
+		for (int ply = 0; ply <= 7; ply++) {
+			assertEquals(nodeCounts[ply], result.getNodeCount(ply), "Node count mismatch at ply " + ply);
+		}
+		assertEquals(0, result.getBlackWinCount(6), "Early win counted");
+		assertEquals(13032, result.getBlackWinCount(7), "Black win count mismatch");
+		assertEquals(0, result.getRedWinCount(7), "Red win count mismatch");
+		assertTrue(result.getNodesPerSecond() > 0, "No node rate reported");
+
+		final long[] distinctCounts = {1, 7, 49, 238, 1120, 4263, 16422, 54859, 184275};
+		final PerftResult distinctResult = new Perft(BitBoard::new, 2, 3, 1 << 18).run(8);
+		for (int ply = 0; ply <= 8; ply++) {
+			assertEquals(distinctCounts[ply], distinctResult.getNodeCount(ply), "Distinct node count mismatch at ply " + ply);
+		}
+	}
+
+	/**
+	 * Tests that every board implementation gives the same counts, whatever the parallelism.
+	 */
+	@Test
+	protected void testBoardsAgree() {
+		final PerftResult gravityResult = new Perft(() -> new GravityBoard(6, 5, 4), 1, 0).run(8);
+		assertCountsEqual(gravityResult, new Perft(() -> new BitBoard(6, 5, 4), 3, 3).run(8));
+		assertCountsEqual(gravityResult, new Perft(() -> new GravityBoard(6, 5, 4), 2, 8).run(8));
+
+		// every game on the small board played out, including draws
+		final PerftResult fullResult = new Perft(() -> new GravityBoard(4, 4, 3), 2, 2, 1 << 18).run(16);
+		assertTrue(fullResult.getDrawCount(16) > 0, "No draws counted");
+		assertCountsEqual(fullResult, new Perft(() -> new BitBoard(4, 4, 3), 1, 0, 1 << 18).run(16));
+	}
+
+	/**
+	 * Tests adding values to the lock-free set, including the empty slot value.
+	 */
+	@Test
+	protected void testLongHashSet() {
+		final LongHashSet set = new LongHashSet(100);
+		for (long value = -50; value < 50; value++) {
+			assertTrue(set.add(value * 0x100000001L), "Value not added (" + value + ")");
+		}
+		for (long value = -50; value < 50; value++) {
+			assertFalse(set.add(value * 0x100000001L), "Value added twice (" + value + ")");
+			assertTrue(set.contains(value * 0x100000001L), "Value missing (" + value + ")");
+		}
+		assertFalse(set.contains(7), "Unexpected value");
+		assertEquals(100, set.size(), "Size mismatch");
+		assertThrows(IllegalStateException.class, () -> set.add(1000), "Value added beyond capacity");
+		assertFalse(set.add(7 * 0x100000001L), "Value added twice to a full set");
+		assertEquals(100, set.size(), "Size changed by rejected adds");
+
+		final LongHashSet zeroSet = new LongHashSet(1);
+		assertTrue(zeroSet.add(0), "Zero not added");
+		assertFalse(zeroSet.add(0), "Zero added twice");
+		assertThrows(IllegalStateException.class, () -> zeroSet.add(1), "Value added beyond capacity");
+		assertThrows(IllegalArgumentException.class, () -> new LongHashSet(0));
+		assertThrows(IllegalStateException.class, () -> new Perft(() -> new BitBoard(4, 4, 3), 1, 0, 20).run(3), "Deduplication capacity exceeded");
+	}
+
+	private static void assertCountsEqual(PerftResult expected, PerftResult actual) {
+		assertEquals(expected.getDepth(), actual.getDepth(), "Depth mismatch");
+		for (int ply = 0; ply <= expected.getDepth(); ply++) {
+			assertEquals(expected.getNodeCount(ply), actual.getNodeCount(ply), "Node count mismatch at ply " + ply);
+			assertEquals(expected.getBlackWinCount(ply), actual.getBlackWinCount(ply), "Black win count mismatch at ply " + ply);
+			assertEquals(expected.getRedWinCount(ply), actual.getRedWinCount(ply), "Red win count mismatch at ply " + ply);
+			assertEquals(expected.getDrawCount(ply), actual.getDrawCount(ply), "Draw count mismatch at ply " + ply);
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package chen.eric.connect4.record;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import chen.eric.connect4.BoardState;
+import chen.eric.connect4.GravityBoard;
+import chen.eric.connect4.Token;
+import chen.eric.connect4.simulation.HeuristicPlayer;
+import chen.eric.connect4.simulation.RandomPlayer;
+import chen.eric.connect4.simulation.SimulationResult;
+import chen.eric.connect4.simulation.Simulator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameRecordTest {
+	/**
+	 * Tests that records of random games on several board sizes are read back unchanged through
+	 * buffers smaller than a record, and replay to the recorded status.
+	 */
+	@Test
+	protected void testWriteAndRead() throws IOException {
+		final int[][] sizes = {
+			{7, 6, 4},
+			{1, 3, 2},
+			{8, 8, 5},
+			{300, 40, 5}};
+		final Random random = new Random(3);
+		final List<GameRecord> gameRecords = new ArrayList<>();
+		for (int count = 0; count < 50; count++) {
+			final int[] size = sizes[count % sizes.length];
+			gameRecords.add(randomGame(random, size[0], size[1], size[2], count % 3 == 0 ? Token.Red : Token.Black));
+		}
+
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try (final GameRecordWriter writer = new GameRecordWriter(Channels.newChannel(outputStream), 16)) {
+			for (final GameRecord gameRecord : gameRecords) {
+				writer.write(gameRecord);
+			}
+			assertEquals(gameRecords.size(), writer.getRecordCount(), "Written record count mismatch");
+		}
+		final byte[] bytes = outputStream.toByteArray();
+
+		try (final GameRecordReader reader = new GameRecordReader(Channels.newChannel(new ByteArrayInputStream(bytes)), 16)) {
+			for (final GameRecord expected : gameRecords) {
+				final GameRecord actual = reader.read();
+				assertEquals(expected, actual, "Record mismatch");
+				assertEquals(expected.getStatus(), actual.replay(new GravityBoard(actual.getNumberOfColumns(), actual.getNumberOfRows(), actual.getWinCount())), "Replayed status mismatch");
+			}
+			assertNull(reader.read(), "Record read past the end of the stream");
+			assertEquals(gameRecords.size(), reader.getRecordCount(), "Read record count mismatch");
+		}
+
+		final byte[] truncatedBytes = Arrays.copyOf(bytes, bytes.length - 1);
+		assertThrows(EOFException.class, () -> {
+			try (final GameRecordReader reader = new GameRecordReader(Channels.newChannel(new ByteArrayInputStream(truncatedBytes)))) {
+				while (reader.read() != null) {
+					// read to the truncated record
+				}
+			}
+		}, "Failed to throw EOFException for a truncated stream");
+		assertThrows(IOException.class, () -> new GameRecordReader(Channels.newChannel(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5}))), "Failed to reject an invalid stream");
+	}
+
+	/**
+	 * Tests that a default-sized game takes 3 bits per move.
+	 */
+	@Test
+	protected void testPackedSize() throws IOException {
+		final GameRecord gameRecord = new GameRecord(7, 6, 4, Token.Black, new int[] {3, 3, 3, 3, 3, 3, 2, 2}, BoardState.ONGOING_STATUS);
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try (final GameRecordWriter writer = new GameRecordWriter(Channels.newChannel(outputStream))) {
+			writer.write(gameRecord);
+		}
+		// magic and version, 3 size bytes, status byte, move count byte, 8 moves x 3 bits
+		assertEquals(5 + 3 + 1 + 1 + 3, outputStream.size(), "Record size mismatch");
+		assertEquals(3, GameRecordWriter.bitsPerMove(7), "7 column bits mismatch");
+		assertEquals(1, GameRecordWriter.bitsPerMove(1), "1 column bits mismatch");
+		assertEquals(7, GameRecordWriter.bitsPerMove(100), "100 column bits mismatch");
+	}
+
+	/**
+	 * Tests recording simulated games.
+	 */
+	@Test
+	protected void testRecordSimulation() throws IOException {
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		final SimulationResult result;
+		try (final GameRecordWriter writer = new GameRecordWriter(Channels.newChannel(outputStream))) {
+			result = new Simulator(GravityBoard::new, HeuristicPlayer::new, RandomPlayer::new, 2, 1).run(100, writer);
+		}
+		long moveCount = 0;
+		long drawCount = 0;
+		try (final GameRecordReader reader = new GameRecordReader(Channels.newChannel(new ByteArrayInputStream(outputStream.toByteArray())))) {
+			for (GameRecord gameRecord = reader.read(); gameRecord != null; gameRecord = reader.read()) {
+				assertEquals(gameRecord.getStatus(), gameRecord.replay(new GravityBoard()), "Replayed status mismatch");
+				moveCount += gameRecord.getMoveCount();
+				drawCount += gameRecord.getStatus() == BoardState.DRAW_STATUS ? 1 : 0;
+			}
+			assertEquals(result.getGameCount(), reader.getRecordCount(), "Record count mismatch");
+		}
+		assertEquals(result.getMoveCount(), moveCount, "Move count mismatch");
+		assertEquals(result.getDrawCount(), drawCount, "Draw count mismatch");
+	}
+
+	private static GameRecord randomGame(Random random, int numberOfColumns, int numberOfRows, int winCount, Token firstPlayer) {
+		final GravityBoard board = new GravityBoard(numberOfColumns, numberOfRows, winCount);
+		final int[] columnIndexes = new int[numberOfColumns * numberOfRows];
+		Token player = firstPlayer;
+		int status = BoardState.ONGOING_STATUS;
+		int moveCount = 0;
+		while (status == BoardState.ONGOING_STATUS) {
+			final int columnIndex = board.getOpenColumnIndex(random.nextInt(board.getOpenColumnCount()));
+			status = board.moveStatus(player, columnIndex);
+			columnIndexes[moveCount++] = columnIndex;
+			player = player.getOpponent();
+		}
+		return new GameRecord(numberOfColumns, numberOfRows, winCount, firstPlayer, Arrays.copyOf(columnIndexes, moveCount), status);
+	}
+}
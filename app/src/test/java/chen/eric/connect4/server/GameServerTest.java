@@ -0,0 +1,106 @@
+package chen.eric.connect4.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.Test;
+
+import chen.eric.connect4.BoardState;
+import chen.eric.connect4.Token;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameServerTest {
+	/**
+	 * Tests that sessions play alternating moves, reject illegal moves and are closed.
+	 */
+	@Test
+	protected void testGameSessionService() {
+		try (final GameSessionService service = new GameSessionService(3, 60_000)) {
+			final long sessionId = service.createSession(3, 2, 2).join();
+			final long otherSessionId = service.createSession(3, 2, 2).join();
+			assertEquals(2, service.getSessionCount(), "Session count mismatch");
+			assertThrows(IllegalArgumentException.class, () -> service.createSession(3, 2, 0), "Zero win count accepted");
+
+			assertEquals(BoardState.ONGOING_STATUS, (int) service.move(sessionId, 0).join(), "Black move rejected");
+			assertEquals(BoardState.ONGOING_STATUS, (int) service.move(sessionId, 1).join(), "Red move rejected");
+			assertEquals(BoardState.INVALID_COLUMN_INDEX_STATUS, (int) service.move(sessionId, 3).join(), "Invalid column index not rejected");
+			assertEquals(BoardState.ONGOING_STATUS, (int) service.move(otherSessionId, 0).join(), "Sessions not independent");
+			assertEquals(BoardState.winnerStatus(Token.Black), (int) service.move(sessionId, 0).join(), "Black win not reported");
+			assertEquals(BoardState.ONGOING_STATUS, (int) service.move(otherSessionId, 0).join(), "Red move rejected");
+			assertEquals(BoardState.COLUMN_FULL_STATUS, (int) service.move(otherSessionId, 0).join(), "Full column not rejected");
+			assertEquals(GameSessionService.GAME_OVER_STATUS, (int) service.move(sessionId, 2).join(), "Move after win not rejected");
+			assertTrue(service.render(sessionId).join().endsWith("winner(Black)\n"), "Rendered session missing result");
+
+			assertTrue(service.closeSession(sessionId).join(), "Session not closed");
+			assertFalse(service.closeSession(sessionId).join(), "Closed session closed again");
+			assertEquals(GameSessionService.UNKNOWN_SESSION_STATUS, (int) service.move(sessionId, 2).join(), "Closed session accepted a move");
+			assertNull(service.render(sessionId).join(), "Closed session rendered");
+			assertEquals(1, service.getSessionCount(), "Session count mismatch after close");
+			assertEquals(5, service.getMoveCount(), "Move count mismatch");
+		}
+	}
+
+	/**
+	 * Tests that idle sessions are evicted.
+	 */
+	@Test
+	protected void testEviction() throws InterruptedException {
+		try (final GameSessionService service = new GameSessionService(2, 50)) {
+			final long sessionId = service.createSession(7, 6, 4).join();
+			final long startNanos = System.nanoTime();
+			while (service.getSessionCount() > 0 && System.nanoTime() - startNanos < 5_000_000_000L) {
+				Thread.sleep(10);
+			}
+			assertEquals(0, service.getSessionCount(), "Idle session not evicted");
+			assertEquals(1, service.getEvictionCount(), "Eviction count mismatch");
+			assertEquals(GameSessionService.UNKNOWN_SESSION_STATUS, (int) service.move(sessionId, 0).join(), "Evicted session accepted a move");
+		}
+	}
+
+	/**
+	 * Tests a game over HTTP.
+	 */
+	@Test
+	protected void testHttp() throws IOException, InterruptedException {
+		try (final GameServer gameServer = new GameServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+			new GameSessionService(2, 60_000), 2))
+		{
+			gameServer.start();
+			final String gamesUri = "http://localhost:" + gameServer.getPort() + "/games";
+			final HttpClient httpClient = HttpClient.newHttpClient();
+
+			final HttpResponse<String> created = send(httpClient, "POST", gamesUri + "?columns=2&rows=2&win=2");
+			assertEquals(200, created.statusCode(), "Create failed");
+			assertEquals(400, send(httpClient, "POST", gamesUri + "?win=0").statusCode(), "Zero win count not rejected");
+			assertEquals(400, send(httpClient, "POST", gamesUri + "?win=-1").statusCode(), "Negative win count not rejected");
+			final String sessionUri = gamesUri + "/" + Long.parseLong(created.body());
+
+			assertEquals("ongoing", send(httpClient, "POST", sessionUri + "/moves?column=0").body(), "Move mismatch");
+			assertEquals(400, send(httpClient, "POST", sessionUri + "/moves?column=5").statusCode(), "Invalid column index not rejected");
+			assertEquals(400, send(httpClient, "POST", sessionUri + "/moves?column=x").statusCode(), "Malformed column not rejected");
+			assertEquals("ongoing", send(httpClient, "POST", sessionUri + "/moves?column=1").body(), "Move mismatch");
+			assertEquals("winner(Black)", send(httpClient, "POST", sessionUri + "/moves?column=0").body(), "Win mismatch");
+			assertEquals(409, send(httpClient, "POST", sessionUri + "/moves?column=1").statusCode(), "Move after win not rejected");
+
+			final HttpResponse<String> rendered = send(httpClient, "GET", sessionUri);
+			assertEquals(200, rendered.statusCode(), "Render failed");
+			assertTrue(rendered.body().startsWith("| B |   |\n| B | R |\n"), "Rendered board mismatch");
+
+			assertEquals(200, send(httpClient, "DELETE", sessionUri).statusCode(), "Close failed");
+			assertEquals(404, send(httpClient, "GET", sessionUri).statusCode(), "Closed session found");
+			assertEquals(404, send(httpClient, "POST", gamesUri + "/12345/moves?column=0").statusCode(), "Unknown session found");
+		}
+	}
+
+	private static HttpResponse<String> send(HttpClient httpClient, String method, String uri) throws IOException, InterruptedException {
+		return httpClient.send(HttpRequest.newBuilder(URI.create(uri))
+			.method(method, HttpRequest.BodyPublishers.noBody())
+			.build(), HttpResponse.BodyHandlers.ofString());
+	}
+}
@@ -0,0 +1,40 @@
+package chen.eric.connect4.simulation;
+
+import chen.eric.connect4.BitBoard;
+import chen.eric.connect4.GravityBoard;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SimulatorTest {
+	/**
+	 * Tests that runs with the same seed give the same results for any number of threads.
+	 */
+	@Test
+	protected void testSeedReproducible() {
+		final SimulationResult singleResult = new Simulator(GravityBoard::new, HeuristicPlayer::new, RandomPlayer::new, 1, 42).run(300);
+		final SimulationResult parallelResult = new Simulator(GravityBoard::new, HeuristicPlayer::new, RandomPlayer::new, 3, 42).run(300);
+		assertEquals(300, singleResult.getGameCount(), "Game count mismatch");
+		assertEquals(300, singleResult.getFirstWinCount() + singleResult.getSecondWinCount() + singleResult.getDrawCount(), "Outcome count mismatch");
+		assertEquals(singleResult.getMoveCount(), parallelResult.getMoveCount(), "Move count mismatch");
+		assertEquals(singleResult.getFirstWinCount(), parallelResult.getFirstWinCount(), "First win count mismatch");
+		assertEquals(singleResult.getSecondWinCount(), parallelResult.getSecondWinCount(), "Second win count mismatch");
+		assertEquals(singleResult.getDrawCount(), parallelResult.getDrawCount(), "Draw count mismatch");
+
+		final SimulationResult otherResult = new Simulator(GravityBoard::new, HeuristicPlayer::new, RandomPlayer::new, 1, 43).run(300);
+		assertNotEquals(singleResult.getMoveCount(), otherResult.getMoveCount(), "Different seeds gave the same games");
+	}
+
+	/**
+	 * Tests that stronger players win most games against weaker ones.
+	 */
+	@Test
+	protected void testPlayerStrength() {
+		final SimulationResult heuristicResult = new Simulator(GravityBoard::new, HeuristicPlayer::new, RandomPlayer::new, 2, 1).run(200);
+		assertTrue(heuristicResult.getFirstWinCount() > 180, "Heuristic player lost too often (" + heuristicResult + ")");
+
+		final SimulationResult solverResult = new Simulator(() -> new BitBoard(5, 4, 4), () -> new SolverPlayer(20), HeuristicPlayer::new, 2, 1).run(20);
+		assertEquals(0, solverResult.getSecondWinCount(), "Perfect solver lost (" + solverResult + ")");
+		assertTrue(solverResult.getMovesPerSecond() > 0, "No move rate reported");
+	}
+}
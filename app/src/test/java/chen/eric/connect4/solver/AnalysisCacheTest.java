@@ -0,0 +1,170 @@
+package chen.eric.connect4.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import chen.eric.connect4.BoardView;
+import chen.eric.connect4.GravityBoard;
+import chen.eric.connect4.PersistentBoard;
+import chen.eric.connect4.Token;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnalysisCacheTest {
+	/**
+	 * Tests hits and misses, that a snapshot of a position hits, and that a mirrored position hits
+	 * with its best column mirrored.
+	 */
+	@Test
+	protected void testHitAndMirror() {
+		final AnalysisCache cache = new AnalysisCache(7, 6, 4);
+		final AtomicInteger analysisCount = new AtomicInteger();
+		final Function<BoardView, SearchResult> analyzer = board -> {
+			analysisCount.incrementAndGet();
+			return new SearchResult(3, 1, 10, false, 100, 1000);
+		};
+		final GravityBoard board = new GravityBoard();
+		board.move(Token.Black, 0);
+		assertEquals(1, cache.get(board, analyzer).getBestColumnIndex(), "Best column mismatch");
+		assertEquals(1, cache.get(board, analyzer).getBestColumnIndex(), "Best column mismatch");
+
+		final GravityBoard mirroredBoard = new GravityBoard();
+		mirroredBoard.move(Token.Black, 6);
+		final SearchResult mirroredResult = cache.get(mirroredBoard, analyzer);
+		assertEquals(5, mirroredResult.getBestColumnIndex(), "Mirrored best column mismatch");
+		assertEquals(3, mirroredResult.getScore(), "Score mismatch");
+		assertEquals(10, mirroredResult.getDepth(), "Depth mismatch");
+		assertEquals(1, cache.get(PersistentBoard.of(board), analyzer).getBestColumnIndex(), "Snapshot best column mismatch");
+
+		assertEquals(1, analysisCount.get(), "Analysis count mismatch");
+		assertEquals(1, cache.getEntryCount(), "Entry count mismatch");
+		assertEquals(3, cache.getHitCount(), "Hit count mismatch");
+		assertEquals(1, cache.getMissCount(), "Miss count mismatch");
+		assertEquals(3.0 / 4, cache.getHitRate(), 1e-9, "Hit rate mismatch");
+		assertThrows(IllegalArgumentException.class, () -> cache.get(new GravityBoard(6, 6, 4), analyzer), "Mismatched board size accepted");
+	}
+
+	/**
+	 * Tests that entries shallower than the requested depth miss, and that shallower analyses do
+	 * not replace deeper or exact entries.
+	 */
+	@Test
+	protected void testMinDepth() {
+		final AnalysisCache cache = new AnalysisCache(7, 6, 4);
+		final GravityBoard board = new GravityBoard();
+		board.move(Token.Black, 3);
+		cache.get(board, 5, position -> new SearchResult(1, 2, 5, false, 1, 1));
+		assertEquals(5, cache.get(board, 3, position -> fail("Deep enough entry missed")).getDepth(), "Depth mismatch");
+
+		assertEquals(8, cache.get(board, 8, position -> new SearchResult(2, 3, 8, false, 1, 1)).getDepth(), "Depth mismatch");
+		assertEquals(8, cache.get(board, 6, position -> fail("Deeper entry not stored")).getDepth(), "Depth mismatch");
+
+		// an analysis that falls short of the requested depth is returned but not stored
+		assertEquals(4, cache.get(board, 10, position -> new SearchResult(0, 4, 4, false, 1, 1)).getDepth(), "Depth mismatch");
+		assertEquals(8, cache.get(board, 8, position -> fail("Deeper entry replaced")).getDepth(), "Depth mismatch");
+
+		cache.get(board, 10, position -> new SearchResult(1, 3, 2, true, 1, 1));
+		assertTrue(cache.get(board, 20, position -> fail("Exact entry missed")).isExact(), "Exact entry not stored");
+
+		assertEquals(1, cache.getEntryCount(), "Entry count mismatch");
+		assertEquals(4, cache.getHitCount(), "Hit count mismatch");
+		assertEquals(4, cache.getMissCount(), "Miss count mismatch");
+	}
+
+	/**
+	 * Tests that the least recently used entry is evicted when the cache is full.
+	 */
+	@Test
+	protected void testEviction() {
+		final AnalysisCache cache = new AnalysisCache(7, 6, 4, 3, 1);
+		final AtomicInteger analysisCount = new AtomicInteger();
+		final Function<BoardView, SearchResult> analyzer = board -> {
+			analysisCount.incrementAndGet();
+			return new SearchResult(0, 3, 1, false, 1, 1);
+		};
+		final GravityBoard[] boards = new GravityBoard[4];
+		for (int count = 0; count < boards.length; count++) {
+			boards[count] = new GravityBoard();
+			// heights 1 to 4 in column 3 are their own mirror images and all distinct
+			for (int tokenCount = 0; tokenCount <= count; tokenCount++) {
+				boards[count].move(tokenCount % 2 == 0 ? Token.Black : Token.Red, 3);
+			}
+		}
+		cache.get(boards[0], analyzer);
+		cache.get(boards[1], analyzer);
+		cache.get(boards[2], analyzer);
+		cache.get(boards[0], analyzer);
+		cache.get(boards[3], analyzer);
+		assertEquals(4, analysisCount.get(), "Analysis count mismatch");
+		assertEquals(1, cache.getEvictionCount(), "Eviction count mismatch");
+		assertEquals(3, cache.getEntryCount(), "Entry count mismatch");
+
+		// the least recently used entry was boards[1]
+		cache.get(boards[0], analyzer);
+		assertEquals(4, analysisCount.get(), "Recently used entry evicted");
+		cache.get(boards[1], analyzer);
+		assertEquals(5, analysisCount.get(), "Least recently used entry kept");
+	}
+
+	/**
+	 * Tests that concurrent misses on one position run a single analysis, and that a failed
+	 * analysis reaches every waiting thread without being cached.
+	 */
+	@Test
+	protected void testCollapsing() throws Exception {
+		final int threadCount = 8;
+		final AnalysisCache cache = new AnalysisCache(7, 6, 4);
+		final GravityBoard board = new GravityBoard();
+		board.move(Token.Black, 3);
+		final ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+		try {
+			for (final boolean fail : new boolean[] {true, false}) {
+				final CountDownLatch latch = new CountDownLatch(1);
+				final AtomicInteger analysisCount = new AtomicInteger();
+				final long collapsedCount = cache.getCollapsedCount();
+				final List<Future<SearchResult>> futures = new ArrayList<>();
+				for (int count = 0; count < threadCount; count++) {
+					futures.add(executorService.submit(() -> cache.get(new GravityBoard(board), position -> {
+						analysisCount.incrementAndGet();
+						try {
+							latch.await();
+						}
+						catch (InterruptedException exception) {
+							Thread.currentThread().interrupt();
+						}
+						if (fail) {
+							throw new IllegalStateException("Analysis failed");
+						}
+						return new SearchResult(1, 3, 5, true, 1, 1);
+					})));
+				}
+				while (cache.getCollapsedCount() - collapsedCount < threadCount - 1) {
+					Thread.sleep(1);
+				}
+				latch.countDown();
+				for (final Future<SearchResult> future : futures) {
+					if (fail) {
+						final Exception exception = assertThrows(Exception.class, () -> future.get(5, TimeUnit.SECONDS), "Failure not propagated");
+						assertTrue(exception.getCause() instanceof IllegalStateException, "Failure cause mismatch");
+					}
+					else {
+						assertEquals(3, future.get(5, TimeUnit.SECONDS).getBestColumnIndex(), "Best column mismatch");
+					}
+				}
+				assertEquals(1, analysisCount.get(), "Analysis not collapsed");
+				assertEquals(fail ? 0 : 1, cache.getEntryCount(), "Entry count mismatch");
+			}
+		}
+		finally {
+			executorService.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package chen.eric.connect4.solver;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import chen.eric.connect4.BitBoard;
+import chen.eric.connect4.GravityBoard;
+import chen.eric.connect4.Token;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncMoveServiceTest {
+	/**
+	 * Tests that a forced win is found and that the board may be changed while it is searched.
+	 */
+	@Test
+	protected void testSuggestWinningMove() throws Exception {
+		try (final AsyncMoveService moveService = new AsyncMoveService(1, 1, null)) {
+			final GravityBoard board = new GravityBoard();
+			for (int count = 0; count < 3; count++) {
+				board.move(Token.Black, 2);
+				board.move(Token.Red, 5);
+			}
+			final CompletableFuture<Integer> future = moveService.suggestMove(board, Token.Black, 1000);
+			board.undo(2);
+			assertEquals(2, (int) future.get(5, TimeUnit.SECONDS), "Winning move missed");
+			assertEquals(1, moveService.getCompletedCount(), "Completed count mismatch");
+		}
+	}
+
+	/**
+	 * Tests that games with different win counts on the same board size get optimal moves through
+	 * one service and its shared transposition table.
+	 */
+	@Test
+	protected void testMixedGames() throws Exception {
+		final Solver solver = new Solver();
+		try (final AsyncMoveService moveService = new AsyncMoveService(1, 16,
+			new TranspositionTable(1, TranspositionTable.ReplacementPolicy.alwaysReplace)))
+		{
+			for (final int winCount : new int[] {3, 4, 3, 4}) {
+				// every position after two moves, with Black to move
+				for (int moveIndexes = 0; moveIndexes < 4 * 4; moveIndexes++) {
+					final BitBoard board = new BitBoard(4, 4, winCount);
+					board.move(Token.Black, moveIndexes / 4);
+					board.move(Token.Red, moveIndexes % 4);
+					final int score = solver.solve(board, Token.Black).getScore();
+					final int columnIndex = moveService.suggestMove(board, Token.Black, 5000).get(5, TimeUnit.SECONDS);
+					if (!board.isWinningMove(Token.Black, columnIndex)) {
+						board.move(Token.Black, columnIndex);
+						assertEquals(score, -solver.solve(board, Token.Red).getScore(), "Move " + columnIndex + " is not optimal on\n" + board);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests that a search of a position too deep to solve returns a legal move by its deadline.
+	 */
+	@Test
+	protected void testDeadline() throws Exception {
+		try (final AsyncMoveService moveService = new AsyncMoveService(1, 1, null)) {
+			final long startNanos = System.nanoTime();
+			final int columnIndex = moveService.suggestMove(new GravityBoard(), Token.Black, 200).get(5, TimeUnit.SECONDS);
+			assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) < 2000, "Deadline missed");
+			assertTrue(columnIndex >= 0 && columnIndex < GravityBoard.DEFAULT_NUM_COLUMNS, "Illegal move " + columnIndex);
+		}
+	}
+
+	/**
+	 * Tests that cancelling a running search frees its thread, and that requests beyond the queue
+	 * capacity are rejected.
+	 */
+	@Test
+	protected void testCancelAndReject() throws Exception {
+		try (final AsyncMoveService moveService = new AsyncMoveService(1, 1, null)) {
+			final GravityBoard board = new GravityBoard();
+			final CompletableFuture<Integer> running = moveService.suggestMove(board, Token.Black, 60_000);
+			final CompletableFuture<Integer> queued = moveService.suggestMove(board, Token.Black, 60_000);
+			final CompletableFuture<Integer> rejected = moveService.suggestMove(board, Token.Black, 60_000);
+			final CompletionException exception = assertThrows(CompletionException.class, rejected::join, "Request not rejected");
+			assertTrue(exception.getCause() instanceof RejectedExecutionException, "Rejection cause mismatch");
+			assertEquals(1, moveService.getRejectedCount(), "Rejected count mismatch");
+
+			queued.cancel(false);
+			assertEquals(0, moveService.getQueuedCount(), "Cancelled request still queued");
+			running.cancel(false);
+			assertThrows(CancellationException.class, running::join, "Request not cancelled");
+			assertEquals(2, moveService.getCancelledCount(), "Cancelled count mismatch");
+
+			// the thread is free again once the cancelled search stops
+			final int columnIndex = moveService.suggestMove(board, Token.Black, 100).get(5, TimeUnit.SECONDS);
+			assertTrue(columnIndex >= 0 && columnIndex < GravityBoard.DEFAULT_NUM_COLUMNS, "Illegal move " + columnIndex);
+		}
+	}
+
+	/**
+	 * Tests that finished games and invalid time limits are rejected.
+	 */
+	@Test
+	protected void testInvalidArguments() {
+		try (final AsyncMoveService moveService = new AsyncMoveService(1, 1, null)) {
+			final GravityBoard board = new GravityBoard();
+			assertThrows(IllegalArgumentException.class, () -> moveService.suggestMove(board, Token.Black, 0), "Zero time limit accepted");
+			for (int count = 0; count < 4; count++) {
+				board.move(Token.Black, 0);
+			}
+			assertThrows(IllegalArgumentException.class, () -> moveService.suggestMove(board, Token.Red, 100), "Finished game accepted");
+		}
+	}
+}
@@ -0,0 +1,287 @@
+package chen.eric.connect4.solver;
+
+import java.util.Random;
+
+import chen.eric.connect4.BitBoard;
+import chen.eric.connect4.GravityBoard;
+import chen.eric.connect4.Token;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SolverTest {
+	/**
+	 * Tests that columns are searched center-first.
+	 */
+	@Test
+	protected void testCreateColumnOrder() {
+		assertArrayEquals(new int[] {3, 2, 4, 1, 5, 0, 6}, Solver.createColumnOrder(7), "7 column order mismatch");
+		assertArrayEquals(new int[] {2, 1, 3, 0}, Solver.createColumnOrder(4), "4 column order mismatch");
+	}
+
+	/**
+	 * Tests that an immediate win is found and scored as the fastest possible win.
+	 */
+	@Test
+	protected void testImmediateWin() {
+		final GravityBoard board = new GravityBoard();
+		board.move(Token.Black, 3);
+		board.move(Token.Red, 3);
+		board.move(Token.Black, 2);
+		board.move(Token.Red, 2);
+		board.move(Token.Black, 4);
+		board.move(Token.Red, 4);
+		final SearchResult result = new Solver().solve(board);
+		assertTrue(result.isExact(), "Result not exact");
+		assertEquals((42 + 1 - 6) / 2, result.getScore(), "Immediate win score mismatch");
+		final int bestColumnIndex = result.getBestColumnIndex();
+		assertTrue(bestColumnIndex == 1 || bestColumnIndex == 5, "Best column is not winning (" + bestColumnIndex + ")");
+	}
+
+	/**
+	 * Tests that solver scores and best moves match an exhaustive minimax on small boards.
+	 */
+	@Test
+	protected void testMatchesMinimax() {
+		final int[][] sizes = {
+			// columns, rows, win count, moves played
+			{4, 3, 3, 4},
+			{4, 4, 3, 8},
+			{5, 4, 4, 11},
+			{3, 3, 2, 2}};
+		final Random random = new Random(7);
+		final Solver plainSolver = new Solver();
+		for (final int[] size : sizes) {
+			final Solver hashSolver = new Solver(new TranspositionTable(1, TranspositionTable.ReplacementPolicy.alwaysReplace));
+			int solvedCount = 0;
+			while (solvedCount < 30) {
+				final BitBoard board = randomPosition(random, size[0], size[1], size[2], size[3]);
+				if (board == null) {
+					continue;
+				}
+				final Token player = Solver.nextPlayer(board);
+				final int expected = minimax(board, player);
+				final Solver solver = solvedCount % 2 == 0 ? plainSolver : hashSolver;
+				final SearchResult result = solver.solve(board, player);
+				assertTrue(result.isExact(), "Result not exact");
+				assertEquals(expected, result.getScore(), "Score mismatch on\n" + board);
+
+				final int bestColumnIndex = result.getBestColumnIndex();
+				if (!board.isWinningMove(player, bestColumnIndex)) {
+					board.move(player, bestColumnIndex);
+					assertEquals(expected, -minimax(board, player.getOpponent()), "Best column " + bestColumnIndex + " is not optimal on\n" + board);
+				}
+				++solvedCount;
+			}
+		}
+	}
+
+	/**
+	 * Tests that one transposition table shared by two games on the same board size gives each
+	 * the scores of a solver without a table.
+	 */
+	@Test
+	protected void testSharedTranspositionTable() {
+		final Solver hashSolver = new Solver(new TranspositionTable(1, TranspositionTable.ReplacementPolicy.alwaysReplace));
+		final Solver plainSolver = new Solver();
+		final Random random = new Random(11);
+		for (final int winCount : new int[] {3, 4, 3, 4}) {
+			final BitBoard emptyBoard = new BitBoard(4, 4, winCount);
+			assertEquals(plainSolver.solve(emptyBoard, Token.Black).getScore(), hashSolver.solve(emptyBoard, Token.Black).getScore(),
+				"Empty board score mismatch (win count " + winCount + ")");
+			int solvedCount = 0;
+			while (solvedCount < 30) {
+				final BitBoard board = randomPosition(random, 4, 4, winCount, 6);
+				if (board == null) {
+					continue;
+				}
+				final Token player = Solver.nextPlayer(board);
+				assertEquals(plainSolver.solve(board, player).getScore(), hashSolver.solve(board, player).getScore(), "Score mismatch on\n" + board);
+				++solvedCount;
+			}
+		}
+	}
+
+	/**
+	 * Tests that a transposition table gives the same result while searching far fewer nodes.
+	 */
+	@Test
+	protected void testTranspositionTableNodeCount() {
+		final GravityBoard board = new GravityBoard();
+		Token player = Token.Black;
+		for (final char move : "333322411556600044".toCharArray()) {
+			board.move(player, Character.digit(move, 10));
+			player = player.getOpponent();
+		}
+		final SearchResult plainResult = new Solver().solve(board, player);
+		final TranspositionTable transpositionTable = new TranspositionTable();
+		final SearchResult hashResult = new Solver(transpositionTable).solve(board, player);
+		assertEquals(plainResult.getScore(), hashResult.getScore(), "Score mismatch");
+		assertEquals(plainResult.getBestColumnIndex(), hashResult.getBestColumnIndex(), "Best column mismatch");
+		assertTrue(hashResult.getNodeCount() * 10 < plainResult.getNodeCount(),
+			"Transposition table did not reduce nodes (" + hashResult.getNodeCount() + " >= " + plainResult.getNodeCount() + " / 10)");
+		assertTrue(transpositionTable.getHitCount() > 0, "No transposition table hits");
+	}
+
+	/**
+	 * Tests storing, probing and replacing transposition table entries.
+	 */
+	@Test
+	protected void testTranspositionTable() {
+		final TranspositionTable depthPreferred = new TranspositionTable(1, TranspositionTable.ReplacementPolicy.depthPreferred);
+		final int entryCount = depthPreferred.getEntryCount();
+		assertEquals(1024 * 1024 / 16, entryCount, "Entry count mismatch");
+
+		assertEquals(TranspositionTable.NO_ENTRY, depthPreferred.probe(5), "Empty table returned an entry");
+		depthPreferred.store(5, -3, TranspositionTable.LOWER_BOUND, 10, 6);
+		final long entry = depthPreferred.probe(5);
+		assertEquals(-3, TranspositionTable.getScore(entry), "Score mismatch");
+		assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.getBound(entry), "Bound mismatch");
+		assertEquals(10, TranspositionTable.getDepth(entry), "Depth mismatch");
+		assertEquals(6, TranspositionTable.getBestColumnIndex(entry), "Best column mismatch");
+
+		final long collidingKey = 5 + entryCount;
+		assertEquals(TranspositionTable.NO_ENTRY, depthPreferred.probe(collidingKey), "Colliding key returned an entry");
+		depthPreferred.store(collidingKey, 1, TranspositionTable.EXACT_BOUND, 9, -1);
+		assertEquals(TranspositionTable.NO_ENTRY, depthPreferred.probe(collidingKey), "Shallower entry replaced deeper entry");
+		assertEquals(1, depthPreferred.getHitCount(), "Hit count mismatch");
+		assertEquals(3, depthPreferred.getMissCount(), "Miss count mismatch");
+		assertEquals(2, depthPreferred.getCollisionCount(), "Collision count mismatch");
+
+		final TranspositionTable alwaysReplace = new TranspositionTable(1, TranspositionTable.ReplacementPolicy.alwaysReplace);
+		alwaysReplace.store(5, -3, TranspositionTable.LOWER_BOUND, 10, 6);
+		alwaysReplace.store(collidingKey, 1, TranspositionTable.EXACT_BOUND, 9, -1);
+		final long replacedEntry = alwaysReplace.probe(collidingKey);
+		assertEquals(1, TranspositionTable.getScore(replacedEntry), "Entry not replaced");
+		assertEquals(-1, TranspositionTable.getBestColumnIndex(replacedEntry), "Best column mismatch");
+	}
+
+	/**
+	 * Tests that the parallel solver matches the sequential score and picks the same best column
+	 * for any number of threads.
+	 */
+	@Test
+	protected void testParallelSolver() {
+		final Random random = new Random(11);
+		final Solver solver = new Solver(new TranspositionTable());
+		int solvedCount = 0;
+		while (solvedCount < 10) {
+			final BitBoard board = randomPosition(random, 7, 6, 4, 18);
+			if (board == null) {
+				continue;
+			}
+			final Token player = Solver.nextPlayer(board);
+			final SearchResult expected = solver.solve(board, player);
+			SearchResult singleResult = null;
+			for (final int parallelism : new int[] {1, 4}) {
+				try (final ParallelSolver parallelSolver = new ParallelSolver(parallelism, new TranspositionTable())) {
+					final SearchResult result = parallelSolver.solve(board, player);
+					assertEquals(expected.getScore(), result.getScore(), "Parallel score mismatch on\n" + board);
+					if (singleResult == null) {
+						singleResult = result;
+					}
+					assertEquals(singleResult.getBestColumnIndex(), result.getBestColumnIndex(), "Best column depends on thread count on\n" + board);
+				}
+			}
+			if (!board.isWinningMove(player, singleResult.getBestColumnIndex())) {
+				board.move(player, singleResult.getBestColumnIndex());
+				assertEquals(expected.getScore(), -solver.solve(board, player.getOpponent()).getScore(), "Parallel best column not optimal on\n" + board);
+			}
+			++solvedCount;
+		}
+	}
+
+	/**
+	 * Tests that a parallel solver reused for two games on the same board size matches a solver
+	 * without a table in both.
+	 */
+	@Test
+	protected void testParallelSolverReuse() {
+		final Solver plainSolver = new Solver();
+		final Random random = new Random(13);
+		try (final ParallelSolver parallelSolver = new ParallelSolver(2, new TranspositionTable())) {
+			for (final int winCount : new int[] {3, 4, 3, 4}) {
+				final BitBoard emptyBoard = new BitBoard(4, 4, winCount);
+				assertEquals(plainSolver.solve(emptyBoard, Token.Black).getScore(), parallelSolver.solve(emptyBoard, Token.Black).getScore(),
+					"Empty board score mismatch (win count " + winCount + ")");
+				int solvedCount = 0;
+				while (solvedCount < 10) {
+					final BitBoard board = randomPosition(random, 4, 4, winCount, 6);
+					if (board == null) {
+						continue;
+					}
+					final Token player = Solver.nextPlayer(board);
+					assertEquals(plainSolver.solve(board, player).getScore(), parallelSolver.solve(board, player).getScore(), "Score mismatch on\n" + board);
+					++solvedCount;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests that a time-limited search returns the deepest completed iteration.
+	 */
+	@Test
+	protected void testSearchTimeLimit() {
+		final GravityBoard board = new GravityBoard();
+		final SearchResult result = new Solver().search(board, Token.Black, Integer.MAX_VALUE, 200);
+		assertTrue(result.getDepth() > 0, "No iteration completed");
+		assertTrue(result.getBestColumnIndex() >= 0, "No best column");
+		assertTrue(result.getNodeCount() > 0, "No nodes searched");
+		assertTrue(result.getNodesPerSecond() > 0, "No node rate reported");
+	}
+
+	/**
+	 * Tests that a stop requested before a search starts is not lost.
+	 */
+	@Test
+	protected void testStopBeforeSearch() {
+		final Solver solver = new Solver();
+		solver.stop();
+		final SearchResult result = solver.search(new GravityBoard(), Token.Black, Integer.MAX_VALUE, 0);
+		assertTrue(solver.isAborted(), "Stopped search not aborted");
+		assertEquals(0, result.getDepth(), "Stopped search completed an iteration");
+		assertTrue(result.getNodeCount() <= 1, "Stopped search visited " + result.getNodeCount() + " nodes");
+		solver.searchWindow(new GravityBoard(), Token.Black, -1, 1);
+		assertTrue(solver.isAborted(), "Stop cleared by a later search");
+	}
+
+	/**
+	 * Plays random alternating moves, returning <code>null</code> if the game ends early.
+	 */
+	private static BitBoard randomPosition(Random random, int numberOfColumns, int numberOfRows, int winCount, int moveCount) {
+		final BitBoard board = new BitBoard(numberOfColumns, numberOfRows, winCount);
+		Token player = Token.Black;
+		for (int count = 0; count < moveCount; count++) {
+			final int columnIndex = random.nextInt(numberOfColumns);
+			if (board.getColumnSize(columnIndex) >= numberOfRows || board.isWinningMove(player, columnIndex)) {
+				return null;
+			}
+			board.move(player, columnIndex);
+			player = player.getOpponent();
+		}
+		return board;
+	}
+
+	private static int minimax(BitBoard board, Token player) {
+		final int cellCount = board.getNumberOfColumns() * board.getNumberOfRows();
+		final int tokenCount = board.getTokenCount();
+		if (tokenCount == cellCount) {
+			return 0;
+		}
+		for (int columnIndex = 0; columnIndex < board.getNumberOfColumns(); columnIndex++) {
+			if (board.isWinningMove(player, columnIndex)) {
+				return (cellCount + 1 - tokenCount) / 2;
+			}
+		}
+		int bestScore = -cellCount;
+		for (int columnIndex = 0; columnIndex < board.getNumberOfColumns(); columnIndex++) {
+			if (board.getColumnSize(columnIndex) < board.getNumberOfRows()) {
+				board.move(player, columnIndex);
+				bestScore = Math.max(bestScore, -minimax(board, player.getOpponent()));
+				board.undo(columnIndex);
+			}
+		}
+		return bestScore;
+	}
+}
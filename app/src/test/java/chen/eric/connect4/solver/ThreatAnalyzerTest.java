@@ -0,0 +1,156 @@
+package chen.eric.connect4.solver;
+
+import java.util.Random;
+
+import chen.eric.connect4.BitBoard;
+import chen.eric.connect4.BoardState;
+import chen.eric.connect4.Token;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ThreatAnalyzerTest {
+	/**
+	 * Tests threats, winning moves and non-losing moves against playing out every move on
+	 * random positions.
+	 */
+	@Test
+	protected void testMatchesPlayedMoves() {
+		final int[][] sizes = {
+			// columns, rows, win count
+			{7, 6, 4},
+			{5, 4, 3},
+			{8, 7, 5},
+			{4, 4, 2},
+			{6, 5, 4},
+			{16, 3, 4},
+			{3, 3, 1}};
+		final Random random = new Random(3);
+		for (final int[] size : sizes) {
+			final ThreatAnalyzer threatAnalyzer = new ThreatAnalyzer(size[0], size[1], size[2]);
+			for (int game = 0; game < 200; game++) {
+				final BitBoard board = new BitBoard(size[0], size[1], size[2]);
+				Token player = Token.Black;
+				int status = BoardState.ONGOING_STATUS;
+				while (status == BoardState.ONGOING_STATUS) {
+					final long tokenMask = board.getTokenMask(player);
+					final long opponentTokenMask = board.getTokenMask(player.getOpponent());
+					final long occupiedMask = tokenMask | opponentTokenMask;
+					assertEquals(threatMask(board, player), threatAnalyzer.getThreatMask(tokenMask, occupiedMask), "Threat mismatch on\n" + board);
+
+					long winningMoveMask = 0;
+					long nonLosingMoveMask = 0;
+					for (int columnIndex = 0; columnIndex < size[0]; columnIndex++) {
+						if (!board.isLegal(columnIndex)) {
+							continue;
+						}
+						final long moveBit = 1L << (columnIndex * (size[1] + 1) + board.getColumnSize(columnIndex));
+						if (board.isWinningMove(player, columnIndex)) {
+							winningMoveMask |= moveBit;
+						}
+						board.moveStatus(player, columnIndex);
+						if (!hasWinningMove(board, player.getOpponent())) {
+							nonLosingMoveMask |= moveBit;
+						}
+						board.undo(columnIndex);
+					}
+					assertEquals(winningMoveMask, threatAnalyzer.getWinningMoveMask(tokenMask, occupiedMask), "Winning move mismatch on\n" + board);
+					if (winningMoveMask == 0) {
+						assertEquals(nonLosingMoveMask, threatAnalyzer.getNonLosingMoveMask(tokenMask, opponentTokenMask), "Non-losing move mismatch on\n" + board);
+						assertEquals(nonLosingMoveMask == 0, threatAnalyzer.isLost(tokenMask, opponentTokenMask), "Loss mismatch on\n" + board);
+					}
+
+					int columnIndex;
+					do {
+						columnIndex = random.nextInt(size[0]);
+					}
+					while (!board.isLegal(columnIndex));
+					status = board.moveStatus(player, columnIndex);
+					player = player.getOpponent();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests splitting threats by row parity.
+	 */
+	@Test
+	protected void testParity() {
+		final BitBoard board = new BitBoard();
+		final ThreatAnalyzer threatAnalyzer = new ThreatAnalyzer(board);
+		// Black threatens row 1 (counting from 1) of column 3, and Red row 2 above it
+		for (final int columnIndex : new int[] {0, 1, 2, 4, 5, 6}) {
+			board.move(Token.Black, columnIndex);
+		}
+		for (final int columnIndex : new int[] {4, 5, 6}) {
+			board.move(Token.Red, columnIndex);
+		}
+		final long blackTokenMask = board.getTokenMask(Token.Black);
+		final long redTokenMask = board.getTokenMask(Token.Red);
+		final long occupiedMask = blackTokenMask | redTokenMask;
+		final long blackThreatMask = threatAnalyzer.getThreatMask(blackTokenMask, occupiedMask);
+		final long redThreatMask = threatAnalyzer.getThreatMask(redTokenMask, occupiedMask);
+		final long columnMask = threatAnalyzer.getColumnMask(3);
+		assertEquals(columnMask & -columnMask, blackThreatMask, "Black threat mismatch");
+		assertEquals((columnMask & -columnMask) << 1, redThreatMask, "Red threat mismatch");
+		assertEquals(3, threatAnalyzer.getColumnIndex(redThreatMask), "Column index mismatch");
+
+		assertEquals(blackThreatMask, threatAnalyzer.getParityThreatMask(Token.Black, blackThreatMask), "Black odd threat missed");
+		assertEquals(0, threatAnalyzer.getParityThreatMask(Token.Red, blackThreatMask), "Black threat counted for Red");
+		assertEquals(redThreatMask, threatAnalyzer.getParityThreatMask(Token.Red, redThreatMask), "Red even threat missed");
+		assertEquals(0, threatAnalyzer.getParityThreatMask(Token.Black, redThreatMask), "Red threat counted for Black");
+		assertEquals(0, threatAnalyzer.getParityBalance(blackTokenMask, redTokenMask), "Parity balance mismatch");
+
+		// a vertical Black threat on row 5
+		final BitBoard verticalBoard = new BitBoard();
+		verticalBoard.move(Token.Red, 0);
+		verticalBoard.move(Token.Black, 0);
+		verticalBoard.move(Token.Black, 0);
+		verticalBoard.move(Token.Black, 0);
+		assertEquals(1, threatAnalyzer.getParityBalance(verticalBoard.getTokenMask(Token.Black), verticalBoard.getTokenMask(Token.Red)), "Parity balance mismatch");
+	}
+
+	/**
+	 * Returns the empty cells where <code>player</code> would complete a line, by counting
+	 * tokens cell by cell.
+	 */
+	private static long threatMask(BitBoard board, Token player) {
+		final int numberOfColumns = board.getNumberOfColumns();
+		final int numberOfRows = board.getNumberOfRows();
+		final int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+		long threatMask = 0;
+		for (int columnIndex = 0; columnIndex < numberOfColumns; columnIndex++) {
+			for (int rowIndex = board.getColumnSize(columnIndex); rowIndex < numberOfRows; rowIndex++) {
+				for (final int[] direction : directions) {
+					int lineCount = 1;
+					for (final int sign : new int[] {1, -1}) {
+						int nextColumnIndex = columnIndex + sign * direction[0];
+						int nextRowIndex = rowIndex + sign * direction[1];
+						while (nextColumnIndex >= 0 && nextColumnIndex < numberOfColumns
+							&& nextRowIndex >= 0 && nextRowIndex < numberOfRows
+							&& board.getToken(nextColumnIndex, nextRowIndex) == player)
+						{
+							++lineCount;
+							nextColumnIndex += sign * direction[0];
+							nextRowIndex += sign * direction[1];
+						}
+					}
+					if (lineCount >= board.getWinCount()) {
+						threatMask |= 1L << (columnIndex * (numberOfRows + 1) + rowIndex);
+					}
+				}
+			}
+		}
+		return threatMask;
+	}
+
+	private static boolean hasWinningMove(BitBoard board, Token player) {
+		for (int columnIndex = 0; columnIndex < board.getNumberOfColumns(); columnIndex++) {
+			if (board.isWinningMove(player, columnIndex)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}